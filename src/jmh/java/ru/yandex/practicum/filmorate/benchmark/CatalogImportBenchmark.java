@@ -0,0 +1,98 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+import ru.yandex.practicum.filmorate.catalog.CatalogTransfer;
+import ru.yandex.practicum.filmorate.catalog.ImportReport;
+import ru.yandex.practicum.filmorate.controller.BatchValidator;
+import ru.yandex.practicum.filmorate.feed.ChangeFeed;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.film.InMemoryFilmStorage;
+import ru.yandex.practicum.filmorate.storage.user.InMemoryUserStorage;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+//Загрузка выгрузки каталога в пустые хранилища с проверкой каждой сущности: size фильмов и size пользователей,
+//сущностей в секунду - 2 * size / время. parallelism 1 - без параллельной обработки кадров
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgs = "-Xmx16g")
+@State(Scope.Benchmark)
+public class CatalogImportBenchmark {
+    private static final int BATCH = 10_000;
+
+    @Param({"100000", "1000000"})
+    private int size;
+
+    @Param({"false", "true"})
+    private boolean compress;
+
+    @Param({"1", "0"})
+    private int parallelism;
+
+    private byte[] catalog;
+    private BatchValidator validator;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        InMemoryFilmStorage filmStorage = new InMemoryFilmStorage(false);
+        InMemoryUserStorage userStorage = new InMemoryUserStorage(false);
+        for (int from = 0; from < size; from += BATCH) {
+            filmStorage.createAll(films(from, Math.min(size, from + BATCH)));
+            userStorage.createAll(users(from, Math.min(size, from + BATCH)));
+        }
+        for (long id = 1; id <= size; id += 7) {
+            filmStorage.addLike(id, id);
+            userStorage.addFriend(id, id % size + 1);
+        }
+        validator = new BatchValidator(Fixtures.validator(), new SimpleMeterRegistry());
+        CatalogTransfer transfer = transfer(filmStorage, userStorage);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try {
+            transfer.export(Channels.newChannel(out), compress);
+        } finally {
+            transfer.stop();
+        }
+        catalog = out.toByteArray();
+    }
+
+    @Benchmark
+    public ImportReport importCatalog() throws IOException {
+        CatalogTransfer transfer = transfer(new InMemoryFilmStorage(false), new InMemoryUserStorage(false));
+        try {
+            return transfer.importFrom(Channels.newChannel(new ByteArrayInputStream(catalog)));
+        } finally {
+            transfer.stop();
+        }
+    }
+
+    private CatalogTransfer transfer(InMemoryFilmStorage filmStorage, InMemoryUserStorage userStorage) {
+        return new CatalogTransfer(filmStorage, userStorage, validator, new ChangeFeed<>(65536),
+                new ChangeFeed<>(65536), parallelism, 4096);
+    }
+
+    private static List<Film> films(int from, int to) {
+        List<Film> films = new ArrayList<>(to - from);
+        for (int i = from; i < to; i++) {
+            films.add(Fixtures.film(i));
+        }
+        return films;
+    }
+
+    private static List<User> users(int from, int to) {
+        List<User> users = new ArrayList<>(to - from);
+        for (int i = from; i < to; i++) {
+            users.add(Fixtures.user(i));
+        }
+        return users;
+    }
+}
@@ -0,0 +1,59 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import ru.yandex.practicum.filmorate.storage.SortedLongArrays;
+
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+//Пересечение списков друзей: отсортированные массивы против HashSet.retainAll
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CommonFriendsBenchmark {
+
+    @Param({"100", "10000", "100000"})
+    private int friends;
+
+    //Размер списка второго пользователя относительно первого
+    @Param({"1", "0.01"})
+    private double ratio;
+
+    private long[] first;
+    private long[] second;
+    private Set<Long> firstSet;
+    private Set<Long> secondSet;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Random random = new Random(42);
+        int universe = friends * 4;
+        first = random.longs(friends, 1, universe).distinct().sorted().toArray();
+        second = random.longs(Math.max(1, (long) (friends * ratio)), 1, universe).distinct().sorted().toArray();
+        firstSet = new HashSet<>();
+        for (long id : first) {
+            firstSet.add(id);
+        }
+        secondSet = new HashSet<>();
+        for (long id : second) {
+            secondSet.add(id);
+        }
+    }
+
+    @Benchmark
+    public long[] sortedArrays() {
+        return SortedLongArrays.intersect(first, second);
+    }
+
+    @Benchmark
+    public Set<Long> hashSetRetainAll() {
+        Set<Long> common = new HashSet<>(firstSet);
+        common.retainAll(secondSet);
+        return common;
+    }
+}
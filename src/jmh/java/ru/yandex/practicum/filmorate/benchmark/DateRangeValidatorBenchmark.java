@@ -0,0 +1,40 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.validators.DateRange;
+import ru.yandex.practicum.filmorate.validators.DateRangeValidator;
+
+import java.time.LocalDate;
+import java.util.concurrent.TimeUnit;
+
+//Проверка даты релиза валидатором DateRange
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class DateRangeValidatorBenchmark {
+
+    private static final int DATES = 10_000;
+
+    private DateRangeValidator validator;
+    private LocalDate[] dates;
+    private int cursor;
+
+    @Setup(Level.Trial)
+    public void setUp() throws NoSuchFieldException {
+        validator = new DateRangeValidator();
+        validator.initialize(Film.class.getDeclaredField("releaseDate").getAnnotation(DateRange.class));
+        dates = new LocalDate[DATES];
+        for (int i = 0; i < DATES; i++) {
+            dates[i] = LocalDate.of(1880, 1, 1).plusDays(i * 5L);
+        }
+    }
+
+    @Benchmark
+    public boolean isValid() {
+        return validator.isValid(dates[cursor++ % DATES], null);
+    }
+}
@@ -0,0 +1,70 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+import ru.yandex.practicum.filmorate.controller.BatchValidator;
+import ru.yandex.practicum.filmorate.controller.ChangeStreamer;
+import ru.yandex.practicum.filmorate.controller.FilmController;
+import ru.yandex.practicum.filmorate.controller.NdjsonStreamer;
+import ru.yandex.practicum.filmorate.controller.SerializedResponseCache;
+import ru.yandex.practicum.filmorate.feed.ChangeFeed;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.storage.film.InMemoryFilmStorage;
+import ru.yandex.practicum.filmorate.storage.user.InMemoryUserStorage;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+//Создание, обновление и выдача фильмов через контроллер на заполненном хранилище
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx8g")
+@State(Scope.Benchmark)
+public class FilmControllerBenchmark {
+
+    @Param({"10000", "1000000", "10000000"})
+    private int size;
+
+    private FilmController filmController;
+    private long cursor;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        InMemoryFilmStorage filmStorage = new InMemoryFilmStorage();
+        List<Film> films = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            films.add(Fixtures.film(i));
+        }
+        filmStorage.createAll(films);
+        filmController = new FilmController(
+                filmStorage,
+                new InMemoryUserStorage(),
+                new NdjsonStreamer(Fixtures.objectMapper()),
+                new BatchValidator(Fixtures.validator(), new SimpleMeterRegistry()),
+                new SerializedResponseCache(Fixtures.objectMapper(), new SimpleMeterRegistry()),
+                new ChangeFeed<>(65536),
+                new ChangeStreamer(new SimpleMeterRegistry(), 1000, 1000)
+        );
+    }
+
+    @Benchmark
+    public Film create() {
+        return filmController.create(Fixtures.film(cursor++));
+    }
+
+    @Benchmark
+    public Film update() {
+        long id = cursor++ % size + 1;
+        return filmController.update(Film.builder().id(id).name("Updated " + id).build());
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public Collection<Film> findAll() {
+        return filmController.findAll();
+    }
+}
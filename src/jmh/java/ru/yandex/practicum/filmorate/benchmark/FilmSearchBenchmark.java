@@ -0,0 +1,64 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.storage.film.InMemoryFilmStorage;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+//Задержка поиска фильмов: слово, которое есть у всех фильмов, редкое слово вместе с частым
+//(пересечение начинается с короткого списка) и префикс. Группа readWrite - тот же поиск
+//при одновременных обновлениях названий
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgs = "-Xmx8g")
+@State(Scope.Benchmark)
+public class FilmSearchBenchmark {
+    private static final int BATCH = 10_000;
+
+    @Param({"100000", "1000000"})
+    private int size;
+
+    @Param({"film", "film 12345", "descr"})
+    private String query;
+
+    private InMemoryFilmStorage filmStorage;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        filmStorage = new InMemoryFilmStorage();
+        for (int from = 0; from < size; from += BATCH) {
+            List<Film> films = new ArrayList<>(BATCH);
+            for (int i = from; i < Math.min(size, from + BATCH); i++) {
+                films.add(Fixtures.film(i));
+            }
+            filmStorage.createAll(films);
+        }
+    }
+
+    @Benchmark
+    public List<Film> search() {
+        return filmStorage.search(query, 0, 10);
+    }
+
+    @Benchmark
+    @Group("readWrite")
+    @GroupThreads(3)
+    public List<Film> searchWhileUpdating() {
+        return filmStorage.search(query, 0, 10);
+    }
+
+    @Benchmark
+    @Group("readWrite")
+    @GroupThreads(1)
+    public Film update() {
+        long id = ThreadLocalRandom.current().nextLong(1, size + 1);
+        return filmStorage.update(id, film -> film.toBuilder().name("Film " + id + " updated").build())
+                .orElseThrow();
+    }
+}
@@ -0,0 +1,107 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonDeserializer;
+import com.fasterxml.jackson.databind.JsonSerializer;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import org.openjdk.jmh.annotations.*;
+import ru.yandex.practicum.filmorate.model.Film;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+//Сериализация фильмов в JSON: потоковые FilmSerializer/FilmDeserializer против обхода свойств через рефлексию,
+//которым Film сериализовался раньше. Выделение памяти на фильм - метрика gc.alloc.rate.norm
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx8g")
+@State(Scope.Benchmark)
+public class FilmSerializationBenchmark {
+
+    @Param({"10000", "1000000", "10000000"})
+    private int size;
+
+    private ObjectMapper objectMapper;
+    private ObjectMapper reflectiveMapper;
+    private Film film;
+    private byte[] filmJson;
+    private List<Film> films;
+
+    @Setup(Level.Trial)
+    public void setUp() throws JsonProcessingException {
+        objectMapper = Fixtures.objectMapper();
+        reflectiveMapper = Fixtures.objectMapper().addMixIn(Film.class, ReflectiveFilm.class);
+        film = Fixtures.film(1);
+        film.setId(1);
+        filmJson = objectMapper.writeValueAsBytes(film);
+        films = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            Film next = Fixtures.film(i);
+            next.setId(i + 1);
+            films.add(next);
+        }
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    public byte[] single() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(film);
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    public byte[] singleReflective() throws JsonProcessingException {
+        return reflectiveMapper.writeValueAsBytes(film);
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public byte[] collection() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(films);
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public byte[] collectionReflective() throws JsonProcessingException {
+        return reflectiveMapper.writeValueAsBytes(films);
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    public Film read() throws IOException {
+        return objectMapper.readValue(filmJson, Film.class);
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    public Film readReflective() throws IOException {
+        return reflectiveMapper.readValue(filmJson, Film.class);
+    }
+
+    //Отключает потоковые сериализаторы Film: свойства обходятся BeanSerializer/BeanDeserializer,
+    //продолжительность пишется в секундах сериализатором поля, как прежний @JsonGetter,
+    //а читается DurationDeserializer из JavaTimeModule
+    @JsonSerialize(using = JsonSerializer.None.class)
+    @JsonDeserialize(using = JsonDeserializer.None.class)
+    abstract static class ReflectiveFilm {
+        @JsonSerialize(using = DurationSeconds.class)
+        abstract Duration getDuration();
+    }
+
+    static class DurationSeconds extends JsonSerializer<Duration> {
+        @Override
+        public void serialize(Duration duration, JsonGenerator generator, SerializerProvider provider)
+                throws IOException {
+            generator.writeNumber(duration.toSeconds());
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.validation.Validation;
+import jakarta.validation.Validator;
+import jakarta.validation.ValidatorFactory;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.User;
+
+import java.time.Duration;
+import java.time.LocalDate;
+
+//Тестовые данные и инфраструктура, общие для бенчмарков
+final class Fixtures {
+
+    private Fixtures() {
+    }
+
+    static Film film(long i) {
+        return Film.builder()
+                .name("Film " + i)
+                .description("Description of film " + i)
+                .releaseDate(LocalDate.of(1900, 1, 1).plusDays(i % 40_000))
+                .duration(Duration.ofMinutes(60 + i % 120))
+                .build();
+    }
+
+    static User user(long i) {
+        return User.builder()
+                .email("user" + i + "@mail.ru")
+                .login("user" + i)
+                .name("User " + i)
+                .birthday(LocalDate.of(1950, 1, 1).plusDays(i % 20_000))
+                .build();
+    }
+
+    //ObjectMapper с той же конфигурацией, что Spring Boot создаёт для контроллеров
+    static ObjectMapper objectMapper() {
+        return Jackson2ObjectMapperBuilder.json().build();
+    }
+
+    static Validator validator() {
+        try (ValidatorFactory factory = Validation.buildDefaultValidatorFactory()) {
+            return factory.getValidator();
+        }
+    }
+}
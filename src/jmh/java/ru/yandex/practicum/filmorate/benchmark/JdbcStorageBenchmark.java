@@ -0,0 +1,64 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.flywaydb.core.Flyway;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.storage.film.JdbcFilmStorage;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+//Пропускная способность записи фильмов в H2: по одному и пакетами
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class JdbcStorageBenchmark {
+
+    @Param({"100", "1000"})
+    private int batchSize;
+
+    private HikariDataSource dataSource;
+    private JdbcFilmStorage filmStorage;
+    private long cursor;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        dataSource = new HikariDataSource();
+        dataSource.setJdbcUrl("jdbc:h2:mem:benchmark;DB_CLOSE_DELAY=-1");
+        Flyway.configure().dataSource(dataSource).load().migrate();
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        filmStorage = new JdbcFilmStorage(
+                jdbcTemplate,
+                new TransactionTemplate(new DataSourceTransactionManager(dataSource))
+        );
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        dataSource.close();
+    }
+
+    //Одна строка на операцию
+    @Benchmark
+    public Film single() {
+        return filmStorage.create(Fixtures.film(cursor++));
+    }
+
+    //batchSize строк на операцию, строк в секунду - результат, умноженный на batchSize
+    @Benchmark
+    public List<Film> batch() {
+        List<Film> films = new ArrayList<>(batchSize);
+        for (int i = 0; i < batchSize; i++) {
+            films.add(Fixtures.film(cursor++));
+        }
+        return filmStorage.createAll(films);
+    }
+}
@@ -0,0 +1,90 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import ru.yandex.practicum.filmorate.recommendation.LikeMatrix;
+import ru.yandex.practicum.filmorate.recommendation.RecommendationEngine;
+import ru.yandex.practicum.filmorate.storage.film.FilmStorage;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+//Рекомендации на матрице 1 млн пользователей x 100 тыс. фильмов: построение матрицы и запрос без кэша.
+//Популярность фильмов неравномерная: лайки сосредоточены на небольшой доле фильмов
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgs = "-Xmx8g")
+@State(Scope.Benchmark)
+public class RecommendationBenchmark {
+
+    @Param({"1000000"})
+    private int users;
+
+    @Param({"100000"})
+    private int films;
+
+    @Param({"20"})
+    private int likesPerUser;
+
+    private long[][] rows;
+    private ForkJoinPool pool;
+    private LikeMatrix matrix;
+    private RecommendationEngine engine;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Random random = new Random(42);
+        int[] filmOfLike = new int[users * likesPerUser];
+        int[] rowSizes = new int[films];
+        for (int i = 0; i < filmOfLike.length; i++) {
+            int film = (int) (films * Math.pow(random.nextDouble(), 3));
+            filmOfLike[i] = film;
+            rowSizes[film]++;
+        }
+        rows = new long[films][];
+        for (int film = 0; film < films; film++) {
+            rows[film] = new long[rowSizes[film]];
+        }
+        int[] filled = new int[films];
+        for (int i = 0; i < filmOfLike.length; i++) {
+            int film = filmOfLike[i];
+            rows[film][filled[film]++] = i / likesPerUser + 1;
+        }
+        for (int film = 0; film < films; film++) {
+            rows[film] = Arrays.stream(rows[film]).distinct().toArray();
+        }
+        pool = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+        matrix = build();
+        engine = new RecommendationEngine(pool, 50);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        pool.shutdownNow();
+    }
+
+    @Benchmark
+    public long[] recommend() {
+        return engine.recommend(matrix, ThreadLocalRandom.current().nextInt(users) + 1, 10);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @Warmup(iterations = 1)
+    @Measurement(iterations = 5)
+    public LikeMatrix build() {
+        Consumer<FilmStorage.LikesConsumer> source = consumer -> {
+            for (int film = 0; film < films; film++) {
+                if (rows[film].length > 0) {
+                    consumer.accept(film + 1, rows[film]);
+                }
+            }
+        };
+        return LikeMatrix.build(source, 1, pool);
+    }
+}
@@ -0,0 +1,115 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.film.InMemoryFilmStorage;
+import ru.yandex.practicum.filmorate.storage.journal.DurableJournal;
+import ru.yandex.practicum.filmorate.storage.user.InMemoryUserStorage;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+//Время старта: загрузка снимка и повтор хвоста журнала против повторного импорта тех же данных через createAll
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgs = "-Xmx16g")
+@State(Scope.Benchmark)
+public class RecoveryBenchmark {
+    private static final int BATCH = 10_000;
+
+    @Param({"100000", "1000000", "10000000"})
+    private int size;
+
+    //Изменения, записанные в журнал после снимка
+    @Param({"0", "100000"})
+    private int tail;
+
+    @Param({"false", "true"})
+    private boolean packed;
+
+    private Path directory;
+    private DurableJournal journal;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        directory = Files.createTempDirectory("filmorate-recovery");
+        InMemoryFilmStorage filmStorage = new InMemoryFilmStorage(packed);
+        InMemoryUserStorage userStorage = new InMemoryUserStorage(packed);
+        DurableJournal writer = new DurableJournal(filmStorage, userStorage, directory, 50, 3600);
+        writer.start();
+        for (int from = 0; from < size; from += BATCH) {
+            filmStorage.createAll(films(from, Math.min(size, from + BATCH)));
+            userStorage.createAll(users(from, Math.min(size, from + BATCH)));
+        }
+        for (long id = 1; id <= size; id += 7) {
+            filmStorage.addLike(id, id);
+        }
+        writer.snapshot();
+        for (int i = 0; i < tail; i++) {
+            long id = i % size + 1;
+            filmStorage.update(id, film -> film.toBuilder().name("Updated " + id).build());
+        }
+        writer.stop();
+    }
+
+    @TearDown(Level.Iteration)
+    public void stopJournal() throws Exception {
+        if (journal != null) {
+            journal.stop();
+            journal = null;
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        try (Stream<Path> files = Files.walk(directory)) {
+            for (Path file : files.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(file);
+            }
+        }
+    }
+
+    @Benchmark
+    public long recover() throws Exception {
+        InMemoryFilmStorage filmStorage = new InMemoryFilmStorage(packed);
+        journal = new DurableJournal(filmStorage, new InMemoryUserStorage(packed), directory, 50, 3600);
+        journal.start();
+        return filmStorage.count();
+    }
+
+    @Benchmark
+    public long reimport() {
+        InMemoryFilmStorage filmStorage = new InMemoryFilmStorage(packed);
+        InMemoryUserStorage userStorage = new InMemoryUserStorage(packed);
+        for (int from = 0; from < size; from += BATCH) {
+            filmStorage.createAll(films(from, Math.min(size, from + BATCH)));
+            userStorage.createAll(users(from, Math.min(size, from + BATCH)));
+        }
+        return filmStorage.count();
+    }
+
+    private static List<Film> films(int from, int to) {
+        List<Film> films = new ArrayList<>(to - from);
+        for (int i = from; i < to; i++) {
+            films.add(Fixtures.film(i));
+        }
+        return films;
+    }
+
+    private static List<User> users(int from, int to) {
+        List<User> users = new ArrayList<>(to - from);
+        for (int i = from; i < to; i++) {
+            users.add(Fixtures.user(i));
+        }
+        return users;
+    }
+}
@@ -0,0 +1,54 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import ru.yandex.practicum.filmorate.storage.film.InMemoryFilmStorage;
+import ru.yandex.practicum.filmorate.storage.user.InMemoryUserStorage;
+
+import java.lang.ref.Reference;
+import java.util.function.LongFunction;
+
+//Байты кучи на сущность в хранилищах в памяти (вместе с индексами) при объектном и колоночном представлении.
+//Не JMH-бенчмарк: измеряется удерживаемая память, а не время, поэтому запускается отдельно:
+//mvn -Pjmh test-compile exec:java -Dexec.mainClass=ru.yandex.practicum.filmorate.benchmark.StorageFootprint
+public final class StorageFootprint {
+    private static final int SIZE = Integer.getInteger("footprint.size", 1_000_000);
+
+    private StorageFootprint() {
+    }
+
+    public static void main(String[] args) {
+        for (boolean packed : new boolean[]{false, true}) {
+            String layout = packed ? "packed" : "objects";
+            System.out.printf("films %-8s %6.1f bytes/entity%n", layout, measure(size -> {
+                InMemoryFilmStorage storage = new InMemoryFilmStorage(packed);
+                for (long i = 0; i < size; i++) {
+                    storage.create(Fixtures.film(i));
+                }
+                return storage;
+            }));
+            System.out.printf("users %-8s %6.1f bytes/entity%n", layout, measure(size -> {
+                InMemoryUserStorage storage = new InMemoryUserStorage(packed);
+                for (long i = 0; i < size; i++) {
+                    storage.create(Fixtures.user(i));
+                }
+                return storage;
+            }));
+        }
+    }
+
+    //Разница занятой кучи до и после заполнения, пока хранилище достижимо
+    private static double measure(LongFunction<Object> fill) {
+        long before = usedHeap();
+        Object storage = fill.apply(SIZE);
+        long after = usedHeap();
+        Reference.reachabilityFence(storage);
+        return (double) (after - before) / SIZE;
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 5; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
@@ -0,0 +1,64 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+import ru.yandex.practicum.filmorate.controller.BatchValidator;
+import ru.yandex.practicum.filmorate.controller.ChangeStreamer;
+import ru.yandex.practicum.filmorate.controller.NdjsonStreamer;
+import ru.yandex.practicum.filmorate.controller.SerializedResponseCache;
+import ru.yandex.practicum.filmorate.controller.UserController;
+import ru.yandex.practicum.filmorate.feed.ChangeFeed;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.user.InMemoryUserStorage;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+//Создание и обновление пользователей через контроллер на заполненном хранилище
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx8g")
+@State(Scope.Benchmark)
+public class UserControllerBenchmark {
+
+    @Param({"10000", "1000000", "10000000"})
+    private int size;
+
+    private UserController userController;
+    private long cursor;
+    //email новых пользователей продолжают нумерацию после заполненных, чтобы не попадать в дубликаты
+    private long nextEmail;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        InMemoryUserStorage userStorage = new InMemoryUserStorage();
+        List<User> users = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            users.add(Fixtures.user(i));
+        }
+        userStorage.createAll(users);
+        userController = new UserController(
+                userStorage,
+                new NdjsonStreamer(Fixtures.objectMapper()),
+                new BatchValidator(Fixtures.validator(), new SimpleMeterRegistry()),
+                new SerializedResponseCache(Fixtures.objectMapper(), new SimpleMeterRegistry()),
+                new ChangeFeed<>(65536),
+                new ChangeStreamer(new SimpleMeterRegistry(), 1000, 1000)
+        );
+        nextEmail = size;
+    }
+
+    @Benchmark
+    public User create() {
+        return userController.create(Fixtures.user(nextEmail++));
+    }
+
+    @Benchmark
+    public User update() {
+        long id = cursor++ % size + 1;
+        return userController.update(Fixtures.user(id - 1).toBuilder().id(id).name("Updated " + id).build());
+    }
+}
@@ -0,0 +1,89 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.storage.film.InMemoryFilmStorage;
+import ru.yandex.practicum.filmorate.storage.journal.DurableJournal;
+import ru.yandex.practicum.filmorate.storage.user.InMemoryUserStorage;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+//Пропускная способность обновлений фильмов с журналом: запись в потоке запроса со сбросом по таймеру (append),
+//со сбросом на диск после каждого изменения (append-fsync), отложенная запись без подтверждения
+//(write-behind) и с ожиданием сброса пакета (write-behind-ack)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(16)
+@State(Scope.Benchmark)
+public class WriteBehindBenchmark {
+    private static final int FILMS = 100_000;
+
+    @Param({"append", "append-fsync", "write-behind", "write-behind-ack"})
+    private String mode;
+
+    private Path directory;
+    private InMemoryFilmStorage filmStorage;
+    private DurableJournal journal;
+    private boolean fsyncEachWrite;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        directory = Files.createTempDirectory("filmorate-write-behind");
+        filmStorage = new InMemoryFilmStorage();
+        DurableJournal.WriteBehind writeBehind = switch (mode) {
+            case "write-behind" -> new DurableJournal.WriteBehind(65_536, 1024, DurableJournal.Ack.NONE);
+            case "write-behind-ack" -> new DurableJournal.WriteBehind(65_536, 1024, DurableJournal.Ack.FLUSH);
+            default -> null;
+        };
+        fsyncEachWrite = mode.equals("append-fsync");
+        journal = new DurableJournal(filmStorage, new InMemoryUserStorage(), directory, 2, 3600,
+                writeBehind, new SimpleMeterRegistry());
+        journal.start();
+        List<Film> films = new ArrayList<>(FILMS);
+        for (int i = 0; i < FILMS; i++) {
+            films.add(Film.builder()
+                    .name("Film " + i)
+                    .description("Description " + i)
+                    .releaseDate(LocalDate.of(2000, 1, 1))
+                    .duration(Duration.ofMinutes(90))
+                    .build());
+        }
+        filmStorage.createAll(films);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        journal.stop();
+        try (Stream<Path> files = Files.walk(directory)) {
+            for (Path file : files.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(file);
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @Benchmark
+    public Film update() {
+        long id = ThreadLocalRandom.current().nextInt(FILMS) + 1;
+        Film updated = filmStorage.update(id, film -> film.toBuilder().name("Updated " + id).build()).orElseThrow();
+        if (fsyncEachWrite) {
+            journal.flush();
+        }
+        return updated;
+    }
+}
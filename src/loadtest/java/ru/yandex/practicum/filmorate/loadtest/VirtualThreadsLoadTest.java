@@ -0,0 +1,176 @@
+package ru.yandex.practicum.filmorate.loadtest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import ru.yandex.practicum.filmorate.FilmorateApplication;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.storage.film.FilmStorage;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+//Нагрузочный тест: поднимает приложение сначала на пуле потоков Tomcat, затем на виртуальных потоках,
+//и для каждого режима замеряет пропускную способность и p99 задержки при заданном числе соединений.
+//Параметры - системные свойства loadtest.connections, loadtest.seconds, loadtest.path, loadtest.profile
+public final class VirtualThreadsLoadTest {
+    private static final int FILMS = 1_000;
+
+    private VirtualThreadsLoadTest() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        int connections = Integer.getInteger("loadtest.connections", 10_000);
+        Duration duration = Duration.ofSeconds(Long.getLong("loadtest.seconds", 30));
+        String path = System.getProperty("loadtest.path", "/films/popular?count=10");
+        String profile = System.getProperty("loadtest.profile", "");
+
+        List<Result> results = new ArrayList<>();
+        for (boolean virtual : new boolean[]{false, true}) {
+            results.add(run(virtual, connections, duration, path, profile));
+        }
+
+        System.out.printf("%-10s %12s %8s %12s %10s %10s%n", "mode", "requests", "errors", "req/s", "p50, ms", "p99, ms");
+        for (Result result : results) {
+            System.out.printf("%-10s %12d %8d %12.0f %10.2f %10.2f%n", result.mode(), result.requests(),
+                    result.errors(), result.throughput(), result.p50Millis(), result.p99Millis());
+        }
+        File report = new File("target/loadtest-result.json");
+        new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT).writeValue(report, results);
+        System.out.println("Отчёт: " + report.getAbsolutePath());
+    }
+
+    private static Result run(boolean virtual, int connections, Duration duration, String path, String profile)
+            throws Exception {
+        SpringApplicationBuilder builder = new SpringApplicationBuilder(FilmorateApplication.class)
+                .properties(
+                        "server.port=0",
+                        "spring.threads.virtual.enabled=" + virtual,
+                        "server.tomcat.max-connections=" + connections * 2,
+                        "server.tomcat.accept-count=" + connections,
+                        "spring.datasource.url=jdbc:h2:mem:loadtest-" + virtual + ";DB_CLOSE_DELAY=-1"
+                );
+        if (!profile.isEmpty()) {
+            builder.profiles(profile.split(","));
+        }
+        try (ConfigurableApplicationContext context = builder.run()) {
+            seed(context.getBean(FilmStorage.class));
+            int port = ((WebServerApplicationContext) context).getWebServer().getPort();
+            HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + path)).GET().build();
+            //Прогрев JIT и пула соединений на десятой части времени замера
+            load(request, connections, duration.dividedBy(10));
+            long started = System.nanoTime();
+            Latencies latencies = load(request, connections, duration);
+            double seconds = (System.nanoTime() - started) / 1e9;
+            long[] sorted = latencies.sorted();
+            return new Result(
+                    virtual ? "virtual" : "platform",
+                    sorted.length,
+                    latencies.errors,
+                    sorted.length / seconds,
+                    percentile(sorted, 0.50),
+                    percentile(sorted, 0.99)
+            );
+        }
+    }
+
+    private static void seed(FilmStorage filmStorage) {
+        List<Film> films = new ArrayList<>(FILMS);
+        for (int i = 0; i < FILMS; i++) {
+            films.add(Film.builder()
+                    .name("Film " + i)
+                    .description("Description " + i)
+                    .releaseDate(LocalDate.of(2000, 1, 1).plusDays(i))
+                    .duration(Duration.ofMinutes(90))
+                    .build());
+        }
+        filmStorage.createAll(films);
+    }
+
+    //Каждое соединение - отдельный виртуальный поток клиента, отправляющий запросы последовательно
+    private static Latencies load(HttpRequest request, int connections, Duration duration) throws Exception {
+        HttpClient client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .executor(Executors.newVirtualThreadPerTaskExecutor())
+                .build();
+        long deadline = System.nanoTime() + duration.toNanos();
+        Latencies total = new Latencies();
+        try (ExecutorService clients = Executors.newVirtualThreadPerTaskExecutor()) {
+            List<Future<Latencies>> futures = new ArrayList<>(connections);
+            for (int i = 0; i < connections; i++) {
+                futures.add(clients.submit(() -> {
+                    Latencies latencies = new Latencies();
+                    while (System.nanoTime() < deadline) {
+                        long start = System.nanoTime();
+                        try {
+                            HttpResponse<Void> response = client.send(request, HttpResponse.BodyHandlers.discarding());
+                            if (response.statusCode() == 200) {
+                                latencies.add(System.nanoTime() - start);
+                            } else {
+                                latencies.errors++;
+                            }
+                        } catch (IOException e) {
+                            latencies.errors++;
+                        }
+                    }
+                    return latencies;
+                }));
+            }
+            for (Future<Latencies> future : futures) {
+                total.addAll(future.get());
+            }
+        }
+        return total;
+    }
+
+    private static double percentile(long[] sorted, double percentile) {
+        if (sorted.length == 0) {
+            return Double.NaN;
+        }
+        return sorted[(int) Math.min(sorted.length - 1, Math.ceil(percentile * sorted.length) - 1)] / 1e6;
+    }
+
+    public record Result(String mode, long requests, long errors, double throughput, double p50Millis,
+                         double p99Millis) {
+    }
+
+    private static final class Latencies {
+        private long[] values = new long[256];
+        private int size;
+        private long errors;
+
+        void add(long nanos) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = nanos;
+        }
+
+        void addAll(Latencies other) {
+            for (int i = 0; i < other.size; i++) {
+                add(other.values[i]);
+            }
+            errors += other.errors;
+        }
+
+        long[] sorted() {
+            long[] result = Arrays.copyOf(values, size);
+            Arrays.sort(result);
+            return result;
+        }
+    }
+}
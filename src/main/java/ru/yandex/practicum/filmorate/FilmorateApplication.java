@@ -1,11 +1,59 @@
 package ru.yandex.practicum.filmorate;
 
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationRunner;
 import org.springframework.boot.SpringApplication;
+import org.springframework.boot.WebApplicationType;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.context.annotation.Bean;
+import ru.yandex.practicum.filmorate.catalog.CatalogTransfer;
+import ru.yandex.practicum.filmorate.catalog.ImportReport;
+
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
 
 @SpringBootApplication
+@Slf4j
 public class FilmorateApplication {
+    private static final String EXPORT = "filmorate.catalog.export";
+    private static final String IMPORT = "filmorate.catalog.import";
+
+    //С --filmorate.catalog.export=<файл> или --filmorate.catalog.import=<файл> приложение запускается
+    //без веб-сервера, выгружает или загружает каталог и завершается
     public static void main(String[] args) {
-        SpringApplication.run(FilmorateApplication.class, args);
+        SpringApplication application = new SpringApplication(FilmorateApplication.class);
+        if (Arrays.stream(args).anyMatch(arg -> arg.startsWith("--" + EXPORT + "=")
+                || arg.startsWith("--" + IMPORT + "="))) {
+            application.setWebApplicationType(WebApplicationType.NONE);
+            System.exit(SpringApplication.exit(application.run(args)));
+        }
+        application.run(args);
+    }
+
+    @Bean
+    public ApplicationRunner catalogCommand(
+            CatalogTransfer catalogTransfer,
+            @Value("${" + EXPORT + ":}") String exportFile,
+            @Value("${" + IMPORT + ":}") String importFile,
+            @Value("${filmorate.catalog.compress:false}") boolean compress
+    ) {
+        return args -> {
+            if (!importFile.isBlank()) {
+                try (FileChannel channel = FileChannel.open(Path.of(importFile), StandardOpenOption.READ)) {
+                    ImportReport report = catalogTransfer.importFrom(channel);
+                    report.errors().forEach(error -> log.warn("Не загружено: {}", error));
+                }
+            }
+            if (!exportFile.isBlank()) {
+                try (FileChannel channel = FileChannel.open(Path.of(exportFile), StandardOpenOption.CREATE,
+                        StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                    catalogTransfer.export(channel, compress);
+                    log.info("Каталог выгружен в {}, {} байт.", exportFile, channel.size());
+                }
+            }
+        };
     }
 }
@@ -0,0 +1,291 @@
+package ru.yandex.practicum.filmorate.catalog;
+
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.User;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+//Двоичный формат выгрузки каталога: [MAGIC][FORMAT][флаги], затем кадры
+//[тип][число записей][длина записей][длина в потоке][записи, сжатые deflate при FLAG_DEFLATE] и кадр END.
+//Каждый кадр сжимается отдельно, поэтому кадры распаковываются и разбираются параллельно.
+//Записи: пользователь - id, email, login, name, день рождения; фильм - id, name, description, дата релиза,
+//продолжительность; друзья и лайки - id пользователя или фильма, число id и сами id.
+//Строки - длина и UTF-8, -1 для null; даты - epoch day, продолжительность - наносекунды, NO_VALUE для null
+final class CatalogFormat {
+    static final int MAGIC = 0x464C4D43;
+    static final int FORMAT = 1;
+    static final int FLAG_DEFLATE = 1;
+
+    static final byte END = 0;
+    static final byte USERS = 1;
+    static final byte FRIENDS = 2;
+    static final byte FILMS = 3;
+    static final byte LIKES = 4;
+
+    static final int HEADER_SIZE = 12;
+    static final int FRAME_HEADER_SIZE = 1 + 4 + 4 + 4;
+    //Защита от повреждённой длины: кадр не может потребовать больше памяти
+    static final int MAX_FRAME_BYTES = 64 << 20;
+    //Наименьшие размеры записей (все строки null): число записей кадра не может быть больше длины записей,
+    //делённой на этот размер
+    static final int MIN_USER_SIZE = 8 + 3 * 4 + 8;
+    static final int MIN_FILM_SIZE = 8 + 2 * 4 + 8 + 8;
+    static final int MIN_IDS_SIZE = 8 + 4;
+
+    private static final long NO_VALUE = Long.MIN_VALUE;
+
+    private CatalogFormat() {
+    }
+
+    //Кадр, прочитанный из потока: записи ещё не распакованы и не разобраны
+    record Frame(byte type, int count, int rawLength, byte[] stored, boolean deflated) {
+        ByteBuffer records() throws IOException {
+            if (!deflated) {
+                return ByteBuffer.wrap(stored);
+            }
+            byte[] raw = new byte[rawLength];
+            Inflater inflater = new Inflater();
+            try {
+                inflater.setInput(stored);
+                int length = 0;
+                while (length < rawLength) {
+                    int inflated = inflater.inflate(raw, length, rawLength - length);
+                    if (inflated == 0
+                            && (inflater.finished() || inflater.needsInput() || inflater.needsDictionary())) {
+                        break;
+                    }
+                    length += inflated;
+                }
+                if (length != rawLength) {
+                    throw new IOException("Сжатый кадр каталога повреждён");
+                }
+            } catch (DataFormatException e) {
+                throw new IOException("Сжатый кадр каталога повреждён", e);
+            } finally {
+                inflater.end();
+            }
+            return ByteBuffer.wrap(raw);
+        }
+    }
+
+    static void writeHeader(WritableByteChannel channel, boolean deflate) throws IOException {
+        writeFully(channel, ByteBuffer.allocate(HEADER_SIZE)
+                .putInt(MAGIC)
+                .putInt(FORMAT)
+                .putInt(deflate ? FLAG_DEFLATE : 0)
+                .flip());
+    }
+
+    //Флаги потока
+    static int readHeader(ReadableByteChannel channel) throws IOException {
+        ByteBuffer header = readFully(channel, ByteBuffer.allocate(HEADER_SIZE));
+        if (header.getInt() != MAGIC) {
+            throw new IOException("Поток не является выгрузкой каталога");
+        }
+        int format = header.getInt();
+        if (format != FORMAT) {
+            throw new IOException("Неподдерживаемая версия формата каталога " + format);
+        }
+        return header.getInt();
+    }
+
+    //Записи кадра из records (от 0 до position); deflater - null, если поток не сжимается
+    static void writeFrame(WritableByteChannel channel, byte type, int count, ByteBuffer records,
+                           Deflater deflater) throws IOException {
+        int rawLength = records.position();
+        if (rawLength > MAX_FRAME_BYTES) {
+            throw new IOException("Запись каталога больше " + MAX_FRAME_BYTES + " байт");
+        }
+        ByteBuffer stored = records.duplicate().flip();
+        if (deflater != null) {
+            deflater.reset();
+            deflater.setInput(records.array(), records.arrayOffset(), rawLength);
+            deflater.finish();
+            //Несжимаемые данные после deflate чуть длиннее исходных
+            byte[] compressed = new byte[rawLength + (rawLength >> 6) + 64];
+            int length = 0;
+            while (!deflater.finished()) {
+                if (length == compressed.length) {
+                    compressed = Arrays.copyOf(compressed, compressed.length * 2);
+                }
+                length += deflater.deflate(compressed, length, compressed.length - length);
+            }
+            stored = ByteBuffer.wrap(compressed, 0, length);
+        }
+        ByteBuffer header = ByteBuffer.allocate(FRAME_HEADER_SIZE)
+                .put(type)
+                .putInt(count)
+                .putInt(rawLength)
+                .putInt(stored.remaining())
+                .flip();
+        writeFully(channel, header, stored);
+    }
+
+    static void writeEnd(WritableByteChannel channel) throws IOException {
+        writeFully(channel, ByteBuffer.allocate(1).put(END).flip());
+    }
+
+    //Следующий кадр или null после кадра END
+    static Frame readFrame(ReadableByteChannel channel, int flags, ByteBuffer header) throws IOException {
+        header.clear().limit(1);
+        readFully(channel, header);
+        byte type = header.get();
+        if (type == END) {
+            return null;
+        }
+        if (type < USERS || type > LIKES) {
+            throw new IOException("Неизвестный тип кадра каталога " + type);
+        }
+        header.clear().limit(FRAME_HEADER_SIZE - 1);
+        readFully(channel, header);
+        int count = header.getInt();
+        int rawLength = header.getInt();
+        int storedLength = header.getInt();
+        if (count < 0 || rawLength < 0 || storedLength < 0
+                || rawLength > MAX_FRAME_BYTES || storedLength > MAX_FRAME_BYTES
+                || count > rawLength / minRecordSize(type)) {
+            throw new IOException("Кадр каталога повреждён");
+        }
+        byte[] stored = new byte[storedLength];
+        readFully(channel, ByteBuffer.wrap(stored));
+        return new Frame(type, count, rawLength, stored, (flags & FLAG_DEFLATE) != 0);
+    }
+
+    static void putUser(ByteBuffer out, User user) {
+        out.putLong(user.getId());
+        putString(out, user.getEmail());
+        putString(out, user.getLogin());
+        putString(out, user.getName());
+        out.putLong(user.getBirthday() == null ? NO_VALUE : user.getBirthday().toEpochDay());
+    }
+
+    static User getUser(ByteBuffer in) {
+        long id = in.getLong();
+        String email = getString(in);
+        String login = getString(in);
+        String name = getString(in);
+        long birthday = in.getLong();
+        return User.builder()
+                .id(id)
+                .email(email)
+                .login(login)
+                .name(name)
+                .birthday(birthday == NO_VALUE ? null : LocalDate.ofEpochDay(birthday))
+                .build();
+    }
+
+    static void putFilm(ByteBuffer out, Film film) {
+        out.putLong(film.getId());
+        putString(out, film.getName());
+        putString(out, film.getDescription());
+        out.putLong(film.getReleaseDate() == null ? NO_VALUE : film.getReleaseDate().toEpochDay());
+        out.putLong(film.getDuration() == null ? NO_VALUE : film.getDuration().toNanos());
+    }
+
+    static Film getFilm(ByteBuffer in) {
+        long id = in.getLong();
+        String name = getString(in);
+        String description = getString(in);
+        long releaseDate = in.getLong();
+        long duration = in.getLong();
+        return Film.builder()
+                .id(id)
+                .name(name)
+                .description(description)
+                .releaseDate(releaseDate == NO_VALUE ? null : LocalDate.ofEpochDay(releaseDate))
+                .duration(duration == NO_VALUE ? null : Duration.ofNanos(duration))
+                .build();
+    }
+
+    static void putIds(ByteBuffer out, long ownerId, long[] ids) {
+        out.putLong(ownerId).putInt(ids.length);
+        out.asLongBuffer().put(ids);
+        out.position(out.position() + ids.length * Long.BYTES);
+    }
+
+    static long[] getIds(ByteBuffer in) {
+        int length = in.getInt();
+        if (length < 0 || length > in.remaining() / Long.BYTES) {
+            throw new IllegalArgumentException("Число id в записи каталога повреждено");
+        }
+        long[] ids = new long[length];
+        in.asLongBuffer().get(ids);
+        in.position(in.position() + length * Long.BYTES);
+        return ids;
+    }
+
+    //Верхняя оценка размера записи: строки в UTF-8 занимают не больше трёх байт на символ
+    static int maxUserSize(User user) {
+        return 8 + maxSize(user.getEmail()) + maxSize(user.getLogin()) + maxSize(user.getName()) + 8;
+    }
+
+    static int maxFilmSize(Film film) {
+        return 8 + maxSize(film.getName()) + maxSize(film.getDescription()) + 8 + 8;
+    }
+
+    static int idsSize(long[] ids) {
+        return 8 + 4 + ids.length * Long.BYTES;
+    }
+
+    private static int maxSize(String value) {
+        return 4 + (value == null ? 0 : value.length() * 3);
+    }
+
+    private static int minRecordSize(byte type) {
+        return switch (type) {
+            case USERS -> MIN_USER_SIZE;
+            case FILMS -> MIN_FILM_SIZE;
+            default -> MIN_IDS_SIZE;
+        };
+    }
+
+    private static void putString(ByteBuffer out, String value) {
+        if (value == null) {
+            out.putInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.putInt(bytes.length).put(bytes);
+    }
+
+    private static String getString(ByteBuffer in) {
+        int length = in.getInt();
+        if (length < 0) {
+            return null;
+        }
+        if (length > in.remaining()) {
+            throw new IllegalArgumentException("Длина строки в записи каталога повреждена");
+        }
+        String value = new String(in.array(), in.arrayOffset() + in.position(), length, StandardCharsets.UTF_8);
+        in.position(in.position() + length);
+        return value;
+    }
+
+    private static void writeFully(WritableByteChannel channel, ByteBuffer... buffers) throws IOException {
+        for (ByteBuffer buffer : buffers) {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        }
+    }
+
+    private static ByteBuffer readFully(ReadableByteChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer) < 0) {
+                throw new EOFException("Выгрузка каталога обрезана");
+            }
+        }
+        return buffer.flip();
+    }
+}
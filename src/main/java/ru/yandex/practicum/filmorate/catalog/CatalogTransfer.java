@@ -0,0 +1,463 @@
+package ru.yandex.practicum.filmorate.catalog;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.controller.BatchValidator;
+import ru.yandex.practicum.filmorate.feed.ChangeEvent;
+import ru.yandex.practicum.filmorate.feed.ChangeFeed;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.film.FilmStorage;
+import ru.yandex.practicum.filmorate.storage.user.UserStorage;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.zip.Deflater;
+
+//Выгрузка и загрузка всего каталога в формате CatalogFormat. При загрузке поток читает кадры из канала,
+//а пул распаковывает, разбирает, проверяет и сохраняет их параллельно; в работе держится не больше
+//двух кадров на поток пула. Фильмы и пользователи получают новые id, поэтому лайки и друзья загружаются
+//только после того, как загружены все кадры с их владельцами
+@Slf4j
+@Component
+public class CatalogTransfer {
+    static final int MAX_ERRORS = 100;
+    private static final int PAGE_SIZE = 1000;
+    private static final int FRAME_BYTES = 1 << 20;
+    //Лайки и друзья одного владельца делятся на записи не длиннее этого числа id
+    private static final int IDS_PER_RECORD = 65_536;
+
+    private final FilmStorage filmStorage;
+    private final UserStorage userStorage;
+    private final BatchValidator batchValidator;
+    private final ChangeFeed<Film> filmChanges;
+    private final ChangeFeed<User> userChanges;
+    private final ExecutorService pool;
+    private final int window;
+    private final int frameSize;
+
+    public CatalogTransfer(
+            FilmStorage filmStorage,
+            UserStorage userStorage,
+            BatchValidator batchValidator,
+            ChangeFeed<Film> filmChanges,
+            ChangeFeed<User> userChanges,
+            @Value("${filmorate.catalog.parallelism:0}") int parallelism,
+            @Value("${filmorate.catalog.frame-size:4096}") int frameSize
+    ) {
+        if (frameSize < 1) {
+            throw new IllegalArgumentException("filmorate.catalog.frame-size должен быть положительным");
+        }
+        int threads = parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors();
+        this.filmStorage = filmStorage;
+        this.userStorage = userStorage;
+        this.batchValidator = batchValidator;
+        this.filmChanges = filmChanges;
+        this.userChanges = userChanges;
+        this.pool = Executors.newFixedThreadPool(threads, Thread.ofPlatform().name("filmorate-catalog-", 0)
+                .daemon().factory());
+        this.window = threads * 2;
+        this.frameSize = frameSize;
+    }
+
+    @PreDestroy
+    public void stop() {
+        pool.shutdownNow();
+    }
+
+    //Выгрузка не атомарна: изменения, сделанные во время неё, могут попасть в неё частично.
+    //Дружба взаимна, поэтому у пользователя выгружаются только друзья с большим id
+    public void export(WritableByteChannel channel, boolean compress) throws IOException {
+        Deflater deflater = compress ? new Deflater(Deflater.BEST_SPEED) : null;
+        try {
+            CatalogFormat.writeHeader(channel, compress);
+            FrameWriter writer = new FrameWriter(channel, deflater, frameSize);
+
+            writer.begin(CatalogFormat.USERS);
+            long after = 0;
+            while (true) {
+                List<User> page = userStorage.findPage(after, PAGE_SIZE);
+                for (User user : page) {
+                    CatalogFormat.putUser(writer.reserve(CatalogFormat.maxUserSize(user)), user);
+                }
+                if (page.size() < PAGE_SIZE) {
+                    break;
+                }
+                after = page.getLast().getId();
+            }
+
+            writer.begin(CatalogFormat.FRIENDS);
+            try {
+                userStorage.forEachFriends((userId, friendIds) -> {
+                    int from = Arrays.binarySearch(friendIds, userId);
+                    putIds(writer, userId, friendIds, from >= 0 ? from + 1 : -from - 1);
+                });
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+
+            writer.begin(CatalogFormat.FILMS);
+            after = 0;
+            while (true) {
+                List<Film> page = filmStorage.findPage(after, PAGE_SIZE);
+                for (Film film : page) {
+                    CatalogFormat.putFilm(writer.reserve(CatalogFormat.maxFilmSize(film)), film);
+                }
+                if (page.size() < PAGE_SIZE) {
+                    break;
+                }
+                after = page.getLast().getId();
+            }
+
+            writer.begin(CatalogFormat.LIKES);
+            try {
+                filmStorage.forEachLikes((filmId, userIds) -> putIds(writer, filmId, userIds, 0));
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+
+            writer.flush();
+            CatalogFormat.writeEnd(channel);
+        } finally {
+            if (deflater != null) {
+                deflater.end();
+            }
+        }
+    }
+
+    //Загрузка в текущее хранилище. Фильмы и пользователи проверяются теми же правилами, что и в запросах,
+    //пользователи с уже занятым email отклоняются; связи с отклонёнными сущностями пропускаются
+    public ImportReport importFrom(ReadableByteChannel channel) throws IOException {
+        long started = System.nanoTime();
+        int flags = CatalogFormat.readHeader(channel);
+        Progress progress = new Progress();
+        Deque<Future<FrameResult>> inFlight = new ArrayDeque<>();
+        ByteBuffer header = ByteBuffer.allocate(CatalogFormat.FRAME_HEADER_SIZE);
+        byte phase = CatalogFormat.USERS;
+        try {
+            CatalogFormat.Frame frame;
+            while ((frame = CatalogFormat.readFrame(channel, flags, header)) != null) {
+                if (frame.type() < phase) {
+                    throw new IOException("Кадры каталога идут не по порядку");
+                }
+                if (frame.type() != phase) {
+                    //Граница фаз: следующие кадры читают соответствия id, заполненные предыдущими
+                    drain(inFlight, 0, progress);
+                    phase = frame.type();
+                }
+                drain(inFlight, window - 1, progress);
+                CatalogFormat.Frame submitted = frame;
+                inFlight.add(pool.submit(() -> load(submitted, progress)));
+            }
+            drain(inFlight, 0, progress);
+        } catch (IOException | RuntimeException e) {
+            inFlight.forEach(future -> future.cancel(false));
+            throw e;
+        }
+        ImportReport report = progress.report(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started));
+        log.info("Каталог загружен за {} мс: фильмов {}, отклонено {}; пользователей {}, отклонено {}; "
+                        + "лайков {}, дружб {}, пропущено связей {}.", report.elapsedMillis(),
+                report.films(), report.rejectedFilms(), report.users(), report.rejectedUsers(),
+                report.likes(), report.friendships(), report.skippedRelations());
+        return report;
+    }
+
+    private FrameResult load(CatalogFormat.Frame frame, Progress progress) throws IOException {
+        return switch (frame.type()) {
+            case CatalogFormat.USERS -> loadUsers(frame);
+            case CatalogFormat.FILMS -> loadFilms(frame);
+            case CatalogFormat.FRIENDS -> loadRelations(frame, progress.users, progress.users, userStorage::addFriend);
+            default -> loadRelations(frame, progress.films, progress.users, filmStorage::addLike);
+        };
+    }
+
+    private FrameResult loadUsers(CatalogFormat.Frame frame) throws IOException {
+        List<User> users = decode(frame, CatalogFormat::getUser);
+        List<String> errors = new ArrayList<>();
+        List<User> valid = new ArrayList<>(users.size());
+        int rejected = 0;
+        for (User user : users) {
+            Optional<String> error = batchValidator.validate(user);
+            if (error.isPresent()) {
+                rejected++;
+                addError(errors, "Пользователь " + user.getId() + ": " + error.get());
+                continue;
+            }
+            if (user.getName() == null) {
+                user.setName(user.getLogin());
+            }
+            valid.add(user);
+        }
+        //Хранилище выдаёт новые id тем же объектам, поэтому прежние запоминаются до создания
+        long[] oldIds = valid.stream().mapToLong(User::getId).toArray();
+        Set<User> created = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (User user : userStorage.createAll(valid)) {
+            created.add(user);
+            userChanges.publish(ChangeEvent.Type.CREATED, user);
+        }
+        FrameResult result = new FrameResult(frame.type(), created.size(), errors);
+        for (int i = 0; i < valid.size(); i++) {
+            User user = valid.get(i);
+            if (created.contains(user)) {
+                result.mapped(oldIds[i], user.getId());
+            } else {
+                rejected++;
+                addError(errors, "Пользователь " + oldIds[i] + ": email " + user.getEmail() + " уже существует");
+            }
+        }
+        result.rejected = rejected;
+        return result;
+    }
+
+    private FrameResult loadFilms(CatalogFormat.Frame frame) throws IOException {
+        List<Film> films = decode(frame, CatalogFormat::getFilm);
+        List<String> errors = new ArrayList<>();
+        List<Film> valid = new ArrayList<>(films.size());
+        int rejected = 0;
+        for (Film film : films) {
+            Optional<String> error = batchValidator.validate(film);
+            if (error.isPresent()) {
+                rejected++;
+                addError(errors, "Фильм " + film.getId() + ": " + error.get());
+            } else {
+                valid.add(film);
+            }
+        }
+        long[] oldIds = valid.stream().mapToLong(Film::getId).toArray();
+        List<Film> created = filmStorage.createAll(valid);
+        FrameResult result = new FrameResult(frame.type(), created.size(), errors);
+        for (int i = 0; i < created.size(); i++) {
+            result.mapped(oldIds[i], created.get(i).getId());
+            filmChanges.publish(ChangeEvent.Type.CREATED, created.get(i));
+        }
+        result.rejected = rejected;
+        return result;
+    }
+
+    //Записи кадра лайков или друзей: id владельца и id связанных с ним пользователей
+    private FrameResult loadRelations(CatalogFormat.Frame frame, IdMapping owners, IdMapping targets,
+                                      RelationSink sink) throws IOException {
+        List<long[]> records = decode(frame, in -> {
+            long ownerId = in.getLong();
+            long[] ids = CatalogFormat.getIds(in);
+            long[] record = new long[ids.length + 1];
+            record[0] = ownerId;
+            System.arraycopy(ids, 0, record, 1, ids.length);
+            return record;
+        });
+        FrameResult result = new FrameResult(frame.type(), 0, List.of());
+        for (long[] record : records) {
+            long ownerId = owners.get(record[0]);
+            for (int i = 1; i < record.length; i++) {
+                long targetId = targets.get(record[i]);
+                if (ownerId == IdMapping.MISSING || targetId == IdMapping.MISSING || ownerId == targetId) {
+                    result.skipped++;
+                } else {
+                    sink.link(ownerId, targetId);
+                    result.created++;
+                }
+            }
+        }
+        return result;
+    }
+
+    private static <T> List<T> decode(CatalogFormat.Frame frame, Function<ByteBuffer, T> reader) throws IOException {
+        ByteBuffer records = frame.records();
+        //Ёмкость не берётся из числа записей в потоке: оно ограничено только длиной кадра
+        List<T> decoded = new ArrayList<>();
+        try {
+            for (int i = 0; i < frame.count(); i++) {
+                decoded.add(reader.apply(records));
+            }
+        } catch (RuntimeException e) {
+            throw new IOException("Кадр каталога повреждён", e);
+        }
+        if (records.hasRemaining()) {
+            throw new IOException("Кадр каталога повреждён");
+        }
+        return decoded;
+    }
+
+    //Ожидание самых старых кадров, пока в работе не останется не больше limit
+    private static void drain(Deque<Future<FrameResult>> inFlight, int limit, Progress progress)
+            throws IOException {
+        while (inFlight.size() > limit) {
+            FrameResult result;
+            try {
+                result = inFlight.peekFirst().get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Загрузка каталога прервана");
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof IOException io) {
+                    throw io;
+                }
+                if (e.getCause() instanceof RuntimeException runtime) {
+                    throw runtime;
+                }
+                throw new IllegalStateException(e.getCause());
+            }
+            inFlight.removeFirst();
+            progress.merge(result);
+        }
+    }
+
+    private static void putIds(FrameWriter writer, long ownerId, long[] ids, int from) {
+        try {
+            for (int start = from; start < ids.length; start += IDS_PER_RECORD) {
+                int end = Math.min(ids.length, start + IDS_PER_RECORD);
+                long[] chunk = start == 0 && end == ids.length ? ids : Arrays.copyOfRange(ids, start, end);
+                CatalogFormat.putIds(writer.reserve(CatalogFormat.idsSize(chunk)), ownerId, chunk);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static void addError(List<String> errors, String error) {
+        if (errors.size() < MAX_ERRORS) {
+            errors.add(error);
+        }
+    }
+
+    @FunctionalInterface
+    private interface RelationSink {
+        void link(long ownerId, long targetId);
+    }
+
+    //Записи копятся в буфере и уходят в канал кадром, когда их frameSize или буфер заполнен
+    private static final class FrameWriter {
+        private final WritableByteChannel channel;
+        private final Deflater deflater;
+        private final int frameSize;
+        private ByteBuffer records = ByteBuffer.allocate(FRAME_BYTES);
+        private byte type;
+        private int count;
+
+        FrameWriter(WritableByteChannel channel, Deflater deflater, int frameSize) {
+            this.channel = channel;
+            this.deflater = deflater;
+            this.frameSize = frameSize;
+        }
+
+        void begin(byte type) throws IOException {
+            flush();
+            this.type = type;
+        }
+
+        //Буфер с местом под одну запись размером не больше size
+        ByteBuffer reserve(int size) throws IOException {
+            if (count >= frameSize || records.remaining() < size) {
+                flush();
+            }
+            if (records.remaining() < size) {
+                records = ByteBuffer.allocate(size);
+            }
+            count++;
+            return records;
+        }
+
+        void flush() throws IOException {
+            if (count > 0) {
+                CatalogFormat.writeFrame(channel, type, count, records, deflater);
+                count = 0;
+            }
+            if (records.capacity() > FRAME_BYTES) {
+                records = ByteBuffer.allocate(FRAME_BYTES);
+            }
+            records.clear();
+        }
+    }
+
+    //Результат одного кадра: число созданных сущностей или связей и соответствия id
+    private static final class FrameResult {
+        private final byte type;
+        private final List<String> errors;
+        private long[] oldIds;
+        private long[] newIds;
+        private int mapped;
+        private int created;
+        private int rejected;
+        private int skipped;
+
+        FrameResult(byte type, int created, List<String> errors) {
+            this.type = type;
+            this.created = created;
+            this.errors = errors;
+            this.oldIds = new long[created];
+            this.newIds = new long[created];
+        }
+
+        void mapped(long oldId, long newId) {
+            oldIds[mapped] = oldId;
+            newIds[mapped++] = newId;
+        }
+    }
+
+    //Счётчики и соответствия id; меняются только потоком, читающим канал
+    private static final class Progress {
+        private final IdMapping films = new IdMapping();
+        private final IdMapping users = new IdMapping();
+        private final List<String> errors = new ArrayList<>();
+        private long createdFilms;
+        private long rejectedFilms;
+        private long createdUsers;
+        private long rejectedUsers;
+        private long likes;
+        private long friendships;
+        private long skipped;
+
+        void merge(FrameResult result) {
+            switch (result.type) {
+                case CatalogFormat.USERS -> {
+                    createdUsers += result.created;
+                    rejectedUsers += result.rejected;
+                    put(users, result);
+                }
+                case CatalogFormat.FILMS -> {
+                    createdFilms += result.created;
+                    rejectedFilms += result.rejected;
+                    put(films, result);
+                }
+                case CatalogFormat.FRIENDS -> friendships += result.created;
+                default -> likes += result.created;
+            }
+            skipped += result.skipped;
+            for (String error : result.errors) {
+                addError(errors, error);
+            }
+        }
+
+        ImportReport report(long elapsedMillis) {
+            return new ImportReport(createdFilms, rejectedFilms, createdUsers, rejectedUsers, likes, friendships,
+                    skipped, elapsedMillis, List.copyOf(errors));
+        }
+
+        private static void put(IdMapping mapping, FrameResult result) {
+            for (int i = 0; i < result.mapped; i++) {
+                mapping.put(result.oldIds[i], result.newIds[i]);
+            }
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package ru.yandex.practicum.filmorate.catalog;
+
+//Соответствие id из выгрузки и id, выданных хранилищем при загрузке, на открытой адресации.
+//Заполняется одним потоком; потоки обработки читают его только после того, как заполнение закончено
+final class IdMapping {
+    static final long MISSING = 0;
+    private static final float LOAD_FACTOR = 0.5f;
+
+    private long[] keys;
+    private long[] values;
+    private int size;
+
+    IdMapping() {
+        keys = new long[1024];
+        values = new long[1024];
+    }
+
+    //Ключ 0 не хранится: у сохранённых сущностей id всегда положительный
+    void put(long oldId, long newId) {
+        if (oldId == MISSING) {
+            return;
+        }
+        int index = indexOf(oldId, keys);
+        if (keys[index] != oldId) {
+            keys[index] = oldId;
+            size++;
+        }
+        values[index] = newId;
+        if (size > keys.length * LOAD_FACTOR) {
+            resize();
+        }
+    }
+
+    //Новый id или MISSING, если сущность не загружена
+    long get(long oldId) {
+        if (oldId == MISSING) {
+            return MISSING;
+        }
+        int index = indexOf(oldId, keys);
+        return keys[index] == oldId ? values[index] : MISSING;
+    }
+
+    int size() {
+        return size;
+    }
+
+    private void resize() {
+        long[] oldKeys = keys;
+        long[] oldValues = values;
+        keys = new long[oldKeys.length << 1];
+        values = new long[oldKeys.length << 1];
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != MISSING) {
+                int index = indexOf(oldKeys[i], keys);
+                keys[index] = oldKeys[i];
+                values[index] = oldValues[i];
+            }
+        }
+    }
+
+    private static int indexOf(long key, long[] table) {
+        int mask = table.length - 1;
+        long h = key * 0x9E3779B97F4A7C15L;
+        int index = (int) (h ^ (h >>> 32)) & mask;
+        while (table[index] != MISSING && table[index] != key) {
+            index = (index + 1) & mask;
+        }
+        return index;
+    }
+}
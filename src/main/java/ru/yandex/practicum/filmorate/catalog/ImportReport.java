@@ -0,0 +1,18 @@
+package ru.yandex.practicum.filmorate.catalog;
+
+import java.util.List;
+
+//Итог загрузки каталога. Связи с отклонёнными фильмами и пользователями пропускаются;
+//в errors попадают только первые ошибки, остальные учитываются в счётчиках
+public record ImportReport(
+        long films,
+        long rejectedFilms,
+        long users,
+        long rejectedUsers,
+        long likes,
+        long friendships,
+        long skippedRelations,
+        long elapsedMillis,
+        List<String> errors
+) {
+}
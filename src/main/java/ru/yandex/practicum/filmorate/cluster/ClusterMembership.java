@@ -0,0 +1,271 @@
+package ru.yandex.practicum.filmorate.cluster;
+
+import lombok.extern.slf4j.Slf4j;
+import ru.yandex.practicum.filmorate.exception.PartitionUnavailableException;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+//Состав кластера и маршрутизация: владелец id или email по кольцу согласованного хеширования.
+//Новый узел входит через любой известный узел (seed), тот назначает ему номер и рассылает новый состав
+//остальным - внешний сервис координации не нужен. После смены состава данные, которые больше
+//не принадлежат узлу, переносятся новым владельцам в фоне (Rebalancer); пока перенос не закончен,
+//сущность, не найденная у нового владельца, ищется у владельца по предыдущему составу
+@Slf4j
+public class ClusterMembership implements AutoCloseable {
+    //Младшие биты id - номер выдавшего его узла
+    static final int ORDINAL_BITS = 10;
+
+    private final LocalPartition local;
+    private final Transport transport;
+    private final int virtualNodes;
+    private final Rebalancer rebalancer;
+    private final ClusterVersions versions;
+    private final AtomicLong filmSequence = new AtomicLong();
+    private final AtomicLong userSequence = new AtomicLong();
+    private final ReentrantLock viewLock = new ReentrantLock();
+    //Запросы к узлам блокируются на сети, поэтому каждый идёт в своём виртуальном потоке
+    private final ExecutorService scatter = Executors.newVirtualThreadPerTaskExecutor();
+    private volatile State state;
+
+    //Доставка запросов о составе другим узлам
+    public interface Transport {
+        PartitionNode node(String url);
+
+        //Вход узла url через seed, результат - новый состав
+        ClusterView join(String seed, String url);
+
+        void announce(String url, ClusterView view);
+    }
+
+    record State(String self, int ordinal, ClusterView view, HashRing ring, HashRing previous) {
+    }
+
+    public ClusterMembership(LocalPartition local, Transport transport, int virtualNodes) {
+        this.local = local;
+        this.transport = transport;
+        this.virtualNodes = virtualNodes;
+        this.rebalancer = new Rebalancer(this, local);
+        this.versions = new ClusterVersions(this);
+    }
+
+    //Вход в кластер: без seed-узлов узел начинает новый кластер из себя одного
+    public void start(String self, List<String> seeds) {
+        List<String> others = seeds.stream().filter(seed -> !seed.equals(self)).toList();
+        if (others.isEmpty()) {
+            apply(self, new ClusterView(1, List.of(new ClusterView.Member(self, 0))));
+            log.info("Узел {} начал новый кластер.", self);
+            return;
+        }
+        for (String seed : others) {
+            try {
+                ClusterView view = transport.join(seed, self);
+                apply(self, view);
+                log.info("Узел {} вошёл в кластер через {}, узлов: {}.", self, seed, view.members().size());
+                return;
+            } catch (RuntimeException e) {
+                log.warn("Не удалось войти в кластер через {}.", seed, e);
+            }
+        }
+        throw new IllegalStateException("Не удалось войти в кластер ни через один из " + others);
+    }
+
+    //Вход нового узла через этот: новый номер, новая эпоха и рассылка состава остальным узлам.
+    //Входы выполняются по одному, поэтому номера не повторяются
+    public ClusterView join(String url) {
+        ClusterView view;
+        viewLock.lock();
+        try {
+            ClusterView current = state().view();
+            int ordinal = current.members().stream().mapToInt(ClusterView.Member::ordinal).max().orElse(-1) + 1;
+            if (ordinal >= 1 << ORDINAL_BITS) {
+                throw new IllegalStateException("В кластере не больше " + (1 << ORDINAL_BITS) + " узлов");
+            }
+            //Перезапущенный узел с тем же адресом входит заново с новым номером: его прежние id могли остаться
+            //на других узлах
+            List<ClusterView.Member> members = new ArrayList<>(current.members().stream()
+                    .filter(member -> !member.url().equals(url))
+                    .toList());
+            members.add(new ClusterView.Member(url, ordinal));
+            view = new ClusterView(current.epoch() + 1, List.copyOf(members));
+            apply(state().self(), view);
+        } finally {
+            viewLock.unlock();
+        }
+        String self = state().self();
+        parallel(view.urls().stream().filter(member -> !member.equals(self) && !member.equals(url)).toList(),
+                member -> {
+                    try {
+                        transport.announce(member, view);
+                    } catch (RuntimeException e) {
+                        log.warn("Узел {} не получил состав кластера эпохи {}.", member, view.epoch(), e);
+                    }
+                    return null;
+                });
+        return view;
+    }
+
+    //Состав от другого узла; устаревший или не включающий этот узел игнорируется
+    public boolean apply(ClusterView view) {
+        State current = state;
+        return current != null && apply(current.self(), view);
+    }
+
+    public ClusterView view() {
+        return state().view();
+    }
+
+    public PartitionNode owner(long id) {
+        return node(state().ring().owner(id));
+    }
+
+    public PartitionNode emailOwner(String email) {
+        return node(state().ring().owner(email));
+    }
+
+    public boolean isOwner(String url, long id) {
+        return state().ring().owner(id).equals(url);
+    }
+
+    //Результат с узла-владельца, а если там пусто - с владельца по предыдущему составу
+    public <T> Optional<T> onOwner(long id, Function<PartitionNode, Optional<T>> call) {
+        State current = state();
+        String owner = current.ring().owner(id);
+        Optional<T> result = call.apply(node(owner));
+        if (result.isEmpty() && current.previous() != null) {
+            String previous = current.previous().owner(id);
+            if (!previous.equals(owner)) {
+                return call.apply(node(previous));
+            }
+        }
+        return result;
+    }
+
+    public boolean tryOwner(long id, Predicate<PartitionNode> call) {
+        return onOwner(id, node -> call.test(node) ? Optional.of(true) : Optional.empty()).isPresent();
+    }
+
+    //Узлы текущего состава в порядке входа
+    public List<String> urls() {
+        return state().view().urls();
+    }
+
+    public PartitionNode node(String url) {
+        return url.equals(state().self()) ? local : transport.node(url);
+    }
+
+    //Версии и размеры коллекций по всем узлам
+    ClusterVersions.Snapshot versions() {
+        return versions.snapshot();
+    }
+
+    //Один вызов на каждый узел параллельно; ответы в порядке urls()
+    public <R> List<R> gather(Function<PartitionNode, R> call) {
+        return parallel(urls(), url -> call.apply(node(url)));
+    }
+
+    public <T, R> List<R> parallel(Collection<T> items, Function<T, R> call) {
+        if (items.size() == 1) {
+            return List.of(call.apply(items.iterator().next()));
+        }
+        List<Future<R>> futures = new ArrayList<>(items.size());
+        for (T item : items) {
+            futures.add(scatter.submit(() -> call.apply(item)));
+        }
+        List<R> results = new ArrayList<>(items.size());
+        for (Future<R> future : futures) {
+            try {
+                results.add(future.get());
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof RuntimeException cause) {
+                    throw cause;
+                }
+                throw new IllegalStateException(e.getCause());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new PartitionUnavailableException("Запрос к узлам кластера прерван", e);
+            }
+        }
+        return results;
+    }
+
+    //id нового фильма или пользователя, принадлежащий этому узлу: создание всегда локальное
+    public long nextFilmId() {
+        return nextId(filmSequence);
+    }
+
+    public long nextUserId() {
+        return nextId(userSequence);
+    }
+
+    //Синхронный перенос данных, которые больше не принадлежат узлу
+    public void rebalance() {
+        rebalancer.run();
+    }
+
+    @Override
+    public void close() {
+        rebalancer.close();
+        scatter.shutdownNow();
+    }
+
+    State state() {
+        State current = state;
+        if (current == null) {
+            throw new PartitionUnavailableException("Узел ещё не вошёл в кластер", null);
+        }
+        return current;
+    }
+
+    private boolean apply(String self, ClusterView view) {
+        viewLock.lock();
+        try {
+            State current = state;
+            if (current != null && view.epoch() <= current.view().epoch()) {
+                return false;
+            }
+            int ordinal = view.ordinalOf(self);
+            if (ordinal < 0) {
+                log.warn("Состав кластера эпохи {} не включает узел {}.", view.epoch(), self);
+                return false;
+            }
+            state = new State(self, ordinal, view, new HashRing(view.urls(), virtualNodes), previousRing(current, view));
+            log.info("Состав кластера эпохи {}: {}.", view.epoch(), view.urls());
+        } finally {
+            viewLock.unlock();
+        }
+        rebalancer.schedule();
+        return true;
+    }
+
+    //Только что вошедший узел - последний в составе: до его входа данными владели остальные узлы
+    private HashRing previousRing(State current, ClusterView view) {
+        if (current != null) {
+            return current.ring();
+        }
+        List<String> before = view.urls().subList(0, view.urls().size() - 1);
+        return before.isEmpty() ? null : new HashRing(before, virtualNodes);
+    }
+
+    //Номер узла в младших битах; номера из последовательности, которые кольцо отдаёт другим узлам,
+    //пропускаются
+    private long nextId(AtomicLong sequence) {
+        State current = state();
+        while (true) {
+            long id = sequence.incrementAndGet() << ORDINAL_BITS | current.ordinal();
+            if (current.ring().owner(id).equals(current.self())) {
+                return id;
+            }
+        }
+    }
+}
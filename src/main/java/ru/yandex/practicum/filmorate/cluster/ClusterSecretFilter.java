@@ -0,0 +1,69 @@
+package ru.yandex.practicum.filmorate.cluster;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Profile;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.server.PathContainer;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+
+//Внутренние эндпоинты /cluster/** принимают только запросы с общим секретом узлов в заголовке X-Cluster-Secret,
+//остальные получают 403 до разбора тела. Проверенный запрос помечается атрибутом запроса: ограничение записи
+//его пропускает, так как запрос клиента уже прошёл ограничение на принявшем его узле
+@Slf4j
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE + 10)
+@Profile("!jdbc")
+@ConditionalOnProperty(name = "filmorate.cluster.enabled", havingValue = "true")
+public class ClusterSecretFilter extends OncePerRequestFilter {
+    public static final String HEADER = "X-Cluster-Secret";
+    public static final String AUTHENTICATED = ClusterSecretFilter.class.getName() + ".authenticated";
+    private static final String CLUSTER_SEGMENT = "cluster";
+
+    private final byte[] secret;
+
+    public ClusterSecretFilter(@Value("${filmorate.cluster.secret:}") String secret) {
+        this.secret = secret.getBytes(StandardCharsets.UTF_8);
+    }
+
+    //Первый сегмент пути сравнивается после декодирования и без параметров (;...), как при выборе контроллера,
+    //поэтому /%63luster/view или //cluster/view не обходят проверку
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        String path = request.getRequestURI().substring(request.getContextPath().length());
+        for (PathContainer.Element element : PathContainer.parsePath(path).elements()) {
+            if (element instanceof PathContainer.PathSegment segment && !segment.valueToMatch().isEmpty()) {
+                return !segment.valueToMatch().equals(CLUSTER_SEGMENT);
+            }
+        }
+        return true;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        String presented = request.getHeader(HEADER);
+        //Сравнение за постоянное время, чтобы секрет нельзя было подобрать по времени ответа
+        if (secret.length == 0 || presented == null
+                || !MessageDigest.isEqual(secret, presented.getBytes(StandardCharsets.UTF_8))) {
+            log.debug("Запрос {} {} с адреса {} без секрета кластера отклонён.",
+                    request.getMethod(), request.getRequestURI(), request.getRemoteAddr());
+            response.setStatus(HttpStatus.FORBIDDEN.value());
+            return;
+        }
+        request.setAttribute(AUTHENTICATED, Boolean.TRUE);
+        chain.doFilter(request, response);
+    }
+}
@@ -0,0 +1,94 @@
+package ru.yandex.practicum.filmorate.cluster;
+
+import java.util.List;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.ToLongFunction;
+
+//Версии и размеры коллекций кластера для ETag и кэшей. Версия коллекции - отпечаток эпохи состава
+//и пар (эпоха узла, версия узла) в порядке состава: сумма версий узлов могла повториться после
+//перезапуска узла или переноса данных и дать ложный 304, а отпечаток меняется при любом изменении вектора.
+//Одновременные запросы делят один опрос узлов: запрос ждёт опрос, начатый не раньше его прихода,
+//поэтому ответ не старше самого запроса, а на узлы уходит не больше двух опросов за раз
+class ClusterVersions {
+    private final ClusterMembership membership;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition done = lock.newCondition();
+    private long started;
+    private long finished;
+    private boolean polling;
+    private Snapshot last;
+    private RuntimeException failure;
+
+    record Snapshot(long filmVersion, long likesVersion, long userVersion, long films, long users) {
+    }
+
+    ClusterVersions(ClusterMembership membership) {
+        this.membership = membership;
+    }
+
+    Snapshot snapshot() {
+        lock.lock();
+        try {
+            long needed = started + 1;
+            while (finished < needed) {
+                if (polling) {
+                    done.awaitUninterruptibly();
+                    continue;
+                }
+                polling = true;
+                long round = ++started;
+                Snapshot result = null;
+                RuntimeException error = null;
+                lock.unlock();
+                try {
+                    result = poll();
+                } catch (RuntimeException e) {
+                    error = e;
+                } finally {
+                    lock.lock();
+                    polling = false;
+                    finished = round;
+                    last = result;
+                    failure = error;
+                    done.signalAll();
+                }
+            }
+            if (failure != null) {
+                throw failure;
+            }
+            return last;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private Snapshot poll() {
+        ClusterView view = membership.state().view();
+        List<PartitionNode.PartitionStats> stats =
+                membership.parallel(view.urls(), url -> membership.node(url).stats());
+        return new Snapshot(
+                fingerprint(view.epoch(), stats, PartitionNode.PartitionStats::filmVersion),
+                fingerprint(view.epoch(), stats, PartitionNode.PartitionStats::likesVersion),
+                fingerprint(view.epoch(), stats, PartitionNode.PartitionStats::userVersion),
+                stats.stream().mapToLong(PartitionNode.PartitionStats::films).sum(),
+                stats.stream().mapToLong(PartitionNode.PartitionStats::users).sum());
+    }
+
+    static long fingerprint(long viewEpoch, List<PartitionNode.PartitionStats> stats,
+                            ToLongFunction<PartitionNode.PartitionStats> version) {
+        long hash = mix(viewEpoch);
+        for (PartitionNode.PartitionStats node : stats) {
+            hash = mix(hash ^ node.epoch());
+            hash = mix(hash ^ version.applyAsLong(node));
+        }
+        return hash;
+    }
+
+    //Финальное перемешивание splitmix64: каждый бит входа влияет на все биты результата
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        return z ^ (z >>> 31);
+    }
+}
@@ -0,0 +1,22 @@
+package ru.yandex.practicum.filmorate.cluster;
+
+import java.util.List;
+
+//Состав кластера. Эпоха увеличивается при каждом входе узла; узел принимает только состав новее своего
+public record ClusterView(long epoch, List<Member> members) {
+    //Номер узла входит в младшие биты выдаваемых им id, поэтому id разных узлов не совпадают
+    public record Member(String url, int ordinal) {
+    }
+
+    public List<String> urls() {
+        return members.stream().map(Member::url).toList();
+    }
+
+    public int ordinalOf(String url) {
+        return members.stream()
+                .filter(member -> member.url().equals(url))
+                .mapToInt(Member::ordinal)
+                .findFirst()
+                .orElse(-1);
+    }
+}
@@ -0,0 +1,79 @@
+package ru.yandex.practicum.filmorate.cluster;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+
+//Кольцо согласованного хеширования. У каждого узла virtualNodes точек на кольце, ключ принадлежит узлу
+//первой точки не меньше хеша ключа. С новым узлом к нему переходит примерно 1/N ключей,
+//остальные ключи остаются на своих узлах
+public final class HashRing {
+    private final List<String> nodes;
+    //Точки кольца по возрастанию и номера их узлов в nodes
+    private final long[] points;
+    private final int[] owners;
+
+    public HashRing(List<String> nodes, int virtualNodes) {
+        if (nodes.isEmpty() || virtualNodes < 1) {
+            throw new IllegalArgumentException("Кольцу нужен хотя бы один узел и одна точка на узел");
+        }
+        this.nodes = List.copyOf(nodes);
+        int size = nodes.size() * virtualNodes;
+        long[][] entries = new long[size][];
+        for (int node = 0; node < nodes.size(); node++) {
+            long seed = hash(nodes.get(node));
+            for (int replica = 0; replica < virtualNodes; replica++) {
+                entries[node * virtualNodes + replica] = new long[]{mix(seed + replica), node};
+            }
+        }
+        //При совпадении точек выигрывает узел, идущий раньше: кольцо не зависит от порядка построения
+        Arrays.sort(entries, (a, b) -> a[0] != b[0] ? Long.compare(a[0], b[0])
+                : nodes.get((int) a[1]).compareTo(nodes.get((int) b[1])));
+        points = new long[size];
+        owners = new int[size];
+        for (int i = 0; i < size; i++) {
+            points[i] = entries[i][0];
+            owners[i] = (int) entries[i][1];
+        }
+    }
+
+    public List<String> nodes() {
+        return nodes;
+    }
+
+    public String owner(long key) {
+        return ownerOfHash(mix(key));
+    }
+
+    public String owner(String key) {
+        return ownerOfHash(hash(key));
+    }
+
+    private String ownerOfHash(long hash) {
+        int index = Arrays.binarySearch(points, hash);
+        if (index < 0) {
+            index = -index - 1;
+        }
+        //Хеш больше последней точки принадлежит первой: кольцо замкнуто
+        return nodes.get(owners[index == points.length ? 0 : index]);
+    }
+
+    //FNV-1a по байтам UTF-8 с перемешиванием результата
+    static long hash(String key) {
+        long hash = 0xcbf29ce484222325L;
+        for (byte b : key.getBytes(StandardCharsets.UTF_8)) {
+            hash = (hash ^ (b & 0xff)) * 0x100000001b3L;
+        }
+        return mix(hash);
+    }
+
+    //Финализатор MurmurHash3: соседние id расходятся по всему кольцу
+    static long mix(long key) {
+        key ^= key >>> 33;
+        key *= 0xff51afd7ed558ccdL;
+        key ^= key >>> 33;
+        key *= 0xc4ceb9fe1a85ec53L;
+        key ^= key >>> 33;
+        return key;
+    }
+}
@@ -0,0 +1,35 @@
+package ru.yandex.practicum.filmorate.cluster;
+
+import org.springframework.web.client.RestClient;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+//Запросы к другим узлам по HTTP; клиент узла создаётся один раз на адрес
+public class HttpTransport implements ClusterMembership.Transport {
+    private final RestClient client;
+    private final Map<String, RemotePartition> nodes = new ConcurrentHashMap<>();
+
+    public HttpTransport(RestClient client) {
+        this.client = client;
+    }
+
+    @Override
+    public PartitionNode node(String url) {
+        return remote(url);
+    }
+
+    @Override
+    public ClusterView join(String seed, String url) {
+        return remote(seed).join(url);
+    }
+
+    @Override
+    public void announce(String url, ClusterView view) {
+        remote(url).announce(view);
+    }
+
+    private RemotePartition remote(String url) {
+        return nodes.computeIfAbsent(url, key -> new RemotePartition(key, client));
+    }
+}
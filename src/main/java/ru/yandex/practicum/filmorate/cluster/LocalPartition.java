@@ -0,0 +1,223 @@
+package ru.yandex.practicum.filmorate.cluster;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmRangeFilter;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.film.InMemoryFilmStorage;
+import ru.yandex.practicum.filmorate.storage.user.InMemoryUserStorage;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+
+//Данные этого узла: хранилища в памяти и часть реестра email
+@Component
+@Profile("!jdbc")
+@ConditionalOnProperty(name = "filmorate.cluster.enabled", havingValue = "true")
+public class LocalPartition implements PartitionNode {
+    private final InMemoryFilmStorage filmStorage;
+    private final InMemoryUserStorage userStorage;
+    //email -> id пользователя, 0 - email зарезервирован создаваемым пользователем
+    private final Map<String, Long> emails = new ConcurrentHashMap<>();
+    private final long epoch = ThreadLocalRandom.current().nextLong();
+
+    public LocalPartition(InMemoryFilmStorage filmStorage, InMemoryUserStorage userStorage) {
+        this.filmStorage = filmStorage;
+        this.userStorage = userStorage;
+    }
+
+    @Override
+    public PartitionStats stats() {
+        return new PartitionStats(epoch, filmStorage.getVersion(), filmStorage.getLikesVersion(),
+                userStorage.getVersion(), filmStorage.count(), userStorage.count());
+    }
+
+    @Override
+    public Optional<FilmReplica> findFilm(long id) {
+        return filmStorage.findById(id).map(film -> replica(film, false));
+    }
+
+    @Override
+    public List<FilmReplica> filmPage(long after, int limit, boolean withLikes) {
+        return filmStorage.findPage(after, limit).stream()
+                .map(film -> replica(film, withLikes))
+                .toList();
+    }
+
+    @Override
+    public List<FilmReplica> filmsInRange(FilmRangeFilter filter, int limit) {
+        return filmStorage.findInRange(filter, limit).stream()
+                .map(film -> replica(film, false))
+                .toList();
+    }
+
+    @Override
+    public List<FilmReplica> searchFilms(String query, int limit) {
+        return filmStorage.search(query, 0, limit).stream()
+                .map(film -> replica(film, false))
+                .toList();
+    }
+
+    @Override
+    public List<RankedFilm> popularFilms(int count) {
+        return filmStorage.findPopular(count).stream()
+                .map(film -> new RankedFilm(film, film.getVersion(), filmStorage.likesOf(film.getId()).length))
+                .toList();
+    }
+
+    @Override
+    public Optional<FilmReplica> saveFilm(Film film, long expectedVersion) {
+        return filmStorage.update(film.getId(), version -> version == expectedVersion, current -> film)
+                .map(saved -> replica(saved, false));
+    }
+
+    @Override
+    public boolean addLike(long filmId, long userId) {
+        if (filmStorage.findById(filmId).isEmpty()) {
+            return false;
+        }
+        filmStorage.addLike(filmId, userId);
+        return true;
+    }
+
+    @Override
+    public boolean removeLike(long filmId, long userId) {
+        if (filmStorage.findById(filmId).isEmpty()) {
+            return false;
+        }
+        filmStorage.removeLike(filmId, userId);
+        return true;
+    }
+
+    @Override
+    public List<LikesRow> likesPage(long after, int limit) {
+        List<Film> films = filmStorage.findPage(after, limit);
+        List<LikesRow> rows = new ArrayList<>(films.size());
+        for (Film film : films) {
+            long[] userIds = filmStorage.likesOf(film.getId());
+            Arrays.sort(userIds);
+            rows.add(new LikesRow(film.getId(), userIds));
+        }
+        return rows;
+    }
+
+    @Override
+    public void importFilms(List<FilmReplica> films) {
+        for (FilmReplica replica : films) {
+            replica.film().setVersion(replica.version());
+            filmStorage.importFilm(replica.film(), replica.likes() == null ? new long[0] : replica.likes());
+        }
+    }
+
+    @Override
+    public Optional<UserReplica> findUser(long id) {
+        return userStorage.findById(id).map(user -> replica(user, false));
+    }
+
+    @Override
+    public List<UserReplica> userPage(long after, int limit, boolean withFriends) {
+        return userStorage.findPage(after, limit).stream()
+                .map(user -> replica(user, withFriends))
+                .toList();
+    }
+
+    @Override
+    public List<UserReplica> findUsers(long[] ids) {
+        List<UserReplica> found = new ArrayList<>(ids.length);
+        for (long id : ids) {
+            userStorage.findById(id).ifPresent(user -> found.add(replica(user, false)));
+        }
+        return found;
+    }
+
+    @Override
+    public Optional<UserReplica> saveUser(User user, long expectedVersion) {
+        return userStorage.update(user.getId(), version -> version == expectedVersion, current -> user)
+                .map(saved -> replica(saved, false));
+    }
+
+    @Override
+    public boolean linkFriend(long userId, long friendId) {
+        if (userStorage.findById(userId).isEmpty()) {
+            return false;
+        }
+        userStorage.linkFriend(userId, friendId);
+        return true;
+    }
+
+    @Override
+    public boolean unlinkFriend(long userId, long friendId) {
+        if (userStorage.findById(userId).isEmpty()) {
+            return false;
+        }
+        userStorage.unlinkFriend(userId, friendId);
+        return true;
+    }
+
+    @Override
+    public Optional<long[]> friendsOf(long userId) {
+        if (userStorage.findById(userId).isEmpty()) {
+            return Optional.empty();
+        }
+        return Optional.of(userStorage.friendsOf(userId));
+    }
+
+    @Override
+    public void importUsers(List<UserReplica> users) {
+        for (UserReplica replica : users) {
+            replica.user().setVersion(replica.version());
+            userStorage.importUser(replica.user(), replica.friends() == null ? new long[0] : replica.friends());
+        }
+    }
+
+    @Override
+    public List<String> reserveEmails(List<String> requested) {
+        List<String> reserved = new ArrayList<>(requested.size());
+        for (String email : requested) {
+            if (emails.putIfAbsent(email, 0L) == null) {
+                reserved.add(email);
+            }
+        }
+        return reserved;
+    }
+
+    @Override
+    public void confirmEmails(Map<String, Long> confirmed) {
+        //Перенесённый при перебалансировке резерв не затирает уже привязанный email
+        confirmed.forEach((email, id) -> emails.merge(email, id, (current, added) -> added == 0 ? current : added));
+    }
+
+    @Override
+    public void releaseEmails(Map<String, Long> released) {
+        released.forEach(emails::remove);
+    }
+
+    //Удаление перенесённого фильма, если он не изменился после передачи
+    boolean evictFilm(FilmReplica replica) {
+        return filmStorage.evict(replica.film().getId(), replica.version(), replica.likes());
+    }
+
+    boolean evictUser(UserReplica replica) {
+        return userStorage.evict(replica.user().getId(), replica.version(), replica.friends());
+    }
+
+    //Часть реестра email на этом узле
+    Map<String, Long> emails() {
+        return emails;
+    }
+
+    private FilmReplica replica(Film film, boolean withLikes) {
+        return new FilmReplica(film, film.getVersion(), withLikes ? filmStorage.likesOf(film.getId()) : null);
+    }
+
+    private UserReplica replica(User user, boolean withFriends) {
+        return new UserReplica(user, user.getVersion(), withFriends ? userStorage.friendsOf(user.getId()) : null);
+    }
+}
@@ -0,0 +1,87 @@
+package ru.yandex.practicum.filmorate.cluster;
+
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmRangeFilter;
+import ru.yandex.practicum.filmorate.model.User;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+//Операции над данными одного узла кластера: локальные хранилища (LocalPartition)
+//или другой экземпляр по HTTP (RemotePartition). Сущности передаются вместе с версией,
+//потому что в JSON модели версия не входит
+public interface PartitionNode {
+    PartitionStats stats();
+
+    Optional<FilmReplica> findFilm(long id);
+
+    //Страница фильмов узла по возрастанию id; withLikes - с id поставивших лайк пользователей
+    List<FilmReplica> filmPage(long after, int limit, boolean withLikes);
+
+    List<FilmReplica> filmsInRange(FilmRangeFilter filter, int limit);
+
+    //Первые limit фильмов узла по убыванию релевантности запросу
+    List<FilmReplica> searchFilms(String query, int limit);
+
+    List<RankedFilm> popularFilms(int count);
+
+    //Сохранение фильма, если его версия на узле равна expectedVersion, иначе PreconditionFailedException.
+    //Пустой результат - фильма на узле нет
+    Optional<FilmReplica> saveFilm(Film film, long expectedVersion);
+
+    //false - фильма на узле нет
+    boolean addLike(long filmId, long userId);
+
+    boolean removeLike(long filmId, long userId);
+
+    //Лайки страницы фильмов по возрастанию id, включая фильмы без лайков
+    List<LikesRow> likesPage(long after, int limit);
+
+    //Фильмы с лайками, переданные при перебалансировке; копия на узле заменяется, если она не новее
+    void importFilms(List<FilmReplica> films);
+
+    Optional<UserReplica> findUser(long id);
+
+    List<UserReplica> userPage(long after, int limit, boolean withFriends);
+
+    //Найденные на узле пользователи из ids, без друзей
+    List<UserReplica> findUsers(long[] ids);
+
+    Optional<UserReplica> saveUser(User user, long expectedVersion);
+
+    //Одна сторона дружбы на узле пользователя; false - пользователя на узле нет
+    boolean linkFriend(long userId, long friendId);
+
+    boolean unlinkFriend(long userId, long friendId);
+
+    Optional<long[]> friendsOf(long userId);
+
+    void importUsers(List<UserReplica> users);
+
+    //Реестр email: email уникален во всём кластере и хранится на узле, которому принадлежит его хеш.
+    //Возвращает email, зарезервированные этим вызовом; занятые пропускаются
+    List<String> reserveEmails(List<String> emails);
+
+    //Привязка email к id пользователя после создания
+    void confirmEmails(Map<String, Long> emails);
+
+    //Освобождение email, если он привязан к указанному id (0 - резерв)
+    void releaseEmails(Map<String, Long> emails);
+
+    record FilmReplica(Film film, long version, long[] likes) {
+    }
+
+    record UserReplica(User user, long version, long[] friends) {
+    }
+
+    record RankedFilm(Film film, long version, int likes) {
+    }
+
+    record LikesRow(long filmId, long[] userIds) {
+    }
+
+    //Счётчики узла. epoch выбирается случайно при запуске узла: после перезапуска версии начинаются заново
+    record PartitionStats(long epoch, long filmVersion, long likesVersion, long userVersion, long films, long users) {
+    }
+}
@@ -0,0 +1,201 @@
+package ru.yandex.practicum.filmorate.cluster;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Primary;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.exception.PreconditionFailedException;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmRangeFilter;
+import ru.yandex.practicum.filmorate.storage.film.FilmStorage;
+import ru.yandex.practicum.filmorate.storage.film.InMemoryFilmStorage;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.LongPredicate;
+import java.util.function.UnaryOperator;
+
+//Фильмы, разделённые между узлами кластера по id. Запросы по id идут узлу-владельцу,
+//списки собираются со всех узлов и сливаются по id. Новый фильм создаётся на этом узле с id,
+//который кольцо отдаёт этому же узлу
+@Component
+@Primary
+@Profile("!jdbc")
+@ConditionalOnProperty(name = "filmorate.cluster.enabled", havingValue = "true")
+public class PartitionedFilmStorage implements FilmStorage {
+    private static final int PAGE_SIZE = 1000;
+
+    private final ClusterMembership membership;
+    private final InMemoryFilmStorage local;
+
+    public PartitionedFilmStorage(ClusterMembership membership, InMemoryFilmStorage local) {
+        this.membership = membership;
+        this.local = local;
+        local.setIdAllocator(membership::nextFilmId);
+    }
+
+    @Override
+    public long getVersion() {
+        return membership.versions().filmVersion();
+    }
+
+    @Override
+    public long getLikesVersion() {
+        return membership.versions().likesVersion();
+    }
+
+    @Override
+    public long count() {
+        return membership.versions().films();
+    }
+
+    @Override
+    public Collection<Film> findAll() {
+        List<List<PartitionNode.FilmReplica>> parts = membership.gather(node -> {
+            List<PartitionNode.FilmReplica> all = new ArrayList<>();
+            long after = 0;
+            while (true) {
+                List<PartitionNode.FilmReplica> page = node.filmPage(after, PAGE_SIZE, false);
+                all.addAll(page);
+                if (page.size() < PAGE_SIZE) {
+                    return all;
+                }
+                after = page.getLast().film().getId();
+            }
+        });
+        return films(latest(parts));
+    }
+
+    @Override
+    public List<Film> findPage(long after, int limit) {
+        List<PartitionNode.FilmReplica> merged = latest(membership.gather(node -> node.filmPage(after, limit, false)));
+        return films(merged.subList(0, Math.min(limit, merged.size())));
+    }
+
+    @Override
+    public Optional<Film> findById(long id) {
+        return membership.onOwner(id, node -> node.findFilm(id)).map(PartitionNode.FilmReplica::film);
+    }
+
+    @Override
+    public List<Film> findInRange(FilmRangeFilter filter, int limit) {
+        Comparator<Film> order = filter.hasReleaseDateRange()
+                ? Comparator.comparing(Film::getReleaseDate)
+                : Comparator.comparing(Film::getDuration);
+        return films(latest(membership.gather(node -> node.filmsInRange(filter, limit)))).stream()
+                .sorted(order.thenComparingLong(Film::getId))
+                .limit(limit)
+                .toList();
+    }
+
+    @Override
+    public Film create(Film film) {
+        return local.create(film);
+    }
+
+    @Override
+    public List<Film> createAll(List<Film> films) {
+        return local.createAll(films);
+    }
+
+    //Оптимистичное обновление: копия фильма изменяется здесь и сохраняется на узле, только если
+    //версия там не изменилась; при параллельном изменении попытка повторяется со свежей копией
+    @Override
+    public Optional<Film> update(long id, LongPredicate versionMatches, UnaryOperator<Film> updater) {
+        while (true) {
+            Optional<Replicas.Located<PartitionNode.FilmReplica>> found = membership.onOwner(id,
+                    node -> node.findFilm(id).map(replica -> new Replicas.Located<>(node, replica)));
+            if (found.isEmpty()) {
+                return Optional.empty();
+            }
+            PartitionNode.FilmReplica current = found.get().replica();
+            if (!versionMatches.test(current.version())) {
+                throw new PreconditionFailedException(
+                        "Фильм с id " + id + " изменён, текущая версия " + current.version());
+            }
+            Film updated = updater.apply(current.film().toBuilder().build());
+            try {
+                Optional<PartitionNode.FilmReplica> saved = found.get().node().saveFilm(updated, current.version());
+                //Пустой ответ - фильм перенесён на другой узел между чтением и записью
+                if (saved.isPresent()) {
+                    return Optional.of(saved.get().film());
+                }
+            } catch (PreconditionFailedException e) {
+                //Фильм изменён параллельно: следующая попытка с новой версией
+            }
+        }
+    }
+
+    @Override
+    public void addLike(long filmId, long userId) {
+        membership.tryOwner(filmId, node -> node.addLike(filmId, userId));
+    }
+
+    @Override
+    public void removeLike(long filmId, long userId) {
+        membership.tryOwner(filmId, node -> node.removeLike(filmId, userId));
+    }
+
+    //Каждый узел возвращает первые offset + limit своих результатов, общий порядок восстанавливается
+    //по той же релевантности
+    @Override
+    public List<Film> search(String query, int offset, int limit) {
+        List<Film> found = films(latest(membership.gather(node -> node.searchFilms(query, offset + limit))));
+        Map<Long, Integer> relevance = new HashMap<>(found.size());
+        for (Film film : found) {
+            relevance.put(film.getId(), InMemoryFilmStorage.relevance(film, query));
+        }
+        return found.stream()
+                .sorted(Comparator.<Film>comparingInt(film -> relevance.get(film.getId())).reversed()
+                        .thenComparingLong(Film::getId))
+                .skip(offset)
+                .limit(limit)
+                .toList();
+    }
+
+    @Override
+    public List<Film> findPopular(int count) {
+        return Replicas.latestById(membership.gather(node -> node.popularFilms(count)),
+                        ranked -> ranked.film().getId(), PartitionNode.RankedFilm::version).stream()
+                .sorted(Comparator.comparingInt(PartitionNode.RankedFilm::likes).reversed()
+                        .thenComparingLong(ranked -> ranked.film().getId()))
+                .limit(count)
+                .map(PartitionNode.RankedFilm::film)
+                .toList();
+    }
+
+    //Узлы обходятся по очереди; лайки фильма, который ещё не удалён с прежнего узла после переноса,
+    //передаются только один раз - от владельца
+    @Override
+    public void forEachLikes(LikesConsumer consumer) {
+        for (String url : membership.urls()) {
+            PartitionNode node = membership.node(url);
+            long after = 0;
+            while (true) {
+                List<PartitionNode.LikesRow> rows = node.likesPage(after, PAGE_SIZE);
+                for (PartitionNode.LikesRow row : rows) {
+                    if (row.userIds().length > 0 && membership.isOwner(url, row.filmId())) {
+                        consumer.accept(row.filmId(), row.userIds());
+                    }
+                }
+                if (rows.size() < PAGE_SIZE) {
+                    break;
+                }
+                after = rows.getLast().filmId();
+            }
+        }
+    }
+
+    private static List<PartitionNode.FilmReplica> latest(List<List<PartitionNode.FilmReplica>> parts) {
+        return Replicas.latestById(parts, replica -> replica.film().getId(), PartitionNode.FilmReplica::version);
+    }
+
+    private static List<Film> films(List<PartitionNode.FilmReplica> replicas) {
+        return replicas.stream().map(PartitionNode.FilmReplica::film).toList();
+    }
+}
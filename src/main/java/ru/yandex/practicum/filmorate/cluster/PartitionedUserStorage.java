@@ -0,0 +1,291 @@
+package ru.yandex.practicum.filmorate.cluster;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Primary;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.exception.PreconditionFailedException;
+import ru.yandex.practicum.filmorate.exception.ValidationException;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.SortedLongArrays;
+import ru.yandex.practicum.filmorate.storage.user.InMemoryUserStorage;
+import ru.yandex.practicum.filmorate.storage.user.UserStorage;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.LongPredicate;
+import java.util.function.UnaryOperator;
+
+//Пользователи, разделённые между узлами кластера по id. Друзья пользователя хранятся на его узле,
+//уникальность email проверяет реестр, разделённый между узлами по хешу email
+@Component
+@Primary
+@Profile("!jdbc")
+@ConditionalOnProperty(name = "filmorate.cluster.enabled", havingValue = "true")
+@Slf4j
+public class PartitionedUserStorage implements UserStorage {
+    private static final int PAGE_SIZE = 1000;
+
+    private final ClusterMembership membership;
+    private final InMemoryUserStorage local;
+
+    public PartitionedUserStorage(ClusterMembership membership, InMemoryUserStorage local) {
+        this.membership = membership;
+        this.local = local;
+        local.setIdAllocator(membership::nextUserId);
+    }
+
+    @Override
+    public long getVersion() {
+        return membership.versions().userVersion();
+    }
+
+    @Override
+    public long count() {
+        return membership.versions().users();
+    }
+
+    @Override
+    public Collection<User> findAll() {
+        List<List<PartitionNode.UserReplica>> parts = membership.gather(node -> {
+            List<PartitionNode.UserReplica> all = new ArrayList<>();
+            long after = 0;
+            while (true) {
+                List<PartitionNode.UserReplica> page = node.userPage(after, PAGE_SIZE, false);
+                all.addAll(page);
+                if (page.size() < PAGE_SIZE) {
+                    return all;
+                }
+                after = page.getLast().user().getId();
+            }
+        });
+        return users(latest(parts));
+    }
+
+    @Override
+    public List<User> findPage(long after, int limit) {
+        List<PartitionNode.UserReplica> merged = latest(membership.gather(node -> node.userPage(after, limit, false)));
+        return users(merged.subList(0, Math.min(limit, merged.size())));
+    }
+
+    @Override
+    public Optional<User> findById(long id) {
+        return membership.onOwner(id, node -> node.findUser(id)).map(PartitionNode.UserReplica::user);
+    }
+
+    //email резервируется в реестре до создания и привязывается к id после него
+    @Override
+    public User create(User user) {
+        String email = user.getEmail();
+        PartitionNode registry = membership.emailOwner(email);
+        if (registry.reserveEmails(List.of(email)).isEmpty()) {
+            throw duplicatedEmail(email);
+        }
+        User created;
+        try {
+            created = local.create(user);
+        } catch (RuntimeException e) {
+            registry.releaseEmails(Map.of(email, 0L));
+            throw e;
+        }
+        registry.confirmEmails(Map.of(email, created.getId()));
+        return created;
+    }
+
+    @Override
+    public List<User> createAll(List<User> newUsers) {
+        Map<String, List<String>> emailsByOwner = new LinkedHashMap<>();
+        for (User user : newUsers) {
+            emailsByOwner.computeIfAbsent(ownerOf(user.getEmail()), url -> new ArrayList<>()).add(user.getEmail());
+        }
+        Set<String> reserved = new HashSet<>();
+        membership.parallel(emailsByOwner.entrySet(),
+                        entry -> membership.node(entry.getKey()).reserveEmails(entry.getValue()))
+                .forEach(reserved::addAll);
+        //Пользователь с email, повторяющимся внутри пакета, пропускается так же, как с уже занятым
+        List<User> accepted = new ArrayList<>(newUsers.size());
+        for (User user : newUsers) {
+            if (reserved.remove(user.getEmail())) {
+                accepted.add(user);
+            } else {
+                log.warn("Попытка использовать email, который уже есть в базе - {}.", user.getEmail());
+            }
+        }
+        List<User> created;
+        try {
+            created = local.createAll(accepted);
+        } catch (RuntimeException e) {
+            release(accepted, 0);
+            throw e;
+        }
+        Map<String, Map<String, Long>> confirmed = new HashMap<>();
+        for (User user : created) {
+            confirmed.computeIfAbsent(ownerOf(user.getEmail()), url -> new HashMap<>())
+                    .put(user.getEmail(), user.getId());
+        }
+        membership.parallel(confirmed.entrySet(), entry -> {
+            membership.node(entry.getKey()).confirmEmails(entry.getValue());
+            return null;
+        });
+        return created;
+    }
+
+    //Оптимистичное обновление, как у фильмов; новый email резервируется до сохранения
+    //и освобождается, если сохранить не удалось
+    @Override
+    public Optional<User> update(long id, LongPredicate versionMatches, UnaryOperator<User> updater) {
+        while (true) {
+            Optional<Replicas.Located<PartitionNode.UserReplica>> found = membership.onOwner(id,
+                    node -> node.findUser(id).map(replica -> new Replicas.Located<>(node, replica)));
+            if (found.isEmpty()) {
+                return Optional.empty();
+            }
+            PartitionNode.UserReplica current = found.get().replica();
+            if (!versionMatches.test(current.version())) {
+                throw new PreconditionFailedException(
+                        "Пользователь с id " + id + " изменён, текущая версия " + current.version());
+            }
+            User updated = updater.apply(current.user().toBuilder().build());
+            String oldEmail = current.user().getEmail();
+            String newEmail = updated.getEmail();
+            boolean emailChanged = !Objects.equals(oldEmail, newEmail);
+            if (emailChanged && membership.emailOwner(newEmail).reserveEmails(List.of(newEmail)).isEmpty()) {
+                throw duplicatedEmail(newEmail);
+            }
+            Optional<PartitionNode.UserReplica> saved;
+            try {
+                saved = found.get().node().saveUser(updated, current.version());
+            } catch (PreconditionFailedException e) {
+                //Пользователь изменён параллельно: следующая попытка с новой версией
+                saved = Optional.empty();
+            } catch (RuntimeException e) {
+                if (emailChanged) {
+                    membership.emailOwner(newEmail).releaseEmails(Map.of(newEmail, 0L));
+                }
+                throw e;
+            }
+            if (saved.isEmpty()) {
+                if (emailChanged) {
+                    membership.emailOwner(newEmail).releaseEmails(Map.of(newEmail, 0L));
+                }
+                continue;
+            }
+            if (emailChanged) {
+                membership.emailOwner(newEmail).confirmEmails(Map.of(newEmail, id));
+                membership.emailOwner(oldEmail).releaseEmails(Map.of(oldEmail, id));
+            }
+            return Optional.of(saved.get().user());
+        }
+    }
+
+    //Каждая сторона дружбы сохраняется на узле своего пользователя
+    @Override
+    public void addFriend(long userId, long friendId) {
+        membership.tryOwner(userId, node -> node.linkFriend(userId, friendId));
+        membership.tryOwner(friendId, node -> node.linkFriend(friendId, userId));
+    }
+
+    @Override
+    public void removeFriend(long userId, long friendId) {
+        membership.tryOwner(userId, node -> node.unlinkFriend(userId, friendId));
+        membership.tryOwner(friendId, node -> node.unlinkFriend(friendId, userId));
+    }
+
+    @Override
+    public List<User> findFriends(long userId) {
+        return findUsers(friendsOf(userId));
+    }
+
+    @Override
+    public List<User> findCommonFriends(long userId, long otherId) {
+        return findUsers(SortedLongArrays.intersect(friendsOf(userId), friendsOf(otherId)));
+    }
+
+    //Узлы обходятся по очереди, как лайки у фильмов: друзья пользователя передаются только от его владельца
+    @Override
+    public void forEachFriends(FriendsConsumer consumer) {
+        for (String url : membership.urls()) {
+            PartitionNode node = membership.node(url);
+            long after = 0;
+            while (true) {
+                List<PartitionNode.UserReplica> page = node.userPage(after, PAGE_SIZE, true);
+                for (PartitionNode.UserReplica replica : page) {
+                    long userId = replica.user().getId();
+                    if (replica.friends().length > 0 && membership.isOwner(url, userId)) {
+                        consumer.accept(userId, replica.friends());
+                    }
+                }
+                if (page.size() < PAGE_SIZE) {
+                    break;
+                }
+                after = page.getLast().user().getId();
+            }
+        }
+    }
+
+    private long[] friendsOf(long userId) {
+        return membership.onOwner(userId, node -> node.friendsOf(userId)).orElse(SortedLongArrays.EMPTY);
+    }
+
+    //Пользователи запрашиваются у владельцев группами по узлу, в порядке ids
+    private List<User> findUsers(long[] ids) {
+        Map<Long, User> found = new HashMap<>(ids.length);
+        Map<String, List<Long>> byOwner = new LinkedHashMap<>();
+        for (long id : ids) {
+            byOwner.computeIfAbsent(ownerOf(id), url -> new ArrayList<>()).add(id);
+        }
+        membership.parallel(byOwner.entrySet(), entry -> membership.node(entry.getKey())
+                        .findUsers(entry.getValue().stream().mapToLong(Long::longValue).toArray()))
+                .forEach(part -> part.forEach(replica -> found.put(replica.user().getId(), replica.user())));
+        List<User> result = new ArrayList<>(ids.length);
+        for (long id : ids) {
+            User user = found.get(id);
+            if (user == null) {
+                //Пользователь мог ещё не доехать до нового владельца
+                user = findById(id).orElse(null);
+            }
+            if (user != null) {
+                result.add(user);
+            }
+        }
+        return result;
+    }
+
+    private String ownerOf(long id) {
+        return membership.state().ring().owner(id);
+    }
+
+    private String ownerOf(String email) {
+        return membership.state().ring().owner(email);
+    }
+
+    private void release(List<User> users, long id) {
+        Map<String, Map<String, Long>> released = new HashMap<>();
+        for (User user : users) {
+            released.computeIfAbsent(ownerOf(user.getEmail()), url -> new HashMap<>()).put(user.getEmail(), id);
+        }
+        released.forEach((url, emails) -> membership.node(url).releaseEmails(emails));
+    }
+
+    private ValidationException duplicatedEmail(String email) {
+        log.warn("Попытка использовать email, который уже есть в базе - {}.", email);
+        return new ValidationException("Пользователь с email " + email + " уже существует");
+    }
+
+    private static List<PartitionNode.UserReplica> latest(List<List<PartitionNode.UserReplica>> parts) {
+        return Replicas.latestById(parts, replica -> replica.user().getId(), PartitionNode.UserReplica::version);
+    }
+
+    private static List<User> users(List<PartitionNode.UserReplica> replicas) {
+        return replicas.stream().map(PartitionNode.UserReplica::user).toList();
+    }
+}
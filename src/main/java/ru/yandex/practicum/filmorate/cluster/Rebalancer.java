@@ -0,0 +1,165 @@
+package ru.yandex.practicum.filmorate.cluster;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantLock;
+
+//Перенос данных, которые по текущему составу кластера принадлежат другим узлам. Фильмы и пользователи
+//передаются пакетами вместе с лайками и друзьями и удаляются у себя, только если не изменились
+//после передачи; изменённые передаются повторно при следующем проходе
+@Slf4j
+class Rebalancer implements AutoCloseable {
+    private static final int BATCH_SIZE = 1000;
+    private static final long RETRY_DELAY_MILLIS = 1000;
+
+    private final ClusterMembership membership;
+    private final LocalPartition local;
+    private final ReentrantLock running = new ReentrantLock();
+    private final AtomicBoolean scheduled = new AtomicBoolean();
+    private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(
+            Thread.ofPlatform().name("filmorate-rebalancer").daemon().factory());
+
+    Rebalancer(ClusterMembership membership, LocalPartition local) {
+        this.membership = membership;
+        this.local = local;
+    }
+
+    //Проход после смены состава; запросы во время ожидания объединяются в один
+    void schedule() {
+        schedule(0);
+    }
+
+    void run() {
+        running.lock();
+        try {
+            ClusterMembership.State state = membership.state();
+            long started = System.nanoTime();
+            Moved films = moveFilms(state);
+            Moved users = moveUsers(state);
+            int emails = moveEmails(state);
+            if (films.count() + users.count() + emails > 0) {
+                log.info("Перенос по составу эпохи {}: фильмов {}, пользователей {}, email {} за {} мс.",
+                        state.view().epoch(), films.count(), users.count(), emails,
+                        TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started));
+            }
+            if (films.changed() + users.changed() > 0) {
+                log.info("Изменились во время переноса и будут перенесены повторно: фильмов {}, пользователей {}.",
+                        films.changed(), users.changed());
+                schedule(RETRY_DELAY_MILLIS);
+            }
+        } catch (RuntimeException e) {
+            log.warn("Перенос данных прерван, повтор через {} мс.", RETRY_DELAY_MILLIS, e);
+            schedule(RETRY_DELAY_MILLIS);
+        } finally {
+            running.unlock();
+        }
+    }
+
+    @Override
+    public void close() {
+        executor.shutdownNow();
+    }
+
+    private void schedule(long delayMillis) {
+        if (scheduled.compareAndSet(false, true)) {
+            executor.schedule(() -> {
+                scheduled.set(false);
+                run();
+            }, delayMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private Moved moveFilms(ClusterMembership.State state) {
+        int moved = 0;
+        int changed = 0;
+        long after = 0;
+        while (true) {
+            List<PartitionNode.FilmReplica> page = local.filmPage(after, BATCH_SIZE, true);
+            if (page.isEmpty()) {
+                return new Moved(moved, changed);
+            }
+            after = page.getLast().film().getId();
+            Map<String, List<PartitionNode.FilmReplica>> foreign = new LinkedHashMap<>();
+            for (PartitionNode.FilmReplica replica : page) {
+                String owner = state.ring().owner(replica.film().getId());
+                if (!owner.equals(state.self())) {
+                    foreign.computeIfAbsent(owner, url -> new ArrayList<>()).add(replica);
+                }
+            }
+            for (Map.Entry<String, List<PartitionNode.FilmReplica>> entry : foreign.entrySet()) {
+                membership.node(entry.getKey()).importFilms(entry.getValue());
+                for (PartitionNode.FilmReplica replica : entry.getValue()) {
+                    if (local.evictFilm(replica)) {
+                        moved++;
+                    } else {
+                        changed++;
+                    }
+                }
+            }
+        }
+    }
+
+    private Moved moveUsers(ClusterMembership.State state) {
+        int moved = 0;
+        int changed = 0;
+        long after = 0;
+        while (true) {
+            List<PartitionNode.UserReplica> page = local.userPage(after, BATCH_SIZE, true);
+            if (page.isEmpty()) {
+                return new Moved(moved, changed);
+            }
+            after = page.getLast().user().getId();
+            Map<String, List<PartitionNode.UserReplica>> foreign = new LinkedHashMap<>();
+            for (PartitionNode.UserReplica replica : page) {
+                String owner = state.ring().owner(replica.user().getId());
+                if (!owner.equals(state.self())) {
+                    foreign.computeIfAbsent(owner, url -> new ArrayList<>()).add(replica);
+                }
+            }
+            for (Map.Entry<String, List<PartitionNode.UserReplica>> entry : foreign.entrySet()) {
+                membership.node(entry.getKey()).importUsers(entry.getValue());
+                for (PartitionNode.UserReplica replica : entry.getValue()) {
+                    if (local.evictUser(replica)) {
+                        moved++;
+                    } else {
+                        changed++;
+                    }
+                }
+            }
+        }
+    }
+
+    //Резервы переносятся вместе с привязанными email: подтверждение создаваемого пользователя
+    //уйдёт уже новому владельцу
+    private int moveEmails(ClusterMembership.State state) {
+        Map<String, Map<String, Long>> foreign = new HashMap<>();
+        local.emails().forEach((email, id) -> {
+            String owner = state.ring().owner(email);
+            if (!owner.equals(state.self())) {
+                foreign.computeIfAbsent(owner, url -> new HashMap<>()).put(email, id);
+            }
+        });
+        int moved = 0;
+        for (Map.Entry<String, Map<String, Long>> entry : foreign.entrySet()) {
+            membership.node(entry.getKey()).confirmEmails(entry.getValue());
+            for (Map.Entry<String, Long> email : entry.getValue().entrySet()) {
+                if (local.emails().remove(email.getKey(), email.getValue())) {
+                    moved++;
+                }
+            }
+        }
+        return moved;
+    }
+
+    private record Moved(int count, int changed) {
+    }
+}
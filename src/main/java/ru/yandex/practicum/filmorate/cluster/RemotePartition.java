@@ -0,0 +1,294 @@
+package ru.yandex.practicum.filmorate.cluster;
+
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.RestClient;
+import org.springframework.web.client.RestClientException;
+import org.springframework.web.util.UriBuilder;
+import ru.yandex.practicum.filmorate.exception.PartitionUnavailableException;
+import ru.yandex.practicum.filmorate.exception.PreconditionFailedException;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmRangeFilter;
+import ru.yandex.practicum.filmorate.model.User;
+
+import java.net.URI;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Supplier;
+
+//Данные другого узла через внутренние эндпоинты /cluster (ClusterController). Версия в JSON модели
+//не входит, поэтому после чтения она переносится из ответа в сущность
+class RemotePartition implements PartitionNode {
+    private static final ParameterizedTypeReference<List<FilmReplica>> FILMS = new ParameterizedTypeReference<>() {
+    };
+    private static final ParameterizedTypeReference<List<UserReplica>> USERS = new ParameterizedTypeReference<>() {
+    };
+    private static final ParameterizedTypeReference<List<RankedFilm>> RANKED = new ParameterizedTypeReference<>() {
+    };
+    private static final ParameterizedTypeReference<List<LikesRow>> LIKES = new ParameterizedTypeReference<>() {
+    };
+    private static final ParameterizedTypeReference<List<String>> EMAILS = new ParameterizedTypeReference<>() {
+    };
+
+    private final String url;
+    private final RestClient client;
+
+    RemotePartition(String url, RestClient client) {
+        this.url = url;
+        this.client = client;
+    }
+
+    @Override
+    public PartitionStats stats() {
+        return call(() -> client.get().uri(url + "/cluster/stats").retrieve().body(PartitionStats.class));
+    }
+
+    @Override
+    public Optional<FilmReplica> findFilm(long id) {
+        return Optional.ofNullable(call(() -> client.get()
+                .uri(url + "/cluster/films/{id}", id)
+                .retrieve()
+                .body(FilmReplica.class))).map(RemotePartition::withVersion);
+    }
+
+    @Override
+    public List<FilmReplica> filmPage(long after, int limit, boolean withLikes) {
+        return films(call(() -> client.get()
+                .uri(url + "/cluster/films?after={after}&limit={limit}&withLikes={withLikes}", after, limit, withLikes)
+                .retrieve()
+                .body(FILMS)));
+    }
+
+    @Override
+    public List<FilmReplica> filmsInRange(FilmRangeFilter filter, int limit) {
+        return films(call(() -> client.get()
+                .uri(url + "/cluster/films/range", builder -> rangeQuery(builder, filter, limit))
+                .retrieve()
+                .body(FILMS)));
+    }
+
+    @Override
+    public List<FilmReplica> searchFilms(String query, int limit) {
+        return films(call(() -> client.get()
+                .uri(url + "/cluster/films/search?query={query}&limit={limit}", query, limit)
+                .retrieve()
+                .body(FILMS)));
+    }
+
+    @Override
+    public List<RankedFilm> popularFilms(int count) {
+        List<RankedFilm> ranked = call(() -> client.get()
+                .uri(url + "/cluster/films/popular?count={count}", count)
+                .retrieve()
+                .body(RANKED));
+        ranked.forEach(film -> film.film().setVersion(film.version()));
+        return ranked;
+    }
+
+    @Override
+    public Optional<FilmReplica> saveFilm(Film film, long expectedVersion) {
+        return Optional.ofNullable(call(() -> client.put()
+                .uri(url + "/cluster/films/{id}?expectedVersion={version}", film.getId(), expectedVersion)
+                .body(film)
+                .retrieve()
+                .body(FilmReplica.class))).map(RemotePartition::withVersion);
+    }
+
+    @Override
+    public boolean addLike(long filmId, long userId) {
+        return call(() -> client.put()
+                .uri(url + "/cluster/films/{id}/likes/{userId}", filmId, userId)
+                .retrieve()
+                .body(Boolean.class));
+    }
+
+    @Override
+    public boolean removeLike(long filmId, long userId) {
+        return call(() -> client.delete()
+                .uri(url + "/cluster/films/{id}/likes/{userId}", filmId, userId)
+                .retrieve()
+                .body(Boolean.class));
+    }
+
+    @Override
+    public List<LikesRow> likesPage(long after, int limit) {
+        return call(() -> client.get()
+                .uri(url + "/cluster/films/likes?after={after}&limit={limit}", after, limit)
+                .retrieve()
+                .body(LIKES));
+    }
+
+    @Override
+    public void importFilms(List<FilmReplica> films) {
+        call(() -> client.post()
+                .uri(url + "/cluster/films/import")
+                .body(films)
+                .retrieve()
+                .toBodilessEntity());
+    }
+
+    @Override
+    public Optional<UserReplica> findUser(long id) {
+        return Optional.ofNullable(call(() -> client.get()
+                .uri(url + "/cluster/users/{id}", id)
+                .retrieve()
+                .body(UserReplica.class))).map(RemotePartition::withVersion);
+    }
+
+    @Override
+    public List<UserReplica> userPage(long after, int limit, boolean withFriends) {
+        return users(call(() -> client.get()
+                .uri(url + "/cluster/users?after={after}&limit={limit}&withFriends={withFriends}",
+                        after, limit, withFriends)
+                .retrieve()
+                .body(USERS)));
+    }
+
+    @Override
+    public List<UserReplica> findUsers(long[] ids) {
+        return users(call(() -> client.post()
+                .uri(url + "/cluster/users/lookup")
+                .body(ids)
+                .retrieve()
+                .body(USERS)));
+    }
+
+    @Override
+    public Optional<UserReplica> saveUser(User user, long expectedVersion) {
+        return Optional.ofNullable(call(() -> client.put()
+                .uri(url + "/cluster/users/{id}?expectedVersion={version}", user.getId(), expectedVersion)
+                .body(user)
+                .retrieve()
+                .body(UserReplica.class))).map(RemotePartition::withVersion);
+    }
+
+    @Override
+    public boolean linkFriend(long userId, long friendId) {
+        return call(() -> client.put()
+                .uri(url + "/cluster/users/{id}/friends/{friendId}", userId, friendId)
+                .retrieve()
+                .body(Boolean.class));
+    }
+
+    @Override
+    public boolean unlinkFriend(long userId, long friendId) {
+        return call(() -> client.delete()
+                .uri(url + "/cluster/users/{id}/friends/{friendId}", userId, friendId)
+                .retrieve()
+                .body(Boolean.class));
+    }
+
+    @Override
+    public Optional<long[]> friendsOf(long userId) {
+        return Optional.ofNullable(call(() -> client.get()
+                .uri(url + "/cluster/users/{id}/friends", userId)
+                .retrieve()
+                .body(long[].class)));
+    }
+
+    @Override
+    public void importUsers(List<UserReplica> users) {
+        call(() -> client.post()
+                .uri(url + "/cluster/users/import")
+                .body(users)
+                .retrieve()
+                .toBodilessEntity());
+    }
+
+    @Override
+    public List<String> reserveEmails(List<String> emails) {
+        return call(() -> client.post()
+                .uri(url + "/cluster/emails/reserve")
+                .body(emails)
+                .retrieve()
+                .body(EMAILS));
+    }
+
+    @Override
+    public void confirmEmails(Map<String, Long> emails) {
+        call(() -> client.post()
+                .uri(url + "/cluster/emails/confirm")
+                .body(emails)
+                .retrieve()
+                .toBodilessEntity());
+    }
+
+    @Override
+    public void releaseEmails(Map<String, Long> emails) {
+        call(() -> client.post()
+                .uri(url + "/cluster/emails/release")
+                .body(emails)
+                .retrieve()
+                .toBodilessEntity());
+    }
+
+    //Вход узла через этот узел и рассылка нового состава
+    ClusterView join(String joining) {
+        return call(() -> client.post()
+                .uri(url + "/cluster/join")
+                .body(Map.of("url", joining))
+                .retrieve()
+                .body(ClusterView.class));
+    }
+
+    void announce(ClusterView view) {
+        call(() -> client.post()
+                .uri(url + "/cluster/view")
+                .body(view)
+                .retrieve()
+                .toBodilessEntity());
+    }
+
+    //412 с узла - конфликт версий, остальные ошибки - узел недоступен
+    private <T> T call(Supplier<T> request) {
+        try {
+            return request.get();
+        } catch (HttpClientErrorException e) {
+            if (e.getStatusCode().value() == HttpStatus.PRECONDITION_FAILED.value()) {
+                throw new PreconditionFailedException("Версия сущности на узле " + url + " изменилась");
+            }
+            throw new PartitionUnavailableException("Узел " + url + " отклонил запрос: " + e.getStatusCode(), e);
+        } catch (RestClientException e) {
+            throw new PartitionUnavailableException("Узел " + url + " не ответил", e);
+        }
+    }
+
+    private static URI rangeQuery(UriBuilder builder, FilmRangeFilter filter, int limit) {
+        builder.queryParam("limit", limit);
+        if (filter.getReleasedFrom() != null) {
+            builder.queryParam("releasedFrom", filter.getReleasedFrom());
+        }
+        if (filter.getReleasedTo() != null) {
+            builder.queryParam("releasedTo", filter.getReleasedTo());
+        }
+        if (filter.getMinDuration() != null) {
+            builder.queryParam("minDuration", filter.getMinDuration());
+        }
+        if (filter.getMaxDuration() != null) {
+            builder.queryParam("maxDuration", filter.getMaxDuration());
+        }
+        return builder.build();
+    }
+
+    private static List<FilmReplica> films(List<FilmReplica> replicas) {
+        replicas.forEach(RemotePartition::withVersion);
+        return replicas;
+    }
+
+    private static List<UserReplica> users(List<UserReplica> replicas) {
+        replicas.forEach(RemotePartition::withVersion);
+        return replicas;
+    }
+
+    private static FilmReplica withVersion(FilmReplica replica) {
+        replica.film().setVersion(replica.version());
+        return replica;
+    }
+
+    private static UserReplica withVersion(UserReplica replica) {
+        replica.user().setVersion(replica.version());
+        return replica;
+    }
+}
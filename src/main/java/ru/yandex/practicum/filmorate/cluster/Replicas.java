@@ -0,0 +1,29 @@
+package ru.yandex.practicum.filmorate.cluster;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.ToLongFunction;
+
+//Слияние ответов узлов по id. Во время переноса сущность может прийти с двух узлов,
+//остаётся копия с большей версией
+final class Replicas {
+    private Replicas() {
+    }
+
+    //Сущность вместе с узлом, вернувшим её
+    record Located<T>(PartitionNode node, T replica) {
+    }
+
+    static <T> List<T> latestById(List<List<T>> parts, ToLongFunction<T> id, ToLongFunction<T> version) {
+        Map<Long, T> merged = new TreeMap<>();
+        for (List<T> part : parts) {
+            for (T replica : part) {
+                merged.merge(id.applyAsLong(replica), replica,
+                        (current, added) -> version.applyAsLong(added) > version.applyAsLong(current) ? added : current);
+            }
+        }
+        return new ArrayList<>(merged.values());
+    }
+}
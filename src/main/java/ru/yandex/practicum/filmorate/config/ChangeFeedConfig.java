@@ -0,0 +1,22 @@
+package ru.yandex.practicum.filmorate.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import ru.yandex.practicum.filmorate.feed.ChangeFeed;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.User;
+
+//Ленты изменений фильмов и пользователей для подписчиков /films/changes и /users/changes
+@Configuration
+public class ChangeFeedConfig {
+    @Bean
+    public ChangeFeed<Film> filmChanges(@Value("${filmorate.feed.capacity:65536}") int capacity) {
+        return new ChangeFeed<>(capacity);
+    }
+
+    @Bean
+    public ChangeFeed<User> userChanges(@Value("${filmorate.feed.capacity:65536}") int capacity) {
+        return new ChangeFeed<>(capacity);
+    }
+}
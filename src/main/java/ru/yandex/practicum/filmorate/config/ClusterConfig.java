@@ -0,0 +1,84 @@
+package ru.yandex.practicum.filmorate.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.client.ClientHttpRequestFactories;
+import org.springframework.boot.web.client.ClientHttpRequestFactorySettings;
+import org.springframework.boot.web.context.WebServerInitializedEvent;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.context.event.EventListener;
+import org.springframework.web.client.RestClient;
+import ru.yandex.practicum.filmorate.cluster.ClusterMembership;
+import ru.yandex.practicum.filmorate.cluster.ClusterSecretFilter;
+import ru.yandex.practicum.filmorate.cluster.HttpTransport;
+import ru.yandex.practicum.filmorate.cluster.LocalPartition;
+
+import java.time.Duration;
+import java.util.List;
+
+//Разделение данных между несколькими экземплярами. Узел входит в кластер, когда веб-сервер уже принимает
+//запросы: адрес узла по умолчанию строится из фактического порта, а перенос данных на новый узел
+//начинается сразу после входа
+@Configuration
+@Profile("!jdbc")
+@ConditionalOnProperty(name = "filmorate.cluster.enabled", havingValue = "true")
+public class ClusterConfig {
+    private final String advertisedUrl;
+    private final List<String> seeds;
+    private final String secret;
+
+    public ClusterConfig(
+            @Value("${filmorate.cluster.advertised-url:}") String advertisedUrl,
+            @Value("${filmorate.cluster.seeds:}") List<String> seeds,
+            @Value("${filmorate.cluster.secret:}") String secret,
+            @Value("${filmorate.persistence.enabled:false}") boolean persistence,
+            @Value("${filmorate.storage.packed:false}") boolean packed
+    ) {
+        //Журнал не видит данных, перенесённых между узлами, и восстановил бы их не на тех узлах
+        if (persistence) {
+            throw new IllegalStateException(
+                    "filmorate.cluster.enabled несовместимо с filmorate.persistence.enabled");
+        }
+        //Колоночная таблица адресует строку по id, а id узла кластера - номер << 10 | номер узла:
+        //массивы росли бы в 1024 раза быстрее числа строк и переполнились бы после ~2 млн id
+        if (packed) {
+            throw new IllegalStateException(
+                    "filmorate.cluster.enabled несовместимо с filmorate.storage.packed");
+        }
+        //Внутренние эндпоинты открыты на том же порту, что и API, и без секрета были бы доступны любому клиенту
+        if (secret.isBlank()) {
+            throw new IllegalStateException("Для filmorate.cluster.enabled нужен filmorate.cluster.secret");
+        }
+        this.advertisedUrl = advertisedUrl;
+        this.seeds = seeds;
+        this.secret = secret;
+    }
+
+    @Bean(destroyMethod = "close")
+    public ClusterMembership clusterMembership(
+            LocalPartition local,
+            RestClient.Builder restClientBuilder,
+            @Value("${filmorate.cluster.virtual-nodes:128}") int virtualNodes,
+            @Value("${filmorate.cluster.timeout-ms:5000}") long timeoutMillis
+    ) {
+        RestClient client = restClientBuilder
+                .defaultHeader(ClusterSecretFilter.HEADER, secret)
+                .requestFactory(ClientHttpRequestFactories.get(ClientHttpRequestFactorySettings.DEFAULTS
+                        .withConnectTimeout(Duration.ofMillis(timeoutMillis))
+                        .withReadTimeout(Duration.ofMillis(timeoutMillis))))
+                .build();
+        return new ClusterMembership(local, new HttpTransport(client), virtualNodes);
+    }
+
+    @EventListener
+    public void join(WebServerInitializedEvent event) {
+        //Отдельный сервер actuator (management.server.port) тоже публикует событие
+        if (event.getApplicationContext().getServerNamespace() != null) {
+            return;
+        }
+        String self = advertisedUrl.isBlank() ? "http://localhost:" + event.getWebServer().getPort() : advertisedUrl;
+        event.getApplicationContext().getBean(ClusterMembership.class).start(self, seeds);
+    }
+}
@@ -0,0 +1,45 @@
+package ru.yandex.practicum.filmorate.config;
+
+import io.micrometer.core.aop.TimedAspect;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.validation.Validator;
+import org.springframework.validation.beanvalidation.LocalValidatorFactoryBean;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+import ru.yandex.practicum.filmorate.storage.film.FilmStorage;
+import ru.yandex.practicum.filmorate.storage.user.UserStorage;
+
+//Метрики приложения. Время обработки запросов публикует сам Spring Boot (http.server.requests),
+//здесь добавляются время валидации, операции хранилищ (@Timed) и количество сущностей
+@Configuration
+@RequiredArgsConstructor
+public class MetricsConfig implements WebMvcConfigurer {
+    private final LocalValidatorFactoryBean defaultValidator;
+    private final MeterRegistry meterRegistry;
+
+    @Override
+    public Validator getValidator() {
+        return new TimedValidator(defaultValidator, meterRegistry);
+    }
+
+    @Bean
+    public TimedAspect timedAspect(MeterRegistry registry) {
+        return new TimedAspect(registry);
+    }
+
+    @Bean
+    public MeterBinder entityCounts(FilmStorage filmStorage, UserStorage userStorage) {
+        return registry -> {
+            Gauge.builder("filmorate.entities", filmStorage, FilmStorage::count)
+                    .tag("type", "films")
+                    .register(registry);
+            Gauge.builder("filmorate.entities", userStorage, UserStorage::count)
+                    .tag("type", "users")
+                    .register(registry);
+        };
+    }
+}
@@ -0,0 +1,45 @@
+package ru.yandex.practicum.filmorate.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.RequiredArgsConstructor;
+import org.springframework.validation.Errors;
+import org.springframework.validation.SmartValidator;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+//Валидатор @Valid-параметров контроллеров, замеряющий время проверки по типу сущности
+@RequiredArgsConstructor
+public class TimedValidator implements SmartValidator {
+    private final SmartValidator delegate;
+    private final MeterRegistry meterRegistry;
+    private final Map<Class<?>, Timer> timers = new ConcurrentHashMap<>();
+
+    @Override
+    public boolean supports(Class<?> clazz) {
+        return delegate.supports(clazz);
+    }
+
+    @Override
+    public void validate(Object target, Errors errors) {
+        timer(target).record(() -> delegate.validate(target, errors));
+    }
+
+    @Override
+    public void validate(Object target, Errors errors, Object... validationHints) {
+        timer(target).record(() -> delegate.validate(target, errors, validationHints));
+    }
+
+    @Override
+    public void validateValue(Class<?> targetType, String fieldName, Object value, Errors errors,
+                              Object... validationHints) {
+        delegate.validateValue(targetType, fieldName, value, errors, validationHints);
+    }
+
+    private Timer timer(Object target) {
+        return timers.computeIfAbsent(target.getClass(), type -> Timer.builder("filmorate.validation")
+                .tag("entity", type.getSimpleName())
+                .register(meterRegistry));
+    }
+}
@@ -0,0 +1,36 @@
+package ru.yandex.practicum.filmorate.controller;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+//Валидация элементов пакетного запроса по отдельности, чтобы ошибка одного не отменяла весь пакет
+@Component
+@RequiredArgsConstructor
+public class BatchValidator {
+    private final Validator validator;
+    private final MeterRegistry meterRegistry;
+
+    public Optional<String> validate(Object entity) {
+        if (entity == null) {
+            return Optional.of("Пустой элемент пакета");
+        }
+        Timer.Sample sample = Timer.start(meterRegistry);
+        Set<ConstraintViolation<Object>> violations = validator.validate(entity);
+        sample.stop(meterRegistry.timer("filmorate.validation", "entity", entity.getClass().getSimpleName()));
+        if (violations.isEmpty()) {
+            return Optional.empty();
+        }
+        return Optional.of(violations.stream()
+                .map(violation -> violation.getPropertyPath() + ": " + violation.getMessage())
+                .sorted()
+                .collect(Collectors.joining("; ")));
+    }
+}
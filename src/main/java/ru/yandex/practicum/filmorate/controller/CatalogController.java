@@ -0,0 +1,46 @@
+package ru.yandex.practicum.filmorate.controller;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import ru.yandex.practicum.filmorate.catalog.CatalogTransfer;
+import ru.yandex.practicum.filmorate.catalog.ImportReport;
+import ru.yandex.practicum.filmorate.exception.InvalidCatalogException;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.Channels;
+
+//Выгрузка и загрузка всего каталога (фильмы, пользователи, лайки и друзья) в двоичном формате
+@RestController
+@RequestMapping("/admin/catalog")
+@Slf4j
+@RequiredArgsConstructor
+public class CatalogController {
+
+    private final CatalogTransfer catalogTransfer;
+
+    @GetMapping(value = "/export", produces = MediaType.APPLICATION_OCTET_STREAM_VALUE)
+    public ResponseEntity<StreamingResponseBody> export(@RequestParam(defaultValue = "false") boolean compress) {
+        return ResponseEntity.ok()
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"catalog.bin\"")
+                .body(out -> {
+                    catalogTransfer.export(Channels.newChannel(out), compress);
+                    out.flush();
+                });
+    }
+
+    @PostMapping(value = "/import", consumes = MediaType.APPLICATION_OCTET_STREAM_VALUE)
+    public ImportReport importCatalog(InputStream body) {
+        try {
+            return catalogTransfer.importFrom(Channels.newChannel(body));
+        } catch (IOException e) {
+            log.warn("Не удалось загрузить каталог: {}", e.getMessage());
+            throw new InvalidCatalogException("Выгрузка каталога повреждена: " + e.getMessage(), e);
+        }
+    }
+}
@@ -0,0 +1,178 @@
+package ru.yandex.practicum.filmorate.controller;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import ru.yandex.practicum.filmorate.feed.ChangeEvent;
+import ru.yandex.practicum.filmorate.feed.ChangeFeed;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Locale;
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.ToLongFunction;
+
+//Выдача ленты изменений по SSE. У каждого подписчика свой виртуальный поток, который читает кольцевой буфер
+//со своей позиции, поэтому медленный клиент задерживает только себя, а не запись. Отставшему больше чем
+//на размер буфера отправляется событие resync с текущим номером: клиент перечитывает коллекцию целиком
+//и продолжает с этого номера. Изменения одной сущности из параллельных запросов могут попасть в ленту не в том
+//порядке, в котором применились, поэтому в данные события входит версия сущности: клиент оставляет старшую.
+//Номера ленты живут в памяти процесса и после перезапуска начинаются заново, поэтому id события - метка запуска
+//и номер: позиция из другого запуска или нераспознанная позиция тоже приводит к resync
+@Slf4j
+@Component
+public class ChangeStreamer {
+    static final String RESYNC = "resync";
+    private static final int BATCH_SIZE = 256;
+    //Позиция не из этого запуска: первое чтение ленты вернёт пусто, и подписчик получит resync
+    private static final long UNKNOWN = Long.MAX_VALUE;
+
+    private final MeterRegistry meterRegistry;
+    private final long timeoutMillis;
+    private final long heartbeatNanos;
+    private final AtomicLong subscriberIds = new AtomicLong();
+    private final AtomicInteger subscribers = new AtomicInteger();
+    private final String epoch = Long.toString(System.currentTimeMillis(), 36) + "."
+            + Integer.toString(ThreadLocalRandom.current().nextInt() & Integer.MAX_VALUE, 36);
+
+    public ChangeStreamer(
+            MeterRegistry meterRegistry,
+            @Value("${filmorate.feed.timeout-ms:1800000}") long timeoutMillis,
+            @Value("${filmorate.feed.heartbeat-ms:15000}") long heartbeatMillis
+    ) {
+        this.meterRegistry = meterRegistry;
+        this.timeoutMillis = timeoutMillis;
+        this.heartbeatNanos = TimeUnit.MILLISECONDS.toNanos(heartbeatMillis);
+        Gauge.builder("filmorate.feed.subscribers", subscribers, AtomicInteger::get).register(meterRegistry);
+    }
+
+    //Без after передаются только изменения после подключения
+    public <T> SseEmitter subscribe(String name, ChangeFeed<T> feed, ToLongFunction<T> versionOf, String after) {
+        SseEmitter emitter = new SseEmitter(timeoutMillis);
+        Subscription<T> subscription = new Subscription<>(name, feed, versionOf, emitter,
+                after == null ? feed.head() : sequenceOf(after));
+        emitter.onCompletion(subscription::close);
+        emitter.onTimeout(subscription::close);
+        emitter.onError(error -> subscription.close());
+        subscription.start();
+        return emitter;
+    }
+
+    //id события: метка запуска и номер в ленте
+    String eventId(long sequence) {
+        return epoch + "-" + sequence;
+    }
+
+    private long sequenceOf(String eventId) {
+        int separator = eventId.lastIndexOf('-');
+        if (separator != epoch.length() || !eventId.startsWith(epoch)) {
+            return UNKNOWN;
+        }
+        try {
+            long sequence = Long.parseLong(eventId.substring(separator + 1));
+            return sequence < 0 ? UNKNOWN : sequence;
+        } catch (NumberFormatException e) {
+            return UNKNOWN;
+        }
+    }
+
+    private static long lag(ChangeFeed<?> feed, long cursor) {
+        return Math.max(0, feed.head() - cursor);
+    }
+
+    //Данные события: {"version": ..., "entity": {...}}
+    static <T> VersionedEntity<T> payload(ChangeEvent<T> event, ToLongFunction<T> versionOf) {
+        return new VersionedEntity<>(versionOf.applyAsLong(event.entity()), event.entity());
+    }
+
+    record VersionedEntity<T>(long version, T entity) {
+    }
+
+    private final class Subscription<T> implements Runnable {
+        private final long id = subscriberIds.incrementAndGet();
+        private final String name;
+        private final ChangeFeed<T> feed;
+        private final ToLongFunction<T> versionOf;
+        private final SseEmitter emitter;
+        private final AtomicBoolean closed = new AtomicBoolean();
+        private final Gauge lag;
+        private final Counter resyncs;
+        private volatile long cursor;
+        private Thread thread;
+
+        Subscription(String name, ChangeFeed<T> feed, ToLongFunction<T> versionOf, SseEmitter emitter, long cursor) {
+            this.name = name;
+            this.feed = feed;
+            this.versionOf = versionOf;
+            this.emitter = emitter;
+            this.cursor = cursor;
+            //До первого resync позиция UNKNOWN больше номера ленты
+            this.lag = Gauge.builder("filmorate.feed.lag", this, subscription -> lag(feed, subscription.cursor))
+                    .tag("feed", name)
+                    .tag("subscriber", Long.toString(id))
+                    .register(meterRegistry);
+            this.resyncs = meterRegistry.counter("filmorate.feed.resyncs", "feed", name);
+        }
+
+        synchronized void start() {
+            subscribers.incrementAndGet();
+            thread = Thread.ofVirtual().name("change-feed-" + name + "-" + id).start(this);
+        }
+
+        @Override
+        public void run() {
+            try {
+                while (!closed.get()) {
+                    Optional<List<ChangeEvent<T>>> events = feed.read(cursor, BATCH_SIZE);
+                    if (events.isEmpty()) {
+                        long head = feed.head();
+                        emitter.send(SseEmitter.event().id(eventId(head)).name(RESYNC).data(eventId(head)));
+                        resyncs.increment();
+                        cursor = head;
+                    } else if (events.get().isEmpty()) {
+                        //Комментарий раз в heartbeat-ms держит соединение и обнаруживает отключившихся клиентов
+                        if (!feed.await(cursor, heartbeatNanos) && !closed.get()) {
+                            emitter.send(SseEmitter.event().comment("heartbeat"));
+                        }
+                    } else {
+                        for (ChangeEvent<T> event : events.get()) {
+                            emitter.send(SseEmitter.event()
+                                    .id(eventId(event.sequence()))
+                                    .name(event.type().name().toLowerCase(Locale.ROOT))
+                                    .data(payload(event, versionOf), MediaType.APPLICATION_JSON));
+                            cursor = event.sequence();
+                        }
+                    }
+                }
+            } catch (IOException | IllegalStateException e) {
+                //Клиент отключился или подписка уже завершена контейнером
+                log.debug("Подписка {} на ленту {} завершена: {}.", id, name, e.getMessage());
+            } finally {
+                close();
+            }
+        }
+
+        void close() {
+            if (!closed.compareAndSet(false, true)) {
+                return;
+            }
+            subscribers.decrementAndGet();
+            meterRegistry.remove(lag);
+            synchronized (this) {
+                if (thread != null && thread != Thread.currentThread()) {
+                    thread.interrupt();
+                }
+            }
+        }
+    }
+}
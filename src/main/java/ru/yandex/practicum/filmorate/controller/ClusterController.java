@@ -0,0 +1,173 @@
+package ru.yandex.practicum.filmorate.controller;
+
+import jakarta.validation.Valid;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Profile;
+import org.springframework.web.bind.annotation.*;
+import ru.yandex.practicum.filmorate.cluster.ClusterMembership;
+import ru.yandex.practicum.filmorate.cluster.ClusterView;
+import ru.yandex.practicum.filmorate.cluster.LocalPartition;
+import ru.yandex.practicum.filmorate.cluster.PartitionNode;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmRangeFilter;
+import ru.yandex.practicum.filmorate.model.User;
+
+import java.util.List;
+import java.util.Map;
+
+//Внутренние эндпоинты узла кластера: данные этого узла без обращения к другим узлам и вход новых узлов.
+//Доступны только с секретом кластера (ClusterSecretFilter). Отсутствующая сущность - пустой ответ 200
+@RestController
+@RequestMapping("/cluster")
+@Profile("!jdbc")
+@ConditionalOnProperty(name = "filmorate.cluster.enabled", havingValue = "true")
+@RequiredArgsConstructor
+public class ClusterController {
+
+    private final ClusterMembership membership;
+    private final LocalPartition local;
+
+    @PostMapping("/join")
+    public ClusterView join(@RequestBody Map<String, String> request) {
+        return membership.join(request.get("url"));
+    }
+
+    @GetMapping("/view")
+    public ClusterView view() {
+        return membership.view();
+    }
+
+    @PostMapping("/view")
+    public boolean apply(@RequestBody ClusterView view) {
+        return membership.apply(view);
+    }
+
+    @GetMapping("/stats")
+    public PartitionNode.PartitionStats stats() {
+        return local.stats();
+    }
+
+    @GetMapping("/films/{id}")
+    public PartitionNode.FilmReplica findFilm(@PathVariable long id) {
+        return local.findFilm(id).orElse(null);
+    }
+
+    @GetMapping("/films")
+    public List<PartitionNode.FilmReplica> filmPage(
+            @RequestParam long after,
+            @RequestParam int limit,
+            @RequestParam boolean withLikes
+    ) {
+        return local.filmPage(after, limit, withLikes);
+    }
+
+    @GetMapping("/films/range")
+    public List<PartitionNode.FilmReplica> filmsInRange(@ModelAttribute FilmRangeFilter filter, @RequestParam int limit) {
+        return local.filmsInRange(filter, limit);
+    }
+
+    @GetMapping("/films/search")
+    public List<PartitionNode.FilmReplica> searchFilms(@RequestParam String query, @RequestParam int limit) {
+        return local.searchFilms(query, limit);
+    }
+
+    @GetMapping("/films/popular")
+    public List<PartitionNode.RankedFilm> popularFilms(@RequestParam int count) {
+        return local.popularFilms(count);
+    }
+
+    @PutMapping("/films/{id}")
+    public PartitionNode.FilmReplica saveFilm(
+            @PathVariable long id,
+            @RequestParam long expectedVersion,
+            @RequestBody @Valid Film film
+    ) {
+        film.setId(id);
+        return local.saveFilm(film, expectedVersion).orElse(null);
+    }
+
+    @PutMapping("/films/{id}/likes/{userId}")
+    public boolean addLike(@PathVariable long id, @PathVariable long userId) {
+        return local.addLike(id, userId);
+    }
+
+    @DeleteMapping("/films/{id}/likes/{userId}")
+    public boolean removeLike(@PathVariable long id, @PathVariable long userId) {
+        return local.removeLike(id, userId);
+    }
+
+    @GetMapping("/films/likes")
+    public List<PartitionNode.LikesRow> likesPage(@RequestParam long after, @RequestParam int limit) {
+        return local.likesPage(after, limit);
+    }
+
+    @PostMapping("/films/import")
+    public void importFilms(@RequestBody List<PartitionNode.FilmReplica> films) {
+        local.importFilms(films);
+    }
+
+    @GetMapping("/users/{id}")
+    public PartitionNode.UserReplica findUser(@PathVariable long id) {
+        return local.findUser(id).orElse(null);
+    }
+
+    @GetMapping("/users")
+    public List<PartitionNode.UserReplica> userPage(
+            @RequestParam long after,
+            @RequestParam int limit,
+            @RequestParam boolean withFriends
+    ) {
+        return local.userPage(after, limit, withFriends);
+    }
+
+    @PostMapping("/users/lookup")
+    public List<PartitionNode.UserReplica> findUsers(@RequestBody long[] ids) {
+        return local.findUsers(ids);
+    }
+
+    @PutMapping("/users/{id}")
+    public PartitionNode.UserReplica saveUser(
+            @PathVariable long id,
+            @RequestParam long expectedVersion,
+            @RequestBody @Valid User user
+    ) {
+        user.setId(id);
+        return local.saveUser(user, expectedVersion).orElse(null);
+    }
+
+    @PutMapping("/users/{id}/friends/{friendId}")
+    public boolean linkFriend(@PathVariable long id, @PathVariable long friendId) {
+        return local.linkFriend(id, friendId);
+    }
+
+    @DeleteMapping("/users/{id}/friends/{friendId}")
+    public boolean unlinkFriend(@PathVariable long id, @PathVariable long friendId) {
+        return local.unlinkFriend(id, friendId);
+    }
+
+    @GetMapping("/users/{id}/friends")
+    public long[] friendsOf(@PathVariable long id) {
+        return local.friendsOf(id).orElse(null);
+    }
+
+    @PostMapping("/users/import")
+    public void importUsers(@RequestBody List<PartitionNode.UserReplica> users) {
+        local.importUsers(users);
+    }
+
+    @PostMapping("/emails/reserve")
+    public List<String> reserveEmails(@RequestBody List<String> emails) {
+        return local.reserveEmails(emails);
+    }
+
+    @PostMapping("/emails/confirm")
+    public void confirmEmails(@RequestBody Map<String, Long> emails) {
+        local.confirmEmails(emails);
+    }
+
+    @PostMapping("/emails/release")
+    public void releaseEmails(@RequestBody Map<String, Long> emails) {
+        local.releaseEmails(emails);
+    }
+}
@@ -0,0 +1,56 @@
+package ru.yandex.practicum.filmorate.controller;
+
+import java.util.function.LongPredicate;
+
+//ETag отдельной сущности - её версия в кавычках; If-Match сравнивается строго, слабые теги не совпадают
+final class EntityTags {
+    private static final LongPredicate ANY = version -> true;
+    private static final LongPredicate NONE = version -> false;
+
+    private EntityTags() {
+    }
+
+    static String of(long version) {
+        return "\"" + version + "\"";
+    }
+
+    //Без заголовка и для * подходит любая версия; нераспознанный тег не совпадает ни с одной
+    static LongPredicate ifMatch(String header) {
+        if (header == null || header.isBlank()) {
+            return ANY;
+        }
+        String[] candidates = header.split(",");
+        long[] versions = new long[candidates.length];
+        int count = 0;
+        for (String candidate : candidates) {
+            String tag = candidate.trim();
+            if (tag.equals("*")) {
+                return ANY;
+            }
+            if (tag.length() > 2 && tag.charAt(0) == '"' && tag.charAt(tag.length() - 1) == '"') {
+                try {
+                    long version = Long.parseLong(tag.substring(1, tag.length() - 1));
+                    versions[count++] = version;
+                } catch (NumberFormatException ignored) {
+                    // чужой тег не совпадает ни с одной версией
+                }
+            }
+        }
+        if (count == 0) {
+            return NONE;
+        }
+        if (count == 1) {
+            long expected = versions[0];
+            return version -> version == expected;
+        }
+        int size = count;
+        return version -> {
+            for (int i = 0; i < size; i++) {
+                if (versions[i] == version) {
+                    return true;
+                }
+            }
+            return false;
+        };
+    }
+}
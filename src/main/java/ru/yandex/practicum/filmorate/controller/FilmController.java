@@ -1,41 +1,153 @@
 package ru.yandex.practicum.filmorate.controller;
 
 import jakarta.validation.Valid;
+import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import ru.yandex.practicum.filmorate.exception.NotFoundException;
 import ru.yandex.practicum.filmorate.exception.ValidationException;
+import ru.yandex.practicum.filmorate.feed.ChangeEvent;
+import ru.yandex.practicum.filmorate.feed.ChangeFeed;
+import ru.yandex.practicum.filmorate.model.BatchItemResult;
 import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmRangeFilter;
+import ru.yandex.practicum.filmorate.storage.film.FilmStorage;
+import ru.yandex.practicum.filmorate.storage.user.UserStorage;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.time.LocalDate;
+import java.util.ArrayList;
 import java.util.Collection;
-import java.util.HashMap;
-import java.util.Map;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.LongPredicate;
 
 @RestController
 @RequestMapping("/films")
 @Slf4j
+@RequiredArgsConstructor
 public class FilmController {
 
-    private final Map<Long, Film> films = new HashMap<>();
+    static final int MAX_PAGE_SIZE = 1000;
+    //Ограничение выборки по диапазону без явного limit
+    static final int MAX_RANGE_SIZE = 100_000;
+    static final String TRUNCATED_HEADER = "X-Result-Truncated";
+    private static final LocalDate MIN_RELEASE_DATE = LocalDate.of(1895, 12, 28);
+
+    private final FilmStorage filmStorage;
+    private final UserStorage userStorage;
+    private final NdjsonStreamer ndjsonStreamer;
+    private final BatchValidator batchValidator;
+    private final SerializedResponseCache responseCache;
+    private final ChangeFeed<Film> filmChanges;
+    private final ChangeStreamer changeStreamer;
 
     @GetMapping
+    public ResponseEntity<?> findAllCached(
+            @RequestHeader(name = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
+            @ModelAttribute FilmRangeFilter filter
+    ) {
+        if (filter.hasReleaseDateRange() || filter.hasDurationRange()) {
+            //Без limit отдаётся не больше MAX_RANGE_SIZE фильмов; обрезанный ответ помечается заголовком
+            List<Film> films = findInRange(filter, MAX_RANGE_SIZE + 1);
+            if (films.size() > MAX_RANGE_SIZE) {
+                return ResponseEntity.ok()
+                        .header(TRUNCATED_HEADER, "true")
+                        .body(films.subList(0, MAX_RANGE_SIZE));
+            }
+            return ResponseEntity.ok(films);
+        }
+        return responseCache.get("films", filmStorage.getVersion(), this::findAll, ifNoneMatch);
+    }
+
     public Collection<Film> findAll() {
-        return films.values();
+        return filmStorage.findAll();
+    }
+
+    @GetMapping(params = "limit")
+    public Collection<Film> findPage(
+            @RequestParam(defaultValue = "0") long after,
+            @RequestParam int limit,
+            @ModelAttribute FilmRangeFilter filter
+    ) {
+        if (limit < 1 || limit > MAX_PAGE_SIZE) {
+            throw new ValidationException("Размер страницы должен быть от 1 до " + MAX_PAGE_SIZE);
+        }
+        if (filter.hasReleaseDateRange() || filter.hasDurationRange()) {
+            return findInRange(filter, limit);
+        }
+        return filmStorage.findPage(after, limit);
+    }
+
+    public List<Film> findInRange(FilmRangeFilter filter, int limit) {
+        if (filter.getMinDuration() != null && filter.getMinDuration() < 0
+                || filter.getMaxDuration() != null && filter.getMaxDuration() < 0) {
+            throw new ValidationException("Продолжительность должна быть неотрицательной");
+        }
+        if (filter.getReleasedFrom() != null && filter.getReleasedTo() != null
+                && filter.getReleasedFrom().isAfter(filter.getReleasedTo())) {
+            throw new ValidationException("releasedFrom не может быть позже releasedTo");
+        }
+        if (filter.getMinDuration() != null && filter.getMaxDuration() != null
+                && filter.getMinDuration() > filter.getMaxDuration()) {
+            throw new ValidationException("minDuration не может быть больше maxDuration");
+        }
+        return filmStorage.findInRange(filter, limit);
+    }
+
+    @GetMapping(produces = NdjsonStreamer.NDJSON)
+    public StreamingResponseBody stream() {
+        return ndjsonStreamer.stream(filmStorage::findPage, Film::getId);
+    }
+
+    //Лента изменений по SSE с позиции after или Last-Event-ID при переподключении
+    @GetMapping(value = "/changes", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter changes(
+            @RequestParam(required = false) String after,
+            @RequestHeader(name = "Last-Event-ID", required = false) String lastEventId
+    ) {
+        return changeStreamer.subscribe("films", filmChanges, Film::getVersion, after != null ? after : lastEventId);
+    }
+
+    @GetMapping("/{id}")
+    public ResponseEntity<Film> findById(@PathVariable long id) {
+        Film film = filmStorage.findById(id)
+                .orElseThrow(() -> new NotFoundException("Фильм с id " + id + " не найден"));
+        return ResponseEntity.ok().eTag(EntityTags.of(film.getVersion())).body(film);
     }
 
     @PostMapping
     public Film create(@RequestBody @Valid Film film) {
-        film.setId(getNextId());
-        films.put(film.getId(), film);
-        log.info("Добавлен новый фильм - {}.", film.getName());
+        filmStorage.create(film);
+        filmChanges.publish(ChangeEvent.Type.CREATED, film);
+        log.debug("Добавлен новый фильм: id={}, name={}.", film.getId(), film.getName());
         return film;
     }
 
+    //Обновление с If-Match: при несовпадении версии - 412 Precondition Failed, в ответе ETag новой версии
     @PutMapping
-    public Film update(@RequestBody @Valid Film film) {
+    public ResponseEntity<Film> updateIfMatch(
+            @RequestHeader(name = HttpHeaders.IF_MATCH, required = false) String ifMatch,
+            @RequestBody @Valid Film film
+    ) {
+        Film updatedFilm = update(film, EntityTags.ifMatch(ifMatch));
+        return ResponseEntity.ok().eTag(EntityTags.of(updatedFilm.getVersion())).body(updatedFilm);
+    }
+
+    public Film update(Film film) {
+        return update(film, version -> true);
+    }
+
+    private Film update(Film film, LongPredicate versionMatches) {
         if (film.getReleaseDate() != null) {
-            if (film.getReleaseDate().isBefore(LocalDate.of(1895, 12, 28))) {
+            if (film.getReleaseDate().isBefore(MIN_RELEASE_DATE)) {
                 log.warn(
                         "Попытка установить недопустимую дату релизу фильма(" +
                                 "дата релиза фильма должна быть не раньше 28 декабря 1895 года)." +
@@ -45,40 +157,160 @@ public class FilmController {
                 throw new ValidationException("Дата релиза должна быть не раньше 28 декабря 1895 года");
             }
         }
-        if (!films.containsKey(film.getId())) {
-            log.warn("Попытка обновить фильм, которого нет в базе. id фильм - ${}.", film.getId());
-            throw new NotFoundException("Фильм с id " + film.getId() + " не найден");
+
+        Film updatedFilm = filmStorage.update(film.getId(), versionMatches, oldFilm -> applyUpdate(oldFilm, film))
+                .orElseThrow(() -> {
+                    log.warn("Попытка обновить фильм, которого нет в базе. id фильма - {}.", film.getId());
+                    return new NotFoundException("Фильм с id " + film.getId() + " не найден");
+                });
+        filmChanges.publish(ChangeEvent.Type.UPDATED, updatedFilm);
+        if (log.isDebugEnabled() && LogSampler.sampled()) {
+            log.debug("Обновлён фильм: id={}, fields={}.", updatedFilm.getId(), changedFields(film));
         }
+        return updatedFilm;
+    }
 
-        Film oldFilm = films.get(film.getId());
+    @PostMapping("/batch")
+    public List<BatchItemResult<Film>> createBatch(@RequestBody List<Film> films) {
+        List<BatchItemResult<Film>> results = new ArrayList<>(Collections.nCopies(films.size(), null));
+        List<Film> valid = new ArrayList<>(films.size());
+        for (int i = 0; i < films.size(); i++) {
+            Film film = films.get(i);
+            Optional<String> error = batchValidator.validate(film);
+            if (error.isPresent()) {
+                results.set(i, BatchItemResult.failed(i, film, error.get()));
+            } else {
+                valid.add(film);
+            }
+        }
+        List<Film> created = filmStorage.createAll(valid);
+        for (Film film : created) {
+            filmChanges.publish(ChangeEvent.Type.CREATED, film);
+        }
+        for (int i = 0; i < films.size(); i++) {
+            if (results.get(i) == null) {
+                results.set(i, BatchItemResult.<Film>builder()
+                        .index(i)
+                        .status(BatchItemResult.Status.CREATED)
+                        .entity(films.get(i))
+                        .build());
+            }
+        }
+        log.info("Добавлено фильмов пакетом - {} из {}.", created.size(), films.size());
+        return results;
+    }
 
+    @PostMapping(value = "/batch", consumes = NdjsonStreamer.NDJSON)
+    public List<BatchItemResult<Film>> createBatchFromNdjson(InputStream body) throws IOException {
+        return createBatch(ndjsonStreamer.read(body, Film.class));
+    }
+
+    @PutMapping("/batch")
+    public List<BatchItemResult<Film>> updateBatch(@RequestBody List<Film> films) {
+        List<BatchItemResult<Film>> results = new ArrayList<>(films.size());
+        for (int i = 0; i < films.size(); i++) {
+            Film film = films.get(i);
+            Optional<String> error = batchValidator.validate(film);
+            if (error.isPresent()) {
+                results.add(BatchItemResult.failed(i, film, error.get()));
+                continue;
+            }
+            try {
+                results.add(BatchItemResult.<Film>builder()
+                        .index(i)
+                        .status(BatchItemResult.Status.UPDATED)
+                        .entity(update(film))
+                        .build());
+            } catch (NotFoundException | ValidationException e) {
+                results.add(BatchItemResult.failed(i, film, e.getMessage()));
+            }
+        }
+        return results;
+    }
+
+    @PutMapping(value = "/batch", consumes = NdjsonStreamer.NDJSON)
+    public List<BatchItemResult<Film>> updateBatchFromNdjson(InputStream body) throws IOException {
+        return updateBatch(ndjsonStreamer.read(body, Film.class));
+    }
+
+    @GetMapping("/popular")
+    public List<Film> findPopular(@RequestParam(defaultValue = "10") int count) {
+        if (count < 1 || count > MAX_PAGE_SIZE) {
+            throw new ValidationException("Количество фильмов должно быть от 1 до " + MAX_PAGE_SIZE);
+        }
+        return filmStorage.findPopular(count);
+    }
+
+    @GetMapping("/search")
+    public List<Film> search(
+            @RequestParam String q,
+            @RequestParam(defaultValue = "0") int offset,
+            @RequestParam(defaultValue = "20") int limit
+    ) {
+        if (offset < 0 || limit < 1 || limit > MAX_PAGE_SIZE) {
+            throw new ValidationException("Смещение должно быть неотрицательным, а размер страницы - от 1 до "
+                    + MAX_PAGE_SIZE);
+        }
+        return filmStorage.search(q, offset, limit);
+    }
+
+    @PutMapping("/{id}/like/{userId}")
+    public void addLike(@PathVariable long id, @PathVariable long userId) {
+        checkLikeParticipants(id, userId);
+        filmStorage.addLike(id, userId);
+        log.debug("Пользователь с id {} поставил лайк фильму с id {}.", userId, id);
+    }
+
+    @DeleteMapping("/{id}/like/{userId}")
+    public void removeLike(@PathVariable long id, @PathVariable long userId) {
+        checkLikeParticipants(id, userId);
+        filmStorage.removeLike(id, userId);
+        log.debug("Пользователь с id {} убрал лайк с фильма с id {}.", userId, id);
+    }
+
+    private void checkLikeParticipants(long filmId, long userId) {
+        if (filmStorage.findById(filmId).isEmpty()) {
+            log.warn("Попытка поставить лайк фильму, которого нет в базе. id фильма - {}.", filmId);
+            throw new NotFoundException("Фильм с id " + filmId + " не найден");
+        }
+        if (userStorage.findById(userId).isEmpty()) {
+            log.warn("Попытка поставить лайк от пользователя, которого нет в базе. id пользователя - {}.", userId);
+            throw new NotFoundException("Пользователь с id " + userId + " не найден");
+        }
+    }
+
+    //Перенос заполненных полей запроса в сохранённый фильм
+    private Film applyUpdate(Film oldFilm, Film film) {
         if (film.getReleaseDate() != null) {
             oldFilm.setReleaseDate(film.getReleaseDate());
-            log.debug("Дата релиза фильма {} обновлена на: {}.", oldFilm.getName(), oldFilm.getReleaseDate());
         }
         if (film.getDescription() != null) {
             oldFilm.setDescription(film.getDescription());
-            log.debug("Описание фильма {} обновлено на: {}.", oldFilm.getName(), oldFilm.getDescription());
         }
         if (film.getDuration() != null) {
             oldFilm.setDuration(film.getDuration());
-            log.debug("Продолжительность фильма {} обновлена на: {}.", oldFilm.getName(), oldFilm.getDuration());
         }
         if (film.getName() != null) {
-            log.debug("Название фильма {} изменено на: {}.", oldFilm.getName(), film.getName());
             oldFilm.setName(film.getName());
         }
-        log.info("Фильма с id ${} успешно обновлен", oldFilm.getId());
         return oldFilm;
     }
 
-    //Генерация id
-    private long getNextId() {
-        long currentMaxId = films.keySet()
-                .stream()
-                .mapToLong(id -> id)
-                .max()
-                .orElse(0);
-        return ++currentMaxId;
+    //Имена полей, переданных в запросе на обновление, - только для лога
+    private static List<String> changedFields(Film film) {
+        List<String> fields = new ArrayList<>(4);
+        if (film.getName() != null) {
+            fields.add("name");
+        }
+        if (film.getDescription() != null) {
+            fields.add("description");
+        }
+        if (film.getReleaseDate() != null) {
+            fields.add("releaseDate");
+        }
+        if (film.getDuration() != null) {
+            fields.add("duration");
+        }
+        return fields;
     }
 }
@@ -0,0 +1,16 @@
+package ru.yandex.practicum.filmorate.controller;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+//Выборочное подробное логирование: в лог попадает примерно одно событие из RATE,
+//чтобы при включённом DEBUG поток записей не превращался в поток строк лога
+final class LogSampler {
+    static final int RATE = 100;
+
+    private LogSampler() {
+    }
+
+    static boolean sampled() {
+        return ThreadLocalRandom.current().nextInt(RATE) == 0;
+    }
+}
@@ -0,0 +1,58 @@
+package ru.yandex.practicum.filmorate.controller;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+import java.util.function.ToLongFunction;
+
+//Потоковая выдача сущностей в формате NDJSON постранично, без загрузки всей коллекции в память,
+//и чтение NDJSON в пакетных запросах
+@Component
+@RequiredArgsConstructor
+public class NdjsonStreamer {
+    public static final String NDJSON = "application/x-ndjson";
+    static final int PAGE_SIZE = 1000;
+
+    private final ObjectMapper objectMapper;
+
+    public <T> StreamingResponseBody stream(PageLoader<T> pageLoader, ToLongFunction<T> idExtractor) {
+        ObjectWriter writer = objectMapper.writer().without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        return out -> {
+            try (JsonGenerator generator = objectMapper.getFactory().createGenerator(out)) {
+                generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+                generator.setRootValueSeparator(null);
+                long after = 0;
+                List<T> page = pageLoader.load(after, PAGE_SIZE);
+                while (!page.isEmpty()) {
+                    for (T entity : page) {
+                        writer.writeValue(generator, entity);
+                        generator.writeRaw('\n');
+                    }
+                    generator.flush();
+                    after = idExtractor.applyAsLong(page.get(page.size() - 1));
+                    page = pageLoader.load(after, PAGE_SIZE);
+                }
+            }
+        };
+    }
+
+    public <T> List<T> read(InputStream in, Class<T> type) throws IOException {
+        try (MappingIterator<T> iterator = objectMapper.readerFor(type).readValues(in)) {
+            return iterator.readAll();
+        }
+    }
+
+    @FunctionalInterface
+    public interface PageLoader<T> {
+        List<T> load(long after, int limit);
+    }
+}
@@ -0,0 +1,32 @@
+package ru.yandex.practicum.filmorate.controller;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.web.bind.annotation.*;
+import ru.yandex.practicum.filmorate.exception.NotFoundException;
+import ru.yandex.practicum.filmorate.exception.ValidationException;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.recommendation.RecommendationService;
+import ru.yandex.practicum.filmorate.storage.user.UserStorage;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("/users")
+@RequiredArgsConstructor
+public class RecommendationController {
+
+    private final UserStorage userStorage;
+    private final RecommendationService recommendationService;
+
+    @GetMapping("/{id}/recommendations")
+    public List<Film> recommend(@PathVariable long id, @RequestParam(defaultValue = "10") int count) {
+        int maxCount = recommendationService.getMaxCount();
+        if (count < 1 || count > maxCount) {
+            throw new ValidationException("Количество рекомендаций должно быть от 1 до " + maxCount);
+        }
+        if (userStorage.findById(id).isEmpty()) {
+            throw new NotFoundException("Пользователь с id " + id + " не найден");
+        }
+        return recommendationService.recommend(id, count);
+    }
+}
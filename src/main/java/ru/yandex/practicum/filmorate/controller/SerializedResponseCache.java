@@ -0,0 +1,79 @@
+package ru.yandex.practicum.filmorate.controller;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+
+import java.io.UncheckedIOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Supplier;
+
+//Кэш сериализованных ответов GET, действительный пока не изменилась версия хранилища.
+//ETag ответа строится из версии, поэтому If-None-Match проверяется без обращения к данным.
+//Версия хранилища живёт в памяти процесса и после перезапуска начинается заново, поэтому в тег входит
+//ещё и метка запуска: тег, выданный до перезапуска или другим экземпляром, не совпадёт
+@Component
+@RequiredArgsConstructor
+public class SerializedResponseCache {
+    private final ObjectMapper objectMapper;
+    private final MeterRegistry meterRegistry;
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    private final String epoch = Long.toString(System.currentTimeMillis(), 36) + "."
+            + Integer.toString(ThreadLocalRandom.current().nextInt() & Integer.MAX_VALUE, 36);
+
+    public ResponseEntity<byte[]> get(String key, long version, Supplier<?> loader, String ifNoneMatch) {
+        String etag = "\"" + key + "-" + epoch + "-" + version + "\"";
+        if (matches(ifNoneMatch, etag)) {
+            counter(key, "not_modified").increment();
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).build();
+        }
+        Entry entry = entries.get(key);
+        if (entry != null && entry.version() == version) {
+            counter(key, "hit").increment();
+        } else {
+            counter(key, "miss").increment();
+            entry = new Entry(version, serialize(loader.get()));
+            entries.put(key, entry);
+        }
+        return ResponseEntity.ok()
+                .eTag(etag)
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(entry.body());
+    }
+
+    private byte[] serialize(Object value) {
+        try {
+            return objectMapper.writeValueAsBytes(value);
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private Counter counter(String key, String result) {
+        return meterRegistry.counter("filmorate.response.cache", "cache", key, "result", result);
+    }
+
+    private static boolean matches(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        for (String candidate : ifNoneMatch.split(",")) {
+            String trimmed = candidate.trim();
+            if (trimmed.equals("*") || trimmed.equals(etag) || trimmed.equals("W/" + etag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private record Entry(long version, byte[] body) {
+    }
+}
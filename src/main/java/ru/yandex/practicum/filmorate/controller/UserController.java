@@ -1,86 +1,280 @@
 package ru.yandex.practicum.filmorate.controller;
 
 import jakarta.validation.Valid;
+import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import ru.yandex.practicum.filmorate.exception.NotFoundException;
 import ru.yandex.practicum.filmorate.exception.ValidationException;
+import ru.yandex.practicum.filmorate.feed.ChangeEvent;
+import ru.yandex.practicum.filmorate.feed.ChangeFeed;
+import ru.yandex.practicum.filmorate.model.BatchItemResult;
 import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.user.UserStorage;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
 import java.util.Collection;
-import java.util.HashMap;
-import java.util.Map;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.LongPredicate;
 
 @RestController
 @RequestMapping("/users")
 @Slf4j
+@RequiredArgsConstructor
 public class UserController {
 
-    private final Map<Long, User> users = new HashMap<>();
+    static final int MAX_PAGE_SIZE = 1000;
+
+    private final UserStorage userStorage;
+    private final NdjsonStreamer ndjsonStreamer;
+    private final BatchValidator batchValidator;
+    private final SerializedResponseCache responseCache;
+    private final ChangeFeed<User> userChanges;
+    private final ChangeStreamer changeStreamer;
 
     @GetMapping
+    public ResponseEntity<byte[]> findAllCached(
+            @RequestHeader(name = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch
+    ) {
+        return responseCache.get("users", userStorage.getVersion(), this::findAll, ifNoneMatch);
+    }
+
     public Collection<User> findAll() {
-        return users.values();
+        return userStorage.findAll();
+    }
+
+    @GetMapping(params = "limit")
+    public Collection<User> findPage(@RequestParam(defaultValue = "0") long after, @RequestParam int limit) {
+        if (limit < 1 || limit > MAX_PAGE_SIZE) {
+            throw new ValidationException("Размер страницы должен быть от 1 до " + MAX_PAGE_SIZE);
+        }
+        return userStorage.findPage(after, limit);
+    }
+
+    @GetMapping(produces = NdjsonStreamer.NDJSON)
+    public StreamingResponseBody stream() {
+        return ndjsonStreamer.stream(userStorage::findPage, User::getId);
+    }
+
+    //Лента изменений по SSE с позиции after или Last-Event-ID при переподключении
+    @GetMapping(value = "/changes", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter changes(
+            @RequestParam(required = false) String after,
+            @RequestHeader(name = "Last-Event-ID", required = false) String lastEventId
+    ) {
+        return changeStreamer.subscribe("users", userChanges, User::getVersion, after != null ? after : lastEventId);
+    }
+
+    @GetMapping("/{id}")
+    public ResponseEntity<User> findById(@PathVariable long id) {
+        User user = userStorage.findById(id)
+                .orElseThrow(() -> new NotFoundException("Пользователь с id " + id + " не найден"));
+        return ResponseEntity.ok().eTag(EntityTags.of(user.getVersion())).body(user);
     }
 
     @PostMapping
     public User create(@RequestBody @Valid User user) {
-        for (User value : users.values()) {
-            if (value.getEmail().equals(user.getEmail())) {
-                log.warn("Попытка добавить нового пользователя с email, который уже есть в базе - {}.", user.getEmail());
-                throw new ValidationException("Пользователь с email " + user.getEmail() + " уже существует");
-            }
-        }
-        if (user.getName() == null) {
-            user.setName(user.getLogin());
-            log.debug(
-                    "У нового пользователя {} не заполнено поле name. Полю name присвоено заначение поля login - {}.",
-                    user.getLogin(),
-                    user.getLogin()
-            );
-        }
-        user.setId(getNextId());
-        users.put(user.getId(), user);
-        log.info("Добавлен новый пользователь - {}", user.getLogin());
+        fillNameFromLogin(user);
+        userStorage.create(user);
+        userChanges.publish(ChangeEvent.Type.CREATED, user);
+        log.debug("Добавлен новый пользователь: id={}, login={}.", user.getId(), user.getLogin());
         return user;
     }
 
+    //Обновление с If-Match: при несовпадении версии - 412 Precondition Failed, в ответе ETag новой версии
     @PutMapping
-    public User update(@RequestBody @Valid User user) {
-        if (!users.containsKey(user.getId())) {
-            log.warn("Пользователь с id ${} не найден в базе", user.getId());
-            throw new NotFoundException("Пользователь с id " + user.getId() + " не найден");
+    public ResponseEntity<User> updateIfMatch(
+            @RequestHeader(name = HttpHeaders.IF_MATCH, required = false) String ifMatch,
+            @RequestBody @Valid User user
+    ) {
+        User updatedUser = update(user, EntityTags.ifMatch(ifMatch));
+        return ResponseEntity.ok().eTag(EntityTags.of(updatedUser.getVersion())).body(updatedUser);
+    }
+
+    public User update(User user) {
+        return update(user, version -> true);
+    }
+
+    private User update(User user, LongPredicate versionMatches) {
+        User updatedUser = userStorage.update(user.getId(), versionMatches, oldUser -> applyUpdate(oldUser, user))
+                .orElseThrow(() -> {
+                    log.warn("Пользователь с id {} не найден в базе", user.getId());
+                    return new NotFoundException("Пользователь с id " + user.getId() + " не найден");
+                });
+        userChanges.publish(ChangeEvent.Type.UPDATED, updatedUser);
+        if (log.isDebugEnabled() && LogSampler.sampled()) {
+            log.debug("Обновлён пользователь: id={}, fields={}.", updatedUser.getId(), changedFields(user));
+        }
+        return updatedUser;
+    }
+
+    @PostMapping("/batch")
+    public List<BatchItemResult<User>> createBatch(@RequestBody List<User> users) {
+        List<BatchItemResult<User>> results = new ArrayList<>(Collections.nCopies(users.size(), null));
+        List<User> valid = new ArrayList<>(users.size());
+        for (int i = 0; i < users.size(); i++) {
+            User user = users.get(i);
+            Optional<String> error = batchValidator.validate(user);
+            if (error.isPresent()) {
+                results.set(i, BatchItemResult.failed(i, user, error.get()));
+            } else {
+                fillNameFromLogin(user);
+                valid.add(user);
+            }
+        }
+        Set<User> created = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (User user : userStorage.createAll(valid)) {
+            created.add(user);
+            userChanges.publish(ChangeEvent.Type.CREATED, user);
         }
+        for (int i = 0; i < users.size(); i++) {
+            User user = users.get(i);
+            if (results.get(i) != null) {
+                continue;
+            }
+            if (!created.contains(user)) {
+                results.set(i, BatchItemResult.failed(i, user, "Пользователь с email " + user.getEmail() + " уже существует"));
+            } else {
+                results.set(i, BatchItemResult.<User>builder()
+                        .index(i)
+                        .status(BatchItemResult.Status.CREATED)
+                        .entity(user)
+                        .build());
+            }
+        }
+        log.info("Добавлено пользователей пакетом - {} из {}.", created.size(), users.size());
+        return results;
+    }
 
-        User oldUser = users.get(user.getId());
+    @PostMapping(value = "/batch", consumes = NdjsonStreamer.NDJSON)
+    public List<BatchItemResult<User>> createBatchFromNdjson(InputStream body) throws IOException {
+        return createBatch(ndjsonStreamer.read(body, User.class));
+    }
+
+    @PutMapping("/batch")
+    public List<BatchItemResult<User>> updateBatch(@RequestBody List<User> users) {
+        List<BatchItemResult<User>> results = new ArrayList<>(users.size());
+        for (int i = 0; i < users.size(); i++) {
+            User user = users.get(i);
+            Optional<String> error = batchValidator.validate(user);
+            if (error.isPresent()) {
+                results.add(BatchItemResult.failed(i, user, error.get()));
+                continue;
+            }
+            try {
+                results.add(BatchItemResult.<User>builder()
+                        .index(i)
+                        .status(BatchItemResult.Status.UPDATED)
+                        .entity(update(user))
+                        .build());
+            } catch (NotFoundException | ValidationException e) {
+                results.add(BatchItemResult.failed(i, user, e.getMessage()));
+            }
+        }
+        return results;
+    }
+
+    @PutMapping(value = "/batch", consumes = NdjsonStreamer.NDJSON)
+    public List<BatchItemResult<User>> updateBatchFromNdjson(InputStream body) throws IOException {
+        return updateBatch(ndjsonStreamer.read(body, User.class));
+    }
+
+    @PutMapping("/{id}/friends/{friendId}")
+    public void addFriend(@PathVariable long id, @PathVariable long friendId) {
+        checkFriendship(id, friendId);
+        userStorage.addFriend(id, friendId);
+        log.debug("Пользователи с id {} и {} теперь друзья.", id, friendId);
+    }
+
+    @DeleteMapping("/{id}/friends/{friendId}")
+    public void removeFriend(@PathVariable long id, @PathVariable long friendId) {
+        checkFriendship(id, friendId);
+        userStorage.removeFriend(id, friendId);
+        log.debug("Пользователи с id {} и {} больше не друзья.", id, friendId);
+    }
+
+    @GetMapping("/{id}/friends")
+    public List<User> findFriends(@PathVariable long id) {
+        checkExists(id);
+        return userStorage.findFriends(id);
+    }
+
+    @GetMapping("/{id}/friends/common/{otherId}")
+    public List<User> findCommonFriends(@PathVariable long id, @PathVariable long otherId) {
+        checkExists(id);
+        checkExists(otherId);
+        return userStorage.findCommonFriends(id, otherId);
+    }
+
+    private void checkFriendship(long id, long friendId) {
+        if (id == friendId) {
+            log.warn("Попытка добавить в друзья самого себя. id пользователя - {}.", id);
+            throw new ValidationException("Нельзя добавить в друзья самого себя");
+        }
+        checkExists(id);
+        checkExists(friendId);
+    }
+
+    private void checkExists(long id) {
+        if (userStorage.findById(id).isEmpty()) {
+            log.warn("Пользователь с id {} не найден в базе", id);
+            throw new NotFoundException("Пользователь с id " + id + " не найден");
+        }
+    }
+
+    private void fillNameFromLogin(User user) {
+        if (user.getName() == null) {
+            user.setName(user.getLogin());
+            log.debug("У нового пользователя {} не заполнено поле name, использован login.", user.getLogin());
+        }
+    }
+
+    //Перенос заполненных полей запроса в сохранённого пользователя
+    private User applyUpdate(User oldUser, User user) {
         if (user.getLogin() != null) {
             if (oldUser.getName().equals(oldUser.getLogin())) {
                 oldUser.setName(user.getLogin());
-                log.debug("У пользователя {} обновлено имя - {}.", oldUser.getLogin(), oldUser.getName());
             }
-            log.debug("У пользователя {} обновлен логин - {}.", oldUser.getLogin(), user.getLogin());
             oldUser.setLogin(user.getLogin());
         }
         if (user.getBirthday() != null) {
             oldUser.setBirthday(user.getBirthday());
-            log.debug("У пользователя {} обновлена дата рождения - {}.", oldUser.getLogin(), oldUser.getBirthday());
         }
         if (user.getName() != null) {
             oldUser.setName(user.getName());
-            log.debug("У пользователя {} обновлена дата рождения - {}.", oldUser.getLogin(), oldUser.getBirthday());
         }
-        oldUser.setEmail(user.getEmail());
-        log.info("Данные пользователя {} успешно обновлены!", oldUser.getLogin());
+        if (user.getEmail() != null) {
+            oldUser.setEmail(user.getEmail());
+        }
         return oldUser;
     }
 
-    //Генерация id
-    private long getNextId() {
-        long currentMaxId = users.keySet()
-                .stream()
-                .mapToLong(id -> id)
-                .max()
-                .orElse(0);
-        return ++currentMaxId;
+    //Имена полей, переданных в запросе на обновление, - только для лога
+    private static List<String> changedFields(User user) {
+        List<String> fields = new ArrayList<>(4);
+        if (user.getEmail() != null) {
+            fields.add("email");
+        }
+        if (user.getLogin() != null) {
+            fields.add("login");
+        }
+        if (user.getName() != null) {
+            fields.add("name");
+        }
+        if (user.getBirthday() != null) {
+            fields.add("birthday");
+        }
+        return fields;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,12 @@
+package ru.yandex.practicum.filmorate.exception;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+//Загружаемая выгрузка каталога обрезана или повреждена
+@ResponseStatus(HttpStatus.BAD_REQUEST)
+public class InvalidCatalogException extends RuntimeException {
+    public InvalidCatalogException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
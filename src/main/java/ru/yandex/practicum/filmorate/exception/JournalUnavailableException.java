@@ -0,0 +1,12 @@
+package ru.yandex.practicum.filmorate.exception;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+//Журнал изменений не принимает записи: очередь отложенной записи переполнена или диск недоступен
+@ResponseStatus(HttpStatus.SERVICE_UNAVAILABLE)
+public class JournalUnavailableException extends RuntimeException {
+    public JournalUnavailableException(String message) {
+        super(message);
+    }
+}
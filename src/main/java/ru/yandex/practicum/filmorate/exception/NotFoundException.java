@@ -1,5 +1,10 @@
 package ru.yandex.practicum.filmorate.exception;
 
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+//Фильм или пользователь с запрошенным id не найден
+@ResponseStatus(HttpStatus.NOT_FOUND)
 public class NotFoundException extends RuntimeException {
     public NotFoundException(String message) {
         super(message);
@@ -0,0 +1,12 @@
+package ru.yandex.practicum.filmorate.exception;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+//Узел кластера, владеющий частью данных, не ответил
+@ResponseStatus(HttpStatus.SERVICE_UNAVAILABLE)
+public class PartitionUnavailableException extends RuntimeException {
+    public PartitionUnavailableException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
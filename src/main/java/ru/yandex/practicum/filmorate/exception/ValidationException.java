@@ -1,5 +1,10 @@
 package ru.yandex.practicum.filmorate.exception;
 
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+//Некорректные данные запроса
+@ResponseStatus(HttpStatus.BAD_REQUEST)
 public class ValidationException extends RuntimeException {
     public ValidationException(String message) {
         super(message);
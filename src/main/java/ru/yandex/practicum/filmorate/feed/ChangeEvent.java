@@ -0,0 +1,9 @@
+package ru.yandex.practicum.filmorate.feed;
+
+//Изменение сущности: порядковый номер в ленте, вид изменения и состояние сущности после него
+public record ChangeEvent<T>(long sequence, Type type, T entity) {
+    public enum Type {
+        CREATED,
+        UPDATED
+    }
+}
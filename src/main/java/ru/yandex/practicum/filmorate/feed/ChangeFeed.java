@@ -0,0 +1,107 @@
+package ru.yandex.practicum.filmorate.feed;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.LockSupport;
+
+//Лента изменений в кольцевом буфере фиксированного размера. Запись не ждёт читателей: номер берётся
+//атомарным счётчиком, событие кладётся в ячейку по номеру, ожидающие читатели будятся без блокировок.
+//Читатель, отставший больше чем на размер буфера, получает пустой Optional и должен пересинхронизироваться
+public final class ChangeFeed<T> {
+    private final AtomicReferenceArray<ChangeEvent<T>> ring;
+    private final int mask;
+    private final AtomicLong sequence = new AtomicLong();
+    private final Set<Thread> waiters = ConcurrentHashMap.newKeySet();
+
+    public ChangeFeed(int capacity) {
+        if (capacity < 1 || capacity > 1 << 30) {
+            throw new IllegalArgumentException("Размер ленты изменений должен быть от 1 до 2^30");
+        }
+        //Размер округляется вверх до степени двойки, чтобы ячейка вычислялась маской
+        int size = capacity == 1 ? 1 : Integer.highestOneBit(capacity - 1) << 1;
+        this.ring = new AtomicReferenceArray<>(size);
+        this.mask = size - 1;
+    }
+
+    public ChangeEvent<T> publish(ChangeEvent.Type type, T entity) {
+        long next = sequence.incrementAndGet();
+        ChangeEvent<T> event = new ChangeEvent<>(next, type, entity);
+        ring.set(index(next), event);
+        if (!waiters.isEmpty()) {
+            for (Thread waiter : waiters) {
+                if (waiters.remove(waiter)) {
+                    LockSupport.unpark(waiter);
+                }
+            }
+        }
+        return event;
+    }
+
+    //Номер последнего выданного события
+    public long head() {
+        return sequence.get();
+    }
+
+    public int capacity() {
+        return mask + 1;
+    }
+
+    //События с номерами больше after, не больше limit. Пусто, если часть из них уже вытеснена из буфера
+    //или after больше номера последнего события (например, лента началась заново после перезапуска)
+    public Optional<List<ChangeEvent<T>>> read(long after, int limit) {
+        long head = sequence.get();
+        if (after > head || head - after > capacity()) {
+            return Optional.empty();
+        }
+        List<ChangeEvent<T>> events = new ArrayList<>((int) Math.min(limit, head - after));
+        for (long next = after + 1; next <= head && events.size() < limit; next++) {
+            ChangeEvent<T> event = ring.get(index(next));
+            if (event == null || event.sequence() < next) {
+                //Номер выдан, но событие ещё не записано: читатель будет разбужен после записи
+                break;
+            }
+            if (event.sequence() > next) {
+                return Optional.empty();
+            }
+            events.add(event);
+        }
+        return Optional.of(events);
+    }
+
+    //Ждёт события с номером больше after не дольше timeoutNanos; false, если за это время его не было
+    public boolean await(long after, long timeoutNanos) {
+        long deadline = System.nanoTime() + timeoutNanos;
+        Thread current = Thread.currentThread();
+        while (true) {
+            //Регистрация до проверки: запись, прошедшая после проверки, увидит читателя и разбудит его
+            waiters.add(current);
+            if (isPublished(after + 1)) {
+                waiters.remove(current);
+                return true;
+            }
+            long remaining = deadline - System.nanoTime();
+            if (remaining <= 0 || current.isInterrupted()) {
+                waiters.remove(current);
+                return false;
+            }
+            LockSupport.parkNanos(this, remaining);
+        }
+    }
+
+    private boolean isPublished(long next) {
+        if (sequence.get() < next) {
+            return false;
+        }
+        ChangeEvent<T> event = ring.get(index(next));
+        return event != null && event.sequence() >= next;
+    }
+
+    private int index(long next) {
+        return (int) (next & mask);
+    }
+}
@@ -0,0 +1,36 @@
+package ru.yandex.practicum.filmorate.json;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.deser.std.StdDeserializer;
+import ru.yandex.practicum.filmorate.model.Film;
+
+import java.io.IOException;
+
+//Чтение фильма потоковым парсером; duration - секунды, как и при записи. Неизвестные поля пропускаются
+public class FilmDeserializer extends StdDeserializer<Film> {
+
+    public FilmDeserializer() {
+        super(Film.class);
+    }
+
+    @Override
+    public Film deserialize(JsonParser parser, DeserializationContext context) throws IOException {
+        if (!parser.isExpectedStartObjectToken()) {
+            return (Film) context.handleUnexpectedToken(Film.class, parser);
+        }
+        Film.FilmBuilder builder = Film.builder();
+        for (String field = parser.nextFieldName(); field != null; field = parser.nextFieldName()) {
+            parser.nextToken();
+            switch (field) {
+                case "id" -> builder.id(JsonFields.readLong(parser, context));
+                case "name" -> builder.name(JsonFields.readString(parser, context));
+                case "description" -> builder.description(JsonFields.readString(parser, context));
+                case "releaseDate" -> builder.releaseDate(JsonFields.readDate(parser, context));
+                case "duration" -> builder.duration(JsonFields.readDuration(parser, context));
+                default -> handleUnknownProperty(parser, context, Film.class, field);
+            }
+        }
+        return builder.build();
+    }
+}
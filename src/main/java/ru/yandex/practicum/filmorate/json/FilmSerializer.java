@@ -0,0 +1,38 @@
+package ru.yandex.practicum.filmorate.json;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+import ru.yandex.practicum.filmorate.model.Film;
+
+import java.io.IOException;
+
+//Запись фильма без обхода свойств через рефлексию; имена полей закодированы заранее
+public class FilmSerializer extends StdSerializer<Film> {
+    private static final SerializedString ID = new SerializedString("id");
+    private static final SerializedString NAME = new SerializedString("name");
+    private static final SerializedString DESCRIPTION = new SerializedString("description");
+    private static final SerializedString RELEASE_DATE = new SerializedString("releaseDate");
+    private static final SerializedString DURATION = new SerializedString("duration");
+
+    public FilmSerializer() {
+        super(Film.class);
+    }
+
+    @Override
+    public void serialize(Film film, JsonGenerator generator, SerializerProvider provider) throws IOException {
+        generator.writeStartObject(film);
+        generator.writeFieldName(ID);
+        generator.writeNumber(film.getId());
+        generator.writeFieldName(NAME);
+        generator.writeString(film.getName());
+        generator.writeFieldName(DESCRIPTION);
+        generator.writeString(film.getDescription());
+        generator.writeFieldName(RELEASE_DATE);
+        JsonFields.writeDate(generator, film.getReleaseDate());
+        generator.writeFieldName(DURATION);
+        JsonFields.writeDuration(generator, film.getDuration());
+        generator.writeEndObject();
+    }
+}
@@ -0,0 +1,164 @@
+package ru.yandex.practicum.filmorate.json;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.DeserializationContext;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.DateTimeException;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+
+//Запись и чтение полей моделей: даты в формате yyyy-MM-dd и продолжительности в секундах без промежуточных строк
+final class JsonFields {
+    private static final int ISO_LENGTH = 10;
+
+    private JsonFields() {
+    }
+
+    //Строка; число и логическое значение приводятся к строке, как у стандартного десериализатора
+    static String readString(JsonParser parser, DeserializationContext context) throws IOException {
+        JsonToken token = parser.currentToken();
+        if (token == JsonToken.VALUE_STRING) {
+            return parser.getText();
+        }
+        if (token == JsonToken.VALUE_NULL) {
+            return null;
+        }
+        if (token.isScalarValue()) {
+            return parser.getValueAsString();
+        }
+        return (String) context.handleUnexpectedToken(String.class, parser);
+    }
+
+    static long readLong(JsonParser parser, DeserializationContext context) throws IOException {
+        JsonToken token = parser.currentToken();
+        if (token == JsonToken.VALUE_NUMBER_INT) {
+            return parser.getLongValue();
+        }
+        if (token == JsonToken.VALUE_NULL) {
+            return 0;
+        }
+        if (token == JsonToken.VALUE_STRING) {
+            String text = parser.getText().trim();
+            try {
+                return Long.parseLong(text);
+            } catch (NumberFormatException e) {
+                return (Long) context.handleWeirdStringValue(Long.class, text, "не целое число");
+            }
+        }
+        return (Long) context.handleUnexpectedToken(Long.class, parser);
+    }
+
+    static void writeDate(JsonGenerator generator, LocalDate date) throws IOException {
+        if (date == null) {
+            generator.writeNull();
+            return;
+        }
+        int year = date.getYear();
+        if (year < 0 || year > 9999) {
+            generator.writeString(date.toString());
+            return;
+        }
+        char[] chars = new char[ISO_LENGTH];
+        writeDigits(chars, 0, year, 4);
+        chars[4] = '-';
+        writeDigits(chars, 5, date.getMonthValue(), 2);
+        chars[7] = '-';
+        writeDigits(chars, 8, date.getDayOfMonth(), 2);
+        generator.writeString(chars, 0, ISO_LENGTH);
+    }
+
+    static void writeDuration(JsonGenerator generator, Duration duration) throws IOException {
+        if (duration == null) {
+            generator.writeNull();
+        } else {
+            generator.writeNumber(duration.toSeconds());
+        }
+    }
+
+    static LocalDate readDate(JsonParser parser, DeserializationContext context) throws IOException {
+        JsonToken token = parser.currentToken();
+        if (token == JsonToken.VALUE_NULL) {
+            return null;
+        }
+        if (token != JsonToken.VALUE_STRING) {
+            return (LocalDate) context.handleUnexpectedToken(LocalDate.class, parser);
+        }
+        char[] chars = parser.getTextCharacters();
+        int offset = parser.getTextOffset();
+        if (parser.getTextLength() == ISO_LENGTH && chars[offset + 4] == '-' && chars[offset + 7] == '-') {
+            int year = readDigits(chars, offset, 4);
+            int month = readDigits(chars, offset + 5, 2);
+            int day = readDigits(chars, offset + 8, 2);
+            if (year >= 0 && month >= 0 && day >= 0) {
+                try {
+                    return LocalDate.of(year, month, day);
+                } catch (DateTimeException e) {
+                    return (LocalDate) context.handleWeirdStringValue(LocalDate.class, parser.getText(), e.getMessage());
+                }
+            }
+        }
+        String text = parser.getText().trim();
+        try {
+            return LocalDate.parse(text);
+        } catch (DateTimeParseException e) {
+            return (LocalDate) context.handleWeirdStringValue(LocalDate.class, text, e.getMessage());
+        }
+    }
+
+    //Целое число - секунды, дробное - секунды с наносекундами, строка - число секунд или ISO-8601 (PT1H30M)
+    static Duration readDuration(JsonParser parser, DeserializationContext context) throws IOException {
+        JsonToken token = parser.currentToken();
+        if (token == JsonToken.VALUE_NULL) {
+            return null;
+        }
+        if (token == JsonToken.VALUE_NUMBER_INT) {
+            return Duration.ofSeconds(parser.getLongValue());
+        }
+        if (token == JsonToken.VALUE_NUMBER_FLOAT) {
+            return toDuration(parser.getDecimalValue());
+        }
+        if (token == JsonToken.VALUE_STRING) {
+            String text = parser.getText().trim();
+            try {
+                return text.startsWith("P") || text.startsWith("-P") || text.startsWith("+P")
+                        ? Duration.parse(text)
+                        : toDuration(new BigDecimal(text));
+            } catch (NumberFormatException | DateTimeParseException | ArithmeticException e) {
+                return (Duration) context.handleWeirdStringValue(Duration.class, text, e.getMessage());
+            }
+        }
+        return (Duration) context.handleUnexpectedToken(Duration.class, parser);
+    }
+
+    private static Duration toDuration(BigDecimal seconds) {
+        BigDecimal whole = seconds.setScale(0, RoundingMode.FLOOR);
+        long nanos = seconds.subtract(whole).movePointRight(9).longValue();
+        return Duration.ofSeconds(whole.longValueExact(), nanos);
+    }
+
+    private static void writeDigits(char[] chars, int offset, int value, int digits) {
+        for (int i = offset + digits - 1; i >= offset; i--) {
+            chars[i] = (char) ('0' + value % 10);
+            value /= 10;
+        }
+    }
+
+    //-1, если среди символов есть не цифра
+    private static int readDigits(char[] chars, int offset, int digits) {
+        int value = 0;
+        for (int i = offset; i < offset + digits; i++) {
+            int digit = chars[i] - '0';
+            if (digit < 0 || digit > 9) {
+                return -1;
+            }
+            value = value * 10 + digit;
+        }
+        return value;
+    }
+}
@@ -0,0 +1,36 @@
+package ru.yandex.practicum.filmorate.json;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.deser.std.StdDeserializer;
+import ru.yandex.practicum.filmorate.model.User;
+
+import java.io.IOException;
+
+//Чтение пользователя потоковым парсером. Неизвестные поля пропускаются
+public class UserDeserializer extends StdDeserializer<User> {
+
+    public UserDeserializer() {
+        super(User.class);
+    }
+
+    @Override
+    public User deserialize(JsonParser parser, DeserializationContext context) throws IOException {
+        if (!parser.isExpectedStartObjectToken()) {
+            return (User) context.handleUnexpectedToken(User.class, parser);
+        }
+        User.UserBuilder builder = User.builder();
+        for (String field = parser.nextFieldName(); field != null; field = parser.nextFieldName()) {
+            parser.nextToken();
+            switch (field) {
+                case "id" -> builder.id(JsonFields.readLong(parser, context));
+                case "email" -> builder.email(JsonFields.readString(parser, context));
+                case "login" -> builder.login(JsonFields.readString(parser, context));
+                case "name" -> builder.name(JsonFields.readString(parser, context));
+                case "birthday" -> builder.birthday(JsonFields.readDate(parser, context));
+                default -> handleUnknownProperty(parser, context, User.class, field);
+            }
+        }
+        return builder.build();
+    }
+}
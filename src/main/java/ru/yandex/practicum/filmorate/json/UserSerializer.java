@@ -0,0 +1,38 @@
+package ru.yandex.practicum.filmorate.json;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+import ru.yandex.practicum.filmorate.model.User;
+
+import java.io.IOException;
+
+//Запись пользователя без обхода свойств через рефлексию; имена полей закодированы заранее
+public class UserSerializer extends StdSerializer<User> {
+    private static final SerializedString ID = new SerializedString("id");
+    private static final SerializedString EMAIL = new SerializedString("email");
+    private static final SerializedString LOGIN = new SerializedString("login");
+    private static final SerializedString NAME = new SerializedString("name");
+    private static final SerializedString BIRTHDAY = new SerializedString("birthday");
+
+    public UserSerializer() {
+        super(User.class);
+    }
+
+    @Override
+    public void serialize(User user, JsonGenerator generator, SerializerProvider provider) throws IOException {
+        generator.writeStartObject(user);
+        generator.writeFieldName(ID);
+        generator.writeNumber(user.getId());
+        generator.writeFieldName(EMAIL);
+        generator.writeString(user.getEmail());
+        generator.writeFieldName(LOGIN);
+        generator.writeString(user.getLogin());
+        generator.writeFieldName(NAME);
+        generator.writeString(user.getName());
+        generator.writeFieldName(BIRTHDAY);
+        JsonFields.writeDate(generator, user.getBirthday());
+        generator.writeEndObject();
+    }
+}
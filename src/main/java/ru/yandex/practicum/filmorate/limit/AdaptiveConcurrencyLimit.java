@@ -0,0 +1,60 @@
+package ru.yandex.practicum.filmorate.limit;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+//Лимит одновременных запросов, подстраиваемый по задержке (AIMD): если запросы завершаются медленнее
+//целевой задержки, лимит уменьшается на десятую часть, но не чаще раза за целевую задержку, чтобы
+//одна волна медленных ответов не сбрасывала его до минимума; быстрые ответы при загруженном
+//лимите увеличивают его на единицу
+final class AdaptiveConcurrencyLimit {
+    private final int minLimit;
+    private final int maxLimit;
+    private final long targetLatency;
+    private final AtomicInteger limit;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicLong lastDecrease;
+
+    AdaptiveConcurrencyLimit(int initialLimit, int minLimit, int maxLimit, long targetLatencyNanos, long now) {
+        if (minLimit < 1 || minLimit > maxLimit || initialLimit < minLimit || initialLimit > maxLimit) {
+            throw new IllegalArgumentException("Должно выполняться 1 <= min <= initial <= max");
+        }
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.targetLatency = targetLatencyNanos;
+        this.limit = new AtomicInteger(initialLimit);
+        this.lastDecrease = new AtomicLong(now - targetLatencyNanos);
+    }
+
+    boolean tryAcquire() {
+        while (true) {
+            int current = inFlight.get();
+            if (current >= limit.get()) {
+                return false;
+            }
+            if (inFlight.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+    }
+
+    void release(long latencyNanos, long now) {
+        int before = inFlight.getAndDecrement();
+        if (latencyNanos > targetLatency) {
+            long last = lastDecrease.get();
+            if (now - last >= targetLatency && lastDecrease.compareAndSet(last, now)) {
+                limit.updateAndGet(value -> Math.max(minLimit, value - Math.max(1, value / 10)));
+            }
+        } else if (before * 2 >= limit.get()) {
+            limit.updateAndGet(value -> Math.min(maxLimit, value + 1));
+        }
+    }
+
+    int getLimit() {
+        return limit.get();
+    }
+
+    int getInFlight() {
+        return inFlight.get();
+    }
+}
@@ -0,0 +1,42 @@
+package ru.yandex.practicum.filmorate.limit;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+//Корзина токенов без блокировок: состояние - одно число, момент, когда корзина снова станет полной
+//(алгоритм GCRA). Каждый запрос сдвигает его на интервал одного токена, запрос отклоняется,
+//если сдвиг ушёл бы дальше ёмкости корзины
+final class TokenBucket {
+    private final long interval;
+    private final long capacity;
+    private final AtomicLong fullAt;
+
+    TokenBucket(double ratePerSecond, int burst, long now) {
+        if (ratePerSecond <= 0 || burst < 1) {
+            throw new IllegalArgumentException("Скорость и ёмкость корзины должны быть положительными");
+        }
+        this.interval = Math.max(1, (long) (TimeUnit.SECONDS.toNanos(1) / ratePerSecond));
+        this.capacity = interval * burst;
+        this.fullAt = new AtomicLong(now);
+    }
+
+    //0, если токен взят, иначе время в наносекундах до появления токена
+    long tryAcquire(long now) {
+        while (true) {
+            long current = fullAt.get();
+            long next = Math.max(current, now) + interval;
+            long wait = next - now - capacity;
+            if (wait > 0) {
+                return wait;
+            }
+            if (fullAt.compareAndSet(current, next)) {
+                return 0;
+            }
+        }
+    }
+
+    //Полная корзина ничем не отличается от новой, поэтому её можно удалить
+    boolean isFull(long now) {
+        return fullAt.get() <= now;
+    }
+}
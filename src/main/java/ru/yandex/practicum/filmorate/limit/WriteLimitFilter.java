@@ -0,0 +1,192 @@
+package ru.yandex.practicum.filmorate.limit;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.mvc.method.annotation.RequestMappingHandlerMapping;
+import ru.yandex.practicum.filmorate.cluster.ClusterSecretFilter;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+//Ограничение запросов на запись: корзина токенов на пару (клиент, шаблон эндпоинта) - 429 Too Many Requests,
+//и общий адаптивный лимит одновременных запросов на запись - 503 Service Unavailable.
+//Корзин не больше max-clients: когда полных корзин для удаления нет, новые клиенты делят одну общую.
+//Фильтр стоит перед DispatcherServlet, поэтому отклонённый запрос не доходит до разбора JSON и валидации,
+//а чтение не ограничивается вовсе
+@Component
+@ConditionalOnProperty(name = "filmorate.limits.enabled", havingValue = "true", matchIfMissing = true)
+public class WriteLimitFilter extends OncePerRequestFilter {
+    private static final Set<String> WRITE_METHODS = Set.of("POST", "PUT", "PATCH", "DELETE");
+    private static final String RATE = "rate";
+    private static final String CONCURRENCY = "concurrency";
+    private static final int MAX_TAGGED_RESOURCES = 64;
+
+    private final double ratePerSecond;
+    private final int burst;
+    private final int maxClients;
+    private final String clientHeader;
+    private final AdaptiveConcurrencyLimit concurrencyLimit;
+    private final LongSupplier clock;
+    private final MeterRegistry meterRegistry;
+    private final Supplier<WriteRoutes> routesLoader;
+    private volatile WriteRoutes routes;
+    private final Map<BucketKey, TokenBucket> buckets = new ConcurrentHashMap<>();
+    private final TokenBucket overflow;
+    private final AtomicBoolean evicting = new AtomicBoolean();
+    private final Map<String, Counter> rejections = new ConcurrentHashMap<>();
+
+    @Autowired
+    public WriteLimitFilter(
+            MeterRegistry meterRegistry,
+            @Qualifier("requestMappingHandlerMapping") ObjectProvider<RequestMappingHandlerMapping> handlerMapping,
+            @Value("${filmorate.limits.rate-per-second:100}") double ratePerSecond,
+            @Value("${filmorate.limits.burst:200}") int burst,
+            @Value("${filmorate.limits.max-clients:100000}") int maxClients,
+            @Value("${filmorate.limits.client-header:}") String clientHeader,
+            @Value("${filmorate.limits.concurrency.initial:64}") int initialConcurrency,
+            @Value("${filmorate.limits.concurrency.min:8}") int minConcurrency,
+            @Value("${filmorate.limits.concurrency.max:512}") int maxConcurrency,
+            @Value("${filmorate.limits.concurrency.target-latency-ms:50}") long targetLatencyMillis
+    ) {
+        this(meterRegistry, ratePerSecond, burst, maxClients, clientHeader,
+                new AdaptiveConcurrencyLimit(initialConcurrency, minConcurrency, maxConcurrency,
+                        TimeUnit.MILLISECONDS.toNanos(targetLatencyMillis), System.nanoTime()),
+                System::nanoTime,
+                //Маппинги контроллеров готовы только после старта контекста, а фильтр создаётся раньше
+                () -> WriteRoutes.of(handlerMapping.getObject(), WRITE_METHODS));
+    }
+
+    WriteLimitFilter(MeterRegistry meterRegistry, double ratePerSecond, int burst, int maxClients, String clientHeader,
+                     AdaptiveConcurrencyLimit concurrencyLimit, LongSupplier clock, Supplier<WriteRoutes> routes) {
+        //Общая корзина; заодно параметры корзины проверяются при старте, а не на первом запросе
+        this.overflow = new TokenBucket(ratePerSecond, burst, clock.getAsLong());
+        this.meterRegistry = meterRegistry;
+        this.routesLoader = routes;
+        this.ratePerSecond = ratePerSecond;
+        this.burst = burst;
+        this.maxClients = maxClients;
+        this.clientHeader = clientHeader == null || clientHeader.isBlank() ? null : clientHeader;
+        this.concurrencyLimit = concurrencyLimit;
+        this.clock = clock;
+        Gauge.builder("filmorate.limit.concurrency", concurrencyLimit, AdaptiveConcurrencyLimit::getLimit)
+                .tag("value", "limit")
+                .register(meterRegistry);
+        Gauge.builder("filmorate.limit.concurrency", concurrencyLimit, AdaptiveConcurrencyLimit::getInFlight)
+                .tag("value", "in_flight")
+                .register(meterRegistry);
+        Gauge.builder("filmorate.limit.clients", buckets, Map::size).register(meterRegistry);
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        //Запросы между узлами кластера, подписанные секретом кластера, уже прошли ограничение на узле,
+        //принявшем запрос клиента
+        return !WRITE_METHODS.contains(request.getMethod())
+                || Boolean.TRUE.equals(request.getAttribute(ClusterSecretFilter.AUTHENTICATED));
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        long start = clock.getAsLong();
+        String path = request.getRequestURI().substring(request.getContextPath().length());
+        String endpoint = routes().endpoint(request.getMethod(), path);
+        long wait = bucket(new BucketKey(clientOf(request), endpoint), start).tryAcquire(start);
+        if (wait > 0) {
+            reject(response, HttpStatus.TOO_MANY_REQUESTS, TimeUnit.NANOSECONDS.toSeconds(wait - 1) + 1,
+                    request.getMethod(), path, RATE);
+            return;
+        }
+        if (!concurrencyLimit.tryAcquire()) {
+            reject(response, HttpStatus.SERVICE_UNAVAILABLE, 1, request.getMethod(), path, CONCURRENCY);
+            return;
+        }
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            long end = clock.getAsLong();
+            concurrencyLimit.release(end - start, end);
+        }
+    }
+
+    private WriteRoutes routes() {
+        WriteRoutes current = routes;
+        if (current == null) {
+            current = routesLoader.get();
+            routes = current;
+        }
+        return current;
+    }
+
+    private String clientOf(HttpServletRequest request) {
+        if (clientHeader != null) {
+            String forwarded = request.getHeader(clientHeader);
+            if (forwarded != null && !forwarded.isBlank()) {
+                int comma = forwarded.indexOf(',');
+                return (comma < 0 ? forwarded : forwarded.substring(0, comma)).trim();
+            }
+        }
+        return request.getRemoteAddr();
+    }
+
+    //Полные корзины удаляются одним потоком, когда клиентов становится больше max-clients; если удалять нечего,
+    //новый клиент получает общую корзину
+    private TokenBucket bucket(BucketKey key, long now) {
+        TokenBucket bucket = buckets.get(key);
+        if (bucket != null) {
+            return bucket;
+        }
+        if (buckets.size() >= maxClients) {
+            if (evicting.compareAndSet(false, true)) {
+                try {
+                    buckets.values().removeIf(candidate -> candidate.isFull(now));
+                } finally {
+                    evicting.set(false);
+                }
+            }
+            if (buckets.size() >= maxClients) {
+                return overflow;
+            }
+        }
+        return buckets.computeIfAbsent(key, k -> new TokenBucket(ratePerSecond, burst, now));
+    }
+
+    private void reject(HttpServletResponse response, HttpStatus status, long retryAfterSeconds,
+                        String method, String path, String reason) {
+        //В теге метрики только ресурс верхнего уровня, а число разных тегов ограничено,
+        //чтобы запросы на произвольные пути не размножали метрики
+        int end = path.indexOf('/', 1);
+        String resource = rejections.size() < MAX_TAGGED_RESOURCES
+                ? method + " " + (end < 0 ? path : path.substring(0, end))
+                : "other";
+        rejections.computeIfAbsent(resource + " " + reason, key -> Counter.builder("filmorate.limit.rejected")
+                .tag("endpoint", resource)
+                .tag("reason", reason)
+                .register(meterRegistry)).increment();
+        response.setStatus(status.value());
+        response.setHeader(HttpHeaders.RETRY_AFTER, Long.toString(retryAfterSeconds));
+    }
+
+    private record BucketKey(String client, String endpoint) {
+    }
+}
@@ -0,0 +1,70 @@
+package ru.yandex.practicum.filmorate.limit;
+
+import org.springframework.http.server.PathContainer;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.servlet.mvc.method.RequestMappingInfo;
+import org.springframework.web.servlet.mvc.method.annotation.RequestMappingHandlerMapping;
+import org.springframework.web.util.pattern.PathPattern;
+import org.springframework.web.util.pattern.PathPatternParser;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+//Шаблоны путей эндпоинтов на запись, по которым запросы делятся на корзины: PUT /films/12/like/3 ->
+//PUT /films/{id}/like/{userId}. Все пути, не подходящие ни под один шаблон, - один эндпоинт "<метод> ?":
+//такие запросы всё равно получат 404, а число корзин не растёт от перебора путей
+final class WriteRoutes {
+    static final String UNMATCHED = "?";
+
+    private final List<Route> routes;
+
+    //Эндпоинты вида "POST /films/{id}"
+    WriteRoutes(Collection<String> endpoints) {
+        Map<String, Route> unique = new LinkedHashMap<>();
+        for (String endpoint : endpoints) {
+            int space = endpoint.indexOf(' ');
+            String method = endpoint.substring(0, space);
+            PathPattern pattern = PathPatternParser.defaultInstance.parse(endpoint.substring(space + 1));
+            unique.putIfAbsent(method + " " + pattern.getPatternString(),
+                    new Route(method, pattern, method + " " + pattern.getPatternString()));
+        }
+        //Более точный шаблон проверяется раньше: /films/batch раньше /films/{id}
+        List<Route> sorted = new ArrayList<>(unique.values());
+        sorted.sort(Comparator.comparing(Route::pattern, PathPattern.SPECIFICITY_COMPARATOR));
+        this.routes = List.copyOf(sorted);
+    }
+
+    //Эндпоинты контроллеров с методами из writeMethods; маппинг без методов принимает любой из них
+    static WriteRoutes of(RequestMappingHandlerMapping handlerMapping, Set<String> writeMethods) {
+        List<String> endpoints = new ArrayList<>();
+        for (RequestMappingInfo info : handlerMapping.getHandlerMethods().keySet()) {
+            Set<RequestMethod> methods = info.getMethodsCondition().getMethods();
+            for (String method : writeMethods) {
+                if (methods.isEmpty() || methods.contains(RequestMethod.valueOf(method))) {
+                    for (String pattern : info.getPatternValues()) {
+                        endpoints.add(method + " " + pattern);
+                    }
+                }
+            }
+        }
+        return new WriteRoutes(endpoints);
+    }
+
+    String endpoint(String method, String path) {
+        PathContainer container = PathContainer.parsePath(path);
+        for (Route route : routes) {
+            if (route.method().equals(method) && route.pattern().matches(container)) {
+                return route.endpoint();
+            }
+        }
+        return method + " " + UNMATCHED;
+    }
+
+    private record Route(String method, PathPattern pattern, String endpoint) {
+    }
+}
@@ -0,0 +1,29 @@
+package ru.yandex.practicum.filmorate.model;
+
+import lombok.Builder;
+import lombok.Data;
+
+//Результат обработки одного элемента пакетного запроса
+@Data
+@Builder
+public class BatchItemResult<T> {
+    private int index;
+    private Status status;
+    private T entity;
+    private String error;
+
+    public enum Status {
+        CREATED,
+        UPDATED,
+        FAILED
+    }
+
+    public static <T> BatchItemResult<T> failed(int index, T entity, String error) {
+        return BatchItemResult.<T>builder()
+                .index(index)
+                .status(Status.FAILED)
+                .entity(entity)
+                .error(error)
+                .build();
+    }
+}
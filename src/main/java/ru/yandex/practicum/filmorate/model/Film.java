@@ -1,21 +1,31 @@
 package ru.yandex.practicum.filmorate.model;
 
-import com.fasterxml.jackson.annotation.JsonGetter;
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.NotNull;
 import jakarta.validation.constraints.Size;
 import lombok.Builder;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
 import org.hibernate.validator.constraints.time.DurationMin;
+import ru.yandex.practicum.filmorate.json.FilmDeserializer;
+import ru.yandex.practicum.filmorate.json.FilmSerializer;
 import ru.yandex.practicum.filmorate.validators.DateRange;
 
 import java.time.Duration;
 import java.time.LocalDate;
 
+//В JSON продолжительность передаётся в секундах
 @Data
 @Builder(toBuilder = true)
+@JsonSerialize(using = FilmSerializer.class)
+@JsonDeserialize(using = FilmDeserializer.class)
 public class Film {
     private long id;
+    //Номер версии, увеличивается при каждом изменении; в JSON не входит и передаётся заголовком ETag
+    @EqualsAndHashCode.Exclude
+    private long version;
     @NotNull
     @NotBlank
     private String name;
@@ -25,9 +35,4 @@ public class Film {
     private LocalDate releaseDate;
     @DurationMin(nanos = 1)
     private Duration duration;
-
-    @JsonGetter("duration")
-    public long getDurationInSeconds() {
-        return duration.toSeconds();
-    }
 }
@@ -0,0 +1,44 @@
+package ru.yandex.practicum.filmorate.model;
+
+import lombok.Data;
+import org.springframework.format.annotation.DateTimeFormat;
+
+import java.time.LocalDate;
+
+//Фильтр фильмов по дате релиза и продолжительности в секундах, границы включаются
+@Data
+public class FilmRangeFilter {
+    @DateTimeFormat(iso = DateTimeFormat.ISO.DATE)
+    private LocalDate releasedFrom;
+    @DateTimeFormat(iso = DateTimeFormat.ISO.DATE)
+    private LocalDate releasedTo;
+    private Long minDuration;
+    private Long maxDuration;
+
+    public boolean hasReleaseDateRange() {
+        return releasedFrom != null || releasedTo != null;
+    }
+
+    public boolean hasDurationRange() {
+        return minDuration != null || maxDuration != null;
+    }
+
+    public boolean matches(Film film) {
+        if (hasReleaseDateRange()) {
+            LocalDate releaseDate = film.getReleaseDate();
+            if (releaseDate == null
+                    || releasedFrom != null && releaseDate.isBefore(releasedFrom)
+                    || releasedTo != null && releaseDate.isAfter(releasedTo)) {
+                return false;
+            }
+        }
+        if (hasDurationRange()) {
+            if (film.getDuration() == null) {
+                return false;
+            }
+            long seconds = film.getDuration().toSeconds();
+            return (minDuration == null || seconds >= minDuration) && (maxDuration == null || seconds <= maxDuration);
+        }
+        return true;
+    }
+}
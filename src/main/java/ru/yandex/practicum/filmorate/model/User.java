@@ -1,8 +1,13 @@
 package ru.yandex.practicum.filmorate.model;
 
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
 import jakarta.validation.constraints.*;
 import lombok.Builder;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
+import ru.yandex.practicum.filmorate.json.UserDeserializer;
+import ru.yandex.practicum.filmorate.json.UserSerializer;
 
 import java.time.LocalDate;
 
@@ -10,8 +15,13 @@ import java.time.LocalDate;
 //Пользователь
 @Data
 @Builder(toBuilder = true)
+@JsonSerialize(using = UserSerializer.class)
+@JsonDeserialize(using = UserDeserializer.class)
 public class User {
     private long id;
+    //Номер версии, увеличивается при каждом изменении; в JSON не входит и передаётся заголовком ETag
+    @EqualsAndHashCode.Exclude
+    private long version;
     @Email
     @NotNull
     private String email;
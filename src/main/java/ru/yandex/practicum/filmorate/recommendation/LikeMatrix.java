@@ -0,0 +1,125 @@
+package ru.yandex.practicum.filmorate.recommendation;
+
+import ru.yandex.practicum.filmorate.storage.LongHashSet;
+import ru.yandex.practicum.filmorate.storage.film.FilmStorage;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Consumer;
+import java.util.stream.IntStream;
+
+//Неизменяемая разреженная матрица лайков пользователь x фильм в двух сжатых строчных представлениях (CSR):
+//фильмы каждого пользователя и пользователи каждого фильма. Пользователи и фильмы пронумерованы плотно
+//в порядке возрастания id, строки хранят номера по возрастанию в общих массивах int
+public final class LikeMatrix {
+    final long[] userIds;
+    final int[] userOffsets;
+    final int[] userFilms;
+    final long[] filmIds;
+    final int[] filmOffsets;
+    final int[] filmUsers;
+    private final long likesVersion;
+
+    private LikeMatrix(long[] userIds, int[] userOffsets, int[] userFilms,
+                       long[] filmIds, int[] filmOffsets, int[] filmUsers, long likesVersion) {
+        this.userIds = userIds;
+        this.userOffsets = userOffsets;
+        this.userFilms = userFilms;
+        this.filmIds = filmIds;
+        this.filmOffsets = filmOffsets;
+        this.filmUsers = filmUsers;
+        this.likesVersion = likesVersion;
+    }
+
+    //Строки фильмов переводятся в номера пользователей параллельно в pool, затем матрица транспонируется
+    public static LikeMatrix build(Consumer<FilmStorage.LikesConsumer> source, long likesVersion, ForkJoinPool pool) {
+        RowCollector collected = new RowCollector();
+        source.accept(collected);
+        int filmCount = collected.size;
+        long[] filmIds = Arrays.copyOf(collected.filmIds, filmCount);
+        Arrays.sort(filmIds);
+        long[][] rows = new long[filmCount][];
+        int[] filmOffsets = new int[filmCount + 1];
+        for (int i = 0; i < filmCount; i++) {
+            int film = Arrays.binarySearch(filmIds, collected.filmIds[i]);
+            rows[film] = collected.rows[i];
+            filmOffsets[film + 1] = collected.rows[i].length;
+        }
+        for (int film = 0; film < filmCount; film++) {
+            filmOffsets[film + 1] = Math.addExact(filmOffsets[film + 1], filmOffsets[film]);
+        }
+        long[] userIds = collected.users.toArray();
+        Arrays.sort(userIds);
+
+        int[] filmUsers = new int[filmOffsets[filmCount]];
+        pool.submit(() -> IntStream.range(0, filmCount).parallel().forEach(film -> {
+            int at = filmOffsets[film];
+            for (long userId : rows[film]) {
+                filmUsers[at++] = Arrays.binarySearch(userIds, userId);
+            }
+        })).join();
+
+        int[] userOffsets = new int[userIds.length + 1];
+        for (int user : filmUsers) {
+            userOffsets[user + 1]++;
+        }
+        for (int user = 0; user < userIds.length; user++) {
+            userOffsets[user + 1] += userOffsets[user];
+        }
+        //Фильмы обходятся по возрастанию номера, поэтому строки пользователей получаются отсортированными
+        int[] next = Arrays.copyOf(userOffsets, userIds.length);
+        int[] userFilms = new int[filmUsers.length];
+        for (int film = 0; film < filmCount; film++) {
+            for (int i = filmOffsets[film]; i < filmOffsets[film + 1]; i++) {
+                userFilms[next[filmUsers[i]]++] = film;
+            }
+        }
+        return new LikeMatrix(userIds, userOffsets, userFilms, filmIds, filmOffsets, filmUsers, likesVersion);
+    }
+
+    public long getLikesVersion() {
+        return likesVersion;
+    }
+
+    public int userCount() {
+        return userIds.length;
+    }
+
+    public int filmCount() {
+        return filmIds.length;
+    }
+
+    public long likeCount() {
+        return filmUsers.length;
+    }
+
+    //Номер пользователя или -1, если у него нет лайков
+    int userIndex(long userId) {
+        int index = Arrays.binarySearch(userIds, userId);
+        return index < 0 ? -1 : index;
+    }
+
+    int likesOfUser(int user) {
+        return userOffsets[user + 1] - userOffsets[user];
+    }
+
+    private static final class RowCollector implements FilmStorage.LikesConsumer {
+        private final LongHashSet users = new LongHashSet();
+        private long[] filmIds = new long[16];
+        private long[][] rows = new long[16][];
+        private int size;
+
+        @Override
+        public void accept(long filmId, long[] userIds) {
+            if (size == filmIds.length) {
+                filmIds = Arrays.copyOf(filmIds, size * 2);
+                rows = Arrays.copyOf(rows, size * 2);
+            }
+            filmIds[size] = filmId;
+            rows[size++] = userIds;
+            for (long userId : userIds) {
+                users.add(userId);
+            }
+        }
+    }
+}
@@ -0,0 +1,148 @@
+package ru.yandex.practicum.filmorate.recommendation;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+//Рекомендации коллаборативной фильтрацией по пользователям. Соседи - пользователи, лайкнувшие хотя бы один
+//фильм пользователя, их находят по строкам его фильмов, не просматривая матрицу целиком. Сходство -
+//косинусное: общие лайки / sqrt(лайки пользователя * лайки соседа). Фильмы k самых похожих соседей,
+//которых пользователь ещё не лайкал, ранжируются по сумме сходства лайкнувших их соседей.
+//Пересечения считаются параллельно в fork-join: каждая задача отвечает за свой диапазон номеров
+//пользователей и находит его начало в строках фильмов двоичным поиском
+public final class RecommendationEngine {
+    static final int RANGE = 1 << 16;
+    //Счётчики общих лайков диапазона и список затронутых номеров; переиспользуются потоками пула
+    //и обнуляются только в затронутых ячейках
+    private static final ThreadLocal<int[]> COUNTS = ThreadLocal.withInitial(() -> new int[RANGE]);
+    private static final ThreadLocal<int[]> TOUCHED = ThreadLocal.withInitial(() -> new int[RANGE]);
+
+    private final ForkJoinPool pool;
+    private final int neighbours;
+
+    public RecommendationEngine(ForkJoinPool pool, int neighbours) {
+        this.pool = pool;
+        this.neighbours = neighbours;
+    }
+
+    //id не больше limit рекомендованных фильмов по убыванию оценки; null, если у пользователя нет лайков
+    public long[] recommend(LikeMatrix matrix, long userId, int limit) {
+        int user = matrix.userIndex(userId);
+        if (user < 0) {
+            return null;
+        }
+        int ranges = (matrix.userCount() + RANGE - 1) / RANGE;
+        TopK nearest = pool.invoke(new NeighbourTask(matrix, user, 0, ranges));
+        double[] similarities = new double[nearest.size()];
+        int[] neighbourUsers = nearest.drain(similarities);
+        return rankFilms(matrix, user, neighbourUsers, similarities, limit);
+    }
+
+    private long[] rankFilms(LikeMatrix matrix, int user, int[] neighbourUsers, double[] similarities, int limit) {
+        int from = matrix.userOffsets[user];
+        int to = matrix.userOffsets[user + 1];
+        //Пары (номер фильма, номер соседа) в одном long: после сортировки лайки одного фильма идут подряд
+        long[] pairs = new long[16];
+        int size = 0;
+        for (int rank = 0; rank < neighbourUsers.length; rank++) {
+            int neighbour = neighbourUsers[rank];
+            for (int i = matrix.userOffsets[neighbour]; i < matrix.userOffsets[neighbour + 1]; i++) {
+                int film = matrix.userFilms[i];
+                if (Arrays.binarySearch(matrix.userFilms, from, to, film) < 0) {
+                    if (size == pairs.length) {
+                        pairs = Arrays.copyOf(pairs, size * 2);
+                    }
+                    pairs[size++] = (long) film << 32 | rank;
+                }
+            }
+        }
+        Arrays.sort(pairs, 0, size);
+        TopK best = new TopK(limit);
+        for (int i = 0; i < size; ) {
+            int film = (int) (pairs[i] >>> 32);
+            double score = 0;
+            for (; i < size && (int) (pairs[i] >>> 32) == film; i++) {
+                score += similarities[(int) pairs[i]];
+            }
+            best.offer(film, score);
+        }
+        int[] films = best.drain(null);
+        long[] result = new long[films.length];
+        for (int i = 0; i < films.length; i++) {
+            result[i] = matrix.filmIds[films[i]];
+        }
+        return result;
+    }
+
+    private final class NeighbourTask extends RecursiveTask<TopK> {
+        private final LikeMatrix matrix;
+        private final int user;
+        private final int fromRange;
+        private final int toRange;
+
+        NeighbourTask(LikeMatrix matrix, int user, int fromRange, int toRange) {
+            this.matrix = matrix;
+            this.user = user;
+            this.fromRange = fromRange;
+            this.toRange = toRange;
+        }
+
+        @Override
+        protected TopK compute() {
+            if (toRange - fromRange <= 1) {
+                return nearestInRange(fromRange);
+            }
+            int middle = (fromRange + toRange) >>> 1;
+            NeighbourTask right = new NeighbourTask(matrix, user, middle, toRange);
+            right.fork();
+            TopK left = new NeighbourTask(matrix, user, fromRange, middle).compute();
+            return left.merge(right.join());
+        }
+
+        private TopK nearestInRange(int range) {
+            int low = range * RANGE;
+            int high = Math.min(matrix.userCount(), low + RANGE);
+            int[] counts = COUNTS.get();
+            int[] touched = TOUCHED.get();
+            int touchedCount = 0;
+            for (int i = matrix.userOffsets[user]; i < matrix.userOffsets[user + 1]; i++) {
+                int film = matrix.userFilms[i];
+                int end = matrix.filmOffsets[film + 1];
+                int at = lowerBound(matrix.filmUsers, matrix.filmOffsets[film], end, low);
+                for (; at < end && matrix.filmUsers[at] < high; at++) {
+                    int local = matrix.filmUsers[at] - low;
+                    if (counts[local]++ == 0) {
+                        touched[touchedCount++] = local;
+                    }
+                }
+            }
+            TopK nearest = new TopK(neighbours);
+            double userLikes = matrix.likesOfUser(user);
+            for (int i = 0; i < touchedCount; i++) {
+                int local = touched[i];
+                int common = counts[local];
+                counts[local] = 0;
+                int other = low + local;
+                if (other != user) {
+                    nearest.offer(other, common / Math.sqrt(userLikes * matrix.likesOfUser(other)));
+                }
+            }
+            return nearest;
+        }
+    }
+
+    //Первая позиция в [from, to) со значением не меньше key
+    private static int lowerBound(int[] array, int from, int to, int key) {
+        int low = from;
+        int high = to;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (array[middle] < key) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+}
@@ -0,0 +1,190 @@
+package ru.yandex.practicum.filmorate.recommendation;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.storage.LongHashSet;
+import ru.yandex.practicum.filmorate.storage.film.FilmStorage;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+//Рекомендации фильмов пользователю. Матрица лайков перестраивается в фоне, когда меняется версия лайков,
+//а рассчитанные рекомендации кэшируются до следующей перестройки, поэтому запрос либо читает кэш,
+//либо обходит только соседей пользователя. Пока матрица не построена или у пользователя нет лайков,
+//рекомендуются популярные фильмы
+@Slf4j
+@Component
+public class RecommendationService {
+    private final FilmStorage filmStorage;
+    private final MeterRegistry meterRegistry;
+    private final ForkJoinPool pool;
+    private final RecommendationEngine engine;
+    private final int maxCount;
+    private final int cacheSize;
+    private final long rebuildIntervalSeconds;
+    private final Map<Long, Cached> cache = new ConcurrentHashMap<>();
+    private final AtomicBoolean evicting = new AtomicBoolean();
+    private volatile LikeMatrix matrix;
+    private ScheduledExecutorService scheduler;
+
+    public RecommendationService(
+            FilmStorage filmStorage,
+            MeterRegistry meterRegistry,
+            @Value("${filmorate.recommendations.parallelism:0}") int parallelism,
+            @Value("${filmorate.recommendations.neighbours:50}") int neighbours,
+            @Value("${filmorate.recommendations.max-count:100}") int maxCount,
+            @Value("${filmorate.recommendations.cache-size:100000}") int cacheSize,
+            @Value("${filmorate.recommendations.rebuild-interval-seconds:30}") long rebuildIntervalSeconds
+    ) {
+        this.filmStorage = filmStorage;
+        this.meterRegistry = meterRegistry;
+        this.pool = new ForkJoinPool(parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors());
+        this.engine = new RecommendationEngine(pool, neighbours);
+        this.maxCount = maxCount;
+        this.cacheSize = cacheSize;
+        this.rebuildIntervalSeconds = rebuildIntervalSeconds;
+    }
+
+    @PostConstruct
+    public void start() {
+        scheduler = Executors.newSingleThreadScheduledExecutor(Thread.ofPlatform().name("filmorate-recommendations")
+                .daemon().factory());
+        scheduler.scheduleWithFixedDelay(this::refreshQuietly, 0, rebuildIntervalSeconds, TimeUnit.SECONDS);
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+        pool.shutdownNow();
+    }
+
+    public int getMaxCount() {
+        return maxCount;
+    }
+
+    //Перестройка матрицы, если лайки изменились с прошлой перестройки
+    public void refresh() {
+        long likesVersion = filmStorage.getLikesVersion();
+        LikeMatrix current = matrix;
+        if (current != null && current.getLikesVersion() == likesVersion) {
+            return;
+        }
+        long started = System.nanoTime();
+        LikeMatrix built = LikeMatrix.build(filmStorage::forEachLikes, likesVersion, pool);
+        matrix = built;
+        cache.clear();
+        log.info("Матрица лайков перестроена за {} мс: пользователей {}, фильмов {}, лайков {}.",
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started),
+                built.userCount(), built.filmCount(), built.likeCount());
+    }
+
+    public List<Film> recommend(long userId, int count) {
+        LikeMatrix current = matrix;
+        long[] filmIds = current == null ? null : cached(current, userId);
+        if (filmIds == null || filmIds.length == 0) {
+            return popular(userId, count);
+        }
+        List<Film> films = new ArrayList<>(Math.min(count, filmIds.length));
+        for (int i = 0; i < filmIds.length && films.size() < count; i++) {
+            filmStorage.findById(filmIds[i]).ifPresent(films::add);
+        }
+        return films;
+    }
+
+    private long[] cached(LikeMatrix current, long userId) {
+        Cached entry = cache.get(userId);
+        if (entry != null && entry.matrix == current) {
+            entry.used = true;
+            counter("hit").increment();
+            return entry.filmIds;
+        }
+        counter("miss").increment();
+        long[] filmIds = current.userIndex(userId) < 0 ? null : engine.recommend(current, userId, maxCount);
+        if (filmIds != null) {
+            if (cache.size() >= cacheSize) {
+                evict();
+            }
+            cache.put(userId, new Cached(current, filmIds));
+        }
+        return filmIds;
+    }
+
+    //Вытеснение по схеме «второго шанса»: записи, прочитанные после прошлого обхода, остаются,
+    //но теряют отметку; обход идёт, пока кэш не сократится до 3/4 размера
+    private void evict() {
+        if (!evicting.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            int target = cacheSize / 4 * 3;
+            while (cache.size() > target) {
+                cache.values().removeIf(entry -> {
+                    if (entry.used) {
+                        entry.used = false;
+                        return false;
+                    }
+                    return cache.size() > target;
+                });
+            }
+        } finally {
+            evicting.set(false);
+        }
+    }
+
+    //Популярные фильмы без уже лайкнутых пользователем; лайки пользователя берутся из матрицы, если она есть
+    private List<Film> popular(long userId, int count) {
+        LikeMatrix current = matrix;
+        LongHashSet liked = new LongHashSet();
+        int user = current == null ? -1 : current.userIndex(userId);
+        if (user >= 0) {
+            for (int i = current.userOffsets[user]; i < current.userOffsets[user + 1]; i++) {
+                liked.add(current.filmIds[current.userFilms[i]]);
+            }
+        }
+        List<Film> films = new ArrayList<>(count);
+        for (Film film : filmStorage.findPopular(count + liked.size())) {
+            if (films.size() < count && !liked.contains(film.getId())) {
+                films.add(film);
+            }
+        }
+        return films;
+    }
+
+    private void refreshQuietly() {
+        try {
+            refresh();
+        } catch (RuntimeException e) {
+            log.error("Не удалось перестроить матрицу лайков.", e);
+        }
+    }
+
+    private Counter counter(String result) {
+        return meterRegistry.counter("filmorate.recommendations.cache", "result", result);
+    }
+
+    private static final class Cached {
+        private final LikeMatrix matrix;
+        private final long[] filmIds;
+        private volatile boolean used;
+
+        Cached(LikeMatrix matrix, long[] filmIds) {
+            this.matrix = matrix;
+            this.filmIds = filmIds;
+        }
+    }
+}
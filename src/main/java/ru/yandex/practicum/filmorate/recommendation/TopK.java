@@ -0,0 +1,98 @@
+package ru.yandex.practicum.filmorate.recommendation;
+
+//Лучшие k пар (оценка, номер) на двоичной куче из примитивных массивов: в корне худшая из оставленных пар.
+//При равной оценке лучше меньший номер, чтобы результат не зависел от порядка обхода
+final class TopK {
+    private final double[] scores;
+    private final int[] indexes;
+    private int size;
+
+    TopK(int k) {
+        scores = new double[k];
+        indexes = new int[k];
+    }
+
+    void offer(int index, double score) {
+        if (size < scores.length) {
+            scores[size] = score;
+            indexes[size] = index;
+            siftUp(size++);
+        } else if (size > 0 && worse(scores[0], indexes[0], score, index)) {
+            scores[0] = score;
+            indexes[0] = index;
+            siftDown(0);
+        }
+    }
+
+    TopK merge(TopK other) {
+        for (int i = 0; i < other.size; i++) {
+            offer(other.indexes[i], other.scores[i]);
+        }
+        return this;
+    }
+
+    int size() {
+        return size;
+    }
+
+    //Номера по убыванию оценки; оценки в том же порядке записываются в sortedScores, если он не null.
+    //Куча при этом опустошается
+    int[] drain(double[] sortedScores) {
+        int[] result = new int[size];
+        for (int i = size - 1; i >= 0; i--) {
+            result[i] = indexes[0];
+            if (sortedScores != null) {
+                sortedScores[i] = scores[0];
+            }
+            size--;
+            scores[0] = scores[size];
+            indexes[0] = indexes[size];
+            siftDown(0);
+        }
+        return result;
+    }
+
+    //Пара a хуже пары b
+    private static boolean worse(double scoreA, int indexA, double scoreB, int indexB) {
+        return scoreA < scoreB || scoreA == scoreB && indexA > indexB;
+    }
+
+    private void siftUp(int i) {
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            if (!worse(scores[i], indexes[i], scores[parent], indexes[parent])) {
+                return;
+            }
+            swap(i, parent);
+            i = parent;
+        }
+    }
+
+    private void siftDown(int i) {
+        while (true) {
+            int left = 2 * i + 1;
+            if (left >= size) {
+                return;
+            }
+            int worst = left;
+            int right = left + 1;
+            if (right < size && worse(scores[right], indexes[right], scores[left], indexes[left])) {
+                worst = right;
+            }
+            if (!worse(scores[worst], indexes[worst], scores[i], indexes[i])) {
+                return;
+            }
+            swap(i, worst);
+            i = worst;
+        }
+    }
+
+    private void swap(int a, int b) {
+        double score = scores[a];
+        scores[a] = scores[b];
+        scores[b] = score;
+        int index = indexes[a];
+        indexes[a] = indexes[b];
+        indexes[b] = index;
+    }
+}
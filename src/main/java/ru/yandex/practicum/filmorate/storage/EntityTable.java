@@ -0,0 +1,18 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import java.util.List;
+
+//Таблица сущностей по id, в порядке возрастания id; на каждый id пишет не больше одного потока одновременно
+public interface EntityTable<T> {
+
+    T get(long id);
+
+    void put(T entity);
+
+    void remove(long id);
+
+    //Не больше limit сущностей с id больше after
+    List<T> page(long after, int limit);
+
+    List<T> values();
+}
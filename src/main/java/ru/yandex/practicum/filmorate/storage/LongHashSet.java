@@ -0,0 +1,143 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import java.util.Arrays;
+import java.util.function.LongConsumer;
+
+//Множество примитивных long на открытой адресации без упаковки в Long, не потокобезопасно
+public class LongHashSet {
+    private static final long EMPTY = 0;
+    private static final float LOAD_FACTOR = 0.75f;
+
+    private long[] slots;
+    private int size;
+    private boolean containsEmpty;
+
+    public LongHashSet() {
+        this(4);
+    }
+
+    public LongHashSet(int expectedSize) {
+        int capacity = Integer.highestOneBit(Math.max(2, (int) (expectedSize / LOAD_FACTOR)) - 1) << 1;
+        slots = new long[capacity];
+    }
+
+    public boolean add(long value) {
+        if (value == EMPTY) {
+            if (containsEmpty) {
+                return false;
+            }
+            containsEmpty = true;
+            size++;
+            return true;
+        }
+        int index = indexOf(value, slots);
+        if (slots[index] == value) {
+            return false;
+        }
+        slots[index] = value;
+        size++;
+        if (size > slots.length * LOAD_FACTOR) {
+            resize();
+        }
+        return true;
+    }
+
+    public boolean contains(long value) {
+        if (value == EMPTY) {
+            return containsEmpty;
+        }
+        return slots[indexOf(value, slots)] == value;
+    }
+
+    public boolean remove(long value) {
+        if (value == EMPTY) {
+            if (!containsEmpty) {
+                return false;
+            }
+            containsEmpty = false;
+            size--;
+            return true;
+        }
+        int mask = slots.length - 1;
+        int index = indexOf(value, slots);
+        if (slots[index] != value) {
+            return false;
+        }
+        //Сдвиг следующих элементов цепочки на освободившееся место, чтобы не оставлять пометок об удалении
+        int next = index;
+        while (true) {
+            next = (next + 1) & mask;
+            long candidate = slots[next];
+            if (candidate == EMPTY) {
+                break;
+            }
+            int home = hash(candidate) & mask;
+            if (((next - home) & mask) >= ((next - index) & mask)) {
+                slots[index] = candidate;
+                index = next;
+            }
+        }
+        slots[index] = EMPTY;
+        size--;
+        return true;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public void forEach(LongConsumer action) {
+        if (containsEmpty) {
+            action.accept(EMPTY);
+        }
+        for (long value : slots) {
+            if (value != EMPTY) {
+                action.accept(value);
+            }
+        }
+    }
+
+    public long[] toArray() {
+        long[] result = new long[size];
+        int i = 0;
+        if (containsEmpty) {
+            result[i++] = EMPTY;
+        }
+        for (long value : slots) {
+            if (value != EMPTY) {
+                result[i++] = value;
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        return Arrays.toString(toArray());
+    }
+
+    private void resize() {
+        long[] resized = new long[slots.length << 1];
+        for (long value : slots) {
+            if (value != EMPTY) {
+                resized[indexOf(value, resized)] = value;
+            }
+        }
+        slots = resized;
+    }
+
+    //Слот со значением или первый пустой слот цепочки
+    private static int indexOf(long value, long[] table) {
+        int mask = table.length - 1;
+        int index = hash(value) & mask;
+        while (table[index] != EMPTY && table[index] != value) {
+            index = (index + 1) & mask;
+        }
+        return index;
+    }
+
+    private static int hash(long value) {
+        long h = value * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+}
@@ -0,0 +1,45 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import java.util.List;
+import java.util.NavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.function.ToLongFunction;
+
+//Таблица, хранящая сами объекты модели: чтение без копирования, но заголовки и ссылки на каждое поле
+public class ObjectTable<T> implements EntityTable<T> {
+    private final NavigableMap<Long, T> entities = new ConcurrentSkipListMap<>();
+    private final ToLongFunction<T> idOf;
+
+    public ObjectTable(ToLongFunction<T> idOf) {
+        this.idOf = idOf;
+    }
+
+    @Override
+    public T get(long id) {
+        return entities.get(id);
+    }
+
+    @Override
+    public void put(T entity) {
+        entities.put(idOf.applyAsLong(entity), entity);
+    }
+
+    @Override
+    public void remove(long id) {
+        entities.remove(id);
+    }
+
+    @Override
+    public List<T> page(long after, int limit) {
+        return entities.tailMap(after, false)
+                .values()
+                .stream()
+                .limit(limit)
+                .toList();
+    }
+
+    @Override
+    public List<T> values() {
+        return List.copyOf(entities.values());
+    }
+}
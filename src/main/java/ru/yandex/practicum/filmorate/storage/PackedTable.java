@@ -0,0 +1,135 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import ru.yandex.practicum.filmorate.exception.ValidationException;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.StampedLock;
+
+//Колоночная таблица для плотных id: сущность с id хранится в строке id - 1 примитивных массивов наследника,
+//текстовые поля - в общей StringArena. Объекты модели собираются только при чтении.
+//Одиночное чтение оптимистичное, запись и рост массивов - под блокировкой записи.
+public abstract class PackedTable<T, R> implements EntityTable<T> {
+    protected static final int INITIAL_CAPACITY = 1024;
+    private static final int MAX_CAPACITY = Integer.MAX_VALUE - 8;
+
+    protected final StringArena strings = new StringArena();
+    private final StampedLock lock = new StampedLock();
+    //Номер последней занятой строки + 1
+    private int size;
+
+    protected abstract long idOf(T entity);
+
+    protected abstract int capacity();
+
+    protected abstract void grow(int capacity);
+
+    //Вызывается под блокировкой записи
+    protected abstract void write(int slot, T entity);
+
+    //Вызывается под блокировкой записи; строки в StringArena не освобождаются
+    protected abstract void clear(int slot);
+
+    //Читает только примитивные колонки; null, если строка пуста или за пределами массивов
+    protected abstract R read(int slot);
+
+    //Собирает объект модели из прочитанной строки вне блокировки
+    protected abstract T decode(R row);
+
+    @Override
+    public T get(long id) {
+        if (id < 1 || id > MAX_CAPACITY) {
+            return null;
+        }
+        int slot = (int) (id - 1);
+        long stamp = lock.tryOptimisticRead();
+        R row = read(slot);
+        if (!lock.validate(stamp)) {
+            stamp = lock.readLock();
+            try {
+                row = read(slot);
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+        return row == null ? null : decode(row);
+    }
+
+    @Override
+    public void put(T entity) {
+        long id = idOf(entity);
+        if (id < 1 || id > MAX_CAPACITY) {
+            throw new IllegalArgumentException("id " + id + " вне диапазона колоночной таблицы");
+        }
+        int slot = (int) (id - 1);
+        long stamp = lock.writeLock();
+        try {
+            if (slot >= capacity()) {
+                grow((int) Math.min(MAX_CAPACITY, Math.max(slot + 1L, capacity() + (capacity() >> 1))));
+            }
+            write(slot, entity);
+            size = Math.max(size, slot + 1);
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    @Override
+    public void remove(long id) {
+        if (id < 1 || id > MAX_CAPACITY) {
+            return;
+        }
+        int slot = (int) (id - 1);
+        long stamp = lock.writeLock();
+        try {
+            if (slot < capacity()) {
+                clear(slot);
+            }
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    @Override
+    public List<T> page(long after, int limit) {
+        List<R> rows = new ArrayList<>(Math.min(limit, INITIAL_CAPACITY));
+        long stamp = lock.readLock();
+        try {
+            for (int slot = (int) Math.max(0, Math.min(after, size)); slot < size && rows.size() < limit; slot++) {
+                R row = read(slot);
+                if (row != null) {
+                    rows.add(row);
+                }
+            }
+        } finally {
+            lock.unlockRead(stamp);
+        }
+        List<T> result = new ArrayList<>(rows.size());
+        for (R row : rows) {
+            result.add(decode(row));
+        }
+        return result;
+    }
+
+    @Override
+    public List<T> values() {
+        return page(0, Integer.MAX_VALUE);
+    }
+
+    //Дата хранится номером дня в int, Integer.MIN_VALUE - отсутствие даты
+    protected static int toEpochDay(LocalDate date) {
+        if (date == null) {
+            return Integer.MIN_VALUE;
+        }
+        long epochDay = date.toEpochDay();
+        if (epochDay <= Integer.MIN_VALUE || epochDay > Integer.MAX_VALUE) {
+            throw new ValidationException("Дата " + date + " вне поддерживаемого диапазона");
+        }
+        return (int) epochDay;
+    }
+
+    protected static LocalDate fromEpochDay(int epochDay) {
+        return epochDay == Integer.MIN_VALUE ? null : LocalDate.ofEpochDay(epochDay);
+    }
+}
@@ -0,0 +1,41 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.User;
+
+//Получатель изменений хранилищ в памяти. Вызывается под блокировкой сущности, поэтому изменения одной
+//сущности приходят в том же порядке, в каком применялись. Если вызов бросил исключение, изменение
+//не применяется: лайки и дружбы становятся видны только после записи в журнал, а сохранённый
+//фильм или пользователь возвращается к прежней копии
+public interface StorageJournal {
+    StorageJournal NONE = new StorageJournal() {
+    };
+
+    default void filmSaved(Film film) {
+    }
+
+    default void likeAdded(long filmId, long userId) {
+    }
+
+    default void likeRemoved(long filmId, long userId) {
+    }
+
+    default void userSaved(User user) {
+    }
+
+    default void friendAdded(long userId, long friendId) {
+    }
+
+    default void friendRemoved(long userId, long friendId) {
+    }
+
+    //Вызывается до изменения вне блокировок: возвращается, когда журналу хватает места для изменения,
+    //если журнал ограничивает число ещё не записанных изменений
+    default void awaitCapacity() {
+    }
+
+    //Вызывается после изменения вне блокировок: возвращается, когда изменения текущего потока сохранены,
+    //если журнал даёт такую гарантию
+    default void awaitDurable() {
+    }
+}
@@ -0,0 +1,99 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+//Общая область строк: UTF-8 с длиной в varint дописывается в блоки по 1 МБ, строка адресуется ссылкой
+//(номер блока << 32 | смещение). Запись - под внешней блокировкой, чтение ссылки, полученной после записи,
+//потокобезопасно. Заменённые строки не освобождаются: при обновлениях область растёт на каждое изменённое
+//значение (совпадающее с прежним не дописывается) и уменьшается только после перезапуска.
+public class StringArena {
+    public static final long NULL = -1;
+    private static final int CHUNK_SIZE = 1 << 20;
+
+    private volatile byte[][] chunks = new byte[0][];
+    private byte[] current;
+    private int position;
+
+    public long add(String value) {
+        return add(value, NULL);
+    }
+
+    //Строка, совпадающая со строкой по ссылке previous, повторно не записывается
+    public long add(String value, long previous) {
+        if (value == null) {
+            return NULL;
+        }
+        byte[] encoded = value.getBytes(StandardCharsets.UTF_8);
+        if (previous != NULL && equalsAt(previous, encoded)) {
+            return previous;
+        }
+        int required = varintSize(encoded.length) + encoded.length;
+        if (current == null || position + required > current.length) {
+            current = new byte[Math.max(CHUNK_SIZE, required)];
+            position = 0;
+            byte[][] grown = Arrays.copyOf(chunks, chunks.length + 1);
+            grown[grown.length - 1] = current;
+            chunks = grown;
+        }
+        long ref = (long) (chunks.length - 1) << 32 | position;
+        int length = encoded.length;
+        while ((length & ~0x7F) != 0) {
+            current[position++] = (byte) (length & 0x7F | 0x80);
+            length >>>= 7;
+        }
+        current[position++] = (byte) length;
+        System.arraycopy(encoded, 0, current, position, encoded.length);
+        position += encoded.length;
+        return ref;
+    }
+
+    public String get(long ref) {
+        if (ref == NULL) {
+            return null;
+        }
+        byte[] chunk = chunks[(int) (ref >>> 32)];
+        int offset = (int) ref;
+        int length = readLength(chunk, offset);
+        int start = offset + varintSize(length);
+        return new String(chunk, start, length, StandardCharsets.UTF_8);
+    }
+
+    //Память, занятая блоками, включая ещё не заполненный хвост последнего
+    public long allocatedBytes() {
+        long total = 0;
+        for (byte[] chunk : chunks) {
+            total += chunk.length;
+        }
+        return total;
+    }
+
+    private boolean equalsAt(long ref, byte[] encoded) {
+        byte[] chunk = chunks[(int) (ref >>> 32)];
+        int offset = (int) ref;
+        int length = readLength(chunk, offset);
+        int start = offset + varintSize(length);
+        return length == encoded.length && Arrays.equals(chunk, start, start + length, encoded, 0, length);
+    }
+
+    private static int readLength(byte[] chunk, int offset) {
+        int length = 0;
+        int shift = 0;
+        byte next;
+        do {
+            next = chunk[offset++];
+            length |= (next & 0x7F) << shift;
+            shift += 7;
+        } while (next < 0);
+        return length;
+    }
+
+    private static int varintSize(int value) {
+        int size = 1;
+        while ((value & ~0x7F) != 0) {
+            value >>>= 7;
+            size++;
+        }
+        return size;
+    }
+}
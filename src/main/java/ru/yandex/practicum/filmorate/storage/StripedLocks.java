@@ -0,0 +1,25 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+//Набор блокировок, распределённых по id сущности
+public class StripedLocks {
+    private final Lock[] locks;
+    private final int mask;
+
+    public StripedLocks(int stripes) {
+        int size = Integer.highestOneBit(Math.max(1, stripes - 1)) << 1;
+        locks = new Lock[size];
+        for (int i = 0; i < size; i++) {
+            locks[i] = new ReentrantLock();
+        }
+        mask = size - 1;
+    }
+
+    public Lock get(long id) {
+        int hash = Long.hashCode(id);
+        hash ^= hash >>> 16;
+        return locks[hash & mask];
+    }
+}
@@ -0,0 +1,340 @@
+package ru.yandex.practicum.filmorate.storage.film;
+
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.storage.LongHashSet;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.regex.Pattern;
+
+//Инвертированный индекс слов названия и описания фильмов.
+//Слово запроса совпадает со словами фильма, которые с него начинаются; фильм должен совпасть со всеми словами запроса.
+//Совпадение в названии весит больше, чем в описании, а полное совпадение слова - больше, чем по префиксу.
+//Индекс разделён на части по id фильма со своей блокировкой у каждой: запись блокирует только часть своего фильма,
+//а поиск обходит части по очереди и держит блокировку чтения только той, которую обходит
+class FilmSearchIndex {
+    private static final Pattern SEPARATOR = Pattern.compile("[^\\p{L}\\p{Nd}]+");
+    private static final int NAME_EXACT = 4;
+    private static final int NAME_PREFIX = 3;
+    private static final int DESCRIPTION_EXACT = 2;
+    private static final int DESCRIPTION_PREFIX = 1;
+    private static final int SHARDS = 16;
+
+    private final Shard[] shards = new Shard[SHARDS];
+
+    FilmSearchIndex() {
+        for (int i = 0; i < SHARDS; i++) {
+            shards[i] = new Shard();
+        }
+    }
+
+    void add(Film film) {
+        shardOf(film.getId()).add(film);
+    }
+
+    void replace(Film oldFilm, Film newFilm) {
+        shardOf(newFilm.getId()).replace(oldFilm, newFilm);
+    }
+
+    void remove(Film film) {
+        shardOf(film.getId()).remove(film);
+    }
+
+    //id найденных фильмов по убыванию релевантности, при равенстве - по возрастанию id
+    List<Long> search(String query, int offset, int limit) {
+        List<String> tokens = tokenize(query);
+        if (tokens.isEmpty() || limit < 1) {
+            return List.of();
+        }
+        TopScores top = new TopScores((int) Math.min(Integer.MAX_VALUE - 8, (long) offset + limit));
+        for (Shard shard : shards) {
+            shard.search(tokens, top);
+        }
+        return top.toList(offset);
+    }
+
+    //Релевантность одного фильма с теми же весами, что и у поиска по индексу; 0 - фильм не подходит.
+    //Нужна, чтобы упорядочить вместе результаты поиска с разных узлов кластера
+    static int relevance(Film film, String query) {
+        List<String> name = tokenize(film.getName());
+        List<String> description = tokenize(film.getDescription());
+        int total = 0;
+        for (String token : tokenize(query)) {
+            int weight = Math.max(weight(name, token, NAME_EXACT, NAME_PREFIX),
+                    weight(description, token, DESCRIPTION_EXACT, DESCRIPTION_PREFIX));
+            if (weight == 0) {
+                return 0;
+            }
+            total += weight;
+        }
+        return total;
+    }
+
+    static List<String> tokenize(String text) {
+        if (text == null || text.isBlank()) {
+            return List.of();
+        }
+        return Arrays.stream(SEPARATOR.split(text.toLowerCase(Locale.ROOT)))
+                .filter(token -> !token.isEmpty())
+                .distinct()
+                .toList();
+    }
+
+    private Shard shardOf(long id) {
+        return shards[(int) Long.remainderUnsigned(id, SHARDS)];
+    }
+
+    private static int weight(List<String> words, String token, int exactWeight, int prefixWeight) {
+        int weight = 0;
+        for (String word : words) {
+            if (word.equals(token)) {
+                return exactWeight;
+            }
+            if (word.startsWith(token)) {
+                weight = prefixWeight;
+            }
+        }
+        return weight;
+    }
+
+    private static final class Shard {
+        private final NavigableMap<String, LongHashSet> nameTerms = new TreeMap<>();
+        private final NavigableMap<String, LongHashSet> descriptionTerms = new TreeMap<>();
+        private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+        void add(Film film) {
+            Lock writeLock = lock.writeLock();
+            writeLock.lock();
+            try {
+                addTerms(nameTerms, film.getName(), film.getId());
+                addTerms(descriptionTerms, film.getDescription(), film.getId());
+            } finally {
+                writeLock.unlock();
+            }
+        }
+
+        void replace(Film oldFilm, Film newFilm) {
+            Lock writeLock = lock.writeLock();
+            writeLock.lock();
+            try {
+                removeTerms(nameTerms, oldFilm.getName(), oldFilm.getId());
+                removeTerms(descriptionTerms, oldFilm.getDescription(), oldFilm.getId());
+                addTerms(nameTerms, newFilm.getName(), newFilm.getId());
+                addTerms(descriptionTerms, newFilm.getDescription(), newFilm.getId());
+            } finally {
+                writeLock.unlock();
+            }
+        }
+
+        void remove(Film film) {
+            Lock writeLock = lock.writeLock();
+            writeLock.lock();
+            try {
+                removeTerms(nameTerms, film.getName(), film.getId());
+                removeTerms(descriptionTerms, film.getDescription(), film.getId());
+            } finally {
+                writeLock.unlock();
+            }
+        }
+
+        //Пересечение начинается со слова с самым коротким списком фильмов: следующие слова
+        //проверяются только у оставшихся кандидатов
+        void search(List<String> tokens, TopScores top) {
+            Lock readLock = lock.readLock();
+            readLock.lock();
+            try {
+                Postings[] postings = new Postings[tokens.size()];
+                for (int i = 0; i < postings.length; i++) {
+                    postings[i] = new Postings();
+                    postings[i].collect(nameTerms, tokens.get(i), NAME_EXACT, NAME_PREFIX);
+                    postings[i].collect(descriptionTerms, tokens.get(i), DESCRIPTION_EXACT, DESCRIPTION_PREFIX);
+                    if (postings[i].total == 0) {
+                        return;
+                    }
+                }
+                Arrays.sort(postings, Comparator.comparingLong(posting -> posting.total));
+                ScoreMap scores = postings[0].scores();
+                for (int i = 1; i < postings.length && scores.size() > 0; i++) {
+                    scores = postings[i].intersect(scores);
+                }
+                scores.forEach(top::offer);
+            } finally {
+                readLock.unlock();
+            }
+        }
+
+        private static void addTerms(NavigableMap<String, LongHashSet> terms, String text, long id) {
+            for (String token : tokenize(text)) {
+                terms.computeIfAbsent(token, key -> new LongHashSet()).add(id);
+            }
+        }
+
+        private static void removeTerms(NavigableMap<String, LongHashSet> terms, String text, long id) {
+            for (String token : tokenize(text)) {
+                LongHashSet ids = terms.get(token);
+                if (ids != null && ids.remove(id) && ids.size() == 0) {
+                    terms.remove(token);
+                }
+            }
+        }
+    }
+
+    //Списки фильмов всех слов, начинающихся со слова запроса, с весом совпадения; total - их общая длина
+    private static final class Postings {
+        private final List<LongHashSet> lists = new ArrayList<>();
+        private int[] weights = new int[4];
+        private long total;
+
+        void collect(NavigableMap<String, LongHashSet> terms, String token, int exactWeight, int prefixWeight) {
+            for (Map.Entry<String, LongHashSet> entry : terms.subMap(token, true, token + Character.MAX_VALUE, false)
+                    .entrySet()) {
+                if (lists.size() == weights.length) {
+                    weights = Arrays.copyOf(weights, weights.length * 2);
+                }
+                weights[lists.size()] = entry.getKey().equals(token) ? exactWeight : prefixWeight;
+                lists.add(entry.getValue());
+                total += entry.getValue().size();
+            }
+        }
+
+        ScoreMap scores() {
+            ScoreMap scores = new ScoreMap((int) Math.min(total, Integer.MAX_VALUE));
+            for (int i = 0; i < lists.size(); i++) {
+                int weight = weights[i];
+                lists.get(i).forEach(id -> scores.max(id, weight));
+            }
+            return scores;
+        }
+
+        //Кандидаты, у которых есть это слово, с добавленным весом. Если кандидатов мало по сравнению
+        //с длиной списков, каждый кандидат ищется в списках, иначе списки обходятся целиком
+        ScoreMap intersect(ScoreMap candidates) {
+            ScoreMap next = new ScoreMap(candidates.size());
+            if ((long) candidates.size() * lists.size() <= total) {
+                candidates.forEach((id, score) -> {
+                    int weight = 0;
+                    for (int i = 0; i < lists.size(); i++) {
+                        if (weights[i] > weight && lists.get(i).contains(id)) {
+                            weight = weights[i];
+                        }
+                    }
+                    if (weight > 0) {
+                        next.max(id, score + weight);
+                    }
+                });
+                return next;
+            }
+            ScoreMap matched = new ScoreMap(candidates.size());
+            for (int i = 0; i < lists.size(); i++) {
+                int weight = weights[i];
+                lists.get(i).forEach(id -> {
+                    if (candidates.get(id) > 0) {
+                        matched.max(id, weight);
+                    }
+                });
+            }
+            matched.forEach((id, weight) -> next.max(id, candidates.get(id) + weight));
+            return next;
+        }
+    }
+
+    //Частичная сортировка: в куче держится только capacity лучших результатов, на вершине - худший из них
+    private static final class TopScores {
+        private final int capacity;
+        private int[] scores;
+        private long[] ids;
+        private int size;
+
+        TopScores(int capacity) {
+            this.capacity = capacity;
+            this.scores = new int[Math.min(capacity, 16)];
+            this.ids = new long[scores.length];
+        }
+
+        void offer(long id, int score) {
+            if (size < capacity) {
+                if (size == scores.length) {
+                    int grown = (int) Math.min(capacity, (long) size * 2);
+                    scores = Arrays.copyOf(scores, grown);
+                    ids = Arrays.copyOf(ids, grown);
+                }
+                scores[size] = score;
+                ids[size] = id;
+                siftUp(size++);
+            } else if (worse(scores[0], ids[0], score, id)) {
+                scores[0] = score;
+                ids[0] = id;
+                siftDown(0);
+            }
+        }
+
+        //Результаты по убыванию релевантности начиная с offset
+        List<Long> toList(int offset) {
+            long[] sorted = new long[size];
+            for (int i = size - 1; i >= 0; i--) {
+                sorted[i] = ids[0];
+                size--;
+                scores[0] = scores[size];
+                ids[0] = ids[size];
+                siftDown(0);
+            }
+            List<Long> result = new ArrayList<>(Math.max(0, sorted.length - offset));
+            for (int i = offset; i < sorted.length; i++) {
+                result.add(sorted[i]);
+            }
+            return result;
+        }
+
+        private void siftUp(int index) {
+            while (index > 0) {
+                int parent = (index - 1) >>> 1;
+                if (!worse(scores[index], ids[index], scores[parent], ids[parent])) {
+                    return;
+                }
+                swap(index, parent);
+                index = parent;
+            }
+        }
+
+        private void siftDown(int index) {
+            while (true) {
+                int worst = index;
+                int left = 2 * index + 1;
+                int right = left + 1;
+                if (left < size && worse(scores[left], ids[left], scores[worst], ids[worst])) {
+                    worst = left;
+                }
+                if (right < size && worse(scores[right], ids[right], scores[worst], ids[worst])) {
+                    worst = right;
+                }
+                if (worst == index) {
+                    return;
+                }
+                swap(index, worst);
+                index = worst;
+            }
+        }
+
+        private void swap(int first, int second) {
+            int score = scores[first];
+            scores[first] = scores[second];
+            scores[second] = score;
+            long id = ids[first];
+            ids[first] = ids[second];
+            ids[second] = id;
+        }
+
+        private static boolean worse(int score, long id, int otherScore, long otherId) {
+            return score < otherScore || score == otherScore && id > otherId;
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package ru.yandex.practicum.filmorate.storage.film;
+
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmRangeFilter;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.LongPredicate;
+import java.util.function.UnaryOperator;
+
+//Хранилище фильмов
+public interface FilmStorage {
+    //Версия данных, увеличивается при каждом создании и изменении фильмов
+    long getVersion();
+
+    //Версия лайков, увеличивается при каждом добавлении и удалении лайка
+    long getLikesVersion();
+
+    long count();
+
+    Collection<Film> findAll();
+
+    //Страница в порядке возрастания id, начиная со следующего после after
+    List<Film> findPage(long after, int limit);
+
+    Optional<Film> findById(long id);
+
+    //Фильмы в диапазоне даты релиза (по возрастанию даты) и/или продолжительности (по возрастанию продолжительности)
+    List<Film> findInRange(FilmRangeFilter filter, int limit);
+
+    Film create(Film film);
+
+    //Создаёт фильмы одной операцией с непрерывным диапазоном id
+    List<Film> createAll(List<Film> films);
+
+    //Атомарно применяет изменения к копии фильма и сохраняет результат с версией на единицу больше.
+    //Если versionMatches отклоняет текущую версию, бросается PreconditionFailedException
+    Optional<Film> update(long id, LongPredicate versionMatches, UnaryOperator<Film> updater);
+
+    default Optional<Film> update(long id, UnaryOperator<Film> updater) {
+        return update(id, version -> true, updater);
+    }
+
+    //Повторный лайк того же пользователя игнорируется
+    void addLike(long filmId, long userId);
+
+    void removeLike(long filmId, long userId);
+
+    //Фильмы, в названии или описании которых есть слова, начинающиеся с каждого слова запроса,
+    //по убыванию релевантности
+    List<Film> search(String query, int offset, int limit);
+
+    //Фильмы по убыванию числа лайков, при равенстве - по возрастанию id
+    List<Film> findPopular(int count);
+
+    //Лайки всех фильмов, у которых они есть: id фильма и id пользователей по возрастанию
+    void forEachLikes(LikesConsumer consumer);
+
+    @FunctionalInterface
+    interface LikesConsumer {
+        void accept(long filmId, long[] userIds);
+    }
+}
@@ -0,0 +1,503 @@
+package ru.yandex.practicum.filmorate.storage.film;
+
+import io.micrometer.core.annotation.Timed;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.exception.PreconditionFailedException;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmRangeFilter;
+import ru.yandex.practicum.filmorate.storage.EntityTable;
+import ru.yandex.practicum.filmorate.storage.LongHashSet;
+import ru.yandex.practicum.filmorate.storage.ObjectTable;
+import ru.yandex.practicum.filmorate.storage.StorageJournal;
+import ru.yandex.practicum.filmorate.storage.StripedLocks;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Lock;
+import java.util.function.LongPredicate;
+import java.util.function.LongSupplier;
+import java.util.function.UnaryOperator;
+
+@Component
+@Timed("filmorate.storage")
+@Profile("!jdbc")
+public class InMemoryFilmStorage implements FilmStorage {
+
+    //Фильмы объектами модели или, при filmorate.storage.packed=true, в примитивных колонках
+    private final EntityTable<Film> films;
+    private final AtomicLong idSequence = new AtomicLong();
+    private final AtomicLong size = new AtomicLong();
+    private final AtomicLong version = new AtomicLong();
+    private final AtomicLong likesVersion = new AtomicLong();
+    private final StripedLocks locks = new StripedLocks(64);
+    //Лайки фильма, изменяются под блокировкой фильма
+    private final Map<Long, LongHashSet> likes = new ConcurrentHashMap<>();
+    //Рейтинг всех фильмов, поддерживается при каждом лайке без пересортировки
+    private final NavigableSet<Rank> ranking = new ConcurrentSkipListSet<>();
+    private final FilmSearchIndex searchIndex = new FilmSearchIndex();
+    //Сортированные индексы (epoch day даты релиза, id) и (продолжительность в наносекундах, id)
+    private final NavigableSet<IndexKey> releaseDateIndex = new ConcurrentSkipListSet<>();
+    private final NavigableSet<IndexKey> durationIndex = new ConcurrentSkipListSet<>();
+    private volatile StorageJournal journal = StorageJournal.NONE;
+    //Выдача id в разделённом режиме; null - по порядку из idSequence
+    private volatile LongSupplier idAllocator;
+
+    public InMemoryFilmStorage() {
+        this(false);
+    }
+
+    @Autowired
+    public InMemoryFilmStorage(@Value("${filmorate.storage.packed:false}") boolean packed) {
+        films = packed ? new PackedFilmTable() : new ObjectTable<>(Film::getId);
+    }
+
+    @Override
+    public long getVersion() {
+        return version.get();
+    }
+
+    @Override
+    public long getLikesVersion() {
+        return likesVersion.get();
+    }
+
+    @Override
+    public long count() {
+        return size.get();
+    }
+
+    @Override
+    public Collection<Film> findAll() {
+        return films.values();
+    }
+
+    @Override
+    public List<Film> findPage(long after, int limit) {
+        return films.page(after, limit);
+    }
+
+    @Override
+    public Optional<Film> findById(long id) {
+        return Optional.ofNullable(films.get(id));
+    }
+
+    @Override
+    public List<Film> findInRange(FilmRangeFilter filter, int limit) {
+        NavigableSet<IndexKey> keys = filter.hasReleaseDateRange()
+                ? range(releaseDateIndex,
+                        filter.getReleasedFrom() == null ? null : filter.getReleasedFrom().toEpochDay(),
+                        filter.getReleasedTo() == null ? null : filter.getReleasedTo().toEpochDay())
+                : range(durationIndex,
+                        filter.getMinDuration() == null ? null : TimeUnit.SECONDS.toNanos(filter.getMinDuration()),
+                        filter.getMaxDuration() == null ? null : TimeUnit.SECONDS.toNanos(filter.getMaxDuration()));
+        List<Film> result = new ArrayList<>();
+        LongHashSet seen = new LongHashSet();
+        for (IndexKey key : keys) {
+            if (result.size() == limit) {
+                break;
+            }
+            Film film = films.get(key.id());
+            //Ключ мог устареть из-за параллельного обновления, поэтому фильм проверяется целиком
+            if (film != null && filter.matches(film) && seen.add(key.id())) {
+                result.add(film);
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public Film create(Film film) {
+        film.setId(getNextId());
+        insert(film);
+        version.incrementAndGet();
+        journal.awaitDurable();
+        return film;
+    }
+
+    @Override
+    public List<Film> createAll(List<Film> newFilms) {
+        LongSupplier allocator = idAllocator;
+        long id = allocator == null ? idSequence.getAndAdd(newFilms.size()) : 0;
+        //Если таблица отклонит фильм, уже сохранённые остаются, и версия всё равно меняется, чтобы кэш ответов
+        //не отдавал прежнюю коллекцию
+        try {
+            for (Film film : newFilms) {
+                film.setId(allocator == null ? ++id : allocator.getAsLong());
+                insert(film);
+            }
+        } finally {
+            version.incrementAndGet();
+        }
+        journal.awaitDurable();
+        return newFilms;
+    }
+
+    @Override
+    public Optional<Film> update(long id, LongPredicate versionMatches, UnaryOperator<Film> updater) {
+        Optional<Film> updated = updateLocked(id, versionMatches, updater);
+        journal.awaitDurable();
+        return updated;
+    }
+
+    private Optional<Film> updateLocked(long id, LongPredicate versionMatches, UnaryOperator<Film> updater) {
+        journal.awaitCapacity();
+        Lock lock = locks.get(id);
+        lock.lock();
+        try {
+            Film current = films.get(id);
+            if (current == null) {
+                return Optional.empty();
+            }
+            if (!versionMatches.test(current.getVersion())) {
+                throw new PreconditionFailedException(
+                        "Фильм с id " + id + " изменён, текущая версия " + current.getVersion());
+            }
+            //Хранимый фильм не изменяется: читатели без блокировки видят либо старую, либо новую копию целиком
+            Film updated = updater.apply(current.toBuilder().build());
+            updated.setVersion(current.getVersion() + 1);
+            replace(current, updated);
+            try {
+                journal.filmSaved(updated);
+            } catch (RuntimeException e) {
+                //Журнал не принял запись: изменение, которое не переживёт перезапуск, не остаётся видимым
+                replace(updated, current);
+                throw e;
+            }
+            version.incrementAndGet();
+            return Optional.of(updated);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void addLike(long filmId, long userId) {
+        journal.awaitCapacity();
+        Lock lock = locks.get(filmId);
+        lock.lock();
+        try {
+            LongHashSet filmLikes = likes.computeIfAbsent(filmId, id -> new LongHashSet());
+            //Лайк пишется в журнал до того, как станет виден: при ошибке журнала он не применяется
+            if (!filmLikes.contains(userId)) {
+                journal.likeAdded(filmId, userId);
+                filmLikes.add(userId);
+                moveInRanking(filmId, filmLikes.size() - 1, filmLikes.size());
+                likesVersion.incrementAndGet();
+            }
+        } finally {
+            lock.unlock();
+        }
+        journal.awaitDurable();
+    }
+
+    @Override
+    public void removeLike(long filmId, long userId) {
+        journal.awaitCapacity();
+        Lock lock = locks.get(filmId);
+        lock.lock();
+        try {
+            LongHashSet filmLikes = likes.get(filmId);
+            if (filmLikes != null && filmLikes.contains(userId)) {
+                journal.likeRemoved(filmId, userId);
+                filmLikes.remove(userId);
+                moveInRanking(filmId, filmLikes.size() + 1, filmLikes.size());
+                likesVersion.incrementAndGet();
+            }
+        } finally {
+            lock.unlock();
+        }
+        journal.awaitDurable();
+    }
+
+    @Override
+    public List<Film> search(String query, int offset, int limit) {
+        //Фильм мог быть удалён после переноса на другой узел кластера
+        return searchIndex.search(query, offset, limit).stream()
+                .map(films::get)
+                .filter(Objects::nonNull)
+                .toList();
+    }
+
+    @Override
+    public List<Film> findPopular(int count) {
+        List<Film> popular = new ArrayList<>(count);
+        //Во время перемещения фильм может на мгновение оказаться в рейтинге дважды
+        LongHashSet seen = new LongHashSet(count);
+        for (Rank rank : ranking) {
+            if (popular.size() == count) {
+                break;
+            }
+            Film film = films.get(rank.filmId());
+            if (film != null && seen.add(rank.filmId())) {
+                popular.add(film);
+            }
+        }
+        return popular;
+    }
+
+    @Override
+    public void forEachLikes(LikesConsumer consumer) {
+        for (Long filmId : likes.keySet()) {
+            long[] userIds = likesOf(filmId);
+            if (userIds.length > 0) {
+                Arrays.sort(userIds);
+                consumer.accept(filmId, userIds);
+            }
+        }
+    }
+
+    //Релевантность фильма поисковому запросу, по которой упорядочен результат search
+    public static int relevance(Film film, String query) {
+        return FilmSearchIndex.relevance(film, query);
+    }
+
+    //Изменения после подключения журнала передаются в него
+    public void setJournal(StorageJournal journal) {
+        this.journal = journal;
+    }
+
+    //Восстановление фильма из снимка или журнала с сохранённым id, без записи в журнал
+    public void restore(Film film) {
+        Lock lock = locks.get(film.getId());
+        lock.lock();
+        try {
+            Film current = films.get(film.getId());
+            if (current == null) {
+                add(film);
+            } else {
+                replace(current, film);
+            }
+            idSequence.accumulateAndGet(film.getId(), Math::max);
+            version.incrementAndGet();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    //Фильм с лайками, переданный другим узлом при перебалансировке. Заменяет локальную копию, если она
+    //не новее. Лайки объединяются с локальными: лайк, поставленный здесь после прошлого переноса этого фильма,
+    //не теряется при повторном переносе, а лайк, попавший к прежнему владельцу, переносится и тогда,
+    //когда локальная копия новее. Возвращает false, если локальная копия новее
+    public boolean importFilm(Film film, long[] userIds) {
+        Lock lock = locks.get(film.getId());
+        lock.lock();
+        try {
+            Film current = films.get(film.getId());
+            boolean newer = current == null || current.getVersion() <= film.getVersion();
+            if (current == null) {
+                add(film);
+            } else if (newer) {
+                replace(current, film);
+            }
+            LongHashSet filmLikes = likes.computeIfAbsent(film.getId(), id -> new LongHashSet(userIds.length));
+            int before = filmLikes.size();
+            for (long userId : userIds) {
+                filmLikes.add(userId);
+            }
+            if (filmLikes.size() != before) {
+                moveInRanking(film.getId(), before, filmLikes.size());
+                likesVersion.incrementAndGet();
+            }
+            if (newer) {
+                version.incrementAndGet();
+            }
+            return newer;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    //Удаление фильма, переданного другому узлу, если после передачи он не изменился:
+    //версия та же и лайки совпадают с переданными
+    public boolean evict(long id, long expectedVersion, long[] expectedLikes) {
+        Lock lock = locks.get(id);
+        lock.lock();
+        try {
+            Film current = films.get(id);
+            LongHashSet filmLikes = likes.get(id);
+            if (current == null || current.getVersion() != expectedVersion
+                    || !sameLikes(filmLikes, expectedLikes)) {
+                return false;
+            }
+            films.remove(id);
+            likes.remove(id);
+            ranking.remove(new Rank(filmLikes == null ? 0 : filmLikes.size(), id));
+            searchIndex.remove(current);
+            removeFromRangeIndexes(current);
+            size.decrementAndGet();
+            if (filmLikes != null && filmLikes.size() > 0) {
+                likesVersion.incrementAndGet();
+            }
+            version.incrementAndGet();
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    //Выдача id для новых фильмов вместо порядкового номера
+    public void setIdAllocator(LongSupplier idAllocator) {
+        this.idAllocator = idAllocator;
+    }
+
+    //Лайки фильма из снимка: рейтинг перемещается один раз, а не на каждый лайк
+    public void restoreLikes(long filmId, long[] userIds) {
+        Lock lock = locks.get(filmId);
+        lock.lock();
+        try {
+            LongHashSet filmLikes = likes.computeIfAbsent(filmId, id -> new LongHashSet(userIds.length));
+            int before = filmLikes.size();
+            for (long userId : userIds) {
+                filmLikes.add(userId);
+            }
+            if (filmLikes.size() != before) {
+                moveInRanking(filmId, before, filmLikes.size());
+                likesVersion.incrementAndGet();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long[] likesOf(long filmId) {
+        Lock lock = locks.get(filmId);
+        lock.lock();
+        try {
+            LongHashSet filmLikes = likes.get(filmId);
+            return filmLikes == null ? new long[0] : filmLikes.toArray();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    //Фильм с только что выданным id. Фильм виден читателям сразу после films.put, поэтому индексы и рейтинг
+    //заполняются под той же блокировкой: обновление, пришедшее раньше, чем они заполнены, заменило бы
+    //в индексах ещё не добавленные слова и ключи. Блокировка также упорядочивает запись в журнал
+    //с первым обновлением фильма; если журнал не принял запись, фильм убирается
+    private void insert(Film film) {
+        journal.awaitCapacity();
+        Lock lock = locks.get(film.getId());
+        lock.lock();
+        try {
+            film.setVersion(1);
+            add(film);
+            try {
+                journal.filmSaved(film);
+            } catch (RuntimeException e) {
+                films.remove(film.getId());
+                ranking.remove(new Rank(0, film.getId()));
+                searchIndex.remove(film);
+                removeFromRangeIndexes(film);
+                size.decrementAndGet();
+                throw e;
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    //Новый фильм без записи в журнал; вызывается под блокировкой фильма
+    private void add(Film film) {
+        films.put(film);
+        ranking.add(new Rank(0, film.getId()));
+        searchIndex.add(film);
+        addToRangeIndexes(film);
+        size.incrementAndGet();
+    }
+
+    private void replace(Film current, Film updated) {
+        films.put(updated);
+        searchIndex.replace(current, updated);
+        //Новые ключи добавляются раньше удаления старых, чтобы фильм не пропадал из выборок читателей
+        addToRangeIndexes(updated);
+        removeFromRangeIndexes(current, updated);
+    }
+
+    private static NavigableSet<IndexKey> range(NavigableSet<IndexKey> index, Long from, Long to) {
+        return index.subSet(
+                new IndexKey(from == null ? Long.MIN_VALUE : from, Long.MIN_VALUE), true,
+                new IndexKey(to == null ? Long.MAX_VALUE : to, Long.MAX_VALUE), true
+        );
+    }
+
+    private void addToRangeIndexes(Film film) {
+        if (film.getReleaseDate() != null) {
+            releaseDateIndex.add(new IndexKey(film.getReleaseDate().toEpochDay(), film.getId()));
+        }
+        if (film.getDuration() != null) {
+            durationIndex.add(new IndexKey(film.getDuration().toNanos(), film.getId()));
+        }
+    }
+
+    private void removeFromRangeIndexes(Film film) {
+        if (film.getReleaseDate() != null) {
+            releaseDateIndex.remove(new IndexKey(film.getReleaseDate().toEpochDay(), film.getId()));
+        }
+        if (film.getDuration() != null) {
+            durationIndex.remove(new IndexKey(film.getDuration().toNanos(), film.getId()));
+        }
+    }
+
+    private void removeFromRangeIndexes(Film oldFilm, Film newFilm) {
+        if (oldFilm.getReleaseDate() != null && !oldFilm.getReleaseDate().equals(newFilm.getReleaseDate())) {
+            releaseDateIndex.remove(new IndexKey(oldFilm.getReleaseDate().toEpochDay(), oldFilm.getId()));
+        }
+        if (oldFilm.getDuration() != null && !oldFilm.getDuration().equals(newFilm.getDuration())) {
+            durationIndex.remove(new IndexKey(oldFilm.getDuration().toNanos(), oldFilm.getId()));
+        }
+    }
+
+    //Новая позиция добавляется раньше удаления старой, чтобы фильм не пропадал из рейтинга для читателей
+    private void moveInRanking(long filmId, int oldLikes, int newLikes) {
+        ranking.add(new Rank(newLikes, filmId));
+        ranking.remove(new Rank(oldLikes, filmId));
+    }
+
+    //Генерация id
+    private long getNextId() {
+        LongSupplier allocator = idAllocator;
+        return allocator == null ? idSequence.incrementAndGet() : allocator.getAsLong();
+    }
+
+    private static boolean sameLikes(LongHashSet filmLikes, long[] expected) {
+        int size = filmLikes == null ? 0 : filmLikes.size();
+        if (size != expected.length) {
+            return false;
+        }
+        for (long userId : expected) {
+            if (!filmLikes.contains(userId)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private record IndexKey(long value, long id) implements Comparable<IndexKey> {
+        @Override
+        public int compareTo(IndexKey other) {
+            int byValue = Long.compare(value, other.value);
+            return byValue != 0 ? byValue : Long.compare(id, other.id);
+        }
+    }
+
+    private record Rank(int likes, long filmId) implements Comparable<Rank> {
+        @Override
+        public int compareTo(Rank other) {
+            int byLikes = Integer.compare(other.likes, likes);
+            return byLikes != 0 ? byLikes : Long.compare(filmId, other.filmId);
+        }
+    }
+}
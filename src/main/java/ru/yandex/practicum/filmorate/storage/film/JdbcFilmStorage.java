@@ -0,0 +1,336 @@
+package ru.yandex.practicum.filmorate.storage.film;
+
+import io.micrometer.core.annotation.Timed;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.KeyHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.yandex.practicum.filmorate.exception.PreconditionFailedException;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmRangeFilter;
+
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongPredicate;
+import java.util.function.UnaryOperator;
+
+//Хранилище фильмов в базе данных, включается профилем jdbc
+@Component
+@Timed("filmorate.storage")
+@Profile("jdbc")
+@RequiredArgsConstructor
+public class JdbcFilmStorage implements FilmStorage {
+    private static final String COLUMNS = "id, version, name, description, release_date, duration_nanos";
+    private static final String INSERT =
+            "INSERT INTO films (name, description, release_date, duration_nanos) VALUES (?, ?, ?, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    //Версия в памяти процесса: изменения, сделанные в базе в обход приложения, её не увеличивают
+    private final AtomicLong version = new AtomicLong();
+    private final AtomicLong likesVersion = new AtomicLong();
+    @Value("${filmorate.jdbc.batch-size:1000}")
+    private int batchSize = 1000;
+
+    @Override
+    public long getVersion() {
+        return version.get();
+    }
+
+    @Override
+    public long getLikesVersion() {
+        return likesVersion.get();
+    }
+
+    @Override
+    public long count() {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM films", Long.class);
+    }
+
+    @Override
+    public Collection<Film> findAll() {
+        return jdbcTemplate.query("SELECT " + COLUMNS + " FROM films ORDER BY id", JdbcFilmStorage::mapRow);
+    }
+
+    @Override
+    public List<Film> findPage(long after, int limit) {
+        return jdbcTemplate.query(
+                "SELECT " + COLUMNS + " FROM films WHERE id > ? ORDER BY id LIMIT ?",
+                JdbcFilmStorage::mapRow,
+                after,
+                limit
+        );
+    }
+
+    @Override
+    public Optional<Film> findById(long id) {
+        return jdbcTemplate.query("SELECT " + COLUMNS + " FROM films WHERE id = ?", JdbcFilmStorage::mapRow, id)
+                .stream()
+                .findFirst();
+    }
+
+    @Override
+    public List<Film> findInRange(FilmRangeFilter filter, int limit) {
+        StringBuilder sql = new StringBuilder("SELECT " + COLUMNS + " FROM films WHERE 1 = 1");
+        List<Object> args = new ArrayList<>();
+        if (filter.getReleasedFrom() != null) {
+            sql.append(" AND release_date >= ?");
+            args.add(Date.valueOf(filter.getReleasedFrom()));
+        }
+        if (filter.getReleasedTo() != null) {
+            sql.append(" AND release_date <= ?");
+            args.add(Date.valueOf(filter.getReleasedTo()));
+        }
+        if (filter.getMinDuration() != null) {
+            sql.append(" AND duration_nanos >= ?");
+            args.add(TimeUnit.SECONDS.toNanos(filter.getMinDuration()));
+        }
+        if (filter.getMaxDuration() != null) {
+            sql.append(" AND duration_nanos <= ?");
+            args.add(TimeUnit.SECONDS.toNanos(filter.getMaxDuration()));
+        }
+        sql.append(filter.hasReleaseDateRange() ? " ORDER BY release_date, id" : " ORDER BY duration_nanos, id");
+        sql.append(" LIMIT ?");
+        args.add(limit);
+        return jdbcTemplate.query(sql.toString(), JdbcFilmStorage::mapRow, args.toArray());
+    }
+
+    @Override
+    public Film create(Film film) {
+        KeyHolder keyHolder = new GeneratedKeyHolder();
+        jdbcTemplate.update(connection -> {
+            PreparedStatement statement = connection.prepareStatement(INSERT, new String[]{"id"});
+            bind(statement, film);
+            return statement;
+        }, keyHolder);
+        film.setId(keyHolder.getKeyAs(Long.class));
+        film.setVersion(1);
+        version.incrementAndGet();
+        return film;
+    }
+
+    @Override
+    public List<Film> createAll(List<Film> films) {
+        transactionTemplate.executeWithoutResult(status -> {
+            for (int from = 0; from < films.size(); from += batchSize) {
+                insertBatch(films.subList(from, Math.min(from + batchSize, films.size())));
+            }
+        });
+        version.incrementAndGet();
+        return films;
+    }
+
+    @Override
+    public Optional<Film> update(long id, LongPredicate versionMatches, UnaryOperator<Film> updater) {
+        return transactionTemplate.execute(status -> {
+            Optional<Film> current = jdbcTemplate.query(
+                    "SELECT " + COLUMNS + " FROM films WHERE id = ? FOR UPDATE",
+                    JdbcFilmStorage::mapRow,
+                    id
+            ).stream().findFirst();
+            if (current.isEmpty()) {
+                return Optional.empty();
+            }
+            long currentVersion = current.get().getVersion();
+            if (!versionMatches.test(currentVersion)) {
+                throw new PreconditionFailedException(
+                        "Фильм с id " + id + " изменён, текущая версия " + currentVersion);
+            }
+            Film updated = updater.apply(current.get());
+            updated.setVersion(currentVersion + 1);
+            jdbcTemplate.update(
+                    "UPDATE films SET name = ?, description = ?, release_date = ?, duration_nanos = ?, version = ? "
+                            + "WHERE id = ?",
+                    statement -> {
+                        bind(statement, updated);
+                        statement.setLong(5, updated.getVersion());
+                        statement.setLong(6, id);
+                    }
+            );
+            version.incrementAndGet();
+            return Optional.of(updated);
+        });
+    }
+
+    @Override
+    public void addLike(long filmId, long userId) {
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                int inserted = jdbcTemplate.update(
+                        "INSERT INTO likes (film_id, user_id) SELECT ?, ? "
+                                + "WHERE NOT EXISTS (SELECT 1 FROM likes WHERE film_id = ? AND user_id = ?)",
+                        filmId, userId, filmId, userId
+                );
+                if (inserted > 0) {
+                    jdbcTemplate.update("UPDATE films SET like_count = like_count + 1 WHERE id = ?", filmId);
+                }
+            });
+            likesVersion.incrementAndGet();
+        } catch (DuplicateKeyException ignored) {
+            // тот же лайк параллельно добавлен другим запросом
+        }
+    }
+
+    @Override
+    public void removeLike(long filmId, long userId) {
+        transactionTemplate.executeWithoutResult(status -> {
+            int deleted = jdbcTemplate.update("DELETE FROM likes WHERE film_id = ? AND user_id = ?", filmId, userId);
+            if (deleted > 0) {
+                jdbcTemplate.update("UPDATE films SET like_count = like_count - 1 WHERE id = ?", filmId);
+            }
+        });
+        likesVersion.incrementAndGet();
+    }
+
+    //Поиск по началу слов через LIKE: слово совпадает в начале поля или после пробела
+    @Override
+    public List<Film> search(String query, int offset, int limit) {
+        List<String> tokens = FilmSearchIndex.tokenize(query);
+        if (tokens.isEmpty()) {
+            return List.of();
+        }
+        StringBuilder score = new StringBuilder();
+        StringBuilder condition = new StringBuilder();
+        List<Object> scoreArgs = new ArrayList<>();
+        List<Object> conditionArgs = new ArrayList<>();
+        for (String token : tokens) {
+            String start = token + "%";
+            String word = "% " + token + "%";
+            if (!condition.isEmpty()) {
+                score.append(" + ");
+                condition.append(" AND ");
+            }
+            score.append("CASE WHEN LOWER(name) LIKE ? OR LOWER(name) LIKE ? THEN 2 ELSE 1 END");
+            scoreArgs.addAll(List.of(start, word));
+            condition.append("(LOWER(name) LIKE ? OR LOWER(name) LIKE ? ")
+                    .append("OR LOWER(description) LIKE ? OR LOWER(description) LIKE ?)");
+            conditionArgs.addAll(List.of(start, word, start, word));
+        }
+        List<Object> args = new ArrayList<>(conditionArgs);
+        args.addAll(scoreArgs);
+        args.add(limit);
+        args.add(offset);
+        return jdbcTemplate.query(
+                "SELECT " + COLUMNS + " FROM films WHERE " + condition
+                        + " ORDER BY " + score + " DESC, id LIMIT ? OFFSET ?",
+                JdbcFilmStorage::mapRow,
+                args.toArray()
+        );
+    }
+
+    @Override
+    public List<Film> findPopular(int count) {
+        return jdbcTemplate.query(
+                "SELECT " + COLUMNS + " FROM films ORDER BY like_count DESC, id LIMIT ?",
+                JdbcFilmStorage::mapRow,
+                count
+        );
+    }
+
+    //Один проход по первичному ключу likes (film_id, user_id): строки одного фильма идут подряд
+    @Override
+    public void forEachLikes(LikesConsumer consumer) {
+        LikesGrouper grouper = new LikesGrouper(consumer);
+        jdbcTemplate.query("SELECT film_id, user_id FROM likes ORDER BY film_id, user_id", grouper);
+        grouper.flush();
+    }
+
+    private void insertBatch(List<Film> batch) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        KeyHolder keyHolder = new GeneratedKeyHolder();
+        jdbcTemplate.batchUpdate(
+                connection -> connection.prepareStatement(INSERT, new String[]{"id"}),
+                new BatchPreparedStatementSetter() {
+                    @Override
+                    public void setValues(PreparedStatement statement, int i) throws SQLException {
+                        bind(statement, batch.get(i));
+                    }
+
+                    @Override
+                    public int getBatchSize() {
+                        return batch.size();
+                    }
+                },
+                keyHolder
+        );
+        List<Map<String, Object>> keys = keyHolder.getKeyList();
+        for (int i = 0; i < batch.size(); i++) {
+            batch.get(i).setId(((Number) keys.get(i).get("id")).longValue());
+            batch.get(i).setVersion(1);
+        }
+    }
+
+    private static void bind(PreparedStatement statement, Film film) throws SQLException {
+        statement.setString(1, film.getName());
+        statement.setString(2, film.getDescription());
+        statement.setObject(3, film.getReleaseDate() == null ? null : Date.valueOf(film.getReleaseDate()), Types.DATE);
+        statement.setObject(4, film.getDuration() == null ? null : film.getDuration().toNanos(), Types.BIGINT);
+    }
+
+    private static Film mapRow(ResultSet rs, int rowNum) throws SQLException {
+        Date releaseDate = rs.getDate("release_date");
+        long durationNanos = rs.getLong("duration_nanos");
+        boolean noDuration = rs.wasNull();
+        return Film.builder()
+                .id(rs.getLong("id"))
+                .version(rs.getLong("version"))
+                .name(rs.getString("name"))
+                .description(rs.getString("description"))
+                .releaseDate(releaseDate == null ? null : releaseDate.toLocalDate())
+                .duration(noDuration ? null : Duration.ofNanos(durationNanos))
+                .build();
+    }
+
+    //Собирает id пользователей подряд идущих строк одного фильма и передаёт их одним массивом
+    private static final class LikesGrouper implements RowCallbackHandler {
+        private final LikesConsumer consumer;
+        private long filmId;
+        private long[] userIds = new long[16];
+        private int size;
+
+        LikesGrouper(LikesConsumer consumer) {
+            this.consumer = consumer;
+        }
+
+        @Override
+        public void processRow(ResultSet rs) throws SQLException {
+            long rowFilmId = rs.getLong(1);
+            if (rowFilmId != filmId) {
+                flush();
+                filmId = rowFilmId;
+            }
+            if (size == userIds.length) {
+                userIds = Arrays.copyOf(userIds, size * 2);
+            }
+            userIds[size++] = rs.getLong(2);
+        }
+
+        void flush() {
+            if (size > 0) {
+                consumer.accept(filmId, Arrays.copyOf(userIds, size));
+                size = 0;
+            }
+        }
+    }
+}
@@ -0,0 +1,110 @@
+package ru.yandex.practicum.filmorate.storage.film;
+
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.storage.PackedTable;
+import ru.yandex.practicum.filmorate.storage.StringArena;
+
+import java.time.Duration;
+import java.util.Arrays;
+
+//Фильмы в колонках: 37 байт на фильм плюс название и описание в UTF-8
+class PackedFilmTable extends PackedTable<Film, PackedFilmTable.Row> {
+    private static final long NO_DURATION = Long.MIN_VALUE;
+
+    //Колонки заменяются целиком при росте, поэтому оптимистичный читатель видит массивы одной длины
+    private Columns columns = new Columns(INITIAL_CAPACITY);
+
+    @Override
+    protected long idOf(Film film) {
+        return film.getId();
+    }
+
+    @Override
+    protected int capacity() {
+        return columns.present.length;
+    }
+
+    @Override
+    protected void grow(int capacity) {
+        columns = columns.copyOf(capacity);
+    }
+
+    @Override
+    protected void write(int slot, Film film) {
+        //Дата и продолжительность переводятся до записи, чтобы исключение не оставило строку наполовину изменённой
+        int epochDay = toEpochDay(film.getReleaseDate());
+        long duration = film.getDuration() == null ? NO_DURATION : film.getDuration().toNanos();
+        Columns c = columns;
+        boolean replace = c.present[slot];
+        c.names[slot] = strings.add(film.getName(), replace ? c.names[slot] : StringArena.NULL);
+        c.descriptions[slot] = strings.add(film.getDescription(), replace ? c.descriptions[slot] : StringArena.NULL);
+        c.versions[slot] = film.getVersion();
+        c.releaseDates[slot] = epochDay;
+        c.durations[slot] = duration;
+        c.present[slot] = true;
+    }
+
+    @Override
+    protected void clear(int slot) {
+        columns.present[slot] = false;
+    }
+
+    @Override
+    protected Row read(int slot) {
+        Columns c = columns;
+        if (slot >= c.present.length || !c.present[slot]) {
+            return null;
+        }
+        return new Row(slot + 1L, c.versions[slot], c.names[slot], c.descriptions[slot], c.releaseDates[slot], c.durations[slot]);
+    }
+
+    @Override
+    protected Film decode(Row row) {
+        return Film.builder()
+                .id(row.id())
+                .version(row.version())
+                .name(strings.get(row.name()))
+                .description(strings.get(row.description()))
+                .releaseDate(fromEpochDay(row.releaseDate()))
+                .duration(row.duration() == NO_DURATION ? null : Duration.ofNanos(row.duration()))
+                .build();
+    }
+
+    record Row(long id, long version, long name, long description, int releaseDate, long duration) {
+    }
+
+    private static final class Columns {
+        final boolean[] present;
+        final long[] versions;
+        final long[] names;
+        final long[] descriptions;
+        final int[] releaseDates;
+        final long[] durations;
+
+        Columns(int capacity) {
+            this(new boolean[capacity], new long[capacity], new long[capacity], new long[capacity], new int[capacity],
+                    new long[capacity]);
+        }
+
+        private Columns(boolean[] present, long[] versions, long[] names, long[] descriptions, int[] releaseDates,
+                        long[] durations) {
+            this.present = present;
+            this.versions = versions;
+            this.names = names;
+            this.descriptions = descriptions;
+            this.releaseDates = releaseDates;
+            this.durations = durations;
+        }
+
+        Columns copyOf(int capacity) {
+            return new Columns(
+                    Arrays.copyOf(present, capacity),
+                    Arrays.copyOf(versions, capacity),
+                    Arrays.copyOf(names, capacity),
+                    Arrays.copyOf(descriptions, capacity),
+                    Arrays.copyOf(releaseDates, capacity),
+                    Arrays.copyOf(durations, capacity)
+            );
+        }
+    }
+}
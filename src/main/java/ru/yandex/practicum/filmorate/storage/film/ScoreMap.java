@@ -0,0 +1,80 @@
+package ru.yandex.practicum.filmorate.storage.film;
+
+//Релевантность найденных фильмов: id -> сумма весов на открытой адресации без упаковки в Long и Integer.
+//Ключ 0 не поддерживается (id фильмов положительны), значение 0 означает отсутствие ключа; не потокобезопасна
+final class ScoreMap {
+    private static final float LOAD_FACTOR = 0.5f;
+
+    private long[] ids;
+    private int[] scores;
+    private int size;
+
+    ScoreMap(int expectedSize) {
+        int wanted = Math.max(2, (int) (Math.min(expectedSize, 1 << 28) / LOAD_FACTOR));
+        int capacity = Integer.highestOneBit(wanted - 1) << 1;
+        ids = new long[capacity];
+        scores = new int[capacity];
+    }
+
+    int get(long id) {
+        int index = indexOf(id, ids);
+        return ids[index] == id ? scores[index] : 0;
+    }
+
+    //Оставляет наибольшее из сохранённого и переданного значения
+    void max(long id, int score) {
+        int index = indexOf(id, ids);
+        if (ids[index] == id) {
+            if (scores[index] < score) {
+                scores[index] = score;
+            }
+            return;
+        }
+        ids[index] = id;
+        scores[index] = score;
+        if (++size > ids.length * LOAD_FACTOR) {
+            resize();
+        }
+    }
+
+    int size() {
+        return size;
+    }
+
+    void forEach(Consumer consumer) {
+        for (int i = 0; i < ids.length; i++) {
+            if (ids[i] != 0) {
+                consumer.accept(ids[i], scores[i]);
+            }
+        }
+    }
+
+    @FunctionalInterface
+    interface Consumer {
+        void accept(long id, int score);
+    }
+
+    private void resize() {
+        long[] oldIds = ids;
+        int[] oldScores = scores;
+        ids = new long[oldIds.length << 1];
+        scores = new int[oldIds.length << 1];
+        for (int i = 0; i < oldIds.length; i++) {
+            if (oldIds[i] != 0) {
+                int index = indexOf(oldIds[i], ids);
+                ids[index] = oldIds[i];
+                scores[index] = oldScores[i];
+            }
+        }
+    }
+
+    private static int indexOf(long id, long[] table) {
+        int mask = table.length - 1;
+        long h = id * 0x9E3779B97F4A7C15L;
+        int index = (int) (h ^ (h >>> 32)) & mask;
+        while (table[index] != 0 && table[index] != id) {
+            index = (index + 1) & mask;
+        }
+        return index;
+    }
+}
@@ -0,0 +1,265 @@
+package ru.yandex.practicum.filmorate.storage.journal;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.StorageJournal;
+import ru.yandex.practicum.filmorate.storage.film.InMemoryFilmStorage;
+import ru.yandex.practicum.filmorate.storage.user.InMemoryUserStorage;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+//Сохранение хранилищ в памяти между перезапусками: изменения пишутся в журнал упреждающей записи,
+//периодически делается снимок. При старте загружается снимок и повторяется хвост журнала.
+//В режиме отложенной записи изменения пишутся в журнал фоновым потоком пакетами (WriteBehindQueue)
+@Component
+@Profile("!jdbc")
+@ConditionalOnProperty(name = "filmorate.persistence.enabled", havingValue = "true")
+@Slf4j
+public class DurableJournal implements StorageJournal {
+    private final InMemoryFilmStorage filmStorage;
+    private final InMemoryUserStorage userStorage;
+    private final Path directory;
+    private final long flushIntervalMillis;
+    private final long snapshotIntervalSeconds;
+    private final WriteBehind writeBehind;
+    private final MeterRegistry meterRegistry;
+    private final ReentrantLock snapshotLock = new ReentrantLock();
+    private ScheduledExecutorService scheduler;
+    private WriteAheadLog wal;
+    private WriteBehindQueue queue;
+
+    //Подтверждение изменения в режиме отложенной записи: сразу или после записи на диск
+    public enum Ack {
+        NONE,
+        FLUSH
+    }
+
+    //Настройки отложенной записи; null - изменения пишутся в журнал в потоке запроса
+    public record WriteBehind(int queueCapacity, int batchSize, Ack ack) {
+    }
+
+    public DurableJournal(InMemoryFilmStorage filmStorage,
+                          InMemoryUserStorage userStorage,
+                          @Value("${filmorate.persistence.directory:./data}") Path directory,
+                          @Value("${filmorate.persistence.flush-interval-ms:50}") long flushIntervalMillis,
+                          @Value("${filmorate.persistence.snapshot-interval-seconds:600}") long snapshotIntervalSeconds) {
+        this(filmStorage, userStorage, directory, flushIntervalMillis, snapshotIntervalSeconds, null,
+                Metrics.globalRegistry);
+    }
+
+    @Autowired
+    public DurableJournal(InMemoryFilmStorage filmStorage,
+                          InMemoryUserStorage userStorage,
+                          @Value("${filmorate.persistence.directory:./data}") Path directory,
+                          @Value("${filmorate.persistence.flush-interval-ms:50}") long flushIntervalMillis,
+                          @Value("${filmorate.persistence.snapshot-interval-seconds:600}") long snapshotIntervalSeconds,
+                          @Value("${filmorate.persistence.write-behind.enabled:false}") boolean writeBehind,
+                          @Value("${filmorate.persistence.write-behind.queue-capacity:65536}") int queueCapacity,
+                          @Value("${filmorate.persistence.write-behind.batch-size:1024}") int batchSize,
+                          @Value("${filmorate.persistence.write-behind.ack:none}") Ack ack,
+                          MeterRegistry meterRegistry) {
+        this(filmStorage, userStorage, directory, flushIntervalMillis, snapshotIntervalSeconds,
+                writeBehind ? new WriteBehind(queueCapacity, batchSize, ack) : null, meterRegistry);
+    }
+
+    public DurableJournal(InMemoryFilmStorage filmStorage,
+                          InMemoryUserStorage userStorage,
+                          Path directory,
+                          long flushIntervalMillis,
+                          long snapshotIntervalSeconds,
+                          WriteBehind writeBehind,
+                          MeterRegistry meterRegistry) {
+        this.filmStorage = filmStorage;
+        this.userStorage = userStorage;
+        this.directory = directory;
+        this.flushIntervalMillis = flushIntervalMillis;
+        this.snapshotIntervalSeconds = snapshotIntervalSeconds;
+        this.writeBehind = writeBehind;
+        this.meterRegistry = meterRegistry;
+    }
+
+    @PostConstruct
+    public void start() throws IOException {
+        long started = System.nanoTime();
+        Files.createDirectories(directory);
+        //Снимок, не дописанный до сбоя
+        Files.deleteIfExists(directory.resolve(Snapshot.FILE + ".tmp"));
+        Path snapshot = directory.resolve(Snapshot.FILE);
+        List<Long> segments = WriteAheadLog.segments(directory);
+        long fromSegment = Files.exists(snapshot)
+                ? Snapshot.read(snapshot, filmStorage, userStorage)
+                : segments.isEmpty() ? 0 : segments.getFirst();
+        long replayed = 0;
+        long lastSegment = fromSegment;
+        for (int i = 0; i < segments.size(); i++) {
+            long segment = segments.get(i);
+            if (segment >= fromSegment) {
+                replayed += WriteAheadLog.replay(directory, segment, i == segments.size() - 1, this::apply);
+                lastSegment = segment;
+            }
+        }
+        //Новые изменения пишутся в новый сегмент, чтобы не дописывать файл после обрезанного хвоста
+        wal = new WriteAheadLog(directory, lastSegment + 1);
+        if (writeBehind != null) {
+            queue = new WriteBehindQueue(wal, writeBehind.queueCapacity(), writeBehind.batchSize(),
+                    flushIntervalMillis, writeBehind.ack() == Ack.FLUSH, meterRegistry);
+        }
+        filmStorage.setJournal(this);
+        userStorage.setJournal(this);
+
+        scheduler = Executors.newSingleThreadScheduledExecutor(Thread.ofPlatform().name("filmorate-journal")
+                .daemon().factory());
+        if (queue == null) {
+            scheduler.scheduleWithFixedDelay(this::flush, flushIntervalMillis, flushIntervalMillis,
+                    TimeUnit.MILLISECONDS);
+        }
+        scheduler.scheduleWithFixedDelay(this::snapshotQuietly,
+                snapshotIntervalSeconds, snapshotIntervalSeconds, TimeUnit.SECONDS);
+        log.info("Хранилища восстановлены из {} за {} мс: фильмов {}, пользователей {}, записей журнала {}.",
+                directory, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started),
+                filmStorage.count(), userStorage.count(), replayed);
+    }
+
+    @PreDestroy
+    public void stop() throws IOException, InterruptedException {
+        filmStorage.setJournal(StorageJournal.NONE);
+        userStorage.setJournal(StorageJournal.NONE);
+        if (queue != null) {
+            queue.close();
+        }
+        scheduler.shutdown();
+        scheduler.awaitTermination(1, TimeUnit.MINUTES);
+        wal.close();
+    }
+
+    //Сброс накопленных записей на диск; при отложенной записи - ожидание записи всей очереди
+    public void flush() {
+        if (queue != null) {
+            queue.flush();
+            return;
+        }
+        try {
+            wal.flush(true);
+        } catch (UncheckedIOException e) {
+            log.error("Не удалось сбросить журнал на диск.", e);
+        }
+    }
+
+    //Снимок хранилищ; сегменты журнала, полностью вошедшие в снимок, удаляются
+    public void snapshot() throws IOException {
+        snapshotLock.lock();
+        try {
+            long started = System.nanoTime();
+            long fromSegment = wal.rotate();
+            Snapshot.write(directory, fromSegment, filmStorage, userStorage);
+            for (long segment : WriteAheadLog.segments(directory)) {
+                if (segment < fromSegment) {
+                    Files.delete(WriteAheadLog.path(directory, segment));
+                }
+            }
+            log.info("Снимок хранилищ записан за {} мс.", TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started));
+        } finally {
+            snapshotLock.unlock();
+        }
+    }
+
+    @Override
+    public void filmSaved(Film film) {
+        if (queue != null) {
+            queue.filmSaved(film);
+        } else {
+            wal.append(Records.film(film));
+        }
+    }
+
+    @Override
+    public void likeAdded(long filmId, long userId) {
+        appendPair(Records.LIKE_ADDED, filmId, userId);
+    }
+
+    @Override
+    public void likeRemoved(long filmId, long userId) {
+        appendPair(Records.LIKE_REMOVED, filmId, userId);
+    }
+
+    @Override
+    public void userSaved(User user) {
+        if (queue != null) {
+            queue.userSaved(user);
+        } else {
+            wal.append(Records.user(user));
+        }
+    }
+
+    @Override
+    public void friendAdded(long userId, long friendId) {
+        appendPair(Records.FRIEND_ADDED, userId, friendId);
+    }
+
+    @Override
+    public void friendRemoved(long userId, long friendId) {
+        appendPair(Records.FRIEND_REMOVED, userId, friendId);
+    }
+
+    @Override
+    public void awaitCapacity() {
+        if (queue != null) {
+            queue.awaitCapacity();
+        }
+    }
+
+    @Override
+    public void awaitDurable() {
+        if (queue != null) {
+            queue.awaitDurable();
+        }
+    }
+
+    private void appendPair(byte type, long first, long second) {
+        if (queue != null) {
+            queue.pair(type, first, second);
+        } else {
+            wal.append(Records.pair(type, first, second));
+        }
+    }
+
+    private void snapshotQuietly() {
+        try {
+            snapshot();
+        } catch (IOException | UncheckedIOException e) {
+            log.error("Не удалось записать снимок хранилищ.", e);
+        }
+    }
+
+    private void apply(ByteBuffer record) {
+        byte type = record.get();
+        switch (type) {
+            case Records.FILM -> filmStorage.restore(Records.readFilm(record));
+            case Records.LIKE_ADDED -> filmStorage.addLike(record.getLong(), record.getLong());
+            case Records.LIKE_REMOVED -> filmStorage.removeLike(record.getLong(), record.getLong());
+            case Records.USER -> userStorage.restore(Records.readUser(record));
+            case Records.FRIEND_ADDED -> userStorage.addFriend(record.getLong(), record.getLong());
+            case Records.FRIEND_REMOVED -> userStorage.removeFriend(record.getLong(), record.getLong());
+            default -> throw new IllegalStateException("Неизвестный тип записи журнала " + type);
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package ru.yandex.practicum.filmorate.storage.journal;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+//Последовательное чтение файла через отображение в память окнами по 64 МБ, без копирования в кучу
+final class MappedInput implements Closeable {
+    private static final long WINDOW = 64L << 20;
+
+    private final FileChannel channel;
+    private final long size;
+    private long windowStart;
+    private ByteBuffer window = ByteBuffer.allocate(0);
+
+    MappedInput(Path file) throws IOException {
+        channel = FileChannel.open(file, StandardOpenOption.READ);
+        size = channel.size();
+    }
+
+    long position() {
+        return windowStart + window.position();
+    }
+
+    //Следующие length байт отдельным буфером, или null, если файл закончился раньше
+    ByteBuffer next(int length) throws IOException {
+        if (length < 0) {
+            return null;
+        }
+        if (window.remaining() < length) {
+            long start = position();
+            if (start + length > size) {
+                return null;
+            }
+            window = channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(size - start, Math.max(WINDOW, length)));
+            windowStart = start;
+        }
+        ByteBuffer slice = window.slice(window.position(), length);
+        window.position(window.position() + length);
+        return slice;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
@@ -0,0 +1,122 @@
+package ru.yandex.practicum.filmorate.storage.journal;
+
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.User;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDate;
+
+//Двоичное представление записей журнала и снимка: тип записи, затем поля; строки - длина и UTF-8, -1 для null
+final class Records {
+    static final byte FILM = 1;
+    static final byte LIKE_ADDED = 2;
+    static final byte LIKE_REMOVED = 3;
+    static final byte USER = 4;
+    static final byte FRIEND_ADDED = 5;
+    static final byte FRIEND_REMOVED = 6;
+
+    private static final long NO_VALUE = Long.MIN_VALUE;
+
+    private Records() {
+    }
+
+    static ByteBuffer film(Film film) {
+        byte[] name = encode(film.getName());
+        byte[] description = encode(film.getDescription());
+        ByteBuffer buffer = ByteBuffer.allocate(1 + 8 + 8 + size(name) + size(description) + 8 + 8);
+        buffer.put(FILM).putLong(film.getId()).putLong(film.getVersion());
+        putString(buffer, name);
+        putString(buffer, description);
+        buffer.putLong(film.getReleaseDate() == null ? NO_VALUE : film.getReleaseDate().toEpochDay());
+        buffer.putLong(film.getDuration() == null ? NO_VALUE : film.getDuration().toNanos());
+        return buffer.flip();
+    }
+
+    static ByteBuffer user(User user) {
+        byte[] email = encode(user.getEmail());
+        byte[] login = encode(user.getLogin());
+        byte[] name = encode(user.getName());
+        ByteBuffer buffer = ByteBuffer.allocate(1 + 8 + 8 + size(email) + size(login) + size(name) + 8);
+        buffer.put(USER).putLong(user.getId()).putLong(user.getVersion());
+        putString(buffer, email);
+        putString(buffer, login);
+        putString(buffer, name);
+        buffer.putLong(user.getBirthday() == null ? NO_VALUE : user.getBirthday().toEpochDay());
+        return buffer.flip();
+    }
+
+    static ByteBuffer pair(byte type, long first, long second) {
+        return ByteBuffer.allocate(1 + 8 + 8).put(type).putLong(first).putLong(second).flip();
+    }
+
+    //Чтение полей фильма после байта типа
+    static Film readFilm(ByteBuffer in) {
+        long id = in.getLong();
+        long version = in.getLong();
+        String name = getString(in);
+        String description = getString(in);
+        long releaseDate = in.getLong();
+        long duration = in.getLong();
+        return Film.builder()
+                .id(id)
+                .version(version)
+                .name(name)
+                .description(description)
+                .releaseDate(releaseDate == NO_VALUE ? null : LocalDate.ofEpochDay(releaseDate))
+                .duration(duration == NO_VALUE ? null : Duration.ofNanos(duration))
+                .build();
+    }
+
+    //Чтение полей пользователя после байта типа
+    static User readUser(ByteBuffer in) {
+        long id = in.getLong();
+        long version = in.getLong();
+        String email = getString(in);
+        String login = getString(in);
+        String name = getString(in);
+        long birthday = in.getLong();
+        return User.builder()
+                .id(id)
+                .version(version)
+                .email(email)
+                .login(login)
+                .name(name)
+                .birthday(birthday == NO_VALUE ? null : LocalDate.ofEpochDay(birthday))
+                .build();
+    }
+
+    private static byte[] encode(String value) {
+        return value == null ? null : value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static int size(byte[] value) {
+        return 4 + (value == null ? 0 : value.length);
+    }
+
+    private static void putString(ByteBuffer buffer, byte[] value) {
+        if (value == null) {
+            buffer.putInt(-1);
+        } else {
+            buffer.putInt(value.length).put(value);
+        }
+    }
+
+    private static String getString(ByteBuffer in) {
+        int length = in.getInt();
+        if (length < 0) {
+            return null;
+        }
+        String value;
+        if (in.hasArray()) {
+            value = new String(in.array(), in.arrayOffset() + in.position(), length, StandardCharsets.UTF_8);
+        } else {
+            byte[] bytes = new byte[length];
+            in.get(in.position(), bytes);
+            value = new String(bytes, StandardCharsets.UTF_8);
+        }
+        in.position(in.position() + length);
+        return value;
+    }
+}
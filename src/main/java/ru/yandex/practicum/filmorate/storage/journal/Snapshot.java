@@ -0,0 +1,144 @@
+package ru.yandex.practicum.filmorate.storage.journal;
+
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.film.InMemoryFilmStorage;
+import ru.yandex.practicum.filmorate.storage.user.InMemoryUserStorage;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+//Снимок хранилищ: [заголовок][записи: длина, фильм или пользователь, лайки или друзья][0][MAGIC].
+//Снимок не согласован во времени: записи журнала начиная с сегмента из заголовка повторяются поверх него,
+//и так как каждая запись журнала содержит итоговое состояние, результат совпадает с состоянием до сбоя
+final class Snapshot {
+    static final String FILE = "snapshot.bin";
+    private static final int MAGIC = 0x46494C4D;
+    private static final int FORMAT = 2;
+    private static final int PAGE = 10_000;
+
+    private Snapshot() {
+    }
+
+    //Пишет снимок во временный файл и атомарно заменяет им предыдущий
+    static void write(Path directory, long fromSegment, InMemoryFilmStorage filmStorage,
+                      InMemoryUserStorage userStorage) throws IOException {
+        Path temporary = directory.resolve(FILE + ".tmp");
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            Output out = new Output(channel);
+            out.ensure(16).putInt(MAGIC).putInt(FORMAT).putLong(fromSegment);
+            List<Film> films;
+            long after = 0;
+            while (!(films = filmStorage.findPage(after, PAGE)).isEmpty()) {
+                for (Film film : films) {
+                    out.entry(Records.film(film), filmStorage.likesOf(film.getId()));
+                }
+                after = films.getLast().getId();
+            }
+            List<User> users;
+            after = 0;
+            while (!(users = userStorage.findPage(after, PAGE)).isEmpty()) {
+                for (User user : users) {
+                    out.entry(Records.user(user), userStorage.friendsOf(user.getId()));
+                }
+                after = users.getLast().getId();
+            }
+            out.ensure(8).putInt(0).putInt(MAGIC);
+            out.drain();
+            channel.force(true);
+        }
+        Files.move(temporary, directory.resolve(FILE), StandardCopyOption.ATOMIC_MOVE,
+                StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    //Загружает снимок в пустые хранилища и возвращает сегмент журнала, с которого продолжается восстановление
+    static long read(Path file, InMemoryFilmStorage filmStorage, InMemoryUserStorage userStorage) throws IOException {
+        try (MappedInput in = new MappedInput(file)) {
+            ByteBuffer header = in.next(16);
+            if (header == null || header.getInt() != MAGIC || header.getInt() != FORMAT) {
+                throw new IOException("Файл " + file + " не является снимком хранилища");
+            }
+            long fromSegment = header.getLong();
+            while (true) {
+                ByteBuffer length = in.next(4);
+                if (length == null) {
+                    throw new IOException("Снимок " + file + " обрезан");
+                }
+                int size = length.getInt();
+                if (size == 0) {
+                    break;
+                }
+                ByteBuffer entry = in.next(size);
+                if (entry == null) {
+                    throw new IOException("Снимок " + file + " обрезан");
+                }
+                byte type = entry.get();
+                if (type == Records.FILM) {
+                    Film film = Records.readFilm(entry);
+                    filmStorage.restore(film);
+                    filmStorage.restoreLikes(film.getId(), readIds(entry));
+                } else if (type == Records.USER) {
+                    User user = Records.readUser(entry);
+                    userStorage.restore(user);
+                    userStorage.restoreFriends(user.getId(), readIds(entry));
+                } else {
+                    throw new IOException("Неизвестный тип записи снимка " + type);
+                }
+            }
+            ByteBuffer footer = in.next(4);
+            if (footer == null || footer.getInt() != MAGIC) {
+                throw new IOException("Снимок " + file + " обрезан");
+            }
+            return fromSegment;
+        }
+    }
+
+    private static long[] readIds(ByteBuffer entry) {
+        long[] ids = new long[entry.getInt()];
+        entry.asLongBuffer().get(ids);
+        return ids;
+    }
+
+    //Буферизованная запись в канал; запись снимка целиком помещается в буфер вместе с длиной
+    private static final class Output {
+        private final FileChannel channel;
+        private ByteBuffer buffer = ByteBuffer.allocateDirect(4 << 20);
+
+        Output(FileChannel channel) {
+            this.channel = channel;
+        }
+
+        ByteBuffer ensure(int length) throws IOException {
+            if (buffer.remaining() < length) {
+                drain();
+                if (buffer.capacity() < length) {
+                    buffer = ByteBuffer.allocateDirect(length);
+                }
+            }
+            return buffer;
+        }
+
+        void entry(ByteBuffer record, long[] ids) throws IOException {
+            int size = record.remaining() + 4 + ids.length * 8;
+            ByteBuffer out = ensure(4 + size);
+            out.putInt(size).put(record).putInt(ids.length);
+            out.asLongBuffer().put(ids);
+            out.position(out.position() + ids.length * 8);
+        }
+
+        void drain() throws IOException {
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            buffer.clear();
+        }
+    }
+}
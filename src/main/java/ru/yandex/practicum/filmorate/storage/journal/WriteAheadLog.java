@@ -0,0 +1,198 @@
+package ru.yandex.practicum.filmorate.storage.journal;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
+//Журнал упреждающей записи: сегменты wal-<номер>.log из кадров [длина][crc32c][запись].
+//Записи копируются в буфер под блокировкой, на диск буфер сбрасывается при заполнении и вызовом flush,
+//поэтому при сбое теряются изменения за последний интервал сброса, а оборванный хвост отбрасывается при чтении
+@Slf4j
+class WriteAheadLog implements Closeable {
+    private static final Pattern SEGMENT = Pattern.compile("wal-(\\d{19})\\.log");
+    private static final int HEADER = 8;
+
+    private final Path directory;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(1 << 20);
+    private final CRC32C crc = new CRC32C();
+    private FileChannel channel;
+    private long segment;
+
+    WriteAheadLog(Path directory, long segment) throws IOException {
+        this.directory = directory;
+        this.segment = segment;
+        channel = open(directory, segment);
+    }
+
+    void append(ByteBuffer record) {
+        int length = record.remaining();
+        lock.lock();
+        try {
+            crc.reset();
+            crc.update(record.duplicate());
+            if (buffer.remaining() < HEADER + length) {
+                drain();
+            }
+            if (buffer.remaining() < HEADER + length) {
+                //Запись больше буфера пишется сразу в файл
+                ByteBuffer frame = ByteBuffer.allocate(HEADER + length);
+                frame.putInt(length).putInt((int) crc.getValue()).put(record).flip();
+                write(frame);
+            } else {
+                buffer.putInt(length).putInt((int) crc.getValue()).put(record);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    //Сброс буфера в файл; force - дождаться записи на диск
+    void flush(boolean force) {
+        FileChannel current;
+        lock.lock();
+        try {
+            drain();
+            current = channel;
+        } finally {
+            lock.unlock();
+        }
+        if (force) {
+            try {
+                current.force(false);
+            } catch (ClosedChannelException e) {
+                //Сегмент закрыт ротацией, которая сама сбрасывает его на диск
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    //Начинает новый сегмент и возвращает его номер: всё записанное раньше лежит в предыдущих сегментах
+    long rotate() throws IOException {
+        lock.lock();
+        try {
+            drain();
+            channel.force(false);
+            channel.close();
+            segment++;
+            channel = open(directory, segment);
+            return segment;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        lock.lock();
+        try {
+            drain();
+            channel.force(false);
+            channel.close();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    //Номера сегментов в каталоге по возрастанию
+    static List<Long> segments(Path directory) throws IOException {
+        List<Long> result = new ArrayList<>();
+        try (Stream<Path> files = Files.list(directory)) {
+            files.forEach(file -> {
+                Matcher matcher = SEGMENT.matcher(file.getFileName().toString());
+                if (matcher.matches()) {
+                    result.add(Long.parseLong(matcher.group(1)));
+                }
+            });
+        }
+        result.sort(null);
+        return result;
+    }
+
+    //Передаёт записи сегмента обработчику и возвращает их число. Оборванный или повреждённый кадр
+    //допустим только в конце последнего сегмента: файл обрезается по последнему целому кадру
+    static long replay(Path directory, long segment, boolean last, Consumer<ByteBuffer> handler) throws IOException {
+        Path file = path(directory, segment);
+        long records = 0;
+        long valid;
+        CRC32C crc = new CRC32C();
+        try (MappedInput in = new MappedInput(file)) {
+            while (true) {
+                valid = in.position();
+                ByteBuffer header = in.next(HEADER);
+                if (header == null) {
+                    break;
+                }
+                int length = header.getInt();
+                int checksum = header.getInt();
+                ByteBuffer record = length > 0 ? in.next(length) : null;
+                if (record == null) {
+                    break;
+                }
+                crc.reset();
+                crc.update(record.duplicate());
+                if ((int) crc.getValue() != checksum) {
+                    break;
+                }
+                handler.accept(record);
+                records++;
+            }
+        }
+        long size = Files.size(file);
+        if (valid < size) {
+            if (!last) {
+                throw new IOException("Сегмент журнала " + file + " повреждён на позиции " + valid);
+            }
+            log.warn("Отброшен оборванный хвост журнала {}: {} байт.", file, size - valid);
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+                channel.truncate(valid);
+            }
+        }
+        return records;
+    }
+
+    static Path path(Path directory, long segment) {
+        return directory.resolve(String.format("wal-%019d.log", segment));
+    }
+
+    private static FileChannel open(Path directory, long segment) throws IOException {
+        return FileChannel.open(path(directory, segment),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+    }
+
+    private void drain() {
+        buffer.flip();
+        try {
+            write(buffer);
+        } finally {
+            buffer.clear();
+        }
+    }
+
+    private void write(ByteBuffer source) {
+        try {
+            while (source.hasRemaining()) {
+                channel.write(source);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
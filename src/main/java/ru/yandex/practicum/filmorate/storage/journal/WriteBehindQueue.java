@@ -0,0 +1,322 @@
+package ru.yandex.practicum.filmorate.storage.journal;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import ru.yandex.practicum.filmorate.exception.JournalUnavailableException;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.User;
+
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+
+//Отложенная запись в журнал: изменения ставятся в ограниченную очередь, единственный поток-писатель забирает
+//их пакетами до batchSize изменений, оставляет в пакете последнее
+//изменение каждого ключа и сбрасывает пакет на диск одним force (group commit). Записи журнала задают
+//состояние ключа целиком, поэтому повтор пакета после ошибки записи безопасен.
+//При заполненной очереди изменения ждут места до блокировки сущности (awaitCapacity): запись в хранилища
+//замедляется до скорости диска, а под блокировкой изменение только ставится в очередь без ожидания.
+//Запас места сверх capacity покрывает изменения, одновременно прошедшие проверку
+@Slf4j
+class WriteBehindQueue {
+    //Период, с которым простаивающий писатель проверяет остановку
+    private static final long IDLE_POLL_MILLIS = 100;
+    //Попыток записи пакета, после которых журнал считается недоступным
+    private static final int WRITE_ATTEMPTS = 3;
+    private static final long RETRY_PAUSE_MILLIS = 100;
+    private static final long RECOVERY_PAUSE_MILLIS = 1000;
+
+    private final WriteAheadLog wal;
+    private final ArrayBlockingQueue<Change> queue;
+    private final int capacity;
+    private final int batchSize;
+    private final long flushIntervalNanos;
+    private final boolean waitForFlush;
+    //Номер изменения совпадает с его местом в очереди: выдаётся под той же блокировкой, что и место
+    private final ReentrantLock enqueueLock = new ReentrantLock();
+    private final ReentrantLock durableLock = new ReentrantLock();
+    private final Condition flushed = durableLock.newCondition();
+    private final Condition drained = durableLock.newCondition();
+    private final ThreadLocal<long[]> lastSequence = ThreadLocal.withInitial(() -> new long[1]);
+    private final DistributionSummary batchSizes;
+    private final Counter coalesced;
+    private final Counter rejected;
+    private final Counter writeFailures;
+    private final Timer flushes;
+    private final ExecutorService writer;
+    private long enqueued;
+    private volatile long durable;
+    private volatile boolean closed;
+    //Пакет не записан за WRITE_ATTEMPTS попыток: новые изменения отклоняются, пока запись не восстановится
+    private volatile boolean failing;
+
+    WriteBehindQueue(WriteAheadLog wal, int capacity, int batchSize, long flushIntervalMillis,
+                     boolean waitForFlush, MeterRegistry meterRegistry) {
+        this.wal = wal;
+        this.queue = new ArrayBlockingQueue<>(capacity * 2);
+        this.capacity = capacity;
+        this.batchSize = batchSize;
+        this.flushIntervalNanos = TimeUnit.MILLISECONDS.toNanos(flushIntervalMillis);
+        this.waitForFlush = waitForFlush;
+        Gauge.builder("filmorate.journal.queue.depth", queue, ArrayBlockingQueue::size)
+                .description("Изменения, ожидающие записи в журнал")
+                .register(meterRegistry);
+        batchSizes = DistributionSummary.builder("filmorate.journal.batch.size")
+                .description("Изменений в пакете до объединения")
+                .register(meterRegistry);
+        coalesced = meterRegistry.counter("filmorate.journal.coalesced");
+        rejected = meterRegistry.counter("filmorate.journal.rejected");
+        writeFailures = meterRegistry.counter("filmorate.journal.write.failures");
+        flushes = meterRegistry.timer("filmorate.journal.flush");
+        writer = Executors.newSingleThreadExecutor(Thread.ofPlatform().name("filmorate-journal-writer")
+                .daemon().factory());
+        writer.execute(this::run);
+    }
+
+    void filmSaved(Film film) {
+        enqueue(new Change(Records.FILM, film.getId(), 0, film));
+    }
+
+    void userSaved(User user) {
+        enqueue(new Change(Records.USER, user.getId(), 0, user));
+    }
+
+    void pair(byte type, long first, long second) {
+        enqueue(new Change(type, first, second, null));
+    }
+
+    //Ожидание места в очереди; вызывается до блокировки сущности
+    void awaitCapacity() {
+        if (queue.size() < capacity && !failing) {
+            return;
+        }
+        durableLock.lock();
+        try {
+            while (queue.size() >= capacity && !failing) {
+                drained.awaitUninterruptibly();
+            }
+        } finally {
+            durableLock.unlock();
+        }
+        if (failing) {
+            throw unavailable();
+        }
+    }
+
+    //Ожидание записи на диск изменений текущего потока, если включено подтверждение записи
+    void awaitDurable() {
+        if (waitForFlush) {
+            await(lastSequence.get()[0]);
+        }
+    }
+
+    //Ожидание записи на диск всех изменений, поставленных в очередь до вызова
+    void flush() {
+        long sequence;
+        enqueueLock.lock();
+        try {
+            sequence = enqueued;
+        } finally {
+            enqueueLock.unlock();
+        }
+        await(sequence);
+    }
+
+    //Писатель дописывает очередь до конца и останавливается
+    void close() throws InterruptedException {
+        closed = true;
+        writer.shutdown();
+        writer.awaitTermination(1, TimeUnit.MINUTES);
+    }
+
+    //Без ожидания: вызывается под блокировкой сущности. Исключение оставляет изменение неприменённым
+    private void enqueue(Change change) {
+        long sequence;
+        enqueueLock.lock();
+        try {
+            if (failing || !queue.offer(change)) {
+                rejected.increment();
+                throw unavailable();
+            }
+            sequence = ++enqueued;
+        } finally {
+            enqueueLock.unlock();
+        }
+        if (waitForFlush) {
+            lastSequence.get()[0] = sequence;
+        }
+    }
+
+    private void await(long sequence) {
+        if (durable >= sequence) {
+            return;
+        }
+        durableLock.lock();
+        try {
+            while (durable < sequence) {
+                if (failing) {
+                    throw unavailable();
+                }
+                flushed.awaitUninterruptibly();
+            }
+        } finally {
+            durableLock.unlock();
+        }
+    }
+
+    private void run() {
+        List<Change> batch = new ArrayList<>(batchSize);
+        long taken = 0;
+        while (!closed || !queue.isEmpty()) {
+            try {
+                collect(batch);
+            } catch (InterruptedException e) {
+                //Прерывание останавливает только ожидание: накопленный пакет всё равно пишется
+                closed = true;
+            }
+            if (batch.isEmpty()) {
+                continue;
+            }
+            signal(drained);
+            List<Change> changes = coalesce(batch);
+            if (!write(changes)) {
+                log.error("Журнал закрыт при недоступной записи, потеряно изменений: {}.", batch.size() + queue.size());
+                return;
+            }
+            taken += batch.size();
+            batch.clear();
+            durable = taken;
+            signal(flushed);
+        }
+    }
+
+    private void signal(Condition condition) {
+        durableLock.lock();
+        try {
+            condition.signalAll();
+        } finally {
+            durableLock.unlock();
+        }
+    }
+
+    //Пакет набирается до batchSize изменений или до истечения интервала с первого из них. С подтверждением
+    //записи пакет не ждёт: авторы изменений заблокированы до сброса, и в пакет входит всё,
+    //что накопилось за время предыдущего сброса
+    private void collect(List<Change> batch) throws InterruptedException {
+        Change first = queue.poll(IDLE_POLL_MILLIS, TimeUnit.MILLISECONDS);
+        if (first == null) {
+            return;
+        }
+        batch.add(first);
+        long deadline = System.nanoTime() + flushIntervalNanos;
+        queue.drainTo(batch, batchSize - batch.size());
+        while (batch.size() < batchSize && !closed && !waitForFlush) {
+            Change next = queue.poll(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+            if (next == null) {
+                return;
+            }
+            batch.add(next);
+            queue.drainTo(batch, batchSize - batch.size());
+        }
+    }
+
+    //Последнее изменение ключа занимает место первого: фильм или пользователь попадает в журнал раньше
+    //лайков и дружб, которые на него ссылаются
+    private List<Change> coalesce(List<Change> batch) {
+        Map<Key, Integer> positions = new HashMap<>();
+        List<Change> changes = new ArrayList<>(batch.size());
+        for (Change change : batch) {
+            Integer position = positions.putIfAbsent(change.key(), changes.size());
+            if (position == null) {
+                changes.add(change);
+            } else {
+                changes.set(position, change);
+            }
+        }
+        batchSizes.record(batch.size());
+        coalesced.increment(batch.size() - changes.size());
+        return changes;
+    }
+
+    //Пакет повторяется WRITE_ATTEMPTS раз, после чего журнал считается недоступным: новые изменения
+    //и ожидающие подтверждения получают ошибку, очередь не копится, а пакет повторяется реже,
+    //пока запись не восстановится. false - журнал закрыт, так и не записав пакет
+    private boolean write(List<Change> changes) {
+        int attempt = 0;
+        while (true) {
+            long started = System.nanoTime();
+            try {
+                for (Change change : changes) {
+                    wal.append(change.record());
+                }
+                wal.flush(true);
+                flushes.record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+                if (failing) {
+                    failing = false;
+                    log.info("Запись в журнал восстановлена.");
+                }
+                return true;
+            } catch (UncheckedIOException e) {
+                attempt++;
+                if (attempt < WRITE_ATTEMPTS) {
+                    log.warn("Не удалось записать пакет из {} изменений в журнал, повтор.", changes.size(), e);
+                    LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(RETRY_PAUSE_MILLIS));
+                    continue;
+                }
+                if (attempt == WRITE_ATTEMPTS) {
+                    log.error("Журнал недоступен: пакет из {} изменений не записан за {} попыток.",
+                            changes.size(), WRITE_ATTEMPTS, e);
+                    writeFailures.increment();
+                    failing = true;
+                    signal(flushed);
+                    signal(drained);
+                }
+                if (closed) {
+                    return false;
+                }
+                LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(RECOVERY_PAUSE_MILLIS));
+            }
+        }
+    }
+
+    private static JournalUnavailableException unavailable() {
+        return new JournalUnavailableException("Журнал изменений недоступен, изменение не принято");
+    }
+
+    private record Key(byte kind, long first, long second) {
+    }
+
+    private record Change(byte type, long first, long second, Object entity) {
+        Key key() {
+            return switch (type) {
+                case Records.LIKE_ADDED, Records.LIKE_REMOVED -> new Key(Records.LIKE_ADDED, first, second);
+                //Дружба взаимна: добавление (a, b) и удаление (b, a) относятся к одной паре
+                case Records.FRIEND_ADDED, Records.FRIEND_REMOVED ->
+                        new Key(Records.FRIEND_ADDED, Math.min(first, second), Math.max(first, second));
+                default -> new Key(type, first, 0);
+            };
+        }
+
+        ByteBuffer record() {
+            return switch (type) {
+                case Records.FILM -> Records.film((Film) entity);
+                case Records.USER -> Records.user((User) entity);
+                default -> Records.pair(type, first, second);
+            };
+        }
+    }
+}
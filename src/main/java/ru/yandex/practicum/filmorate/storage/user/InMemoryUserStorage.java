@@ -0,0 +1,395 @@
+package ru.yandex.practicum.filmorate.storage.user;
+
+import io.micrometer.core.annotation.Timed;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.exception.PreconditionFailedException;
+import ru.yandex.practicum.filmorate.exception.ValidationException;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.EntityTable;
+import ru.yandex.practicum.filmorate.storage.ObjectTable;
+import ru.yandex.practicum.filmorate.storage.SortedLongArrays;
+import ru.yandex.practicum.filmorate.storage.StorageJournal;
+import ru.yandex.practicum.filmorate.storage.StripedLocks;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Lock;
+import java.util.function.LongPredicate;
+import java.util.function.LongSupplier;
+import java.util.function.UnaryOperator;
+
+@Component
+@Timed("filmorate.storage")
+@Profile("!jdbc")
+@Slf4j
+public class InMemoryUserStorage implements UserStorage {
+
+    //Пользователи объектами модели или, при filmorate.storage.packed=true, в примитивных колонках
+    private final EntityTable<User> users;
+    private final AtomicLong idSequence = new AtomicLong();
+    private final AtomicLong size = new AtomicLong();
+    private final AtomicLong version = new AtomicLong();
+    private final StripedLocks locks = new StripedLocks(64);
+    //Индекс email -> id пользователя, 0 - email зарезервирован создаваемым пользователем
+    private final Map<String, Long> emails = new ConcurrentHashMap<>();
+    //Друзья пользователя - отсортированный массив id, заменяемый целиком при изменении
+    private final Map<Long, long[]> friends = new ConcurrentHashMap<>();
+    private volatile StorageJournal journal = StorageJournal.NONE;
+    //Выдача id в разделённом режиме; null - по порядку из idSequence
+    private volatile LongSupplier idAllocator;
+
+    public InMemoryUserStorage() {
+        this(false);
+    }
+
+    @Autowired
+    public InMemoryUserStorage(@Value("${filmorate.storage.packed:false}") boolean packed) {
+        users = packed ? new PackedUserTable() : new ObjectTable<>(User::getId);
+    }
+
+    @Override
+    public long getVersion() {
+        return version.get();
+    }
+
+    @Override
+    public long count() {
+        return size.get();
+    }
+
+    @Override
+    public Collection<User> findAll() {
+        return users.values();
+    }
+
+    @Override
+    public List<User> findPage(long after, int limit) {
+        return users.page(after, limit);
+    }
+
+    @Override
+    public Optional<User> findById(long id) {
+        return Optional.ofNullable(users.get(id));
+    }
+
+    @Override
+    public User create(User user) {
+        if (emails.putIfAbsent(user.getEmail(), 0L) != null) {
+            throw duplicatedEmail(user.getEmail());
+        }
+        user.setId(getNextId());
+        try {
+            insert(user);
+        } catch (RuntimeException e) {
+            //Пользователь не сохранён (например, дата вне диапазона колоночной таблицы) - email снова свободен
+            emails.remove(user.getEmail(), 0L);
+            throw e;
+        }
+        emails.put(user.getEmail(), user.getId());
+        version.incrementAndGet();
+        journal.awaitDurable();
+        return user;
+    }
+
+    @Override
+    public List<User> createAll(List<User> newUsers) {
+        List<User> accepted = new ArrayList<>(newUsers.size());
+        for (User user : newUsers) {
+            if (emails.putIfAbsent(user.getEmail(), 0L) == null) {
+                accepted.add(user);
+            } else {
+                log.warn("Попытка использовать email, который уже есть в базе - {}.", user.getEmail());
+            }
+        }
+        LongSupplier allocator = idAllocator;
+        long id = allocator == null ? idSequence.getAndAdd(accepted.size()) : 0;
+        int inserted = 0;
+        try {
+            for (User user : accepted) {
+                user.setId(allocator == null ? ++id : allocator.getAsLong());
+                insert(user);
+                emails.put(user.getEmail(), user.getId());
+                inserted++;
+            }
+        } catch (RuntimeException e) {
+            //Уже сохранённые пользователи остаются, email несохранённых освобождаются
+            for (User user : accepted.subList(inserted, accepted.size())) {
+                emails.remove(user.getEmail(), 0L);
+            }
+            version.incrementAndGet();
+            throw e;
+        }
+        version.incrementAndGet();
+        journal.awaitDurable();
+        return accepted;
+    }
+
+    @Override
+    public Optional<User> update(long id, LongPredicate versionMatches, UnaryOperator<User> updater) {
+        Optional<User> updated = updateLocked(id, versionMatches, updater);
+        journal.awaitDurable();
+        return updated;
+    }
+
+    private Optional<User> updateLocked(long id, LongPredicate versionMatches, UnaryOperator<User> updater) {
+        journal.awaitCapacity();
+        Lock lock = locks.get(id);
+        lock.lock();
+        try {
+            User current = users.get(id);
+            if (current == null) {
+                return Optional.empty();
+            }
+            if (!versionMatches.test(current.getVersion())) {
+                throw new PreconditionFailedException(
+                        "Пользователь с id " + id + " изменён, текущая версия " + current.getVersion());
+            }
+            //Хранимый пользователь не изменяется: читатели без блокировки видят либо старую, либо новую копию
+            User updated = updater.apply(current.toBuilder().build());
+            updated.setVersion(current.getVersion() + 1);
+            boolean emailChanged = !Objects.equals(current.getEmail(), updated.getEmail());
+            if (emailChanged) {
+                Long owner = emails.putIfAbsent(updated.getEmail(), id);
+                if (owner != null && owner != id) {
+                    throw duplicatedEmail(updated.getEmail());
+                }
+            }
+            //Прежний email освобождается только после записи: если таблица отклонит пользователя
+            //или журнал не примет запись, возвращается прежняя копия со старым email, а новый снова свободен
+            try {
+                users.put(updated);
+                journal.userSaved(updated);
+            } catch (RuntimeException e) {
+                users.put(current);
+                if (emailChanged) {
+                    emails.remove(updated.getEmail(), id);
+                }
+                throw e;
+            }
+            if (emailChanged) {
+                emails.remove(current.getEmail(), id);
+            }
+            version.incrementAndGet();
+            return Optional.of(updated);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    //Блокировка пары упорядочивает запись в журнал добавления и удаления одной дружбы
+    @Override
+    public void addFriend(long userId, long friendId) {
+        journal.awaitCapacity();
+        Lock lock = locks.get(Math.min(userId, friendId));
+        lock.lock();
+        try {
+            //Дружба пишется в журнал до того, как станет видна: при ошибке журнала она не применяется
+            journal.friendAdded(userId, friendId);
+            friends.merge(userId, new long[]{friendId}, (ids, added) -> SortedLongArrays.insert(ids, friendId));
+            friends.merge(friendId, new long[]{userId}, (ids, added) -> SortedLongArrays.insert(ids, userId));
+        } finally {
+            lock.unlock();
+        }
+        journal.awaitDurable();
+    }
+
+    @Override
+    public void removeFriend(long userId, long friendId) {
+        journal.awaitCapacity();
+        Lock lock = locks.get(Math.min(userId, friendId));
+        lock.lock();
+        try {
+            journal.friendRemoved(userId, friendId);
+            friends.computeIfPresent(userId, (id, ids) -> SortedLongArrays.remove(ids, friendId));
+            friends.computeIfPresent(friendId, (id, ids) -> SortedLongArrays.remove(ids, userId));
+        } finally {
+            lock.unlock();
+        }
+        journal.awaitDurable();
+    }
+
+    @Override
+    public List<User> findFriends(long userId) {
+        return toUsers(friends.getOrDefault(userId, SortedLongArrays.EMPTY));
+    }
+
+    @Override
+    public List<User> findCommonFriends(long userId, long otherId) {
+        return toUsers(SortedLongArrays.intersect(
+                friends.getOrDefault(userId, SortedLongArrays.EMPTY),
+                friends.getOrDefault(otherId, SortedLongArrays.EMPTY)
+        ));
+    }
+
+    //Изменения после подключения журнала передаются в него
+    public void setJournal(StorageJournal journal) {
+        this.journal = journal;
+    }
+
+    //Восстановление пользователя из снимка или журнала с сохранённым id, без записи в журнал
+    public void restore(User user) {
+        Lock lock = locks.get(user.getId());
+        lock.lock();
+        try {
+            User current = users.get(user.getId());
+            if (current != null) {
+                emails.remove(current.getEmail(), current.getId());
+            }
+            users.put(user);
+            emails.put(user.getEmail(), user.getId());
+            if (current == null) {
+                size.incrementAndGet();
+            }
+            idSequence.accumulateAndGet(user.getId(), Math::max);
+            version.incrementAndGet();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void forEachFriends(FriendsConsumer consumer) {
+        friends.forEach((userId, friendIds) -> {
+            if (friendIds.length > 0) {
+                consumer.accept(userId, friendIds);
+            }
+        });
+    }
+
+    //Пользователь с друзьями, переданный другим узлом при перебалансировке. Заменяет локальную копию,
+    //если она не новее. Друзья объединяются с локальными, как лайки при переносе фильма.
+    //Возвращает false, если локальная копия новее
+    public boolean importUser(User user, long[] friendIds) {
+        Lock lock = locks.get(user.getId());
+        lock.lock();
+        try {
+            User current = users.get(user.getId());
+            boolean newer = current == null || current.getVersion() <= user.getVersion();
+            if (current == null) {
+                size.incrementAndGet();
+            } else if (newer) {
+                emails.remove(current.getEmail(), current.getId());
+            }
+            if (newer) {
+                users.put(user);
+                emails.put(user.getEmail(), user.getId());
+                version.incrementAndGet();
+            }
+            long[] merged = friends.getOrDefault(user.getId(), SortedLongArrays.EMPTY);
+            for (long friendId : friendIds) {
+                merged = SortedLongArrays.insert(merged, friendId);
+            }
+            friends.put(user.getId(), merged);
+            return newer;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    //Удаление пользователя, переданного другому узлу, если после передачи он не изменился
+    public boolean evict(long id, long expectedVersion, long[] expectedFriends) {
+        Lock lock = locks.get(id);
+        lock.lock();
+        try {
+            User current = users.get(id);
+            if (current == null || current.getVersion() != expectedVersion
+                    || !Arrays.equals(friendsOf(id), expectedFriends)) {
+                return false;
+            }
+            users.remove(id);
+            emails.remove(current.getEmail(), id);
+            friends.remove(id);
+            size.decrementAndGet();
+            version.incrementAndGet();
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    //Одна сторона дружбы: в разделённом режиме друзья пользователя хранятся на узле пользователя
+    public void linkFriend(long userId, long friendId) {
+        Lock lock = locks.get(userId);
+        lock.lock();
+        try {
+            friends.merge(userId, new long[]{friendId}, (ids, added) -> SortedLongArrays.insert(ids, friendId));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void unlinkFriend(long userId, long friendId) {
+        Lock lock = locks.get(userId);
+        lock.lock();
+        try {
+            friends.computeIfPresent(userId, (id, ids) -> SortedLongArrays.remove(ids, friendId));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    //Выдача id для новых пользователей вместо порядкового номера
+    public void setIdAllocator(LongSupplier idAllocator) {
+        this.idAllocator = idAllocator;
+    }
+
+    public long[] friendsOf(long userId) {
+        return friends.getOrDefault(userId, SortedLongArrays.EMPTY);
+    }
+
+    //Друзья пользователя из снимка; снимок содержит обе стороны каждой дружбы
+    public void restoreFriends(long userId, long[] friendIds) {
+        friends.put(userId, friendIds);
+    }
+
+    //Пользователь с только что выданным id; блокировка упорядочивает запись в журнал с первым обновлением.
+    //Если журнал не принял запись, пользователь убирается
+    private void insert(User user) {
+        journal.awaitCapacity();
+        Lock lock = locks.get(user.getId());
+        lock.lock();
+        try {
+            user.setVersion(1);
+            users.put(user);
+            try {
+                journal.userSaved(user);
+            } catch (RuntimeException e) {
+                users.remove(user.getId());
+                throw e;
+            }
+        } finally {
+            lock.unlock();
+        }
+        size.incrementAndGet();
+    }
+
+    private List<User> toUsers(long[] ids) {
+        List<User> result = new ArrayList<>(ids.length);
+        for (long id : ids) {
+            result.add(users.get(id));
+        }
+        return result;
+    }
+
+    private ValidationException duplicatedEmail(String email) {
+        log.warn("Попытка использовать email, который уже есть в базе - {}.", email);
+        return new ValidationException("Пользователь с email " + email + " уже существует");
+    }
+
+    //Генерация id
+    private long getNextId() {
+        LongSupplier allocator = idAllocator;
+        return allocator == null ? idSequence.incrementAndGet() : allocator.getAsLong();
+    }
+}
@@ -0,0 +1,331 @@
+package ru.yandex.practicum.filmorate.storage.user;
+
+import io.micrometer.core.annotation.Timed;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.KeyHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.yandex.practicum.filmorate.exception.PreconditionFailedException;
+import ru.yandex.practicum.filmorate.exception.ValidationException;
+import ru.yandex.practicum.filmorate.model.User;
+
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongPredicate;
+import java.util.function.UnaryOperator;
+
+//Хранилище пользователей в базе данных, включается профилем jdbc
+@Component
+@Timed("filmorate.storage")
+@Profile("jdbc")
+@Slf4j
+@RequiredArgsConstructor
+public class JdbcUserStorage implements UserStorage {
+    private static final String COLUMNS = "id, version, email, login, name, birthday";
+    private static final String PREFIXED_COLUMNS = "u.id, u.version, u.email, u.login, u.name, u.birthday";
+    private static final String INSERT = "INSERT INTO users (email, login, name, birthday) VALUES (?, ?, ?, ?)";
+
+    private final NamedParameterJdbcTemplate namedJdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    //Версия в памяти процесса: изменения, сделанные в базе в обход приложения, её не увеличивают
+    private final AtomicLong version = new AtomicLong();
+    @Value("${filmorate.jdbc.batch-size:1000}")
+    private int batchSize = 1000;
+
+    @Override
+    public long getVersion() {
+        return version.get();
+    }
+
+    @Override
+    public long count() {
+        return namedJdbcTemplate.getJdbcTemplate().queryForObject("SELECT COUNT(*) FROM users", Long.class);
+    }
+
+    @Override
+    public Collection<User> findAll() {
+        return namedJdbcTemplate.getJdbcTemplate()
+                .query("SELECT " + COLUMNS + " FROM users ORDER BY id", JdbcUserStorage::mapRow);
+    }
+
+    @Override
+    public List<User> findPage(long after, int limit) {
+        return namedJdbcTemplate.getJdbcTemplate().query(
+                "SELECT " + COLUMNS + " FROM users WHERE id > ? ORDER BY id LIMIT ?",
+                JdbcUserStorage::mapRow,
+                after,
+                limit
+        );
+    }
+
+    @Override
+    public Optional<User> findById(long id) {
+        return namedJdbcTemplate.getJdbcTemplate()
+                .query("SELECT " + COLUMNS + " FROM users WHERE id = ?", JdbcUserStorage::mapRow, id)
+                .stream()
+                .findFirst();
+    }
+
+    @Override
+    public User create(User user) {
+        KeyHolder keyHolder = new GeneratedKeyHolder();
+        try {
+            namedJdbcTemplate.getJdbcTemplate().update(connection -> {
+                PreparedStatement statement = connection.prepareStatement(INSERT, new String[]{"id"});
+                bind(statement, user);
+                return statement;
+            }, keyHolder);
+        } catch (DuplicateKeyException e) {
+            throw duplicatedEmail(user.getEmail());
+        }
+        user.setId(keyHolder.getKeyAs(Long.class));
+        user.setVersion(1);
+        version.incrementAndGet();
+        return user;
+    }
+
+    @Override
+    public List<User> createAll(List<User> users) {
+        try {
+            return transactionTemplate.execute(status -> {
+                List<User> accepted = new ArrayList<>(users.size());
+                Set<String> seen = new HashSet<>();
+                for (int from = 0; from < users.size(); from += batchSize) {
+                    List<User> chunk = users.subList(from, Math.min(from + batchSize, users.size()));
+                    Set<String> taken = findTakenEmails(chunk);
+                    List<User> batch = new ArrayList<>(chunk.size());
+                    for (User user : chunk) {
+                        if (!taken.contains(user.getEmail()) && seen.add(user.getEmail())) {
+                            batch.add(user);
+                        } else {
+                            log.warn("Попытка использовать email, который уже есть в базе - {}.", user.getEmail());
+                        }
+                    }
+                    insertBatch(batch);
+                    accepted.addAll(batch);
+                }
+                version.incrementAndGet();
+                return accepted;
+            });
+        } catch (DuplicateKeyException e) {
+            //email занят параллельной вставкой, пакет откатился - добавляем по одному
+            List<User> accepted = new ArrayList<>(users.size());
+            for (User user : users) {
+                try {
+                    accepted.add(create(user));
+                } catch (ValidationException ignored) {
+                    // пользователь с таким email уже есть
+                }
+            }
+            return accepted;
+        }
+    }
+
+    @Override
+    public Optional<User> update(long id, LongPredicate versionMatches, UnaryOperator<User> updater) {
+        return transactionTemplate.execute(status -> {
+            Optional<User> current = namedJdbcTemplate.getJdbcTemplate().query(
+                    "SELECT " + COLUMNS + " FROM users WHERE id = ? FOR UPDATE",
+                    JdbcUserStorage::mapRow,
+                    id
+            ).stream().findFirst();
+            if (current.isEmpty()) {
+                return Optional.empty();
+            }
+            long currentVersion = current.get().getVersion();
+            if (!versionMatches.test(currentVersion)) {
+                throw new PreconditionFailedException(
+                        "Пользователь с id " + id + " изменён, текущая версия " + currentVersion);
+            }
+            User updated = updater.apply(current.get());
+            updated.setVersion(currentVersion + 1);
+            try {
+                namedJdbcTemplate.getJdbcTemplate().update(
+                        "UPDATE users SET email = ?, login = ?, name = ?, birthday = ?, version = ? WHERE id = ?",
+                        statement -> {
+                            bind(statement, updated);
+                            statement.setLong(5, updated.getVersion());
+                            statement.setLong(6, id);
+                        }
+                );
+            } catch (DuplicateKeyException e) {
+                throw duplicatedEmail(updated.getEmail());
+            }
+            version.incrementAndGet();
+            return Optional.of(updated);
+        });
+    }
+
+    @Override
+    public void addFriend(long userId, long friendId) {
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                insertFriendship(userId, friendId);
+                insertFriendship(friendId, userId);
+            });
+        } catch (DuplicateKeyException ignored) {
+            // та же дружба параллельно добавлена другим запросом
+        }
+    }
+
+    @Override
+    public void removeFriend(long userId, long friendId) {
+        namedJdbcTemplate.update(
+                "DELETE FROM friendships WHERE (user_id = :user AND friend_id = :friend) "
+                        + "OR (user_id = :friend AND friend_id = :user)",
+                Map.of("user", userId, "friend", friendId)
+        );
+    }
+
+    @Override
+    public List<User> findFriends(long userId) {
+        return namedJdbcTemplate.getJdbcTemplate().query(
+                "SELECT " + PREFIXED_COLUMNS + " FROM friendships f JOIN users u ON u.id = f.friend_id "
+                        + "WHERE f.user_id = ? ORDER BY u.id",
+                JdbcUserStorage::mapRow,
+                userId
+        );
+    }
+
+    //Пересечение выполняет база по первичному ключу (user_id, friend_id) обеих сторон
+    @Override
+    public List<User> findCommonFriends(long userId, long otherId) {
+        return namedJdbcTemplate.getJdbcTemplate().query(
+                "SELECT " + PREFIXED_COLUMNS + " FROM friendships f "
+                        + "JOIN friendships o ON o.friend_id = f.friend_id AND o.user_id = ? "
+                        + "JOIN users u ON u.id = f.friend_id "
+                        + "WHERE f.user_id = ? ORDER BY u.id",
+                JdbcUserStorage::mapRow,
+                otherId,
+                userId
+        );
+    }
+
+    @Override
+    public void forEachFriends(FriendsConsumer consumer) {
+        FriendsGrouper grouper = new FriendsGrouper(consumer);
+        namedJdbcTemplate.getJdbcTemplate()
+                .query("SELECT user_id, friend_id FROM friendships ORDER BY user_id, friend_id", grouper);
+        grouper.flush();
+    }
+
+    private void insertFriendship(long userId, long friendId) {
+        namedJdbcTemplate.getJdbcTemplate().update(
+                "INSERT INTO friendships (user_id, friend_id) SELECT ?, ? "
+                        + "WHERE NOT EXISTS (SELECT 1 FROM friendships WHERE user_id = ? AND friend_id = ?)",
+                userId, friendId, userId, friendId
+        );
+    }
+
+    private Set<String> findTakenEmails(List<User> chunk) {
+        List<String> emails = chunk.stream().map(User::getEmail).toList();
+        return new HashSet<>(namedJdbcTemplate.queryForList(
+                "SELECT email FROM users WHERE email IN (:emails)",
+                Map.of("emails", emails),
+                String.class
+        ));
+    }
+
+    private void insertBatch(List<User> batch) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        KeyHolder keyHolder = new GeneratedKeyHolder();
+        namedJdbcTemplate.getJdbcTemplate().batchUpdate(
+                connection -> connection.prepareStatement(INSERT, new String[]{"id"}),
+                new BatchPreparedStatementSetter() {
+                    @Override
+                    public void setValues(PreparedStatement statement, int i) throws SQLException {
+                        bind(statement, batch.get(i));
+                    }
+
+                    @Override
+                    public int getBatchSize() {
+                        return batch.size();
+                    }
+                },
+                keyHolder
+        );
+        List<Map<String, Object>> keys = keyHolder.getKeyList();
+        for (int i = 0; i < batch.size(); i++) {
+            batch.get(i).setId(((Number) keys.get(i).get("id")).longValue());
+            batch.get(i).setVersion(1);
+        }
+    }
+
+    private ValidationException duplicatedEmail(String email) {
+        log.warn("Попытка использовать email, который уже есть в базе - {}.", email);
+        return new ValidationException("Пользователь с email " + email + " уже существует");
+    }
+
+    private static void bind(PreparedStatement statement, User user) throws SQLException {
+        statement.setString(1, user.getEmail());
+        statement.setString(2, user.getLogin());
+        statement.setString(3, user.getName());
+        statement.setObject(4, user.getBirthday() == null ? null : Date.valueOf(user.getBirthday()), Types.DATE);
+    }
+
+    private static User mapRow(ResultSet rs, int rowNum) throws SQLException {
+        Date birthday = rs.getDate("birthday");
+        return User.builder()
+                .id(rs.getLong("id"))
+                .version(rs.getLong("version"))
+                .email(rs.getString("email"))
+                .login(rs.getString("login"))
+                .name(rs.getString("name"))
+                .birthday(birthday == null ? null : birthday.toLocalDate())
+                .build();
+    }
+
+    //Строки дружбы одного пользователя идут подряд и собираются в один массив
+    private static final class FriendsGrouper implements RowCallbackHandler {
+        private final FriendsConsumer consumer;
+        private long userId;
+        private long[] friendIds = new long[16];
+        private int size;
+
+        FriendsGrouper(FriendsConsumer consumer) {
+            this.consumer = consumer;
+        }
+
+        @Override
+        public void processRow(ResultSet rs) throws SQLException {
+            long rowUserId = rs.getLong(1);
+            if (rowUserId != userId) {
+                flush();
+                userId = rowUserId;
+            }
+            if (size == friendIds.length) {
+                friendIds = Arrays.copyOf(friendIds, size * 2);
+            }
+            friendIds[size++] = rs.getLong(2);
+        }
+
+        void flush() {
+            if (size > 0) {
+                consumer.accept(userId, Arrays.copyOf(friendIds, size));
+                size = 0;
+            }
+        }
+    }
+}
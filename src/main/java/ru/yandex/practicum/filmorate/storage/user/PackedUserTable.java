@@ -0,0 +1,107 @@
+package ru.yandex.practicum.filmorate.storage.user;
+
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.PackedTable;
+import ru.yandex.practicum.filmorate.storage.StringArena;
+
+import java.util.Arrays;
+
+//Пользователи в колонках: 37 байт на пользователя плюс email, логин и имя в UTF-8
+class PackedUserTable extends PackedTable<User, PackedUserTable.Row> {
+
+    //Колонки заменяются целиком при росте, поэтому оптимистичный читатель видит массивы одной длины
+    private Columns columns = new Columns(INITIAL_CAPACITY);
+
+    @Override
+    protected long idOf(User user) {
+        return user.getId();
+    }
+
+    @Override
+    protected int capacity() {
+        return columns.present.length;
+    }
+
+    @Override
+    protected void grow(int capacity) {
+        columns = columns.copyOf(capacity);
+    }
+
+    @Override
+    protected void write(int slot, User user) {
+        //Дата проверяется до записи строк, чтобы исключение не оставило строку таблицы наполовину изменённой
+        int epochDay = toEpochDay(user.getBirthday());
+        Columns c = columns;
+        boolean replace = c.present[slot];
+        c.emails[slot] = strings.add(user.getEmail(), replace ? c.emails[slot] : StringArena.NULL);
+        c.logins[slot] = strings.add(user.getLogin(), replace ? c.logins[slot] : StringArena.NULL);
+        c.names[slot] = strings.add(user.getName(), replace ? c.names[slot] : StringArena.NULL);
+        c.versions[slot] = user.getVersion();
+        c.birthdays[slot] = epochDay;
+        c.present[slot] = true;
+    }
+
+    @Override
+    protected void clear(int slot) {
+        columns.present[slot] = false;
+    }
+
+    @Override
+    protected Row read(int slot) {
+        Columns c = columns;
+        if (slot >= c.present.length || !c.present[slot]) {
+            return null;
+        }
+        return new Row(slot + 1L, c.versions[slot], c.emails[slot], c.logins[slot], c.names[slot], c.birthdays[slot]);
+    }
+
+    @Override
+    protected User decode(Row row) {
+        return User.builder()
+                .id(row.id())
+                .version(row.version())
+                .email(strings.get(row.email()))
+                .login(strings.get(row.login()))
+                .name(strings.get(row.name()))
+                .birthday(fromEpochDay(row.birthday()))
+                .build();
+    }
+
+    record Row(long id, long version, long email, long login, long name, int birthday) {
+    }
+
+    private static final class Columns {
+        final boolean[] present;
+        final long[] versions;
+        final long[] emails;
+        final long[] logins;
+        final long[] names;
+        final int[] birthdays;
+
+        Columns(int capacity) {
+            this(new boolean[capacity], new long[capacity], new long[capacity], new long[capacity], new long[capacity],
+                    new int[capacity]);
+        }
+
+        private Columns(boolean[] present, long[] versions, long[] emails, long[] logins, long[] names,
+                        int[] birthdays) {
+            this.present = present;
+            this.versions = versions;
+            this.emails = emails;
+            this.logins = logins;
+            this.names = names;
+            this.birthdays = birthdays;
+        }
+
+        Columns copyOf(int capacity) {
+            return new Columns(
+                    Arrays.copyOf(present, capacity),
+                    Arrays.copyOf(versions, capacity),
+                    Arrays.copyOf(emails, capacity),
+                    Arrays.copyOf(logins, capacity),
+                    Arrays.copyOf(names, capacity),
+                    Arrays.copyOf(birthdays, capacity)
+            );
+        }
+    }
+}
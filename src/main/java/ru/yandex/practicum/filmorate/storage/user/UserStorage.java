@@ -0,0 +1,56 @@
+package ru.yandex.practicum.filmorate.storage.user;
+
+import ru.yandex.practicum.filmorate.model.User;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.LongPredicate;
+import java.util.function.UnaryOperator;
+
+//Хранилище пользователей
+public interface UserStorage {
+    //Версия данных, увеличивается при каждом создании и изменении пользователей
+    long getVersion();
+
+    long count();
+
+    Collection<User> findAll();
+
+    //Страница в порядке возрастания id, начиная со следующего после after
+    List<User> findPage(long after, int limit);
+
+    Optional<User> findById(long id);
+
+    User create(User user);
+
+    //Создаёт пользователей одной операцией с непрерывным диапазоном id.
+    //Пользователи с уже занятым email пропускаются и не попадают в результат
+    List<User> createAll(List<User> users);
+
+    //Атомарно применяет изменения к копии пользователя и сохраняет результат с версией на единицу больше.
+    //Если versionMatches отклоняет текущую версию, бросается PreconditionFailedException
+    Optional<User> update(long id, LongPredicate versionMatches, UnaryOperator<User> updater);
+
+    default Optional<User> update(long id, UnaryOperator<User> updater) {
+        return update(id, version -> true, updater);
+    }
+
+    //Дружба взаимная: пользователи добавляются в друзья друг к другу
+    void addFriend(long userId, long friendId);
+
+    void removeFriend(long userId, long friendId);
+
+    //Друзья в порядке возрастания id
+    List<User> findFriends(long userId);
+
+    List<User> findCommonFriends(long userId, long otherId);
+
+    //Друзья всех пользователей, у которых они есть: id пользователя и id друзей по возрастанию
+    void forEachFriends(FriendsConsumer consumer);
+
+    @FunctionalInterface
+    interface FriendsConsumer {
+        void accept(long userId, long[] friendIds);
+    }
+}
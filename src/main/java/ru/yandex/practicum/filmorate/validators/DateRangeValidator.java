@@ -1,13 +1,22 @@
 package ru.yandex.practicum.filmorate.validators;
 
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Timer;
 import jakarta.validation.ConstraintValidator;
 import jakarta.validation.ConstraintValidatorContext;
 
 import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
+import java.util.concurrent.TimeUnit;
 
 public class DateRangeValidator implements ConstraintValidator<DateRange, LocalDate> {
 
+    //Валидатор создаёт Hibernate Validator, поэтому таймер регистрируется в глобальном реестре,
+    //к которому Spring Boot подключает свои реестры
+    private static final Timer TIMER = Timer.builder("filmorate.validation.constraint")
+            .tag("constraint", "DateRange")
+            .register(Metrics.globalRegistry);
+
     private LocalDate minDate;
 
     @Override
@@ -18,9 +27,14 @@ public class DateRangeValidator implements ConstraintValidator<DateRange, LocalD
 
     @Override
     public boolean isValid(LocalDate value, ConstraintValidatorContext context) {
-        if (value == null) {
-            return true;
+        long start = System.nanoTime();
+        try {
+            if (value == null) {
+                return true;
+            }
+            return value.isAfter(minDate);
+        } finally {
+            TIMER.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
         }
-        return value.isAfter(minDate);
     }
 }
\ No newline at end of file
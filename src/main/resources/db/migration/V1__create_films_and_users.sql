@@ -0,0 +1,16 @@
+CREATE TABLE films (
+    id             BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    name           VARCHAR(255) NOT NULL,
+    description    VARCHAR(200),
+    release_date   DATE,
+    duration_nanos BIGINT
+);
+
+CREATE TABLE users (
+    id       BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    email    VARCHAR(255) NOT NULL,
+    login    VARCHAR(255) NOT NULL,
+    name     VARCHAR(255),
+    birthday DATE,
+    CONSTRAINT users_email_uq UNIQUE (email)
+);
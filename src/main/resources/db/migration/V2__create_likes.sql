@@ -0,0 +1,10 @@
+ALTER TABLE films ADD COLUMN like_count INT NOT NULL DEFAULT 0;
+
+CREATE TABLE likes (
+    film_id BIGINT NOT NULL REFERENCES films (id) ON DELETE CASCADE,
+    user_id BIGINT NOT NULL REFERENCES users (id) ON DELETE CASCADE,
+    PRIMARY KEY (film_id, user_id)
+);
+
+-- Счётчик лайков обновляется вместе с таблицей likes, рейтинг читается по индексу без сортировки
+CREATE INDEX films_popularity_idx ON films (like_count DESC, id);
@@ -0,0 +1,6 @@
+-- Дружба взаимная, поэтому хранится двумя строками - по одной на каждого пользователя
+CREATE TABLE friendships (
+    user_id   BIGINT NOT NULL REFERENCES users (id) ON DELETE CASCADE,
+    friend_id BIGINT NOT NULL REFERENCES users (id) ON DELETE CASCADE,
+    PRIMARY KEY (user_id, friend_id)
+);
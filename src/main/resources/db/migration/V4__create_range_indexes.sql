@@ -0,0 +1,2 @@
+CREATE INDEX films_release_date_idx ON films (release_date, id);
+CREATE INDEX films_duration_idx ON films (duration_nanos, id);
@@ -0,0 +1,197 @@
+package ru.yandex.practicum.filmorate.catalog;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.validation.Validation;
+import jakarta.validation.ValidatorFactory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.controller.BatchValidator;
+import ru.yandex.practicum.filmorate.feed.ChangeFeed;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.film.InMemoryFilmStorage;
+import ru.yandex.practicum.filmorate.storage.user.InMemoryUserStorage;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+//Выгрузка и загрузка каталога: перенос сущностей и связей с новыми id, проверка при загрузке
+class CatalogTransferTest {
+    private BatchValidator validator;
+    private final List<CatalogTransfer> transfers = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        try (ValidatorFactory factory = Validation.buildDefaultValidatorFactory()) {
+            validator = new BatchValidator(factory.getValidator(), new SimpleMeterRegistry());
+        }
+    }
+
+    @AfterEach
+    void tearDown() {
+        transfers.forEach(CatalogTransfer::stop);
+    }
+
+    @Test
+    void shouldTransferCatalogWithNewIds() throws IOException {
+        for (boolean compress : List.of(false, true)) {
+            InMemoryFilmStorage sourceFilms = new InMemoryFilmStorage();
+            InMemoryUserStorage sourceUsers = new InMemoryUserStorage();
+            List<User> users = new ArrayList<>();
+            for (int i = 0; i < 10; i++) {
+                users.add(sourceUsers.create(user("user" + i)));
+            }
+            List<Film> films = new ArrayList<>();
+            for (int i = 0; i < 10; i++) {
+                films.add(sourceFilms.create(film("Фильм " + i, LocalDate.of(2000, 1, 1).plusDays(i))));
+            }
+            sourceUsers.addFriend(users.get(0).getId(), users.get(1).getId());
+            sourceUsers.addFriend(users.get(0).getId(), users.get(9).getId());
+            sourceFilms.addLike(films.get(3).getId(), users.get(0).getId());
+            sourceFilms.addLike(films.get(3).getId(), users.get(5).getId());
+            sourceFilms.addLike(films.get(7).getId(), users.get(5).getId());
+            byte[] catalog = export(sourceFilms, sourceUsers, compress);
+
+            InMemoryFilmStorage films2 = new InMemoryFilmStorage();
+            InMemoryUserStorage users2 = new InMemoryUserStorage();
+            //Уже занятые id сдвигают id загруженных сущностей
+            users2.create(user("existing"));
+            films2.create(film("Существующий", LocalDate.of(2000, 1, 1)));
+            ImportReport report = importInto(films2, users2, catalog);
+
+            assertEquals(10, report.films());
+            assertEquals(10, report.users());
+            assertEquals(3, report.likes());
+            assertEquals(2, report.friendships());
+            assertEquals(0, report.rejectedFilms() + report.rejectedUsers() + report.skippedRelations());
+            assertEquals(11, users2.count());
+            assertEquals(11, films2.count());
+            //Кадры сохраняются параллельно, поэтому порядок новых id между кадрами не определён
+            User first = users2.findAll().stream()
+                    .filter(user -> user.getEmail().equals("user0@mail.ru"))
+                    .findFirst()
+                    .orElseThrow();
+            assertNotEquals(users.getFirst().getId(), first.getId());
+            assertEquals("user0", first.getName());
+            assertEquals(List.of("user1@mail.ru", "user9@mail.ru"),
+                    users2.findFriends(first.getId()).stream().map(User::getEmail).sorted().toList());
+            List<Film> popular = films2.findPopular(2);
+            assertEquals(List.of("Фильм 3", "Фильм 7"), popular.stream().map(Film::getName).toList());
+            Film film = popular.getFirst();
+            assertEquals("Описание", film.getDescription());
+            assertEquals(LocalDate.of(2000, 1, 4), film.getReleaseDate());
+            assertEquals(Duration.ofMinutes(90), film.getDuration());
+        }
+    }
+
+    @Test
+    void shouldRejectInvalidFilmsAndTakenEmails() throws IOException {
+        InMemoryFilmStorage sourceFilms = new InMemoryFilmStorage();
+        InMemoryUserStorage sourceUsers = new InMemoryUserStorage();
+        User taken = sourceUsers.create(user("taken"));
+        User free = sourceUsers.create(user("free"));
+        Film early = sourceFilms.create(film("Ранний", LocalDate.of(1895, 12, 27)));
+        Film valid = sourceFilms.create(film("Первый", LocalDate.of(1895, 12, 28)));
+        sourceFilms.addLike(early.getId(), free.getId());
+        sourceFilms.addLike(valid.getId(), taken.getId());
+        sourceFilms.addLike(valid.getId(), free.getId());
+        byte[] catalog = export(sourceFilms, sourceUsers, false);
+
+        InMemoryFilmStorage films = new InMemoryFilmStorage();
+        InMemoryUserStorage users = new InMemoryUserStorage();
+        users.create(user("taken"));
+        ImportReport report = importInto(films, users, catalog);
+
+        assertEquals(1, report.films());
+        assertEquals(1, report.rejectedFilms());
+        assertEquals(1, report.users());
+        assertEquals(1, report.rejectedUsers());
+        assertEquals(1, report.likes());
+        assertEquals(2, report.skippedRelations());
+        assertEquals(2, report.errors().size());
+        assertTrue(report.errors().stream().anyMatch(error -> error.contains("releaseDate")));
+        assertTrue(report.errors().stream().anyMatch(error -> error.contains("taken@mail.ru")));
+        assertEquals(List.of("Первый"), films.findPopular(10).stream().map(Film::getName).toList());
+    }
+
+    @Test
+    void shouldFailOnTruncatedOrForeignStream() throws IOException {
+        InMemoryFilmStorage films = new InMemoryFilmStorage();
+        InMemoryUserStorage users = new InMemoryUserStorage();
+        for (int i = 0; i < 5; i++) {
+            users.create(user("user" + i));
+        }
+        byte[] catalog = export(films, users, true);
+
+        assertThrows(IOException.class, () -> importInto(new InMemoryFilmStorage(), new InMemoryUserStorage(),
+                Arrays.copyOf(catalog, catalog.length - 1)));
+        assertThrows(IOException.class, () -> importInto(new InMemoryFilmStorage(), new InMemoryUserStorage(),
+                "{\"films\":[]}".getBytes()));
+    }
+
+    @Test
+    void shouldRejectFrameWithMoreRecordsThanBytes() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        WritableByteChannel channel = Channels.newChannel(out);
+        CatalogFormat.writeHeader(channel, false);
+        channel.write(ByteBuffer.allocate(CatalogFormat.FRAME_HEADER_SIZE)
+                .put(CatalogFormat.USERS)
+                .putInt(Integer.MAX_VALUE)
+                .putInt(0)
+                .putInt(0)
+                .flip());
+        CatalogFormat.writeEnd(channel);
+
+        assertThrows(IOException.class, () -> importInto(new InMemoryFilmStorage(), new InMemoryUserStorage(),
+                out.toByteArray()));
+    }
+
+    private byte[] export(InMemoryFilmStorage films, InMemoryUserStorage users, boolean compress)
+            throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        transfer(films, users).export(Channels.newChannel(out), compress);
+        return out.toByteArray();
+    }
+
+    private ImportReport importInto(InMemoryFilmStorage films, InMemoryUserStorage users, byte[] catalog)
+            throws IOException {
+        return transfer(films, users).importFrom(Channels.newChannel(new ByteArrayInputStream(catalog)));
+    }
+
+    //Кадры по 3 записи, чтобы кадров каждого типа было несколько
+    private CatalogTransfer transfer(InMemoryFilmStorage films, InMemoryUserStorage users) {
+        CatalogTransfer transfer = new CatalogTransfer(films, users, validator, new ChangeFeed<>(16),
+                new ChangeFeed<>(16), 2, 3);
+        transfers.add(transfer);
+        return transfer;
+    }
+
+    private static User user(String login) {
+        return User.builder()
+                .email(login + "@mail.ru")
+                .login(login)
+                .birthday(LocalDate.of(1990, 1, 1))
+                .build();
+    }
+
+    private static Film film(String name, LocalDate releaseDate) {
+        return Film.builder()
+                .name(name)
+                .description("Описание")
+                .releaseDate(releaseDate)
+                .duration(Duration.ofMinutes(90))
+                .build();
+    }
+}
@@ -0,0 +1,206 @@
+package ru.yandex.practicum.filmorate.cluster;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.MediaType;
+import org.springframework.web.client.RestClient;
+import org.springframework.web.client.RestClientResponseException;
+import ru.yandex.practicum.filmorate.FilmorateApplication;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.User;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+//Несколько экземпляров приложения на localhost в одной JVM: маршрутизация по владельцу,
+//сбор списков со всех узлов и перенос данных на вошедший узел
+class ClusterIntegrationTest {
+    private static final ParameterizedTypeReference<List<Film>> FILMS = new ParameterizedTypeReference<>() {
+    };
+    private static final ParameterizedTypeReference<List<User>> USERS = new ParameterizedTypeReference<>() {
+    };
+    private static final String SECRET = "test-secret";
+
+    private final List<ConfigurableApplicationContext> nodes = new ArrayList<>();
+    private final RestClient client = RestClient.create();
+    private final RestClient internal = RestClient.builder().defaultHeader(ClusterSecretFilter.HEADER, SECRET).build();
+
+    @AfterEach
+    void stopNodes() {
+        nodes.reversed().forEach(ConfigurableApplicationContext::close);
+    }
+
+    @Test
+    void shouldRouteEntitiesToOwnersAndGatherLists() {
+        String first = startNode(null);
+        String second = startNode(first);
+
+        Set<Long> filmIds = new HashSet<>();
+        for (int i = 0; i < 20; i++) {
+            filmIds.add(createFilm(i % 2 == 0 ? first : second, "Фильм " + i).getId());
+        }
+
+        assertEquals(20, filmIds.size());
+        for (String node : List.of(first, second)) {
+            List<Film> films = client.get().uri(node + "/films").retrieve().body(FILMS);
+            assertEquals(filmIds, ids(films));
+            for (long id : filmIds) {
+                assertEquals(id, client.get().uri(node + "/films/{id}", id).retrieve().body(Film.class).getId());
+            }
+        }
+        assertTrue(stats(first).films() > 0);
+        assertTrue(stats(second).films() > 0);
+    }
+
+    @Test
+    void shouldKeepEmailsUniqueAndFriendsAcrossNodes() {
+        String first = startNode(null);
+        String second = startNode(first);
+        User alice = createUser(first, "alice@mail.ru");
+        User bob = createUser(second, "bob@mail.ru");
+        User carol = createUser(first, "carol@mail.ru");
+
+        assertThrows(RestClientResponseException.class, () -> createUser(second, "alice@mail.ru"));
+
+        client.put().uri(second + "/users/{id}/friends/{friendId}", alice.getId(), carol.getId()).retrieve()
+                .toBodilessEntity();
+        client.put().uri(first + "/users/{id}/friends/{friendId}", bob.getId(), carol.getId()).retrieve()
+                .toBodilessEntity();
+
+        List<User> common = client.get()
+                .uri(second + "/users/{id}/friends/common/{otherId}", alice.getId(), bob.getId())
+                .retrieve()
+                .body(USERS);
+        assertEquals(List.of(carol.getId()), common.stream().map(User::getId).toList());
+        assertEquals(3, client.get().uri(first + "/users").retrieve().body(USERS).size());
+    }
+
+    @Test
+    void shouldMoveDataToJoinedNode() throws InterruptedException {
+        String first = startNode(null);
+        String second = startNode(first);
+        Set<Long> filmIds = new HashSet<>();
+        for (int i = 0; i < 200; i++) {
+            filmIds.add(createFilm(i % 2 == 0 ? first : second, "Фильм " + i).getId());
+        }
+        long liked = filmIds.iterator().next();
+        User user = createUser(first, "user@mail.ru");
+        client.put().uri(second + "/films/{id}/like/{userId}", liked, user.getId()).retrieve().toBodilessEntity();
+
+        String third = startNode(second);
+        long deadline = System.currentTimeMillis() + 10_000;
+        //Пока перенос не закончен, фильм может лежать и на прежнем, и на новом узле
+        while (stats(third).films() == 0
+                || stats(first).films() + stats(second).films() + stats(third).films() != filmIds.size()) {
+            assertTrue(System.currentTimeMillis() < deadline, "Данные не перенесены на новый узел");
+            Thread.sleep(50);
+        }
+
+        assertEquals(filmIds.size(), stats(first).films() + stats(second).films() + stats(third).films());
+        for (String node : List.of(first, second, third)) {
+            assertEquals(filmIds, ids(client.get().uri(node + "/films").retrieve().body(FILMS)));
+        }
+        List<Film> popular = client.get().uri(third + "/films/popular?count=1").retrieve().body(FILMS);
+        assertEquals(liked, popular.getFirst().getId());
+        //Новый узел выдаёт id, которые кольцо отдаёт ему самому
+        Film created = createFilm(third, "Новый фильм");
+        assertFalse(filmIds.contains(created.getId()));
+        assertNotNull(internal.get().uri(third + "/cluster/films/{id}", created.getId())
+                .retrieve()
+                .body(PartitionNode.FilmReplica.class));
+    }
+
+    @Test
+    void shouldRejectInternalRequestsWithoutSecret() {
+        String node = startNode(null);
+        RestClient forged = RestClient.builder().defaultHeader(ClusterSecretFilter.HEADER, "wrong").build();
+
+        for (RestClient anonymous : List.of(client, forged)) {
+            assertForbidden(() -> anonymous.get().uri(node + "/cluster/view").retrieve().toBodilessEntity());
+            assertForbidden(() -> anonymous.post()
+                    .uri(node + "/cluster/view")
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .body("{}")
+                    .retrieve()
+                    .toBodilessEntity());
+            assertForbidden(() -> anonymous.put()
+                    .uri(URI.create(node + "/%63luster/films/1?expectedVersion=0"))
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .body("{\"name\":\"Film\"}")
+                    .retrieve()
+                    .toBodilessEntity());
+        }
+        assertEquals(0, stats(node).films());
+    }
+
+    @Test
+    void shouldValidateEntitiesWrittenThroughInternalEndpoints() {
+        String node = startNode(null);
+
+        RestClientResponseException e = assertThrows(RestClientResponseException.class, () -> internal.put()
+                .uri(node + "/cluster/users/1?expectedVersion=0")
+                .contentType(MediaType.APPLICATION_JSON)
+                .body("{\"email\":\"not an email\",\"login\":\"with space\"}")
+                .retrieve()
+                .toBodilessEntity());
+        assertEquals(400, e.getStatusCode().value());
+        assertEquals(0, stats(node).users());
+    }
+
+    private void assertForbidden(Runnable request) {
+        RestClientResponseException e = assertThrows(RestClientResponseException.class, request::run);
+        assertEquals(403, e.getStatusCode().value());
+    }
+
+    private String startNode(String seed) {
+        ConfigurableApplicationContext context = new SpringApplicationBuilder(FilmorateApplication.class).run(
+                "--server.port=0",
+                "--filmorate.cluster.enabled=true",
+                "--filmorate.cluster.secret=" + SECRET,
+                "--filmorate.cluster.seeds=" + (seed == null ? "" : seed),
+                "--filmorate.cluster.virtual-nodes=64",
+                "--filmorate.limits.enabled=false");
+        nodes.add(context);
+        return "http://localhost:" + context.getEnvironment().getProperty("local.server.port");
+    }
+
+    private Film createFilm(String node, String name) {
+        return client.post()
+                .uri(node + "/films")
+                .contentType(MediaType.APPLICATION_JSON)
+                .body("{\"name\":\"" + name + "\",\"description\":\"Описание\",\"releaseDate\":\"2000-01-01\","
+                        + "\"duration\":100}")
+                .retrieve()
+                .body(Film.class);
+    }
+
+    private User createUser(String node, String email) {
+        String login = email.substring(0, email.indexOf('@'));
+        return client.post()
+                .uri(node + "/users")
+                .contentType(MediaType.APPLICATION_JSON)
+                .body("{\"email\":\"" + email + "\",\"login\":\"" + login + "\",\"birthday\":\"2000-01-01\"}")
+                .retrieve()
+                .body(User.class);
+    }
+
+    private PartitionNode.PartitionStats stats(String node) {
+        return internal.get().uri(node + "/cluster/stats").retrieve().body(PartitionNode.PartitionStats.class);
+    }
+
+    private static Set<Long> ids(List<Film> films) {
+        Set<Long> ids = new HashSet<>();
+        for (Film film : films) {
+            assertTrue(ids.add(film.getId()), "Фильм " + film.getId() + " повторяется");
+        }
+        return ids;
+    }
+}
@@ -0,0 +1,43 @@
+package ru.yandex.practicum.filmorate.cluster;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+//Версия коллекции кластера не повторяется при той же сумме версий узлов
+class ClusterVersionsTest {
+
+    @Test
+    void shouldChangeWhenVersionsMoveBetweenNodesWithSameSum() {
+        long before = version(1, List.of(node(7, 5), node(9, 3)));
+        long after = version(1, List.of(node(7, 4), node(9, 4)));
+
+        assertNotEquals(before, after);
+        assertEquals(before, version(1, List.of(node(7, 5), node(9, 3))));
+    }
+
+    @Test
+    void shouldChangeAfterNodeRestartWithSameVersion() {
+        long before = version(1, List.of(node(7, 5), node(9, 3)));
+        long restarted = version(1, List.of(node(7, 5), node(11, 3)));
+
+        assertNotEquals(before, restarted);
+    }
+
+    @Test
+    void shouldChangeWithClusterView() {
+        List<PartitionNode.PartitionStats> stats = List.of(node(7, 5), node(9, 3));
+
+        assertNotEquals(version(1, stats), version(2, stats));
+    }
+
+    private static long version(long viewEpoch, List<PartitionNode.PartitionStats> stats) {
+        return ClusterVersions.fingerprint(viewEpoch, stats, PartitionNode.PartitionStats::filmVersion);
+    }
+
+    private static PartitionNode.PartitionStats node(long epoch, long filmVersion) {
+        return new PartitionNode.PartitionStats(epoch, filmVersion, 0, 0, 0, 0);
+    }
+}
@@ -0,0 +1,59 @@
+package ru.yandex.practicum.filmorate.cluster;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+//Распределение ключей по кольцу и доля ключей, переходящих к новому узлу
+class HashRingTest {
+    private static final int KEYS = 100_000;
+
+    @Test
+    void shouldSpreadKeysEvenly() {
+        HashRing ring = new HashRing(List.of("a", "b", "c", "d"), 128);
+        Map<String, Integer> counts = new HashMap<>();
+        for (long key = 1; key <= KEYS; key++) {
+            counts.merge(ring.owner(key), 1, Integer::sum);
+        }
+
+        assertEquals(4, counts.size());
+        counts.values().forEach(count -> assertTrue(Math.abs(count - KEYS / 4) < KEYS / 4 * 3 / 10,
+                "Узлу досталось " + count + " ключей"));
+    }
+
+    @Test
+    void shouldMoveOnlyKeysOfNewNode() {
+        HashRing before = new HashRing(List.of("a", "b", "c"), 128);
+        HashRing after = new HashRing(List.of("a", "b", "c", "d"), 128);
+        int moved = 0;
+        for (long key = 1; key <= KEYS; key++) {
+            String owner = after.owner(key);
+            if (!owner.equals(before.owner(key))) {
+                assertEquals("d", owner);
+                moved++;
+            }
+        }
+
+        assertTrue(moved > KEYS / 6 && moved < KEYS / 3, "Перешло " + moved + " ключей");
+    }
+
+    @Test
+    void shouldNotDependOnNodeOrder() {
+        HashRing first = new HashRing(List.of("a", "b", "c"), 16);
+        HashRing second = new HashRing(List.of("c", "a", "b"), 16);
+
+        for (long key = 1; key <= 1000; key++) {
+            assertEquals(first.owner(key), second.owner(key));
+            assertEquals(first.owner("user" + key + "@mail.ru"), second.owner("user" + key + "@mail.ru"));
+        }
+    }
+
+    @Test
+    void shouldRejectEmptyRing() {
+        assertThrows(IllegalArgumentException.class, () -> new HashRing(List.of(), 16));
+    }
+}
@@ -0,0 +1,24 @@
+package ru.yandex.practicum.filmorate.config;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+//Тест несовместимых с кластером настроек
+class ClusterConfigTest {
+    @Test
+    void shouldRejectPersistenceAndPackedStorage() {
+        assertThrows(IllegalStateException.class, () -> new ClusterConfig("", List.of(), "secret", true, false));
+        assertThrows(IllegalStateException.class, () -> new ClusterConfig("", List.of(), "secret", false, true));
+        assertDoesNotThrow(() -> new ClusterConfig("", List.of(), "secret", false, false));
+    }
+
+    @Test
+    void shouldRequireSecret() {
+        assertThrows(IllegalStateException.class, () -> new ClusterConfig("", List.of(), "", false, false));
+        assertThrows(IllegalStateException.class, () -> new ClusterConfig("", List.of(), " ", false, false));
+    }
+}
@@ -0,0 +1,42 @@
+package ru.yandex.practicum.filmorate.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.web.servlet.MockMvc;
+import ru.yandex.practicum.filmorate.storage.film.InMemoryFilmStorage;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+//Тест метрик валидации, хранилища и количества сущностей
+@SpringBootTest
+@AutoConfigureMockMvc
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_EACH_TEST_METHOD)
+class MetricsConfigTest {
+    @Autowired
+    private MockMvc mockMvc;
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Test
+    void shouldRecordValidationStorageAndEntityMetrics() throws Exception {
+        mockMvc.perform(post("/films")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"name\":\"Film\",\"releaseDate\":\"2000-01-01\",\"duration\":90}"))
+                .andExpect(status().isOk());
+
+        assertEquals(1, meterRegistry.get("filmorate.validation").tag("entity", "Film").timer().count());
+        assertEquals(1, meterRegistry.get("filmorate.storage")
+                .tag("class", InMemoryFilmStorage.class.getName())
+                .tag("method", "create")
+                .timer()
+                .count());
+        assertEquals(1.0, meterRegistry.get("filmorate.entities").tag("type", "films").gauge().value());
+    }
+}
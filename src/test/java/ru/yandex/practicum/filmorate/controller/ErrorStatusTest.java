@@ -0,0 +1,48 @@
+package ru.yandex.practicum.filmorate.controller;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+//Тест кодов ответа на отсутствующие сущности и некорректные запросы
+@SpringBootTest
+@AutoConfigureMockMvc
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_EACH_TEST_METHOD)
+class ErrorStatusTest {
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Test
+    void shouldReturnNotFoundForMissingEntities() throws Exception {
+        mockMvc.perform(get("/films/999")).andExpect(status().isNotFound());
+        mockMvc.perform(get("/users/999")).andExpect(status().isNotFound());
+        mockMvc.perform(get("/users/999/recommendations")).andExpect(status().isNotFound());
+        mockMvc.perform(put("/films")
+                        .header(HttpHeaders.IF_MATCH, "\"1\"")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"id\":999,\"name\":\"Film\"}"))
+                .andExpect(status().isNotFound());
+        mockMvc.perform(put("/users")
+                        .header(HttpHeaders.IF_MATCH, "\"1\"")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"id\":999,\"email\":\"user@mail.ru\",\"login\":\"user\"}"))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    void shouldReturnBadRequestForInvertedRange() throws Exception {
+        mockMvc.perform(get("/films")
+                        .param("releasedFrom", "2010-01-01")
+                        .param("releasedTo", "2000-01-01"))
+                .andExpect(status().isBadRequest());
+    }
+}
@@ -1,30 +1,62 @@
 package ru.yandex.practicum.filmorate.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import jakarta.validation.ConstraintViolation;
 import jakarta.validation.Validation;
 import jakarta.validation.Validator;
 import jakarta.validation.ValidatorFactory;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.springframework.http.ResponseEntity;
 import ru.yandex.practicum.filmorate.exception.NotFoundException;
+import ru.yandex.practicum.filmorate.exception.PreconditionFailedException;
 import ru.yandex.practicum.filmorate.exception.ValidationException;
+import ru.yandex.practicum.filmorate.feed.ChangeEvent;
+import ru.yandex.practicum.filmorate.feed.ChangeFeed;
+import ru.yandex.practicum.filmorate.model.BatchItemResult;
 import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmRangeFilter;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.film.InMemoryFilmStorage;
+import ru.yandex.practicum.filmorate.storage.user.InMemoryUserStorage;
 
 import java.time.Duration;
 import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
 import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import static org.junit.jupiter.api.Assertions.*;
 
 //Тест контроллера
 class FilmControllerTest {
     private FilmController filmController;
+    private InMemoryFilmStorage filmStorage;
+    private InMemoryUserStorage userStorage;
+    private ChangeFeed<Film> filmChanges;
     private Film validFilm;
     private Film anotherFilm;
 
     @BeforeEach
     void setUp() {
-        filmController = new FilmController();
+        userStorage = new InMemoryUserStorage();
+        filmChanges = new ChangeFeed<>(1024);
+        filmStorage = new InMemoryFilmStorage();
+        filmController = new FilmController(
+                filmStorage,
+                userStorage,
+                new NdjsonStreamer(new ObjectMapper()),
+                new BatchValidator(Validation.buildDefaultValidatorFactory().getValidator(), new SimpleMeterRegistry()),
+                new SerializedResponseCache(new ObjectMapper(), new SimpleMeterRegistry()),
+                filmChanges,
+                new ChangeStreamer(new SimpleMeterRegistry(), 1000, 1000)
+        );
         validFilm = Film.builder()
                 .name("Valid Film")
                 .description("Valid Description")
@@ -139,6 +171,81 @@ class FilmControllerTest {
         assertThrows(NotFoundException.class, () -> filmController.update(nonExisting));
     }
 
+    @Test
+    void shouldUpdateFilmOnlyWhenIfMatchHasCurrentVersion() {
+        Film created = filmController.create(validFilm);
+        String etag = filmController.findById(created.getId()).getHeaders().getETag();
+        assertEquals("\"1\"", etag);
+
+        ResponseEntity<Film> first = filmController.updateIfMatch(etag,
+                Film.builder().id(created.getId()).name("First").build());
+        assertEquals("\"2\"", first.getHeaders().getETag());
+
+        Film stale = Film.builder().id(created.getId()).name("Second").build();
+        assertThrows(PreconditionFailedException.class, () -> filmController.updateIfMatch(etag, stale));
+        assertThrows(PreconditionFailedException.class, () -> filmController.updateIfMatch("W/\"2\"", stale));
+        assertEquals("First", filmController.findById(created.getId()).getBody().getName());
+
+        assertEquals("\"3\"", filmController.updateIfMatch("\"5\", \"2\"", stale).getHeaders().getETag());
+        assertEquals("\"4\"", filmController.updateIfMatch("*", stale).getHeaders().getETag());
+        assertEquals("\"5\"", filmController.updateIfMatch(null, stale).getHeaders().getETag());
+    }
+
+    @Test
+    void shouldPublishCreatedAndUpdatedFilmsToChangeFeed() {
+        Film created = filmController.create(validFilm);
+        filmController.createBatch(List.of(anotherFilm));
+        filmController.update(Film.builder().id(created.getId()).name("Updated").build());
+
+        List<ChangeEvent<Film>> events = filmChanges.read(0, 10).orElseThrow();
+        assertEquals(List.of(ChangeEvent.Type.CREATED, ChangeEvent.Type.CREATED, ChangeEvent.Type.UPDATED),
+                events.stream().map(ChangeEvent::type).toList());
+        assertEquals(List.of(1L, 2L, 3L), events.stream().map(ChangeEvent::sequence).toList());
+        assertEquals("Updated", events.get(2).entity().getName());
+        assertEquals(2, events.get(2).entity().getVersion());
+    }
+
+    @Test
+    void shouldLetLatestVersionWinAmongConcurrentUpdatesInChangeFeed() throws Exception {
+        Film created = filmController.create(validFilm);
+        int writers = 8;
+        int updates = 50;
+        ExecutorService executor = Executors.newFixedThreadPool(writers);
+        try {
+            CountDownLatch start = new CountDownLatch(1);
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < writers; i++) {
+                String name = "Writer " + i;
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    for (int j = 0; j < updates; j++) {
+                        filmController.update(Film.builder().id(created.getId()).name(name + " " + j).build());
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        List<ChangeStreamer.VersionedEntity<Film>> payloads = filmChanges.read(1, 1024).orElseThrow().stream()
+                .map(event -> ChangeStreamer.payload(event, Film::getVersion))
+                .toList();
+        assertEquals(writers * updates, payloads.size());
+        assertEquals(writers * updates, payloads.stream().mapToLong(ChangeStreamer.VersionedEntity::version)
+                .distinct().count());
+        ChangeStreamer.VersionedEntity<Film> latest = payloads.stream()
+                .max(Comparator.comparingLong(ChangeStreamer.VersionedEntity::version))
+                .orElseThrow();
+        Film stored = filmController.findById(created.getId()).getBody();
+        assertEquals(stored.getVersion(), latest.version());
+        assertEquals(stored.getName(), latest.entity().getName());
+    }
+
     @Test
     void shouldPartialUpdateFilm() {
         Film created = filmController.create(validFilm);
@@ -162,6 +269,28 @@ class FilmControllerTest {
         assertEquals(2, filmController.findAll().size());
     }
 
+    @Test
+    void shouldReturnPagesOrderedById() {
+        for (int i = 0; i < 5; i++) {
+            filmController.create(validFilm.toBuilder().name("Film " + i).build());
+        }
+
+        List<Film> first = List.copyOf(filmController.findPage(0, 2, new FilmRangeFilter()));
+        List<Film> second = List.copyOf(filmController.findPage(first.get(1).getId(), 2, new FilmRangeFilter()));
+        List<Film> last = List.copyOf(filmController.findPage(second.get(1).getId(), 2, new FilmRangeFilter()));
+
+        assertEquals(List.of(1L, 2L), first.stream().map(Film::getId).toList());
+        assertEquals(List.of(3L, 4L), second.stream().map(Film::getId).toList());
+        assertEquals(List.of(5L), last.stream().map(Film::getId).toList());
+    }
+
+    @Test
+    void shouldRejectInvalidPageSize() {
+        assertThrows(ValidationException.class, () -> filmController.findPage(0, 0, new FilmRangeFilter()));
+        assertThrows(ValidationException.class,
+                () -> filmController.findPage(0, FilmController.MAX_PAGE_SIZE + 1, new FilmRangeFilter()));
+    }
+
     @Test
     void shouldGenerateSequentialIds() {
         Film first = filmController.create(validFilm);
@@ -187,4 +316,125 @@ class FilmControllerTest {
         Film created = filmController.create(minDurationFilm);
         assertEquals(Duration.ofNanos(1), created.getDuration());
     }
-}
\ No newline at end of file
+
+    @Test
+    void shouldCreateBatchSkippingInvalidFilms() {
+        Film invalid = anotherFilm.toBuilder().name("").build();
+
+        List<BatchItemResult<Film>> results = filmController.createBatch(List.of(validFilm, invalid, anotherFilm));
+
+        assertEquals(BatchItemResult.Status.CREATED, results.get(0).getStatus());
+        assertEquals(1L, results.get(0).getEntity().getId());
+        assertEquals(BatchItemResult.Status.FAILED, results.get(1).getStatus());
+        assertNotNull(results.get(1).getError());
+        assertEquals(2L, results.get(2).getEntity().getId());
+        assertEquals(2, filmController.findAll().size());
+    }
+
+    @Test
+    void shouldUpdateBatchAndReportMissingFilms() {
+        Film created = filmController.create(validFilm);
+        Film update = Film.builder().id(created.getId()).name("Batch Name").build();
+        Film missing = Film.builder().id(999L).name("Missing").build();
+
+        List<BatchItemResult<Film>> results = filmController.updateBatch(List.of(update, missing));
+
+        assertEquals(BatchItemResult.Status.UPDATED, results.get(0).getStatus());
+        assertEquals("Batch Name", results.get(0).getEntity().getName());
+        assertEquals(BatchItemResult.Status.FAILED, results.get(1).getStatus());
+    }
+
+    @Test
+    void shouldRankFilmsByLikes() {
+        Film first = filmController.create(validFilm);
+        Film second = filmController.create(anotherFilm);
+        User user = userStorage.create(User.builder().email("user@mail.ru").login("user").build());
+        User anotherUser = userStorage.create(User.builder().email("another@mail.ru").login("another").build());
+
+        filmController.addLike(second.getId(), user.getId());
+        filmController.addLike(second.getId(), user.getId());
+        filmController.addLike(second.getId(), anotherUser.getId());
+        filmController.addLike(first.getId(), user.getId());
+
+        assertEquals(List.of(second.getId(), first.getId()),
+                filmController.findPopular(10).stream().map(Film::getId).toList());
+
+        filmController.removeLike(second.getId(), user.getId());
+        filmController.removeLike(second.getId(), anotherUser.getId());
+
+        assertEquals(List.of(first.getId()),
+                filmController.findPopular(1).stream().map(Film::getId).toList());
+    }
+
+    @Test
+    void shouldRejectLikeFromUnknownUser() {
+        Film film = filmController.create(validFilm);
+
+        assertThrows(NotFoundException.class, () -> filmController.addLike(film.getId(), 999L));
+        assertThrows(NotFoundException.class, () -> filmController.addLike(999L, 1L));
+    }
+
+    @Test
+    void shouldFindFilmsInRangeAfterPartialUpdate() {
+        Film first = filmController.create(validFilm);
+        Film second = filmController.create(anotherFilm);
+        FilmRangeFilter released2000s = new FilmRangeFilter();
+        released2000s.setReleasedFrom(LocalDate.of(2000, 1, 1));
+        released2000s.setReleasedTo(LocalDate.of(2009, 12, 31));
+        FilmRangeFilter shortFilms = new FilmRangeFilter();
+        shortFilms.setMaxDuration(Duration.ofMinutes(100).toSeconds());
+
+        assertEquals(List.of(first.getId()), ids(filmController.findInRange(released2000s, 10)));
+        assertEquals(List.of(second.getId()), ids(filmController.findInRange(shortFilms, 10)));
+
+        filmController.update(Film.builder().id(second.getId()).releaseDate(LocalDate.of(2005, 6, 1)).build());
+        filmController.update(Film.builder().id(first.getId()).duration(Duration.ofMinutes(80)).build());
+
+        assertEquals(List.of(first.getId(), second.getId()), ids(filmController.findInRange(shortFilms, 10)));
+        assertEquals(List.of(first.getId(), second.getId()), ids(filmController.findInRange(released2000s, 10)));
+        assertEquals(List.of(first.getId()), ids(filmController.findInRange(released2000s, 1)));
+    }
+
+    @Test
+    void shouldRejectInvertedRanges() {
+        filmController.create(validFilm);
+        FilmRangeFilter invertedDates = new FilmRangeFilter();
+        invertedDates.setReleasedFrom(LocalDate.of(2010, 1, 1));
+        invertedDates.setReleasedTo(LocalDate.of(2000, 1, 1));
+        FilmRangeFilter invertedDurations = new FilmRangeFilter();
+        invertedDurations.setMinDuration(7200L);
+        invertedDurations.setMaxDuration(3600L);
+        FilmRangeFilter singleDay = new FilmRangeFilter();
+        singleDay.setReleasedFrom(LocalDate.of(2000, 1, 1));
+        singleDay.setReleasedTo(LocalDate.of(2000, 1, 1));
+
+        assertThrows(ValidationException.class, () -> filmController.findInRange(invertedDates, 10));
+        assertThrows(ValidationException.class, () -> filmController.findPage(0, 10, invertedDurations));
+        assertThrows(ValidationException.class, () -> filmController.findAllCached(null, invertedDates));
+        assertEquals(1, filmController.findInRange(singleDay, 10).size());
+    }
+
+    @Test
+    void shouldMarkTruncatedRangeWithoutLimit() {
+        List<Film> films = new ArrayList<>();
+        for (int i = 0; i <= FilmController.MAX_RANGE_SIZE; i++) {
+            films.add(validFilm.toBuilder().build());
+        }
+        filmStorage.createAll(films);
+        FilmRangeFilter all = new FilmRangeFilter();
+        all.setReleasedFrom(LocalDate.of(2000, 1, 1));
+        FilmRangeFilter none = new FilmRangeFilter();
+        none.setReleasedFrom(LocalDate.of(2001, 1, 1));
+
+        ResponseEntity<?> truncated = filmController.findAllCached(null, all);
+        ResponseEntity<?> complete = filmController.findAllCached(null, none);
+
+        assertEquals("true", truncated.getHeaders().getFirst(FilmController.TRUNCATED_HEADER));
+        assertEquals(FilmController.MAX_RANGE_SIZE, ((List<?>) truncated.getBody()).size());
+        assertNull(complete.getHeaders().getFirst(FilmController.TRUNCATED_HEADER));
+    }
+
+    private static List<Long> ids(List<Film> films) {
+        return films.stream().map(Film::getId).toList();
+    }
+}
@@ -0,0 +1,85 @@
+package ru.yandex.practicum.filmorate.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.web.servlet.MockMvc;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.user.UserStorage;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+//Тест кэша ответов и условных запросов
+@SpringBootTest
+@AutoConfigureMockMvc
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_EACH_TEST_METHOD)
+class SerializedResponseCacheTest {
+    @Autowired
+    private MockMvc mockMvc;
+    @Autowired
+    private UserStorage userStorage;
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Test
+    void shouldReturnNotModifiedUntilDataChanges() throws Exception {
+        userStorage.create(User.builder().email("first@mail.ru").login("first").build());
+
+        String etag = mockMvc.perform(get("/users"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(1))
+                .andReturn()
+                .getResponse()
+                .getHeader(HttpHeaders.ETAG);
+
+        mockMvc.perform(get("/users").header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isNotModified())
+                .andExpect(content().string(""));
+
+        userStorage.create(User.builder().email("second@mail.ru").login("second").build());
+
+        String newEtag = mockMvc.perform(get("/users").header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(2))
+                .andReturn()
+                .getResponse()
+                .getHeader(HttpHeaders.ETAG);
+        assertNotEquals(etag, newEtag);
+    }
+
+    @Test
+    void shouldServeRepeatedRequestsFromCache() throws Exception {
+        userStorage.create(User.builder().email("user@mail.ru").login("user").build());
+
+        mockMvc.perform(get("/users")).andExpect(status().isOk());
+        mockMvc.perform(get("/users")).andExpect(status().isOk());
+
+        assertEquals(1.0, meterRegistry.counter("filmorate.response.cache", "cache", "users", "result", "miss").count());
+        assertEquals(1.0, meterRegistry.counter("filmorate.response.cache", "cache", "users", "result", "hit").count());
+    }
+
+    @Test
+    void shouldNotMatchTagIssuedBeforeRestart() {
+        SerializedResponseCache beforeRestart =
+                new SerializedResponseCache(new ObjectMapper(), new SimpleMeterRegistry());
+        SerializedResponseCache afterRestart =
+                new SerializedResponseCache(new ObjectMapper(), new SimpleMeterRegistry());
+        String etag = beforeRestart.get("users", 1, List::of, null).getHeaders().getETag();
+
+        //Версия хранилища после перезапуска снова 1, но данные могут быть другими
+        assertEquals(HttpStatus.OK, afterRestart.get("users", 1, List::of, etag).getStatusCode());
+        assertEquals(HttpStatus.NOT_MODIFIED, beforeRestart.get("users", 1, List::of, etag).getStatusCode());
+    }
+}
@@ -0,0 +1,138 @@
+package ru.yandex.practicum.filmorate.controller;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.user.UserStorage;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+//Тест постраничной и потоковой выдачи
+@SpringBootTest
+@AutoConfigureMockMvc
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_EACH_TEST_METHOD)
+class StreamingEndpointsTest {
+    @Autowired
+    private MockMvc mockMvc;
+    @Autowired
+    private UserStorage userStorage;
+    @Autowired
+    private ChangeStreamer changeStreamer;
+
+    @Test
+    void shouldStreamUsersAsNdjson() throws Exception {
+        int count = NdjsonStreamer.PAGE_SIZE + 5;
+        for (int i = 0; i < count; i++) {
+            userStorage.create(User.builder().email("user" + i + "@mail.ru").login("user" + i).build());
+        }
+
+        MvcResult started = mockMvc.perform(get("/users").accept(NdjsonStreamer.NDJSON))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        String body = mockMvc.perform(asyncDispatch(started))
+                .andExpect(status().isOk())
+                .andReturn()
+                .getResponse()
+                .getContentAsString();
+
+        String[] lines = body.split("\n");
+        assertEquals(count, lines.length);
+        assertTrue(lines[0].startsWith("{\"id\":1,"));
+        assertTrue(lines[count - 1].startsWith("{\"id\":" + count + ","));
+    }
+
+    @Test
+    void shouldKeepJsonArrayAsDefaultRepresentation() throws Exception {
+        userStorage.create(User.builder().email("user@mail.ru").login("user").build());
+
+        mockMvc.perform(get("/users"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_JSON))
+                .andExpect(jsonPath("$[0].id").value(1));
+        mockMvc.perform(get("/users").accept(MediaType.APPLICATION_JSON))
+                .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_JSON));
+    }
+
+    @Test
+    void shouldReturnPageAfterCursor() throws Exception {
+        for (int i = 0; i < 3; i++) {
+            userStorage.create(User.builder().email("user" + i + "@mail.ru").login("user" + i).build());
+        }
+
+        mockMvc.perform(get("/users").param("after", "1").param("limit", "1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(1))
+                .andExpect(jsonPath("$[0].id").value(2));
+    }
+
+    @Test
+    void shouldStreamChangesFromOffset() throws Exception {
+        mockMvc.perform(post("/users")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"email\":\"user@mail.ru\",\"login\":\"user\"}"))
+                .andExpect(status().isOk());
+
+        MvcResult subscription = mockMvc.perform(get("/users/changes")
+                        .param("after", changeStreamer.eventId(0))
+                        .accept(MediaType.TEXT_EVENT_STREAM))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mockMvc.perform(put("/users")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"id\":1,\"name\":\"Renamed\"}"))
+                .andExpect(status().isOk());
+
+        String body = awaitContent(subscription, "event:updated");
+        assertTrue(body.contains("id:" + changeStreamer.eventId(1) + "\nevent:created\n"));
+        assertTrue(body.contains("id:" + changeStreamer.eventId(2) + "\nevent:updated\ndata:{"));
+        assertTrue(body.contains("\"version\":2"));
+        assertTrue(body.contains("\"entity\":{\"id\":1,"));
+        assertTrue(body.contains("\"name\":\"Renamed\""));
+    }
+
+    @Test
+    void shouldResyncClientWithPositionFromAnotherRun() throws Exception {
+        mockMvc.perform(post("/users")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"email\":\"user@mail.ru\",\"login\":\"user\"}"))
+                .andExpect(status().isOk());
+
+        for (String position : new String[]{"0", "5", "another.run-0", changeStreamer.eventId(0) + "x"}) {
+            MvcResult subscription = mockMvc.perform(get("/users/changes")
+                            .header("Last-Event-ID", position)
+                            .accept(MediaType.TEXT_EVENT_STREAM))
+                    .andExpect(request().asyncStarted())
+                    .andReturn();
+
+            String body = awaitContent(subscription, "event:" + ChangeStreamer.RESYNC);
+            assertTrue(body.contains("id:" + changeStreamer.eventId(1) + "\nevent:" + ChangeStreamer.RESYNC + "\n"),
+                    position);
+            assertFalse(body.contains("event:created"), position);
+        }
+    }
+
+    private static String awaitContent(MvcResult result, String expected) throws Exception {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        String body = result.getResponse().getContentAsString();
+        while (!body.contains(expected) && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+            body = result.getResponse().getContentAsString();
+        }
+        return body;
+    }
+}
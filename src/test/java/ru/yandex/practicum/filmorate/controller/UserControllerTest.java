@@ -1,5 +1,7 @@
 package ru.yandex.practicum.filmorate.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import jakarta.validation.ConstraintViolation;
 import jakarta.validation.Validation;
 import jakarta.validation.Validator;
@@ -7,10 +9,15 @@ import jakarta.validation.ValidatorFactory;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import ru.yandex.practicum.filmorate.exception.NotFoundException;
+import ru.yandex.practicum.filmorate.exception.PreconditionFailedException;
 import ru.yandex.practicum.filmorate.exception.ValidationException;
+import ru.yandex.practicum.filmorate.feed.ChangeFeed;
+import ru.yandex.practicum.filmorate.model.BatchItemResult;
 import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.user.InMemoryUserStorage;
 
 import java.time.LocalDate;
+import java.util.List;
 import java.util.Set;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -23,13 +30,20 @@ class UserControllerTest {
 
     @BeforeEach
     void setUp() {
-        userController = new UserController();
-
         // Инициализация валидатора
         try (ValidatorFactory factory = Validation.buildDefaultValidatorFactory()) {
             validator = factory.getValidator();
         }
 
+        userController = new UserController(
+                new InMemoryUserStorage(),
+                new NdjsonStreamer(new ObjectMapper()),
+                new BatchValidator(validator, new SimpleMeterRegistry()),
+                new SerializedResponseCache(new ObjectMapper(), new SimpleMeterRegistry()),
+                new ChangeFeed<>(16),
+                new ChangeStreamer(new SimpleMeterRegistry(), 1000, 1000)
+        );
+
         baseUser = User.builder()
                 .email("valid@mail.ru")
                 .login("validLogin")
@@ -93,6 +107,29 @@ class UserControllerTest {
         assertThrows(ValidationException.class, () -> userController.create(duplicate));
     }
 
+    @Test
+    void shouldThrowOnUpdateToTakenEmail() {
+        userController.create(baseUser);
+        User created = userController.create(baseUser.toBuilder().email("another@mail.ru").build());
+        User update = created.toBuilder().email(baseUser.getEmail()).build();
+
+        assertThrows(ValidationException.class, () -> userController.update(update));
+        assertEquals("another@mail.ru", userController.findAll().stream()
+                .filter(user -> user.getId() == created.getId())
+                .findFirst()
+                .orElseThrow()
+                .getEmail());
+    }
+
+    @Test
+    void shouldReleaseOldEmailOnUpdate() {
+        User created = userController.create(baseUser);
+        userController.update(created.toBuilder().email("new@mail.ru").build());
+
+        User another = userController.create(baseUser.toBuilder().login("another").build());
+        assertEquals(baseUser.getEmail(), another.getEmail());
+    }
+
     @Test
     void shouldUpdateUserCorrectly() {
         User created = userController.create(baseUser);
@@ -145,4 +182,85 @@ class UserControllerTest {
         User updated = userController.update(update);
         assertEquals(created.getLogin(), updated.getName());
     }
-}
\ No newline at end of file
+
+    @Test
+    void shouldCreateBatchWithContiguousIdsAndReportFailures() {
+        userController.create(baseUser);
+        List<User> batch = List.of(
+                baseUser.toBuilder().email("first@mail.ru").build(),
+                baseUser.toBuilder().email("invalid-email").build(),
+                baseUser.toBuilder().build(),
+                baseUser.toBuilder().email("second@mail.ru").build()
+        );
+
+        List<BatchItemResult<User>> results = userController.createBatch(batch);
+
+        assertEquals(BatchItemResult.Status.CREATED, results.get(0).getStatus());
+        assertEquals(2L, results.get(0).getEntity().getId());
+        assertEquals(BatchItemResult.Status.FAILED, results.get(1).getStatus());
+        assertEquals(BatchItemResult.Status.FAILED, results.get(2).getStatus());
+        assertEquals(BatchItemResult.Status.CREATED, results.get(3).getStatus());
+        assertEquals(3L, results.get(3).getEntity().getId());
+        assertEquals("validLogin", results.get(3).getEntity().getName());
+        assertEquals(3, userController.findAll().size());
+    }
+
+    @Test
+    void shouldUpdateBatchAndReportMissingUsers() {
+        User created = userController.create(baseUser);
+        List<User> batch = List.of(
+                created.toBuilder().login("batchLogin").build(),
+                baseUser.toBuilder().id(999L).build()
+        );
+
+        List<BatchItemResult<User>> results = userController.updateBatch(batch);
+
+        assertEquals(BatchItemResult.Status.UPDATED, results.get(0).getStatus());
+        assertEquals("batchLogin", results.get(0).getEntity().getLogin());
+        assertEquals(BatchItemResult.Status.FAILED, results.get(1).getStatus());
+    }
+
+    @Test
+    void shouldFindFriendsAndCommonFriends() {
+        User user = userController.create(baseUser);
+        User friend = userController.create(baseUser.toBuilder().id(0).email("friend@mail.ru").build());
+        User other = userController.create(baseUser.toBuilder().id(0).email("other@mail.ru").build());
+
+        userController.addFriend(user.getId(), friend.getId());
+        userController.addFriend(other.getId(), friend.getId());
+        userController.addFriend(user.getId(), other.getId());
+
+        assertEquals(List.of(friend.getId(), other.getId()),
+                userController.findFriends(user.getId()).stream().map(User::getId).toList());
+        assertEquals(List.of(friend.getId()),
+                userController.findCommonFriends(user.getId(), other.getId()).stream().map(User::getId).toList());
+
+        userController.removeFriend(friend.getId(), user.getId());
+
+        assertEquals(List.of(other.getId()),
+                userController.findFriends(user.getId()).stream().map(User::getId).toList());
+        assertTrue(userController.findCommonFriends(user.getId(), other.getId()).isEmpty());
+    }
+
+    @Test
+    void shouldRejectFriendshipWithUnknownUserOrSelf() {
+        User user = userController.create(baseUser);
+
+        assertThrows(NotFoundException.class, () -> userController.addFriend(user.getId(), 999L));
+        assertThrows(ValidationException.class, () -> userController.addFriend(user.getId(), user.getId()));
+    }
+
+    @Test
+    void shouldRejectUpdateWithStaleIfMatch() {
+        User created = userController.create(baseUser);
+        String etag = userController.findById(created.getId()).getHeaders().getETag();
+
+        userController.updateIfMatch(etag, User.builder().id(created.getId()).name("First").build());
+
+        User stale = User.builder().id(created.getId()).name("Second").build();
+        assertThrows(PreconditionFailedException.class, () -> userController.updateIfMatch(etag, stale));
+        User current = userController.findById(created.getId()).getBody();
+        assertEquals("First", current.getName());
+        assertEquals(2, current.getVersion());
+    }
+}
@@ -0,0 +1,83 @@
+package ru.yandex.practicum.filmorate.feed;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ChangeFeedTest {
+
+    @Test
+    void shouldReadEventsAfterOffsetInOrder() {
+        ChangeFeed<String> feed = new ChangeFeed<>(8);
+        for (int i = 1; i <= 5; i++) {
+            feed.publish(ChangeEvent.Type.CREATED, "e" + i);
+        }
+
+        List<ChangeEvent<String>> events = feed.read(2, 2).orElseThrow();
+
+        assertEquals(List.of(3L, 4L), events.stream().map(ChangeEvent::sequence).toList());
+        assertEquals("e3", events.get(0).entity());
+        assertTrue(feed.read(5, 10).orElseThrow().isEmpty());
+    }
+
+    @Test
+    void shouldRequireResyncWhenReaderFellBehindBuffer() {
+        ChangeFeed<String> feed = new ChangeFeed<>(5);
+        assertEquals(8, feed.capacity());
+        for (int i = 1; i <= 20; i++) {
+            feed.publish(ChangeEvent.Type.UPDATED, "e" + i);
+        }
+
+        assertTrue(feed.read(11, 100).isEmpty());
+        assertEquals(8, feed.read(12, 100).orElseThrow().size());
+        assertTrue(feed.read(21, 100).isEmpty(), "Позиция из будущего - лента началась заново");
+    }
+
+    @Test
+    void shouldWakeUpWaitingReader() throws Exception {
+        ChangeFeed<String> feed = new ChangeFeed<>(8);
+        CountDownLatch waiting = new CountDownLatch(1);
+        AtomicBoolean woken = new AtomicBoolean();
+        Thread reader = new Thread(() -> {
+            waiting.countDown();
+            woken.set(feed.await(0, TimeUnit.SECONDS.toNanos(10)));
+        });
+        reader.start();
+        waiting.await();
+
+        feed.publish(ChangeEvent.Type.CREATED, "e1");
+        reader.join(TimeUnit.SECONDS.toMillis(5));
+
+        assertFalse(reader.isAlive());
+        assertTrue(woken.get());
+        assertFalse(feed.await(1, TimeUnit.MILLISECONDS.toNanos(10)));
+    }
+
+    @Test
+    void shouldNotLoseEventsFromConcurrentWriters() throws Exception {
+        ChangeFeed<Long> feed = new ChangeFeed<>(1 << 16);
+        Thread[] writers = new Thread[8];
+        for (int i = 0; i < writers.length; i++) {
+            writers[i] = new Thread(() -> {
+                for (int j = 0; j < 1000; j++) {
+                    feed.publish(ChangeEvent.Type.CREATED, (long) j);
+                }
+            });
+            writers[i].start();
+        }
+        for (Thread writer : writers) {
+            writer.join();
+        }
+
+        List<ChangeEvent<Long>> events = feed.read(0, Integer.MAX_VALUE).orElseThrow();
+        assertEquals(8000, events.size());
+        for (int i = 0; i < events.size(); i++) {
+            assertEquals(i + 1, events.get(i).sequence());
+        }
+    }
+}
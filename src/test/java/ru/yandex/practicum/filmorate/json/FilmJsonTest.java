@@ -0,0 +1,87 @@
+package ru.yandex.practicum.filmorate.json;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.exc.InvalidFormatException;
+import com.fasterxml.jackson.databind.exc.MismatchedInputException;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import ru.yandex.practicum.filmorate.model.Film;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FilmJsonTest {
+    //Та же конфигурация, что Spring Boot использует для контроллеров
+    private final ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+
+    @Test
+    void shouldWriteDurationInSeconds() throws Exception {
+        Film film = Film.builder()
+                .id(1)
+                .name("Фильм \"1\"")
+                .description("Описание")
+                .releaseDate(LocalDate.of(2000, 1, 2))
+                .duration(Duration.ofMinutes(90))
+                .build();
+
+        assertEquals("{\"id\":1,\"name\":\"Фильм \\\"1\\\"\",\"description\":\"Описание\","
+                        + "\"releaseDate\":\"2000-01-02\",\"duration\":5400}",
+                objectMapper.writeValueAsString(film));
+    }
+
+    @Test
+    void shouldWriteFilmWithoutDuration() throws Exception {
+        Film film = Film.builder().id(2).name("Без продолжительности").build();
+
+        assertEquals("[{\"id\":2,\"name\":\"Без продолжительности\",\"description\":null,"
+                        + "\"releaseDate\":null,\"duration\":null}]",
+                objectMapper.writeValueAsString(List.of(film)));
+    }
+
+    @Test
+    void shouldReadWhatItWrites() throws Exception {
+        for (ObjectMapper mapper : List.of(objectMapper, new ObjectMapper())) {
+            Film film = Film.builder()
+                    .id(3)
+                    .name("Фильм")
+                    .description("Описание")
+                    .releaseDate(LocalDate.of(12345, 6, 7))
+                    .duration(Duration.ofSeconds(7200))
+                    .build();
+
+            assertEquals(film, mapper.readValue(mapper.writeValueAsBytes(film), Film.class));
+        }
+    }
+
+    @Test
+    void shouldReadDurationInAllSupportedFormats() throws Exception {
+        assertEquals(Duration.ofSeconds(5400), read("{\"duration\":5400}").getDuration());
+        assertEquals(Duration.ofSeconds(5400, 500_000_000), read("{\"duration\":5400.5}").getDuration());
+        assertEquals(Duration.ofSeconds(5400), read("{\"duration\":\"5400\"}").getDuration());
+        assertEquals(Duration.ofMinutes(90), read("{\"duration\":\"PT1H30M\"}").getDuration());
+        assertNull(read("{\"duration\":null}").getDuration());
+    }
+
+    @Test
+    void shouldSkipUnknownFields() throws Exception {
+        Film film = read("{\"name\":\"Фильм\",\"rating\":{\"votes\":[1,2]},\"id\":\"4\",\"releaseDate\":\"1999-12-31\"}");
+
+        assertEquals(Film.builder().id(4).name("Фильм").releaseDate(LocalDate.of(1999, 12, 31)).build(), film);
+    }
+
+    @Test
+    void shouldRejectMalformedValues() {
+        assertThrows(InvalidFormatException.class, () -> read("{\"releaseDate\":\"2000-13-01\"}"));
+        assertThrows(InvalidFormatException.class, () -> read("{\"releaseDate\":\"вчера\"}"));
+        assertThrows(InvalidFormatException.class, () -> read("{\"duration\":\"долго\"}"));
+        assertThrows(MismatchedInputException.class, () -> read("{\"name\":[\"Фильм\"]}"));
+        assertThrows(MismatchedInputException.class, () -> read("[1]"));
+    }
+
+    private Film read(String json) throws Exception {
+        return objectMapper.readValue(json, Film.class);
+    }
+}
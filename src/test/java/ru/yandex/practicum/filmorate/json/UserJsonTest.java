@@ -0,0 +1,40 @@
+package ru.yandex.practicum.filmorate.json;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import ru.yandex.practicum.filmorate.model.User;
+
+import java.time.LocalDate;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class UserJsonTest {
+    private final ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+
+    @Test
+    void shouldWriteAndReadUser() throws Exception {
+        User user = User.builder()
+                .id(1)
+                .email("user@mail.ru")
+                .login("user")
+                .name("Пользователь")
+                .birthday(LocalDate.of(1990, 5, 17))
+                .build();
+
+        String json = objectMapper.writeValueAsString(user);
+
+        assertEquals("{\"id\":1,\"email\":\"user@mail.ru\",\"login\":\"user\",\"name\":\"Пользователь\","
+                + "\"birthday\":\"1990-05-17\"}", json);
+        assertEquals(user, objectMapper.readValue(json, User.class));
+    }
+
+    @Test
+    void shouldKeepMissingFieldsEmpty() throws Exception {
+        User user = objectMapper.readValue("{\"login\":\"user\",\"birthday\":null}", User.class);
+
+        assertEquals(User.builder().login("user").build(), user);
+        assertEquals("{\"id\":0,\"email\":null,\"login\":\"user\",\"name\":null,\"birthday\":null}",
+                objectMapper.writeValueAsString(user));
+    }
+}
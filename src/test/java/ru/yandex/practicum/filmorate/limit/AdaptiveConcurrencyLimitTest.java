@@ -0,0 +1,59 @@
+package ru.yandex.practicum.filmorate.limit;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AdaptiveConcurrencyLimitTest {
+    private static final long TARGET = TimeUnit.MILLISECONDS.toNanos(50);
+
+    @Test
+    void shouldRejectAboveLimit() {
+        AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(2, 1, 10, TARGET, 0);
+
+        assertTrue(limit.tryAcquire());
+        assertTrue(limit.tryAcquire());
+        assertFalse(limit.tryAcquire());
+        limit.release(TARGET, 0);
+        assertTrue(limit.tryAcquire());
+    }
+
+    @Test
+    void shouldShrinkOncePerTargetLatencyWhenSlow() {
+        AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(40, 4, 100, TARGET, 0);
+        for (int i = 0; i < 10; i++) {
+            limit.tryAcquire();
+        }
+
+        for (int i = 0; i < 10; i++) {
+            limit.release(2 * TARGET, TARGET);
+        }
+        assertEquals(36, limit.getLimit());
+
+        for (int i = 0; i < 100; i++) {
+            limit.tryAcquire();
+            limit.release(2 * TARGET, (i + 2) * TARGET);
+        }
+        assertEquals(4, limit.getLimit());
+    }
+
+    @Test
+    void shouldGrowOnlyWhenLimitIsInUse() {
+        AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(4, 1, 5, TARGET, 0);
+
+        limit.tryAcquire();
+        limit.release(1, 1);
+        assertEquals(4, limit.getLimit());
+
+        for (int i = 0; i < 4; i++) {
+            limit.tryAcquire();
+        }
+        for (int i = 0; i < 4; i++) {
+            limit.release(1, 1);
+        }
+        assertEquals(5, limit.getLimit());
+        assertEquals(0, limit.getInFlight());
+    }
+}
@@ -0,0 +1,123 @@
+package ru.yandex.practicum.filmorate.limit;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.servlet.ServletException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class WriteLimitFilterTest {
+    private static final WriteRoutes ROUTES = new WriteRoutes(List.of("POST /films", "PUT /films", "POST /users",
+            "PUT /users", "POST /users/batch", "PUT /users/{id}", "PUT /films/{id}/like/{userId}"));
+
+    private final AtomicLong clock = new AtomicLong();
+    private MeterRegistry meterRegistry;
+    private WriteLimitFilter filter;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        filter = filter(100);
+    }
+
+    @Test
+    void shouldLimitEachClientAndEndpointSeparately() throws Exception {
+        assertEquals(200, perform("POST", "/films", "10.0.0.1").getStatus());
+        assertEquals(200, perform("POST", "/films", "10.0.0.1").getStatus());
+
+        MockHttpServletResponse rejected = perform("POST", "/films", "10.0.0.1");
+        assertEquals(429, rejected.getStatus());
+        assertEquals("1", rejected.getHeader("Retry-After"));
+
+        assertEquals(200, perform("POST", "/films", "10.0.0.2").getStatus());
+        assertEquals(200, perform("POST", "/users", "10.0.0.1").getStatus());
+        assertEquals(200, perform("GET", "/films", "10.0.0.1").getStatus());
+
+        clock.addAndGet(TimeUnit.SECONDS.toNanos(1));
+        assertEquals(200, perform("POST", "/films", "10.0.0.1").getStatus());
+        assertEquals(1.0, meterRegistry.get("filmorate.limit.rejected")
+                .tag("endpoint", "POST /films")
+                .tag("reason", "rate")
+                .counter()
+                .count());
+    }
+
+    @Test
+    void shouldShedWritesAboveConcurrencyLimit() throws Exception {
+        MockHttpServletResponse[] nested = new MockHttpServletResponse[1];
+        MockHttpServletRequest request = request("PUT", "/films", "10.0.0.1");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(request, response, (req, res) -> nested[0] = perform("PUT", "/users", "10.0.0.2"));
+
+        assertEquals(200, response.getStatus());
+        assertEquals(503, nested[0].getStatus());
+        assertEquals(1.0, meterRegistry.get("filmorate.limit.rejected").tag("reason", "concurrency").counter().count());
+        assertEquals(0.0, meterRegistry.get("filmorate.limit.concurrency").tag("value", "in_flight").gauge().value());
+    }
+
+    @Test
+    void shouldGroupRequestsByRoutePattern() {
+        assertEquals("PUT /films/{id}/like/{userId}", ROUTES.endpoint("PUT", "/films/12/like/3"));
+        assertEquals("POST /users/batch", ROUTES.endpoint("POST", "/users/batch"));
+        assertEquals("PUT /users/{id}", ROUTES.endpoint("PUT", "/users/7"));
+        assertEquals("POST ?", ROUTES.endpoint("POST", "/"));
+        assertEquals("POST ?", ROUTES.endpoint("POST", "/unknown/path"));
+        assertEquals("DELETE ?", ROUTES.endpoint("DELETE", "/users/batch"));
+    }
+
+    @Test
+    void shouldShareOneBucketForUnknownPaths() throws Exception {
+        assertEquals(200, perform("POST", "/a", "10.0.0.1").getStatus());
+        assertEquals(200, perform("POST", "/b", "10.0.0.1").getStatus());
+        assertEquals(429, perform("POST", "/c", "10.0.0.1").getStatus());
+        assertEquals(1.0, meterRegistry.get("filmorate.limit.clients").gauge().value());
+    }
+
+    @Test
+    void shouldNotKeepMoreBucketsThanMaxClients() throws Exception {
+        meterRegistry = new SimpleMeterRegistry();
+        filter = filter(2);
+        assertEquals(200, perform("POST", "/films", "10.0.0.1").getStatus());
+        assertEquals(200, perform("POST", "/films", "10.0.0.2").getStatus());
+
+        //Клиенты сверх max-clients делят одну корзину на burst запросов
+        assertEquals(200, perform("POST", "/films", "10.0.0.3").getStatus());
+        assertEquals(200, perform("POST", "/films", "10.0.0.4").getStatus());
+        assertEquals(429, perform("POST", "/films", "10.0.0.5").getStatus());
+        assertEquals(2.0, meterRegistry.get("filmorate.limit.clients").gauge().value());
+
+        //Полные корзины удаляются, и новый клиент снова получает свою
+        clock.addAndGet(TimeUnit.SECONDS.toNanos(10));
+        assertEquals(200, perform("POST", "/films", "10.0.0.6").getStatus());
+        assertEquals(1.0, meterRegistry.get("filmorate.limit.clients").gauge().value());
+    }
+
+    private WriteLimitFilter filter(int maxClients) {
+        return new WriteLimitFilter(meterRegistry, 1, 2, maxClients, "X-Forwarded-For",
+                new AdaptiveConcurrencyLimit(1, 1, 1, TimeUnit.MILLISECONDS.toNanos(50), 0), clock::get,
+                () -> ROUTES);
+    }
+
+    private MockHttpServletResponse perform(String method, String path, String client)
+            throws ServletException, IOException {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(request(method, path, client), response, new MockFilterChain());
+        return response;
+    }
+
+    private static MockHttpServletRequest request(String method, String path, String client) {
+        MockHttpServletRequest request = new MockHttpServletRequest(method, path);
+        request.addHeader("X-Forwarded-For", client + ", 192.168.0.1");
+        return request;
+    }
+}
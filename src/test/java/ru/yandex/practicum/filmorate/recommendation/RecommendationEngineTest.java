@@ -0,0 +1,109 @@
+package ru.yandex.practicum.filmorate.recommendation;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.storage.film.FilmStorage;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RecommendationEngineTest {
+    private final ForkJoinPool pool = new ForkJoinPool(4);
+
+    @AfterEach
+    void tearDown() {
+        pool.shutdownNow();
+    }
+
+    @Test
+    void shouldBuildBothRowRepresentations() {
+        LikeMatrix matrix = build(Map.of(
+                30L, new long[]{7, 9},
+                10L, new long[]{5, 7, 9},
+                20L, new long[]{9}));
+
+        assertEquals(3, matrix.userCount());
+        assertEquals(3, matrix.filmCount());
+        assertEquals(6, matrix.likeCount());
+        assertArrayEquals(new long[]{5, 7, 9}, matrix.userIds);
+        assertArrayEquals(new long[]{10, 20, 30}, matrix.filmIds);
+        assertEquals(2, matrix.userIndex(9));
+        assertEquals(-1, matrix.userIndex(6));
+        //Пользователь 9 лайкнул все три фильма, его строка - номера фильмов по возрастанию
+        assertArrayEquals(new int[]{0, 1, 2},
+                Arrays.copyOfRange(matrix.userFilms, matrix.userOffsets[2], matrix.userOffsets[3]));
+        assertEquals(3, matrix.likesOfUser(2));
+        assertEquals(1, matrix.likesOfUser(0));
+    }
+
+    @Test
+    void shouldRankFilmsOfSimilarUsersExcludingLikedOnes() {
+        Map<Long, long[]> likes = new LinkedHashMap<>();
+        likes.put(1L, new long[]{100, 101, 102});
+        likes.put(2L, new long[]{100, 101});
+        likes.put(3L, new long[]{101, 102});
+        likes.put(4L, new long[]{101});
+        likes.put(5L, new long[]{103});
+        LikeMatrix matrix = build(likes);
+
+        //Фильм 3 лайкнули оба соседа пользователя 100, фильм 4 - только более похожий 101
+        long[] recommended = new RecommendationEngine(pool, 10).recommend(matrix, 100, 10);
+
+        assertArrayEquals(new long[]{3, 4}, recommended);
+    }
+
+    @Test
+    void shouldLimitNeighboursAndFilms() {
+        Map<Long, long[]> likes = new LinkedHashMap<>();
+        likes.put(1L, new long[]{100, 101, 102});
+        likes.put(2L, new long[]{100, 101});
+        likes.put(3L, new long[]{102});
+        likes.put(4L, new long[]{101});
+        LikeMatrix matrix = build(likes);
+
+        //Ближайший сосед 100 - пользователь 101 с фильмом 4, фильм 3 соседа 102 не учитывается
+        assertArrayEquals(new long[]{4}, new RecommendationEngine(pool, 1).recommend(matrix, 100, 10));
+        assertArrayEquals(new long[]{4}, new RecommendationEngine(pool, 10).recommend(matrix, 100, 1));
+        assertArrayEquals(new long[]{4, 3}, new RecommendationEngine(pool, 10).recommend(matrix, 100, 10));
+    }
+
+    @Test
+    void shouldReturnNullForUserWithoutLikes() {
+        LikeMatrix matrix = build(Map.of(1L, new long[]{100}));
+
+        assertNull(new RecommendationEngine(pool, 10).recommend(matrix, 200, 10));
+        assertArrayEquals(new long[0], new RecommendationEngine(pool, 10).recommend(matrix, 100, 10));
+    }
+
+    @Test
+    void shouldFindNeighboursAcrossUserRanges() {
+        //Пользователей больше одного диапазона: соседи попадают в разные задачи fork-join
+        int users = RecommendationEngine.RANGE * 3 + 17;
+        long[] everyone = new long[users];
+        for (int i = 0; i < users; i++) {
+            everyone[i] = i + 1;
+        }
+        Map<Long, long[]> likes = new LinkedHashMap<>();
+        likes.put(1L, everyone);
+        likes.put(2L, new long[]{1, users});
+        likes.put(3L, new long[]{users, users - 1});
+        likes.put(4L, new long[]{users - 1});
+        LikeMatrix matrix = build(likes);
+
+        RecommendationEngine engine = new RecommendationEngine(pool, 1);
+
+        //Ближайший к пользователю 1 из первого диапазона - пользователь users из последнего (фильмы 1, 2, 3)
+        assertArrayEquals(new long[]{3}, engine.recommend(matrix, 1, 10));
+        assertArrayEquals(new long[]{2}, engine.recommend(matrix, users - 1, 10));
+    }
+
+    private LikeMatrix build(Map<Long, long[]> likes) {
+        Consumer<FilmStorage.LikesConsumer> source = consumer -> likes.forEach(consumer::accept);
+        return LikeMatrix.build(source, 1, pool);
+    }
+}
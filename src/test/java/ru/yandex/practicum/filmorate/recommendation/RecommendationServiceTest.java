@@ -0,0 +1,116 @@
+package ru.yandex.practicum.filmorate.recommendation;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.storage.film.InMemoryFilmStorage;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RecommendationServiceTest {
+    private InMemoryFilmStorage filmStorage;
+    private SimpleMeterRegistry meterRegistry;
+    private RecommendationService service;
+    private long[] filmIds;
+
+    @BeforeEach
+    void setUp() {
+        filmStorage = new InMemoryFilmStorage();
+        meterRegistry = new SimpleMeterRegistry();
+        service = new RecommendationService(filmStorage, meterRegistry, 2, 10, 5, 2, 30);
+        filmIds = new long[4];
+        for (int i = 0; i < filmIds.length; i++) {
+            filmIds[i] = filmStorage.create(Film.builder()
+                    .name("Film " + i)
+                    .releaseDate(LocalDate.of(2000, 1, 1))
+                    .duration(Duration.ofMinutes(90))
+                    .build()).getId();
+        }
+    }
+
+    @AfterEach
+    void tearDown() {
+        service.stop();
+    }
+
+    @Test
+    void shouldRecommendPopularFilmsBeforeMatrixIsBuilt() {
+        filmStorage.addLike(filmIds[2], 1);
+        filmStorage.addLike(filmIds[2], 2);
+        filmStorage.addLike(filmIds[1], 2);
+
+        List<Film> films = service.recommend(7, 2);
+
+        assertEquals(List.of(filmIds[2], filmIds[1]), films.stream().map(Film::getId).toList());
+    }
+
+    @Test
+    void shouldRecommendFilmsOfSimilarUsersAndCacheThem() {
+        filmStorage.addLike(filmIds[0], 1);
+        filmStorage.addLike(filmIds[0], 2);
+        filmStorage.addLike(filmIds[1], 2);
+        service.refresh();
+
+        assertEquals(List.of(filmIds[1]), service.recommend(1, 5).stream().map(Film::getId).toList());
+        assertEquals(List.of(filmIds[1]), service.recommend(1, 5).stream().map(Film::getId).toList());
+        assertEquals(1, meterRegistry.counter("filmorate.recommendations.cache", "result", "hit").count());
+        assertEquals(1, meterRegistry.counter("filmorate.recommendations.cache", "result", "miss").count());
+    }
+
+    @Test
+    void shouldRebuildMatrixOnlyWhenLikesChange() {
+        filmStorage.addLike(filmIds[0], 1);
+        filmStorage.addLike(filmIds[0], 2);
+        filmStorage.addLike(filmIds[1], 2);
+        service.refresh();
+        service.recommend(1, 5);
+
+        service.refresh();
+        service.recommend(1, 5);
+        assertEquals(1, meterRegistry.counter("filmorate.recommendations.cache", "result", "hit").count());
+
+        filmStorage.addLike(filmIds[3], 2);
+        service.refresh();
+
+        assertEquals(List.of(filmIds[1], filmIds[3]),
+                service.recommend(1, 5).stream().map(Film::getId).toList());
+        assertEquals(2, meterRegistry.counter("filmorate.recommendations.cache", "result", "miss").count());
+    }
+
+    @Test
+    void shouldFallBackToPopularFilmsWithoutAlreadyLikedOnes() {
+        filmStorage.addLike(filmIds[0], 1);
+        filmStorage.addLike(filmIds[0], 2);
+        filmStorage.addLike(filmIds[2], 3);
+        service.refresh();
+
+        //Соседу пользователя 1 нечего рекомендовать
+        assertEquals(List.of(filmIds[2], filmIds[1]),
+                service.recommend(1, 2).stream().map(Film::getId).toList());
+    }
+
+    @Test
+    void shouldEvictEntriesBeyondCacheSize() {
+        for (long user = 1; user <= 4; user++) {
+            filmStorage.addLike(filmIds[0], user);
+            filmStorage.addLike(filmIds[(int) user % 3 + 1], user);
+        }
+        service.refresh();
+
+        for (long user = 1; user <= 4; user++) {
+            assertFalse(service.recommend(user, 5).isEmpty());
+        }
+        service.recommend(4, 5);
+        service.recommend(1, 5);
+
+        //Запись пользователя 1 вытеснена, запись пользователя 4 осталась
+        assertEquals(1, meterRegistry.counter("filmorate.recommendations.cache", "result", "hit").count());
+        assertEquals(5, meterRegistry.counter("filmorate.recommendations.cache", "result", "miss").count());
+    }
+}
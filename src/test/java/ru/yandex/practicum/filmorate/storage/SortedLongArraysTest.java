@@ -0,0 +1,53 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeSet;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+//Сверка операций над отсортированными массивами с TreeSet
+class SortedLongArraysTest {
+
+    @Test
+    void shouldInsertAndRemoveKeepingOrder() {
+        long[] array = SortedLongArrays.EMPTY;
+        array = SortedLongArrays.insert(array, 5);
+        array = SortedLongArrays.insert(array, 1);
+        array = SortedLongArrays.insert(array, 3);
+        assertSame(array, SortedLongArrays.insert(array, 3));
+
+        assertArrayEquals(new long[]{1, 3, 5}, array);
+        assertArrayEquals(new long[]{1, 5}, SortedLongArrays.remove(array, 3));
+        assertSame(array, SortedLongArrays.remove(array, 4));
+    }
+
+    @Test
+    void shouldIntersectArraysOfAnySizes() {
+        Random random = new Random(42);
+        for (int[] sizes : new int[][]{{0, 10}, {10, 10}, {5, 100_000}, {10_000, 10_000}, {100_000, 3}}) {
+            Set<Long> first = randomSet(random, sizes[0]);
+            Set<Long> second = randomSet(random, sizes[1]);
+            Set<Long> expected = new TreeSet<>(first);
+            expected.retainAll(second);
+
+            long[] actual = SortedLongArrays.intersect(toArray(first), toArray(second));
+
+            assertArrayEquals(toArray(expected), actual);
+        }
+    }
+
+    private static Set<Long> randomSet(Random random, int size) {
+        Set<Long> set = new TreeSet<>();
+        while (set.size() < size) {
+            set.add((long) random.nextInt(200_000));
+        }
+        return set;
+    }
+
+    private static long[] toArray(Set<Long> set) {
+        return set.stream().mapToLong(Long::longValue).toArray();
+    }
+}
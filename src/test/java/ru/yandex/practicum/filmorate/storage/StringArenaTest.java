@@ -0,0 +1,58 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StringArenaTest {
+
+    @Test
+    void shouldReadBackWrittenStrings() {
+        StringArena arena = new StringArena();
+        List<String> values = new ArrayList<>();
+        List<Long> refs = new ArrayList<>();
+        for (int i = 0; i < 100_000; i++) {
+            String value = "Фильм " + i + " " + "x".repeat(i % 300);
+            values.add(value);
+            refs.add(arena.add(value));
+        }
+
+        for (int i = 0; i < values.size(); i++) {
+            assertEquals(values.get(i), arena.get(refs.get(i)));
+        }
+        assertTrue(arena.allocatedBytes() > 1 << 20);
+    }
+
+    @Test
+    void shouldStoreNullAndEmptyStrings() {
+        StringArena arena = new StringArena();
+
+        assertEquals(StringArena.NULL, arena.add(null));
+        assertNull(arena.get(StringArena.NULL));
+        assertEquals("", arena.get(arena.add("")));
+    }
+
+    @Test
+    void shouldReuseUnchangedString() {
+        StringArena arena = new StringArena();
+        long ref = arena.add("Описание");
+
+        assertEquals(ref, arena.add("Описание", ref));
+        long changed = arena.add("Другое описание", ref);
+        assertNotEquals(ref, changed);
+        assertEquals("Другое описание", arena.get(changed));
+    }
+
+    @Test
+    void shouldStoreStringLargerThanChunk() {
+        StringArena arena = new StringArena();
+        String large = "a".repeat(3 << 20);
+        long small = arena.add("small");
+
+        assertEquals(large, arena.get(arena.add(large)));
+        assertEquals("small", arena.get(small));
+    }
+}
@@ -0,0 +1,56 @@
+package ru.yandex.practicum.filmorate.storage.film;
+
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.model.Film;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+//Тест поискового индекса фильмов
+class FilmSearchIndexTest {
+    private final FilmSearchIndex index = new FilmSearchIndex();
+
+    @Test
+    void shouldRankNameAndExactMatchesFirst() {
+        index.add(film(1, "Звёздные войны", "Космическая опера"));
+        index.add(film(2, "Космос", "Документальный фильм о звёздах"));
+        index.add(film(3, "Звёзды", "Про космонавтов"));
+
+        assertEquals(List.of(1L, 3L, 2L), index.search("звёзд", 0, 10));
+        assertEquals(List.of(2L, 3L), index.search("Космо, звёзд", 0, 10));
+        assertEquals(List.of(3L), index.search("звёзд", 1, 1));
+        assertTrue(index.search("комедия", 0, 10).isEmpty());
+        assertTrue(index.search("  ", 0, 10).isEmpty());
+    }
+
+    @Test
+    void shouldReindexUpdatedFilm() {
+        Film old = film(1, "Terminator", "Robots");
+        index.add(old);
+
+        index.replace(old, film(1, "Alien", "Robots"));
+
+        assertTrue(index.search("term", 0, 10).isEmpty());
+        assertEquals(List.of(1L), index.search("ali", 0, 10));
+        assertEquals(List.of(1L), index.search("robot", 0, 10));
+    }
+
+    @Test
+    void shouldMergeResultsOfAllPartsInOrder() {
+        for (long id = 1; id <= 100; id++) {
+            index.add(film(id, id % 10 == 0 ? "Common rare" : "Common", "Описание " + id));
+        }
+
+        //Фильмы лежат в разных частях индекса, при равной релевантности порядок - по id
+        assertEquals(List.of(46L, 47L, 48L, 49L, 50L, 51L, 52L, 53L, 54L, 55L), index.search("common", 45, 10));
+        assertEquals(List.of(10L, 20L, 30L), index.search("rare common", 0, 3));
+        assertEquals(List.of(40L), index.search("common rare", 3, 1));
+        assertEquals(List.of(100L), index.search("common 100", 0, 10));
+        assertTrue(index.search("common", 100, 10).isEmpty());
+    }
+
+    private static Film film(long id, String name, String description) {
+        return Film.builder().id(id).name(name).description(description).build();
+    }
+}
@@ -0,0 +1,236 @@
+package ru.yandex.practicum.filmorate.storage.film;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.exception.PreconditionFailedException;
+import ru.yandex.practicum.filmorate.exception.ValidationException;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmRangeFilter;
+import ru.yandex.practicum.filmorate.storage.StorageJournal;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+//Стресс-тест хранилища фильмов
+class InMemoryFilmStorageTest {
+    private static final int WRITERS = 64;
+    private static final int OPERATIONS = 500;
+
+    private InMemoryFilmStorage filmStorage;
+
+    @BeforeEach
+    void setUp() {
+        filmStorage = new InMemoryFilmStorage();
+    }
+
+    @Test
+    void shouldNotLoseUpdatesUnderConcurrentWriters() throws Exception {
+        Film film = filmStorage.create(Film.builder()
+                .name("Film")
+                .releaseDate(LocalDate.of(2000, 1, 1))
+                .duration(Duration.ZERO)
+                .build());
+
+        runConcurrently(() -> {
+            for (int i = 0; i < OPERATIONS; i++) {
+                filmStorage.update(film.getId(), oldFilm -> {
+                    oldFilm.setDuration(oldFilm.getDuration().plusSeconds(1));
+                    return oldFilm;
+                });
+            }
+        });
+
+        Film stored = filmStorage.findById(film.getId()).orElseThrow();
+        assertEquals(Duration.ofSeconds((long) WRITERS * OPERATIONS), stored.getDuration());
+    }
+
+    @Test
+    void shouldAssignUniqueIdsUnderConcurrentCreates() throws Exception {
+        Set<Long> ids = ConcurrentHashMap.newKeySet();
+
+        runConcurrently(() -> {
+            for (int i = 0; i < OPERATIONS; i++) {
+                ids.add(filmStorage.create(Film.builder().name("Film " + i).build()).getId());
+            }
+        });
+
+        assertEquals(WRITERS * OPERATIONS, ids.size());
+        assertEquals(WRITERS * OPERATIONS, filmStorage.findAll().size());
+    }
+
+    @Test
+    void shouldChangeVersionWhenBatchIsStoredPartially() {
+        filmStorage = new InMemoryFilmStorage(true);
+        long before = filmStorage.getVersion();
+
+        assertThrows(ValidationException.class, () -> filmStorage.createAll(List.of(
+                Film.builder().name("Stored").releaseDate(LocalDate.of(2000, 1, 1)).build(),
+                Film.builder().name("Rejected").releaseDate(LocalDate.MAX).build())));
+
+        assertEquals(1, filmStorage.findAll().size());
+        assertNotEquals(before, filmStorage.getVersion());
+    }
+
+    @Test
+    void shouldNotLoseUpdatesInPackedLayout() throws Exception {
+        filmStorage = new InMemoryFilmStorage(true);
+        Film film = filmStorage.create(Film.builder().name("Film").duration(Duration.ZERO).build());
+
+        runConcurrently(() -> {
+            for (int i = 0; i < OPERATIONS; i++) {
+                filmStorage.update(film.getId(), oldFilm -> {
+                    oldFilm.setDuration(oldFilm.getDuration().plusSeconds(1));
+                    return oldFilm;
+                });
+                filmStorage.create(Film.builder().name("Film " + i).build());
+            }
+        });
+
+        Film stored = filmStorage.findById(film.getId()).orElseThrow();
+        assertEquals(Duration.ofSeconds((long) WRITERS * OPERATIONS), stored.getDuration());
+        assertEquals(WRITERS * OPERATIONS + 1, filmStorage.findAll().size());
+    }
+
+    @Test
+    void shouldApplyOnlyOneUpdateOfTheSameVersion() throws Exception {
+        Film film = filmStorage.create(Film.builder().name("Film").duration(Duration.ZERO).build());
+        AtomicInteger applied = new AtomicInteger();
+        AtomicInteger rejected = new AtomicInteger();
+
+        runConcurrently(() -> {
+            try {
+                filmStorage.update(film.getId(), version -> version == 1, oldFilm -> {
+                    oldFilm.setDuration(oldFilm.getDuration().plusSeconds(1));
+                    return oldFilm;
+                });
+                applied.incrementAndGet();
+            } catch (PreconditionFailedException e) {
+                rejected.incrementAndGet();
+            }
+        });
+
+        Film stored = filmStorage.findById(film.getId()).orElseThrow();
+        assertEquals(1, applied.get());
+        assertEquals(WRITERS - 1, rejected.get());
+        assertEquals(2, stored.getVersion());
+        assertEquals(Duration.ofSeconds(1), stored.getDuration());
+        assertEquals(1, film.getVersion(), "Сохранённая ранее копия не должна изменяться");
+    }
+
+    //Обновление, пришедшее сразу после появления фильма, не должно оставлять в индексах прежние слова и даты
+    @Test
+    void shouldIndexOnlyLatestVersionOfFilmUpdatedRightAfterCreate() throws Exception {
+        int count = WRITERS / 2 * OPERATIONS / 10;
+        AtomicInteger roles = new AtomicInteger();
+        AtomicInteger remaining = new AtomicInteger(count);
+
+        runConcurrently(() -> {
+            if (roles.getAndIncrement() % 2 == 0) {
+                while (remaining.getAndDecrement() > 0) {
+                    filmStorage.create(Film.builder()
+                            .name("Старое название")
+                            .releaseDate(LocalDate.of(2000, 1, 1))
+                            .duration(Duration.ofMinutes(90))
+                            .build());
+                }
+                return;
+            }
+            for (long id = 1; id <= count; id++) {
+                while (filmStorage.update(id, film -> film.toBuilder()
+                        .name("Новое название")
+                        .releaseDate(LocalDate.of(2010, 1, 1))
+                        .build()).isEmpty()) {
+                    Thread.onSpinWait();
+                }
+            }
+        });
+
+        FilmRangeFilter oldRelease = new FilmRangeFilter();
+        oldRelease.setReleasedFrom(LocalDate.of(2000, 1, 1));
+        oldRelease.setReleasedTo(LocalDate.of(2000, 1, 1));
+        assertTrue(filmStorage.search("старое", 0, count).isEmpty());
+        assertEquals(count, filmStorage.search("новое", 0, count).size());
+        assertTrue(filmStorage.findInRange(oldRelease, count).isEmpty());
+    }
+
+    @Test
+    void shouldReturnEmptyWhenUpdatingMissingFilm() {
+        assertTrue(filmStorage.update(42L, oldFilm -> oldFilm).isEmpty());
+    }
+
+    @Test
+    void shouldMergeLikesWhenFilmIsImportedAgain() {
+        Film film = Film.builder().id(5L).version(1).name("Film").releaseDate(LocalDate.of(2000, 1, 1)).build();
+        filmStorage.importFilm(film, new long[]{1});
+        filmStorage.addLike(5, 2);
+
+        filmStorage.importFilm(film.toBuilder().build(), new long[]{1, 3});
+
+        assertArrayEquals(new long[]{1, 2, 3}, Arrays.stream(filmStorage.likesOf(5)).sorted().toArray());
+        assertFalse(filmStorage.evict(5, 1, new long[]{1, 3}));
+    }
+
+    @Test
+    void shouldNotApplyChangesRejectedByJournal() {
+        Film film = filmStorage.create(Film.builder().name("Старое").releaseDate(LocalDate.of(2000, 1, 1)).build());
+        filmStorage.setJournal(new StorageJournal() {
+            @Override
+            public void filmSaved(Film saved) {
+                throw new UncheckedIOException(new IOException("Диск недоступен"));
+            }
+
+            @Override
+            public void likeAdded(long filmId, long userId) {
+                throw new UncheckedIOException(new IOException("Диск недоступен"));
+            }
+        });
+
+        assertThrows(UncheckedIOException.class, () -> filmStorage.update(film.getId(), current -> {
+            current.setName("Новое");
+            return current;
+        }));
+        assertThrows(UncheckedIOException.class, () -> filmStorage.create(Film.builder().name("Другое").build()));
+        assertThrows(UncheckedIOException.class, () -> filmStorage.addLike(film.getId(), 1));
+
+        assertEquals("Старое", filmStorage.findById(film.getId()).orElseThrow().getName());
+        assertEquals(1, filmStorage.count());
+        assertEquals(1, filmStorage.search("старое", 0, 10).size());
+        assertTrue(filmStorage.search("другое", 0, 10).isEmpty());
+        assertEquals(0, filmStorage.likesOf(film.getId()).length);
+    }
+
+    private void runConcurrently(Runnable task) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(WRITERS);
+        try {
+            CountDownLatch start = new CountDownLatch(1);
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < WRITERS; i++) {
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    task.run();
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+}
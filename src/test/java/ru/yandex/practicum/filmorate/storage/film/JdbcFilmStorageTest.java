@@ -0,0 +1,155 @@
+package ru.yandex.practicum.filmorate.storage.film;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.JdbcTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import ru.yandex.practicum.filmorate.exception.PreconditionFailedException;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmRangeFilter;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+//Тест хранилища фильмов на встроенной базе H2
+@JdbcTest
+@ActiveProfiles("jdbc")
+@Import(JdbcFilmStorage.class)
+class JdbcFilmStorageTest {
+    @Autowired
+    private JdbcFilmStorage filmStorage;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void shouldCreateAndFindFilm() {
+        Film created = filmStorage.create(film("Film"));
+
+        Film stored = filmStorage.findById(created.getId()).orElseThrow();
+        assertEquals(created, stored);
+    }
+
+    @Test
+    void shouldIncrementVersionAndRejectStaleUpdate() {
+        Film created = filmStorage.create(film("Film"));
+        assertEquals(1, created.getVersion());
+
+        filmStorage.update(created.getId(), version -> version == 1, film -> {
+            film.setName("Updated");
+            return film;
+        });
+
+        assertThrows(PreconditionFailedException.class,
+                () -> filmStorage.update(created.getId(), version -> version == 1, film -> film));
+        Film stored = filmStorage.findById(created.getId()).orElseThrow();
+        assertEquals(2, stored.getVersion());
+        assertEquals("Updated", stored.getName());
+    }
+
+    @Test
+    void shouldAssignIdsToBatch() {
+        List<Film> films = new ArrayList<>();
+        for (int i = 0; i < 2500; i++) {
+            films.add(film("Film " + i));
+        }
+
+        filmStorage.createAll(films);
+
+        for (int i = 1; i < films.size(); i++) {
+            assertEquals(films.get(i - 1).getId() + 1, films.get(i).getId());
+        }
+        assertEquals(films.size(), filmStorage.findAll().size());
+    }
+
+    @Test
+    void shouldReturnPageAfterCursor() {
+        filmStorage.createAll(List.of(film("First"), film("Second"), film("Third")));
+        long firstId = filmStorage.findPage(0, 1).get(0).getId();
+
+        List<Film> page = filmStorage.findPage(firstId, 10);
+
+        assertEquals(2, page.size());
+        assertEquals("Second", page.get(0).getName());
+    }
+
+    @Test
+    void shouldApplyUpdate() {
+        Film created = filmStorage.create(film("Film"));
+
+        Film updated = filmStorage.update(created.getId(), film -> {
+            film.setName("Updated");
+            return film;
+        }).orElseThrow();
+
+        assertEquals("Updated", updated.getName());
+        assertEquals("Updated", filmStorage.findById(created.getId()).orElseThrow().getName());
+        assertTrue(filmStorage.update(created.getId() + 100, film -> film).isEmpty());
+    }
+
+    @Test
+    void shouldRankFilmsByLikes() {
+        Film first = filmStorage.create(film("First"));
+        Film second = filmStorage.create(film("Second"));
+        long user = createUser("user@mail.ru");
+        long anotherUser = createUser("another@mail.ru");
+
+        filmStorage.addLike(second.getId(), user);
+        filmStorage.addLike(second.getId(), user);
+        filmStorage.addLike(second.getId(), anotherUser);
+        filmStorage.addLike(first.getId(), user);
+        assertEquals(List.of(second.getId(), first.getId()),
+                filmStorage.findPopular(10).stream().map(Film::getId).toList());
+
+        filmStorage.removeLike(second.getId(), user);
+        filmStorage.removeLike(second.getId(), anotherUser);
+        assertEquals(List.of(first.getId()), filmStorage.findPopular(1).stream().map(Film::getId).toList());
+    }
+
+    @Test
+    void shouldSearchByWordPrefixes() {
+        Film star = filmStorage.create(film("Star Wars"));
+        filmStorage.create(film("Wars of stars"));
+        filmStorage.create(film("Alien"));
+
+        List<Film> found = filmStorage.search("sta", 0, 10);
+
+        assertEquals(2, found.size());
+        assertEquals(star.getId(), filmStorage.search("star war", 0, 1).get(0).getId());
+        assertTrue(filmStorage.search("ars", 0, 10).isEmpty());
+    }
+
+    @Test
+    void shouldFindFilmsInRange() {
+        Film old = filmStorage.create(film("Old").toBuilder().releaseDate(LocalDate.of(1950, 1, 1)).build());
+        Film recent = filmStorage.create(film("Recent"));
+        FilmRangeFilter filter = new FilmRangeFilter();
+        filter.setReleasedTo(LocalDate.of(1999, 12, 31));
+
+        assertEquals(List.of(old.getId()), filmStorage.findInRange(filter, 10).stream().map(Film::getId).toList());
+
+        filter = new FilmRangeFilter();
+        filter.setMinDuration(Duration.ofMinutes(90).toSeconds());
+        assertEquals(List.of(old.getId(), recent.getId()),
+                filmStorage.findInRange(filter, 10).stream().map(Film::getId).toList());
+    }
+
+    private long createUser(String email) {
+        jdbcTemplate.update("INSERT INTO users (email, login) VALUES (?, 'login')", email);
+        return jdbcTemplate.queryForObject("SELECT id FROM users WHERE email = ?", Long.class, email);
+    }
+
+    private static Film film(String name) {
+        return Film.builder()
+                .name(name)
+                .description("Description")
+                .releaseDate(LocalDate.of(2000, 1, 1))
+                .duration(Duration.ofMinutes(90))
+                .build();
+    }
+}
@@ -0,0 +1,81 @@
+package ru.yandex.practicum.filmorate.storage.film;
+
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.model.Film;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PackedFilmTableTest {
+
+    @Test
+    void shouldConvertFilmsAtBoundary() {
+        PackedFilmTable table = new PackedFilmTable();
+        Film film = Film.builder()
+                .id(1)
+                .name("Фильм")
+                .description("Описание")
+                .releaseDate(LocalDate.of(1895, 12, 28))
+                .duration(Duration.ofSeconds(5400, 500))
+                .build();
+        Film empty = Film.builder().id(2).build();
+
+        table.put(film);
+        table.put(empty);
+
+        assertEquals(film, table.get(1));
+        assertEquals(empty, table.get(2));
+        assertNotSame(film, table.get(1));
+        assertNull(table.get(3));
+        assertNull(table.get(0));
+    }
+
+    @Test
+    void shouldPageInIdOrderAcrossGrowth() {
+        PackedFilmTable table = new PackedFilmTable();
+        for (long id = 1; id <= 5_000; id++) {
+            table.put(Film.builder().id(id).name("Film " + id).build());
+        }
+
+        List<Film> page = table.page(4_990, 20);
+
+        assertEquals(10, page.size());
+        assertEquals(4_991, page.get(0).getId());
+        assertEquals("Film 5000", page.get(page.size() - 1).getName());
+        assertEquals(5_000, table.values().size());
+    }
+
+    @Test
+    void shouldNotReturnTornRowsWhileWritersUpdate() throws Exception {
+        PackedFilmTable table = new PackedFilmTable();
+        table.put(film(1, 0));
+        AtomicBoolean running = new AtomicBoolean(true);
+        Thread writer = new Thread(() -> {
+            for (int i = 1; i < 200_000; i++) {
+                table.put(film(1, i));
+                //Рост массивов во время чтения
+                table.put(film(i + 1, i));
+            }
+            running.set(false);
+        });
+        writer.start();
+
+        while (running.get()) {
+            Film film = table.get(1);
+            assertEquals("Film " + film.getDuration().toSeconds(), film.getName());
+        }
+        writer.join();
+    }
+
+    private static Film film(long id, int version) {
+        return Film.builder()
+                .id(id)
+                .name("Film " + version)
+                .duration(Duration.ofSeconds(version))
+                .build();
+    }
+}
@@ -0,0 +1,256 @@
+package ru.yandex.practicum.filmorate.storage.journal;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import ru.yandex.practicum.filmorate.exception.ValidationException;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.film.InMemoryFilmStorage;
+import ru.yandex.practicum.filmorate.storage.user.InMemoryUserStorage;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+//Восстановление после сбоя: журнал не закрывается, а новые хранилища поднимаются из того же каталога
+class DurableJournalTest {
+    @TempDir
+    Path directory;
+
+    private final List<DurableJournal> journals = new ArrayList<>();
+    private InMemoryFilmStorage filmStorage;
+    private InMemoryUserStorage userStorage;
+    private DurableJournal journal;
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @AfterEach
+    void tearDown() throws Exception {
+        for (DurableJournal started : journals) {
+            started.stop();
+        }
+    }
+
+    @Test
+    void shouldRecoverFromJournalAfterCrash() throws Exception {
+        restart();
+        List<Film> films = filmStorage.createAll(List.of(film(1), film(2), film(3)));
+        User first = userStorage.create(user(1));
+        User second = userStorage.create(user(2));
+        userStorage.addFriend(first.getId(), second.getId());
+        filmStorage.addLike(films.get(2).getId(), first.getId());
+        filmStorage.update(films.get(0).getId(), film -> {
+            film.setName("Обновлённый");
+            film.setReleaseDate(null);
+            return film;
+        });
+        State before = state();
+        journal.flush();
+
+        restart();
+
+        assertEquals(before, state());
+        assertEquals(3, filmStorage.count());
+        assertEquals(4, filmStorage.create(film(4)).getId());
+    }
+
+    @Test
+    void shouldRecoverFromSnapshotAndJournalTail() throws Exception {
+        restart();
+        List<Film> films = filmStorage.createAll(List.of(film(1), film(2)));
+        List<User> users = userStorage.createAll(List.of(user(1), user(2), user(3)));
+        filmStorage.addLike(films.get(0).getId(), users.get(0).getId());
+        filmStorage.addLike(films.get(0).getId(), users.get(1).getId());
+        userStorage.addFriend(users.get(0).getId(), users.get(1).getId());
+        journal.snapshot();
+
+        filmStorage.removeLike(films.get(0).getId(), users.get(1).getId());
+        filmStorage.addLike(films.get(1).getId(), users.get(2).getId());
+        filmStorage.addLike(films.get(1).getId(), users.get(1).getId());
+        userStorage.removeFriend(users.get(1).getId(), users.get(0).getId());
+        userStorage.addFriend(users.get(2).getId(), users.get(1).getId());
+        userStorage.update(users.get(0).getId(), user -> {
+            user.setEmail("changed@mail.ru");
+            return user;
+        });
+        filmStorage.create(film(3));
+        State before = state();
+        journal.flush();
+
+        restart();
+
+        assertEquals(before, state());
+        assertEquals(2, userStorage.findById(users.get(0).getId()).orElseThrow().getVersion());
+        assertThrows(ValidationException.class,
+                () -> userStorage.create(user(4).toBuilder().email("changed@mail.ru").build()));
+        assertEquals(List.of(films.get(1).getId(), films.get(0).getId()),
+                filmStorage.findPopular(2).stream().map(Film::getId).toList());
+    }
+
+    @Test
+    void shouldDropTornTailAndKeepAppending() throws Exception {
+        restart();
+        filmStorage.createAll(List.of(film(1), film(2), film(3)));
+        journal.flush();
+        List<Long> segments = WriteAheadLog.segments(directory);
+        //Оборванный кадр: заголовок обещает 100 байт, записано 3
+        Files.write(WriteAheadLog.path(directory, segments.getLast()), new byte[]{0, 0, 0, 100, 1, 2, 3, 4, 1, 2, 3},
+                StandardOpenOption.APPEND);
+
+        restart();
+        assertEquals(3, filmStorage.findAll().size());
+        filmStorage.create(film(4));
+        journal.flush();
+
+        restart();
+        assertEquals(4, filmStorage.findAll().size());
+    }
+
+    @Test
+    void shouldIgnoreUnfinishedSnapshot() throws Exception {
+        restart();
+        filmStorage.create(film(1));
+        journal.snapshot();
+        filmStorage.create(film(2));
+        journal.flush();
+        Files.write(directory.resolve(Snapshot.FILE + ".tmp"), new byte[]{1, 2, 3});
+
+        restart();
+
+        assertEquals(2, filmStorage.findAll().size());
+        assertFalse(Files.exists(directory.resolve(Snapshot.FILE + ".tmp")));
+    }
+
+    @Test
+    void shouldRecoverPackedStorages() throws Exception {
+        restart();
+        filmStorage.createAll(List.of(film(1), film(2)));
+        userStorage.create(user(1));
+        journal.snapshot();
+        filmStorage.create(film(3));
+        State before = state();
+        journal.flush();
+
+        filmStorage = new InMemoryFilmStorage(true);
+        userStorage = new InMemoryUserStorage(true);
+        start();
+
+        assertEquals(before, state());
+    }
+
+    @Test
+    void shouldRecoverWriteBehindJournalAfterFlush() throws Exception {
+        restart(new DurableJournal.WriteBehind(16, 4, DurableJournal.Ack.NONE));
+        List<Film> films = filmStorage.createAll(List.of(film(1), film(2), film(3)));
+        List<User> users = userStorage.createAll(List.of(user(1), user(2)));
+        filmStorage.addLike(films.get(0).getId(), users.get(0).getId());
+        filmStorage.addLike(films.get(0).getId(), users.get(1).getId());
+        filmStorage.removeLike(films.get(0).getId(), users.get(0).getId());
+        userStorage.addFriend(users.get(0).getId(), users.get(1).getId());
+        userStorage.removeFriend(users.get(1).getId(), users.get(0).getId());
+        userStorage.addFriend(users.get(1).getId(), users.get(0).getId());
+        //Очередь на 16 изменений: писатель успевает за записью, остальные ждут места
+        for (int i = 0; i < 100; i++) {
+            String name = "Версия " + i;
+            filmStorage.update(films.get(1).getId(), film -> film.toBuilder().name(name).build());
+        }
+        State before = state();
+        journal.flush();
+
+        restart();
+
+        assertEquals(before, state());
+        assertEquals(101, filmStorage.findById(films.get(1).getId()).orElseThrow().getVersion());
+    }
+
+    @Test
+    void shouldCoalesceUpdatesOfOneFilmInBatch() throws Exception {
+        restart(new DurableJournal.WriteBehind(1024, 1024, DurableJournal.Ack.NONE));
+        long id = filmStorage.create(film(1)).getId();
+        for (int i = 0; i < 100; i++) {
+            String name = "Версия " + i;
+            filmStorage.update(id, film -> film.toBuilder().name(name).build());
+        }
+        journal.flush();
+
+        assertTrue(meterRegistry.counter("filmorate.journal.coalesced").count() > 0);
+        restart();
+        assertEquals("Версия 99", filmStorage.findById(id).orElseThrow().getName());
+        assertEquals(101, filmStorage.findById(id).orElseThrow().getVersion());
+    }
+
+    @Test
+    void shouldAcknowledgeWriteAfterFlushToDisk() throws Exception {
+        restart(new DurableJournal.WriteBehind(1024, 1024, DurableJournal.Ack.FLUSH));
+        Film created = filmStorage.create(film(1));
+        filmStorage.addLike(created.getId(), 42);
+
+        //Журнал не сбрасывался и не закрывался: изменения уже на диске к возврату из хранилища
+        restart();
+
+        assertEquals(List.of(created), List.copyOf(filmStorage.findAll()));
+        assertArrayEquals(new long[]{42}, filmStorage.likesOf(created.getId()));
+    }
+
+    private void restart() throws Exception {
+        restart(null);
+    }
+
+    private void restart(DurableJournal.WriteBehind writeBehind) throws Exception {
+        filmStorage = new InMemoryFilmStorage();
+        userStorage = new InMemoryUserStorage();
+        start(writeBehind);
+    }
+
+    private void start() throws Exception {
+        start(null);
+    }
+
+    private void start(DurableJournal.WriteBehind writeBehind) throws Exception {
+        journal = new DurableJournal(filmStorage, userStorage, directory, 10, 3600, writeBehind, meterRegistry);
+        journal.start();
+        journals.add(journal);
+    }
+
+    private State state() {
+        List<long[]> likes = new ArrayList<>();
+        List<List<Long>> friends = new ArrayList<>();
+        for (Film film : filmStorage.findAll()) {
+            likes.add(filmStorage.likesOf(film.getId()));
+        }
+        for (User user : userStorage.findAll()) {
+            friends.add(userStorage.findFriends(user.getId()).stream().map(User::getId).toList());
+        }
+        return new State(List.copyOf(filmStorage.findAll()), List.copyOf(userStorage.findAll()),
+                likes.stream().map(ids -> Arrays.stream(ids).sorted().boxed().toList()).toList(), friends);
+    }
+
+    private static Film film(int i) {
+        return Film.builder()
+                .name("Фильм " + i)
+                .description("Описание " + i)
+                .releaseDate(LocalDate.of(2000, 1, 1).plusDays(i))
+                .duration(Duration.ofMinutes(90 + i))
+                .build();
+    }
+
+    private static User user(int i) {
+        return User.builder()
+                .email("user" + i + "@mail.ru")
+                .login("user" + i)
+                .name("User " + i)
+                .birthday(LocalDate.of(1990, 1, 1).plusDays(i))
+                .build();
+    }
+
+    private record State(List<Film> films, List<User> users, List<List<Long>> likes, List<List<Long>> friends) {
+    }
+}
@@ -0,0 +1,36 @@
+package ru.yandex.practicum.filmorate.storage.journal;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import ru.yandex.practicum.filmorate.exception.JournalUnavailableException;
+
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+//Отложенная запись при недоступном диске: ожидающие и новые изменения получают ошибку, а не висят
+class WriteBehindQueueTest {
+    @TempDir
+    Path directory;
+
+    @Test
+    void shouldRejectChangesAfterWriteAttemptsFail() throws Exception {
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        WriteAheadLog wal = new WriteAheadLog(directory, 1);
+        //Запись в закрытый сегмент завершается ошибкой ввода-вывода, как при отказе диска
+        wal.close();
+        WriteBehindQueue queue = new WriteBehindQueue(wal, 16, 4, 10, true, meterRegistry);
+        try {
+            queue.pair(Records.LIKE_ADDED, 1, 2);
+
+            assertThrows(JournalUnavailableException.class, queue::awaitDurable);
+            assertThrows(JournalUnavailableException.class, () -> queue.pair(Records.LIKE_ADDED, 1, 3));
+            assertThrows(JournalUnavailableException.class, queue::awaitCapacity);
+            assertEquals(1, meterRegistry.counter("filmorate.journal.write.failures").count());
+            assertEquals(1, meterRegistry.counter("filmorate.journal.rejected").count());
+        } finally {
+            queue.close();
+        }
+    }
+}
@@ -0,0 +1,179 @@
+package ru.yandex.practicum.filmorate.storage.user;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.exception.ValidationException;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.StorageJournal;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+//Стресс-тест хранилища пользователей
+class InMemoryUserStorageTest {
+    private static final int WRITERS = 64;
+    private static final int OPERATIONS = 200;
+
+    private InMemoryUserStorage userStorage;
+
+    @BeforeEach
+    void setUp() {
+        userStorage = new InMemoryUserStorage();
+    }
+
+    @Test
+    void shouldNotLoseUpdatesUnderConcurrentWriters() throws Exception {
+        User user = userStorage.create(User.builder()
+                .email("user@mail.ru")
+                .login("login")
+                .name("")
+                .birthday(LocalDate.of(1990, 1, 1))
+                .build());
+
+        ExecutorService executor = Executors.newFixedThreadPool(WRITERS);
+        try {
+            CountDownLatch start = new CountDownLatch(1);
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < WRITERS; i++) {
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    for (int j = 0; j < OPERATIONS; j++) {
+                        userStorage.update(user.getId(), oldUser -> {
+                            oldUser.setName(oldUser.getName() + "x");
+                            return oldUser;
+                        });
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        User stored = userStorage.findById(user.getId()).orElseThrow();
+        assertEquals(WRITERS * OPERATIONS, stored.getName().length());
+    }
+
+    @Test
+    void shouldAcceptOnlyOneOfRacingSignupsWithSameEmail() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(WRITERS);
+        AtomicInteger created = new AtomicInteger();
+        try {
+            CountDownLatch start = new CountDownLatch(1);
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < WRITERS; i++) {
+                String login = "login" + i;
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    try {
+                        userStorage.create(User.builder().email("same@mail.ru").login(login).build());
+                        created.incrementAndGet();
+                    } catch (ValidationException ignored) {
+                        // email уже занят другим потоком
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        assertEquals(1, created.get());
+        assertEquals(1, userStorage.findAll().size());
+    }
+
+    @Test
+    void shouldReleaseEmailWhenUserIsNotStored() {
+        InMemoryUserStorage packedStorage = new InMemoryUserStorage(true);
+        User outOfRange = User.builder().email("far@mail.ru").login("far").birthday(LocalDate.MAX).build();
+        User valid = User.builder().email("near@mail.ru").login("near").birthday(LocalDate.of(1990, 1, 1)).build();
+
+        assertThrows(ValidationException.class, () -> packedStorage.create(outOfRange));
+        assertThrows(ValidationException.class, () -> packedStorage.createAll(List.of(
+                User.builder().email("first@mail.ru").login("first").build(),
+                User.builder().email("second@mail.ru").login("second").birthday(LocalDate.MIN).build())));
+        packedStorage.create(valid.toBuilder().email("far@mail.ru").build());
+        packedStorage.create(valid.toBuilder().email("second@mail.ru").build());
+
+        assertEquals(3, packedStorage.findAll().size());
+        assertThrows(ValidationException.class,
+                () -> packedStorage.create(valid.toBuilder().email("first@mail.ru").build()));
+    }
+
+    @Test
+    void shouldKeepEmailsWhenUpdateIsNotStored() {
+        InMemoryUserStorage packedStorage = new InMemoryUserStorage(true);
+        User user = packedStorage.create(User.builder().email("old@mail.ru").login("user").build());
+
+        assertThrows(ValidationException.class, () -> packedStorage.update(user.getId(), current -> {
+            current.setEmail("new@mail.ru");
+            current.setBirthday(LocalDate.MAX);
+            return current;
+        }));
+
+        assertEquals("old@mail.ru", packedStorage.findById(user.getId()).orElseThrow().getEmail());
+        assertThrows(ValidationException.class,
+                () -> packedStorage.create(User.builder().email("old@mail.ru").login("other").build()));
+        packedStorage.create(User.builder().email("new@mail.ru").login("other").build());
+        assertEquals(2, packedStorage.findAll().size());
+    }
+
+    @Test
+    void shouldNotApplyChangesRejectedByJournal() {
+        User user = userStorage.create(User.builder().email("old@mail.ru").login("user").build());
+        User friend = userStorage.create(User.builder().email("friend@mail.ru").login("friend").build());
+        userStorage.setJournal(new StorageJournal() {
+            @Override
+            public void userSaved(User saved) {
+                throw new UncheckedIOException(new IOException("Диск недоступен"));
+            }
+
+            @Override
+            public void friendAdded(long userId, long friendId) {
+                throw new UncheckedIOException(new IOException("Диск недоступен"));
+            }
+        });
+
+        assertThrows(UncheckedIOException.class, () -> userStorage.update(user.getId(), current -> {
+            current.setEmail("new@mail.ru");
+            return current;
+        }));
+        assertThrows(UncheckedIOException.class,
+                () -> userStorage.create(User.builder().email("third@mail.ru").login("third").build()));
+        assertThrows(UncheckedIOException.class, () -> userStorage.addFriend(user.getId(), friend.getId()));
+
+        assertEquals("old@mail.ru", userStorage.findById(user.getId()).orElseThrow().getEmail());
+        assertEquals(2, userStorage.findAll().size());
+        assertTrue(userStorage.findFriends(user.getId()).isEmpty());
+        userStorage.setJournal(StorageJournal.NONE);
+        userStorage.create(User.builder().email("new@mail.ru").login("other").build());
+        userStorage.create(User.builder().email("third@mail.ru").login("third").build());
+    }
+
+    @Test
+    void shouldReturnSnapshotFromFindAll() {
+        userStorage.create(User.builder().email("first@mail.ru").login("first").build());
+        var snapshot = userStorage.findAll();
+        userStorage.create(User.builder().email("second@mail.ru").login("second").build());
+
+        assertEquals(1, snapshot.size());
+    }
+}
@@ -0,0 +1,92 @@
+package ru.yandex.practicum.filmorate.storage.user;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.JdbcTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+import ru.yandex.practicum.filmorate.exception.ValidationException;
+import ru.yandex.practicum.filmorate.model.User;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+//Тест хранилища пользователей на встроенной базе H2
+@JdbcTest
+@ActiveProfiles("jdbc")
+@Import(JdbcUserStorage.class)
+class JdbcUserStorageTest {
+    @Autowired
+    private JdbcUserStorage userStorage;
+
+    @Test
+    void shouldCreateAndFindUser() {
+        User created = userStorage.create(user("user@mail.ru"));
+
+        assertEquals(created, userStorage.findById(created.getId()).orElseThrow());
+    }
+
+    @Test
+    void shouldRejectDuplicatedEmail() {
+        userStorage.create(user("user@mail.ru"));
+
+        assertThrows(ValidationException.class, () -> userStorage.create(user("user@mail.ru")));
+    }
+
+    @Test
+    void shouldSkipTakenEmailsInBatch() {
+        userStorage.create(user("taken@mail.ru"));
+
+        List<User> created = userStorage.createAll(List.of(
+                user("first@mail.ru"),
+                user("taken@mail.ru"),
+                user("first@mail.ru"),
+                user("second@mail.ru")
+        ));
+
+        assertEquals(2, created.size());
+        assertEquals(created.get(0).getId() + 1, created.get(1).getId());
+        assertEquals(3, userStorage.findAll().size());
+    }
+
+    @Test
+    void shouldApplyUpdate() {
+        User created = userStorage.create(user("user@mail.ru"));
+
+        User updated = userStorage.update(created.getId(), user -> {
+            user.setLogin("updated");
+            return user;
+        }).orElseThrow();
+
+        assertEquals("updated", updated.getLogin());
+        assertEquals("updated", userStorage.findById(created.getId()).orElseThrow().getLogin());
+    }
+
+    @Test
+    void shouldIntersectFriends() {
+        long user = userStorage.create(user("user@mail.ru")).getId();
+        long friend = userStorage.create(user("friend@mail.ru")).getId();
+        long other = userStorage.create(user("other@mail.ru")).getId();
+
+        userStorage.addFriend(user, friend);
+        userStorage.addFriend(user, friend);
+        userStorage.addFriend(other, friend);
+
+        assertEquals(List.of(user, other), userStorage.findFriends(friend).stream().map(User::getId).toList());
+        assertEquals(List.of(friend), userStorage.findCommonFriends(user, other).stream().map(User::getId).toList());
+
+        userStorage.removeFriend(friend, user);
+        assertTrue(userStorage.findFriends(user).isEmpty());
+    }
+
+    private static User user(String email) {
+        return User.builder()
+                .email(email)
+                .login("login")
+                .name("name")
+                .birthday(LocalDate.of(1990, 1, 1))
+                .build();
+    }
+}